@@ -17,10 +17,14 @@
  */
 package org.apache.zookeeper.inspector.encryption;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
- *
+ * Stores text as its UTF-8 bytes. As a {@link DataCodec} it
+ * leaves the data as it is, so the data of a node is never copied.
  */
-public class BasicDataEncryptionManager implements DataEncryptionManager {
+public class BasicDataEncryptionManager implements DataEncryptionManager, DataCodec {
 
     /*
      * (non-Javadoc)
@@ -31,7 +35,7 @@ public class BasicDataEncryptionManager implements DataEncryptionManager {
      */
 	@Override
     public String decryptData(byte[] encrypted) throws Exception {
-        return encrypted != null ? new String(encrypted) : null;
+        return encrypted != null ? new String(encrypted, StandardCharsets.UTF_8) : null;
     }
 
     /*
@@ -46,7 +50,17 @@ public class BasicDataEncryptionManager implements DataEncryptionManager {
         if (data == null) {
             return new byte[0];
         }
-        return data.getBytes();
+        return data.getBytes(StandardCharsets.UTF_8);
+    }
+
+	@Override
+    public ByteBuffer decode(ByteBuffer data) {
+        return data;
+    }
+
+	@Override
+    public ByteBuffer encode(ByteBuffer data) {
+        return data;
     }
 
 }
@@ -0,0 +1,361 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.encryption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A {@link DataCodec} stage which decompresses data written with gzip or
+ * with deflate in the zlib format, told apart by their magic bytes, and
+ * leaves any other data as it is. Data which looks compressed but does not
+ * inflate is left as it is too, since text may happen to start with the same
+ * two bytes. Encoding compresses data of at least a threshold size.
+ * <p>
+ * Inflaters and deflaters hold native memory until they are ended, so they
+ * are pooled and shared by all codecs rather than created for every value.
+ */
+@Slf4j
+public class CompressionCodec implements DataCodec {
+
+    /**
+     * How data is compressed on write
+     */
+    public static enum Format {
+        GZIP, DEFLATE
+    }
+
+    /**
+     * the largest decompressed value, to stop a small value from inflating
+     * into all the memory there is
+     */
+    public static final int MAX_DECOMPRESSED_SIZE = 256 * 1024 * 1024;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int GZIP_HEADER_SIZE = 10;
+    private static final int GZIP_TRAILER_SIZE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final Pool<Inflater> GZIP_INFLATERS = new Pool<Inflater>(() -> new Inflater(true), Inflater::reset, Inflater::end);
+    private static final Pool<Inflater> ZLIB_INFLATERS = new Pool<Inflater>(() -> new Inflater(false), Inflater::reset, Inflater::end);
+    private static final Pool<Deflater> GZIP_DEFLATERS = new Pool<Deflater>(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true), Deflater::reset, Deflater::end);
+    private static final Pool<Deflater> ZLIB_DEFLATERS = new Pool<Deflater>(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, false), Deflater::reset, Deflater::end);
+
+    private final int threshold;
+    private final Format format;
+
+    /**
+     * A codec which only decompresses
+     */
+    public CompressionCodec() {
+        this(-1, Format.GZIP);
+    }
+
+    /**
+     * @param threshold
+     *            - the size from which data is compressed on write, or -1 to
+     *            never compress
+     * @param format
+     *            - how to compress
+     */
+    public CompressionCodec(int threshold, Format format) {
+        this.threshold = threshold;
+        this.format = format;
+    }
+
+    /**
+     * @return the size from which data is compressed on write, or -1
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return how data is compressed on write
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * @param data
+     *            - a buffer, or <code>null</code>
+     * @return true if the data starts with the magic bytes of gzip
+     */
+    public static boolean isGzip(ByteBuffer data) {
+        return data != null && data.remaining() >= GZIP_HEADER_SIZE + GZIP_TRAILER_SIZE
+                && (data.get(data.position()) & 0xff | (data.get(data.position() + 1) & 0xff) << 8) == GZIP_MAGIC
+                && data.get(data.position() + 2) == Deflater.DEFLATED;
+    }
+
+    /**
+     * @param data
+     *            - a buffer, or <code>null</code>
+     * @return true if the data starts with a zlib header for deflate without
+     *         a preset dictionary
+     */
+    public static boolean isDeflate(ByteBuffer data) {
+        if (data == null || data.remaining() < 6) {
+            return false;
+        }
+        int cmf = data.get(data.position()) & 0xff;
+        int flg = data.get(data.position() + 1) & 0xff;
+        return (cmf & 0x0f) == Deflater.DEFLATED && (cmf >> 4) <= 7 && (cmf << 8 | flg) % 31 == 0 && (flg & 0x20) == 0;
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer data) throws IOException {
+        try {
+            if (isGzip(data)) {
+                return ByteBuffer.wrap(gunzip(data));
+            }
+            if (isDeflate(data)) {
+                byte[] bytes = DataCodec.toArray(data);
+                return ByteBuffer.wrap(inflate(ZLIB_INFLATERS, bytes, 0, bytes.length, bytes.length * 4, null).output.toArray());
+            }
+        }
+        catch (DataFormatException e) {
+            log.debug("Data with the magic bytes of {} is not compressed", isGzip(data) ? "gzip" : "deflate", e);
+        }
+        return data;
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer data) {
+        if (data == null || threshold < 0 || data.remaining() < threshold) {
+            return data;
+        }
+        byte[] input = DataCodec.toArray(data);
+        Pool<Deflater> pool = format == Format.GZIP ? GZIP_DEFLATERS : ZLIB_DEFLATERS;
+        Deflater deflater = pool.borrow();
+        try {
+            Output out = new Output(input.length / 2 + 64);
+            if (format == Format.GZIP) {
+                out.write(new byte[] { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff }, 0, GZIP_HEADER_SIZE);
+            }
+            deflater.setInput(input);
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.ensureCapacity(8192);
+                out.length += deflater.deflate(out.bytes, out.length, out.bytes.length - out.length);
+            }
+            if (format == Format.GZIP) {
+                CRC32 crc = new CRC32();
+                crc.update(input);
+                out.writeIntLE((int) crc.getValue());
+                out.writeIntLE(input.length);
+            }
+            return ByteBuffer.wrap(out.toArray());
+        }
+        finally {
+            pool.release(deflater);
+        }
+    }
+
+    /**
+     * Decompresses every member of gzip data
+     */
+    private static byte[] gunzip(ByteBuffer data) throws IOException, DataFormatException {
+        byte[] bytes = DataCodec.toArray(data);
+        Output out = null;
+        int position = 0;
+        do {
+            int start = position;
+            position = skipHeader(bytes, position);
+            // the size of the last member is the last four bytes
+            int size = readIntLE(bytes, bytes.length - 4);
+            Inflated inflated = inflate(GZIP_INFLATERS, bytes, position, bytes.length - position,
+                    size > 0 && size <= MAX_DECOMPRESSED_SIZE ? size : bytes.length * 4, out);
+            out = inflated.output;
+            position = inflated.end;
+            if (position + GZIP_TRAILER_SIZE > bytes.length) {
+                throw new DataFormatException("The gzip trailer is missing");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(out.bytes, inflated.start, out.length - inflated.start);
+            if (readIntLE(bytes, position) != (int) crc.getValue()
+                    || readIntLE(bytes, position + 4) != out.length - inflated.start) {
+                throw new DataFormatException("The gzip member at offset " + start + " is corrupt");
+            }
+            position += GZIP_TRAILER_SIZE;
+        }
+        while (isGzip(ByteBuffer.wrap(bytes, position, bytes.length - position)));
+        return out.toArray();
+    }
+
+    /**
+     * @return the offset of the compressed data after the header of a gzip
+     *         member
+     */
+    private static int skipHeader(byte[] bytes, int position) throws DataFormatException {
+        int flags = bytes[position + 3] & 0xff;
+        position += GZIP_HEADER_SIZE;
+        try {
+            if ((flags & FEXTRA) != 0) {
+                position += 2 + ((bytes[position] & 0xff) | (bytes[position + 1] & 0xff) << 8);
+            }
+            if ((flags & FNAME) != 0) {
+                while (bytes[position++] != 0) {
+                    // the file name
+                }
+            }
+            if ((flags & FCOMMENT) != 0) {
+                while (bytes[position++] != 0) {
+                    // the comment
+                }
+            }
+        }
+        catch (ArrayIndexOutOfBoundsException e) {
+            throw new DataFormatException("The gzip header is truncated");
+        }
+        if ((flags & FHCRC) != 0) {
+            position += 2;
+        }
+        if (position > bytes.length) {
+            throw new DataFormatException("The gzip header is truncated");
+        }
+        return position;
+    }
+
+    /**
+     * Inflates one stream into the output, or into a new output of about the
+     * size hint
+     */
+    private static Inflated inflate(Pool<Inflater> pool, byte[] bytes, int offset, int length, int sizeHint,
+            Output out) throws IOException, DataFormatException {
+        if (out == null) {
+            out = new Output(Math.min(Math.max(sizeHint, 64), MAX_DECOMPRESSED_SIZE));
+        }
+        int start = out.length;
+        Inflater inflater = pool.borrow();
+        try {
+            inflater.setInput(bytes, offset, length);
+            while (!inflater.finished()) {
+                if (out.length == MAX_DECOMPRESSED_SIZE) {
+                    throw new IOException("The data decompresses to more than " + MAX_DECOMPRESSED_SIZE + " bytes");
+                }
+                out.ensureCapacity(Math.min(8192, MAX_DECOMPRESSED_SIZE - out.length));
+                int inflated = inflater.inflate(out.bytes, out.length, Math.min(out.bytes.length, MAX_DECOMPRESSED_SIZE) - out.length);
+                if (inflated == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("The compressed data is truncated");
+                }
+                out.length += inflated;
+            }
+            return new Inflated(out, start, offset + length - inflater.getRemaining());
+        }
+        finally {
+            pool.release(inflater);
+        }
+    }
+
+    private static int readIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    /**
+     * A growable byte array
+     */
+    private static class Output {
+        private byte[] bytes;
+        private int length;
+
+        private Output(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void ensureCapacity(int free) {
+            if (bytes.length - length < free) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + free, (int) Math.min(bytes.length * 2L, Integer.MAX_VALUE - 8)));
+            }
+        }
+
+        private void write(byte[] data, int offset, int count) {
+            ensureCapacity(count);
+            System.arraycopy(data, offset, bytes, length, count);
+            length += count;
+        }
+
+        private void writeIntLE(int value) {
+            write(new byte[] { (byte) value, (byte) (value >> 8), (byte) (value >> 16), (byte) (value >> 24) }, 0, 4);
+        }
+
+        private byte[] toArray() {
+            return length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
+        }
+    }
+
+    /**
+     * The output of inflating one stream, and where the stream ended
+     */
+    private static class Inflated {
+        private final Output output;
+        private final int start;
+        private final int end;
+
+        private Inflated(Output output, int start, int end) {
+            this.output = output;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * A bounded pool of inflaters or deflaters. Those returned when the pool
+     * is full are ended.
+     */
+    private static class Pool<T> {
+        private final BlockingQueue<T> idle = new ArrayBlockingQueue<T>(POOL_SIZE);
+        private final Supplier<T> factory;
+        private final Consumer<T> reset;
+        private final Consumer<T> end;
+
+        private Pool(Supplier<T> factory, Consumer<T> reset, Consumer<T> end) {
+            this.factory = factory;
+            this.reset = reset;
+            this.end = end;
+        }
+
+        private T borrow() {
+            T item = idle.poll();
+            return item != null ? item : factory.get();
+        }
+
+        private void release(T item) {
+            reset.accept(item);
+            if (!idle.offer(item)) {
+                end.accept(item);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.encryption;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * A {@link DataEncryptionManager} for nodes whose data may be compressed with
+ * gzip or deflate. Compressed data is recognized by its magic bytes and
+ * decompressed with a {@link CompressionCodec}; any other data is shown as
+ * {@link BasicDataEncryptionManager} shows it.
+ * <p>
+ * Saved data is compressed once it reaches the number of bytes in the system
+ * property {@value #THRESHOLD_PROPERTY}, with the format in
+ * {@value #FORMAT_PROPERTY} (gzip or deflate, gzip by default). Without the
+ * threshold, data is saved uncompressed.
+ */
+public class CompressionDataEncryptionManager implements DataEncryptionManager, DataCodec {
+
+    /**
+     * the system property with the size from which saved data is compressed
+     */
+    public static final String THRESHOLD_PROPERTY = "zooinspector.compression.threshold";
+
+    /**
+     * the system property with the format saved data is compressed with
+     */
+    public static final String FORMAT_PROPERTY = "zooinspector.compression.format";
+
+    private final CompressionCodec codec;
+
+    public CompressionDataEncryptionManager() {
+        this(Integer.getInteger(THRESHOLD_PROPERTY, -1), CompressionCodec.Format.valueOf(
+                System.getProperty(FORMAT_PROPERTY, CompressionCodec.Format.GZIP.name()).toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * @param threshold
+     *            - the size from which saved data is compressed, or -1 to
+     *            never compress
+     * @param format
+     *            - how to compress
+     */
+    public CompressionDataEncryptionManager(int threshold, CompressionCodec.Format format) {
+        this.codec = new CompressionCodec(threshold, format);
+    }
+
+    @Override
+    public String decryptData(byte[] encrypted) throws Exception {
+        if (encrypted == null) {
+            return null;
+        }
+        return new String(DataCodec.toArray(codec.decode(ByteBuffer.wrap(encrypted))), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public byte[] encryptData(String data) throws Exception {
+        if (data == null) {
+            return new byte[0];
+        }
+        return DataCodec.toArray(codec.encode(ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer data) throws Exception {
+        return codec.decode(data);
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer data) throws Exception {
+        return codec.encode(data);
+    }
+
+}
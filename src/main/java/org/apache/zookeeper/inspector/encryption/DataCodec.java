@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.encryption;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A stage which turns the data of a node as stored in zookeeper into the
+ * data shown, and back, working on bytes throughout. Stages are chained with
+ * {@link #then(DataCodec)}, for example to decrypt and then decompress, and
+ * {@link DecodedData} decodes the data of a node only when it is first asked
+ * for. Existing {@link DataEncryptionManager}s are turned into a stage with
+ * {@link EncryptionManagerCodec#of(DataEncryptionManager)}.
+ * <p>
+ * A stage must not modify the buffer it is given, but may return it as it is
+ * when it does not change the data, so that data which needs no decoding is
+ * never copied. A node without data is passed as <code>null</code>.
+ */
+public interface DataCodec {
+
+    /**
+     * @param data
+     *            - the data as stored, or as returned by the previous stage
+     * @return the decoded data
+     * @throws Exception
+     *             - if the data cannot be decoded
+     */
+    public ByteBuffer decode(ByteBuffer data) throws Exception;
+
+    /**
+     * @param data
+     *            - the data as shown, or as returned by the next stage
+     * @return the encoded data
+     * @throws Exception
+     *             - if the data cannot be encoded
+     */
+    public ByteBuffer encode(ByteBuffer data) throws Exception;
+
+    /**
+     * @param next
+     *            - the stage which decodes the data this stage decoded
+     * @return a stage which decodes with this stage and then with the next
+     *         one, and encodes in the reverse order
+     */
+    public default DataCodec then(DataCodec next) {
+        return new DataCodecChain(this, next);
+    }
+
+    /**
+     * @param data
+     *            - a buffer, or <code>null</code>
+     * @return the remaining bytes of the buffer, which is its array if the
+     *         array holds exactly those bytes
+     */
+    public static byte[] toArray(ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.hasArray() && data.arrayOffset() + data.position() == 0 && data.remaining() == data.array().length) {
+            return data.array();
+        }
+        if (data.hasArray()) {
+            int from = data.arrayOffset() + data.position();
+            return Arrays.copyOfRange(data.array(), from, from + data.remaining());
+        }
+        byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.encryption;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link DataCodec}s applied one after the other: decoding goes through the
+ * stages in order and encoding in the reverse order
+ */
+public class DataCodecChain implements DataCodec {
+
+    private final List<DataCodec> stages;
+
+    /**
+     * @param stages
+     *            - the stages in decoding order. Chains are flattened
+     */
+    public DataCodecChain(DataCodec... stages) {
+        List<DataCodec> list = new ArrayList<DataCodec>();
+        for (DataCodec stage : stages) {
+            if (stage instanceof DataCodecChain) {
+                list.addAll(((DataCodecChain) stage).stages);
+            }
+            else {
+                list.add(stage);
+            }
+        }
+        this.stages = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @return the stages in decoding order
+     */
+    public List<DataCodec> getStages() {
+        return stages;
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer data) throws Exception {
+        for (DataCodec stage : stages) {
+            data = stage.decode(data);
+        }
+        return data;
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer data) throws Exception {
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            data = stages.get(i).encode(data);
+        }
+        return data;
+    }
+
+}
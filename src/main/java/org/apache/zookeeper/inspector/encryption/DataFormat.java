@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.encryption;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * What decoded data looks like, told from its first bytes by
+ * {@link #detect(ByteBuffer)} without decoding the rest
+ */
+public enum DataFormat {
+
+    EMPTY("Empty"),
+    TEXT("Text"),
+    JSON("JSON"),
+    XML("XML"),
+    BINARY("Binary"),
+    GZIP("gzip"),
+    DEFLATE("Deflate");
+
+    /**
+     * the number of bytes looked at
+     */
+    public static final int SAMPLE_SIZE = 4096;
+
+    private final String label;
+
+    private DataFormat(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return true if the data is shown as text
+     */
+    public boolean isText() {
+        return this != BINARY && this != GZIP && this != DEFLATE;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * Data is binary if its first {@link #SAMPLE_SIZE} bytes contain a NUL
+     * character or are not valid UTF-8, and compressed if binary data starts
+     * with the magic bytes of gzip or deflate. Text is JSON or XML if its first
+     * character other than white space is one which starts them.
+     *
+     * @param data
+     *            - the decoded data, or <code>null</code>
+     * @return the format of the data
+     */
+    public static DataFormat detect(ByteBuffer data) {
+        if (data == null || !data.hasRemaining()) {
+            return EMPTY;
+        }
+        ByteBuffer sample = data.duplicate();
+        sample.limit(sample.position() + Math.min(sample.remaining(), SAMPLE_SIZE));
+        for (int i = sample.position(); i < sample.limit(); i++) {
+            if (sample.get(i) == 0) {
+                return binary(data);
+            }
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer text = CharBuffer.allocate(sample.remaining());
+        // a character cut off at the end of the sample is not an error
+        if (decoder.decode(sample, text, sample.limit() == data.limit()).isError()) {
+            return binary(data);
+        }
+        text.flip();
+        while (text.hasRemaining()) {
+            char c = text.get();
+            if (c == '{' || c == '[') {
+                return JSON;
+            }
+            if (c == '<') {
+                return XML;
+            }
+            if (!Character.isWhitespace(c) && c != '\ufeff') {
+                return TEXT;
+            }
+        }
+        return TEXT;
+    }
+
+    private static DataFormat binary(ByteBuffer data) {
+        if (CompressionCodec.isGzip(data)) {
+            return GZIP;
+        }
+        return CompressionCodec.isDeflate(data) ? DEFLATE : BINARY;
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.encryption;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The data of a node as stored in zookeeper, and the same data decoded by a
+ * {@link DataCodec} the first time it is asked for. Features which do not
+ * need the decoded data, such as the metadata viewer, never pay for decoding
+ * it. The data is decoded once, a failure is kept as well as the result. May
+ * be used from any thread.
+ */
+public class DecodedData {
+
+    private final byte[] raw;
+    private final DataCodec codec;
+    private boolean decoded;
+    private ByteBuffer data;
+    private Exception error;
+    private DataFormat format;
+
+    /**
+     * @param raw
+     *            - the data as stored, or <code>null</code>
+     * @param codec
+     *            - the {@link DataCodec} to decode it with
+     */
+    public DecodedData(byte[] raw, DataCodec codec) {
+        this.raw = raw;
+        this.codec = codec;
+    }
+
+    /**
+     * @return the data as stored, or <code>null</code>
+     */
+    public byte[] getRaw() {
+        return raw;
+    }
+
+    /**
+     * @return the decoded data, or <code>null</code>. The buffer must not be
+     *         modified
+     * @throws Exception
+     *             - if the data cannot be decoded
+     */
+    public synchronized ByteBuffer getBuffer() throws Exception {
+        if (!decoded) {
+            try {
+                data = codec.decode(raw != null ? ByteBuffer.wrap(raw) : null);
+            }
+            catch (Exception e) {
+                error = e;
+            }
+            decoded = true;
+        }
+        if (error != null) {
+            throw error;
+        }
+        return data != null ? data.duplicate() : null;
+    }
+
+    /**
+     * @return the decoded data, or <code>null</code>. The array is not copied
+     *         if the decoded data fills it, and must not be modified
+     * @throws Exception
+     *             - if the data cannot be decoded
+     */
+    public byte[] getBytes() throws Exception {
+        return DataCodec.toArray(getBuffer());
+    }
+
+    /**
+     * @return the decoded data as UTF-8 text, or
+     *         <code>null</code>
+     * @throws Exception
+     *             - if the data cannot be decoded
+     */
+    public String getText() throws Exception {
+        byte[] bytes = getBytes();
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+
+    /**
+     * @return the format of the decoded data
+     * @throws Exception
+     *             - if the data cannot be decoded
+     */
+    public synchronized DataFormat getFormat() throws Exception {
+        if (format == null) {
+            format = DataFormat.detect(getBuffer());
+        }
+        return format;
+    }
+
+}
@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.encryption;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Adapts a {@link DataEncryptionManager} to a {@link DataCodec}. The text the
+ * manager decrypts to, and encrypts from, is encoded in UTF-8, so the adapter
+ * can only be the last stage of a chain: data which is not text, such as the
+ * output of a compressing stage, does not survive the String. Managers which
+ * can work on bytes should implement {@link DataCodec} as well, and are then
+ * used as they are.
+ */
+public class EncryptionManagerCodec implements DataCodec {
+
+    private final DataEncryptionManager encryptionManager;
+
+    private EncryptionManagerCodec(DataEncryptionManager encryptionManager) {
+        this.encryptionManager = encryptionManager;
+    }
+
+    /**
+     * @param encryptionManager
+     *            - a {@link DataEncryptionManager}
+     * @return the manager itself if it is also a {@link DataCodec}, otherwise
+     *         a codec which calls it
+     */
+    public static DataCodec of(DataEncryptionManager encryptionManager) {
+        if (encryptionManager instanceof DataCodec) {
+            return (DataCodec) encryptionManager;
+        }
+        return new EncryptionManagerCodec(encryptionManager);
+    }
+
+    /**
+     * @return the adapted manager
+     */
+    public DataEncryptionManager getEncryptionManager() {
+        return encryptionManager;
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer data) throws Exception {
+        String decrypted = encryptionManager.decryptData(DataCodec.toArray(data));
+        return decrypted != null ? ByteBuffer.wrap(decrypted.getBytes(StandardCharsets.UTF_8)) : null;
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer data) throws Exception {
+        byte[] bytes = DataCodec.toArray(data);
+        byte[] encrypted = encryptionManager.encryptData(bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null);
+        return encrypted != null ? ByteBuffer.wrap(encrypted) : null;
+    }
+
+}
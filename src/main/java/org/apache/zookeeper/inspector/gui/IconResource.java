@@ -41,8 +41,10 @@ public class IconResource {
     public static final String ICON_START = "actions/media-playback-start";
     public static final String ICON_STOP = "actions/media-playback-stop";
     public static final String ICON_DOCUMENT_ADD = "actions/document-new";
+    public static final String ICON_DOCUMENT_OPEN = "actions/document-open";
     public static final String ICON_REFRESH = "actions/view-refresh";
     public static final String ICON_TRASH = "places/user-trash";
+    public static final String ICON_SEARCH = "actions/system-search";
     // better: actions/help-about, but not in tango
     public static final String ICON_HELP_ABOUT = "status/info";
 
@@ -32,7 +32,11 @@ public class Toolbar {
     private final Map<Button, JButton> buttons = new HashMap<Button, JButton>();
 
     private static final Button[] buttonsToToggle = new Button[] {
-        Button.connect, Button.disconnect, Button.refresh, Button.addNode, Button.deleteNode
+        Button.connect, Button.disconnect, Button.refresh, Button.addNode, Button.deleteNode, Button.search
+    };
+
+    private static final Button[] buttonsToHideWhenReadOnly = new Button[] {
+        Button.connect, Button.disconnect, Button.openSnapshot, Button.addNode, Button.deleteNode, Button.search
     };
 
     public Toolbar(IconResource iconResource) {
@@ -48,6 +52,12 @@ public class Toolbar {
         return toolbar;
     }
 
+    public void setReadOnly() {
+        for(Button button : buttonsToHideWhenReadOnly) {
+            buttons.get(button).setVisible(false);
+        }
+    }
+
     public void toggleButtons(boolean connected) {
         for(Button button : buttonsToToggle) {
             buttons.get(button).setEnabled(connected != button.enabled);
@@ -66,9 +76,11 @@ public class Toolbar {
     public static enum Button {
         connect("Connect",IconResource.ICON_START,true),
         disconnect("Disconnect",IconResource.ICON_STOP,false),
+        openSnapshot("Open Snapshot or Transaction Logs",IconResource.ICON_DOCUMENT_OPEN,true),
         refresh("Refresh",IconResource.ICON_REFRESH,false),
         addNode("Add Node",IconResource.ICON_DOCUMENT_ADD,false),
         deleteNode("Delete Node",IconResource.ICON_TRASH,false),
+        search("Search Nodes",IconResource.ICON_SEARCH,false),
         nodeViewers("Change Node Viewers",IconResource.ICON_ChangeNodeViewers,true),
         about("About ZooInspector",IconResource.ICON_HELP_ABOUT,true);
 
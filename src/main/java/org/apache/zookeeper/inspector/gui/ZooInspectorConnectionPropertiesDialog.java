@@ -49,6 +49,8 @@ import javax.swing.JPasswordField;
 import javax.swing.JTabbedPane;
 import javax.swing.JTextField;
 
+import org.apache.zookeeper.inspector.encryption.BasicDataEncryptionManager;
+import org.apache.zookeeper.inspector.encryption.CompressionDataEncryptionManager;
 import org.apache.zookeeper.inspector.manager.Pair;
 import org.apache.zookeeper.inspector.manager.ZookeeperProperties;
 
@@ -71,6 +73,13 @@ public class ZooInspectorConnectionPropertiesDialog extends JDialog {
 	private JPasswordField truststorePasswordText;
 	private JTextField keystoreLocationText;
 	private JPasswordField keystorePasswordText;
+	private JTextField cacheMaxEntriesText;
+	private JTextField cacheMaxWeightText;
+	private JTextField cacheTtlText;
+	private JTextField cacheRefreshText;
+	private JTextField prefetchDepthText;
+	private JTextField prefetchMaxRequestsText;
+	private JTextField prefetchMaxNodesText;
 
 	/**
 	 * @param lastConnectionProps
@@ -93,6 +102,9 @@ public class ZooInspectorConnectionPropertiesDialog extends JDialog {
 		connectStringText = new JTextField();
 		sessionTimeoutText = new JTextField();
 		encriptionManagerText = new JTextField();
+		encriptionManagerText.setToolTipText("<html>The classes which decode the data of the nodes, in order and separated by commas, such as<br>"
+				+ BasicDataEncryptionManager.class.getName() + "<br>"
+				+ CompressionDataEncryptionManager.class.getName() + " (gzip and deflate)</html>");
 		authSchemeText = new JTextField();
 		authDataText = new JTextField();
 		sslCheck = new JCheckBox("SSL");
@@ -100,6 +112,13 @@ public class ZooInspectorConnectionPropertiesDialog extends JDialog {
 		truststorePasswordText = new JPasswordField();
 		keystoreLocationText = new JTextField();
 		keystorePasswordText = new JPasswordField();
+		cacheMaxEntriesText = new JTextField();
+		cacheMaxWeightText = new JTextField();
+		cacheTtlText = new JTextField();
+		cacheRefreshText = new JTextField();
+		prefetchDepthText = new JTextField();
+		prefetchMaxRequestsText = new JTextField();
+		prefetchMaxNodesText = new JTextField();
 
 		JTabbedPane tabbedPane = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.WRAP_TAB_LAYOUT);
 		tabbedPane.addTab("Properties", createOptionsPanel());
@@ -200,6 +219,34 @@ public class ZooInspectorConnectionPropertiesDialog extends JDialog {
 		panel.add(new JLabel("Data Encription Manager"), createGridBagConstraints(0, row, 0, 0));
 		panel.add(encriptionManagerText, createGridBagConstraints(1, row, 1, 0));
 
+		row++;
+		panel.add(new JLabel("Cache Max Entries"), createGridBagConstraints(0, row, 0, 0));
+		panel.add(cacheMaxEntriesText, createGridBagConstraints(1, row, 1, 0));
+
+		row++;
+		panel.add(new JLabel("Cache Max Weight"), createGridBagConstraints(0, row, 0, 0));
+		panel.add(cacheMaxWeightText, createGridBagConstraints(1, row, 1, 0));
+
+		row++;
+		panel.add(new JLabel("Cache TTL (ms)"), createGridBagConstraints(0, row, 0, 0));
+		panel.add(cacheTtlText, createGridBagConstraints(1, row, 1, 0));
+
+		row++;
+		panel.add(new JLabel("Cache Refresh (ms)"), createGridBagConstraints(0, row, 0, 0));
+		panel.add(cacheRefreshText, createGridBagConstraints(1, row, 1, 0));
+
+		row++;
+		panel.add(new JLabel("Prefetch Depth"), createGridBagConstraints(0, row, 0, 0));
+		panel.add(prefetchDepthText, createGridBagConstraints(1, row, 1, 0));
+
+		row++;
+		panel.add(new JLabel("Prefetch Max Requests"), createGridBagConstraints(0, row, 0, 0));
+		panel.add(prefetchMaxRequestsText, createGridBagConstraints(1, row, 1, 0));
+
+		row++;
+		panel.add(new JLabel("Prefetch Max Nodes"), createGridBagConstraints(0, row, 0, 0));
+		panel.add(prefetchMaxNodesText, createGridBagConstraints(1, row, 1, 0));
+
 		row++;
 		GridBagConstraints gbc1 = createGridBagConstraints(0, row, 1, 1);
 		gbc1.gridwidth = GridBagConstraints.REMAINDER;
@@ -306,6 +353,13 @@ public class ZooInspectorConnectionPropertiesDialog extends JDialog {
 		truststorePasswordText.setText(props.getTruststorePassword());
 		keystoreLocationText.setText(props.getKeystoreLocation());
 		keystorePasswordText.setText(props.getKeystorePassword());
+		cacheMaxEntriesText.setText(String.valueOf(props.getCacheMaxEntries()));
+		cacheMaxWeightText.setText(String.valueOf(props.getCacheMaxWeight()));
+		cacheTtlText.setText(String.valueOf(props.getCacheTtlMs()));
+		cacheRefreshText.setText(String.valueOf(props.getCacheRefreshMs()));
+		prefetchDepthText.setText(String.valueOf(props.getPrefetchDepth()));
+		prefetchMaxRequestsText.setText(String.valueOf(props.getPrefetchMaxRequests()));
+		prefetchMaxNodesText.setText(String.valueOf(props.getPrefetchMaxNodes()));
 		doSslCheckClick(sslCheck.isSelected());
 	}
 
@@ -328,6 +382,25 @@ public class ZooInspectorConnectionPropertiesDialog extends JDialog {
 		result.setTruststorePassword(new String(truststorePasswordText.getPassword()));
 		result.setKeystoreLocation(keystoreLocationText.getText());
 		result.setKeystorePassword(new String(keystorePasswordText.getPassword()));
+		try {
+			result.setCacheMaxEntries(Long.valueOf(cacheMaxEntriesText.getText()));
+			result.setCacheMaxWeight(Long.valueOf(cacheMaxWeightText.getText()));
+			result.setCacheTtlMs(Long.valueOf(cacheTtlText.getText()));
+			result.setCacheRefreshMs(Long.valueOf(cacheRefreshText.getText()));
+		}
+		catch (NumberFormatException ex) {
+			JOptionPane.showMessageDialog(ZooInspectorConnectionPropertiesDialog.this, "Cache settings must be numbers", "Error", JOptionPane.ERROR_MESSAGE);
+			return null;
+		}
+		try {
+			result.setPrefetchDepth(Integer.valueOf(prefetchDepthText.getText()));
+			result.setPrefetchMaxRequests(Integer.valueOf(prefetchMaxRequestsText.getText()));
+			result.setPrefetchMaxNodes(Integer.valueOf(prefetchMaxNodesText.getText()));
+		}
+		catch (NumberFormatException ex) {
+			JOptionPane.showMessageDialog(ZooInspectorConnectionPropertiesDialog.this, "Prefetch settings must be numbers", "Error", JOptionPane.ERROR_MESSAGE);
+			return null;
+		}
 		
 		return result;
 	}
@@ -0,0 +1,353 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Frame;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.JTree;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.DefaultTreeCellRenderer;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreePath;
+
+import org.apache.zookeeper.inspector.manager.NodeDiff;
+import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
+import org.apache.zookeeper.inspector.manager.ZookeeperProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A {@link JDialog} for comparing two subtrees with a {@link NodeDiff}, either
+ * of the current connection or of the current connection and another
+ * ensemble. The differences are shown as a tree of added, removed and
+ * changed nodes; double clicking a node which exists on the left selects it in
+ * the {@link ZooInspectorTreeViewer}.
+ */
+@Slf4j
+public class ZooInspectorDiffDialog extends JDialog {
+
+    private static final Color ADDED = new Color(0, 128, 0);
+    private static final Color REMOVED = new Color(192, 0, 0);
+    private static final Color CHANGED = new Color(0, 0, 192);
+
+    private final ZooInspectorManager zooInspectorManager;
+    private final ZooInspectorTreeViewer treeViewer;
+
+    private final JTextField leftRoot = new JTextField("/");
+    private final JTextField rightConnection = new JTextField();
+    private final JTextField rightRoot = new JTextField("/");
+    private final JCheckBox compareVersions = new JCheckBox("Compare data versions");
+    private final JButton compareButton = new JButton("Compare");
+    private final DefaultTreeModel results = new DefaultTreeModel(new DefaultMutableTreeNode());
+    private final JTree resultTree = new JTree(results);
+    private final JProgressBar progress = new JProgressBar();
+    private final Timer timer = new Timer(200, (e) -> updateProgress());
+    private Comparison comparison;
+
+    /**
+     * @param frame
+     *            - the Frame from which the dialog is displayed
+     * @param zooInspectorManager
+     *            - the {@link ZooInspectorManager} for the application
+     * @param treeViewer
+     *            - the {@link ZooInspectorTreeViewer} in which the selected
+     *            nodes are shown
+     */
+    public ZooInspectorDiffDialog(Frame frame,
+            ZooInspectorManager zooInspectorManager,
+            ZooInspectorTreeViewer treeViewer) {
+        super(frame);
+        this.zooInspectorManager = zooInspectorManager;
+        this.treeViewer = treeViewer;
+        this.setTitle("Compare Subtrees");
+        this.setModal(false);
+        this.setResizable(true);
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        JPanel queryPanel = new JPanel(new GridBagLayout());
+        addRow(queryPanel, 0, "Left subtree", leftRoot);
+        addRow(queryPanel, 1, "Right ensemble", rightConnection);
+        addRow(queryPanel, 2, "Right subtree", rightRoot);
+        JPanel options = new JPanel(new BorderLayout(5, 5));
+        options.add(compareVersions, BorderLayout.CENTER);
+        options.add(compareButton, BorderLayout.EAST);
+        addRow(queryPanel, 3, "", options);
+        rightConnection.setToolTipText("The connect string of another ensemble, or empty to compare with this connection");
+        compareVersions.setToolTipText("Versions only match between ensembles with the same history of updates");
+        panel.add(queryPanel, BorderLayout.NORTH);
+
+        resultTree.setRootVisible(false);
+        resultTree.setShowsRootHandles(true);
+        resultTree.setCellRenderer(new DiffCellRenderer());
+        resultTree.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                TreePath path = resultTree.getPathForLocation(e.getX(), e.getY());
+                if (e.getClickCount() == 2 && path != null) {
+                    NodeDiff.Entry entry = entry(path.getLastPathComponent());
+                    if (entry != null && entry.getChange() != NodeDiff.Change.ADDED) {
+                        treeViewer.selectNode(entry.getNodePath());
+                    }
+                }
+            }
+        });
+        panel.add(new JScrollPane(resultTree), BorderLayout.CENTER);
+        progress.setStringPainted(true);
+        progress.setString(" ");
+        panel.add(progress, BorderLayout.SOUTH);
+        this.add(panel);
+
+        compareButton.addActionListener((e) -> {
+            if (comparison != null) {
+                comparison.stop();
+            }
+            else {
+                compare();
+            }
+        });
+        this.setSize(600, 500);
+        this.setLocationRelativeTo(frame);
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the root of the left subtree
+     */
+    public void setSubtree(String nodePath) {
+        if (comparison == null) {
+            leftRoot.setText(nodePath);
+            rightRoot.setText(nodePath);
+        }
+    }
+
+    private void compare() {
+        final String left = leftRoot.getText().isEmpty() ? "/" : leftRoot.getText();
+        final String right = rightRoot.getText().isEmpty() ? "/" : rightRoot.getText();
+        final String connection = rightConnection.getText().trim();
+        results.setRoot(new DefaultMutableTreeNode());
+        compareButton.setText("Cancel");
+        progress.setIndeterminate(true);
+        progress.setString(connection.isEmpty() ? "Comparing" : "Connecting to " + connection);
+        comparison = new Comparison(left, right, connection, compareVersions.isSelected());
+        comparison.execute();
+    }
+
+    /**
+     * @return the properties of the current connection with another connect
+     *         string, so that authentication and TLS settings carry over
+     */
+    private ZookeeperProperties otherConnection(String connectionString) throws IOException {
+        ZookeeperProperties props = new ZookeeperProperties();
+        ZookeeperProperties current = zooInspectorManager.getLastConnectionProps();
+        if (current != null) {
+            StringWriter writer = new StringWriter();
+            current.store(writer, null);
+            props.load(new StringReader(writer.toString()));
+        }
+        props.setConnectionString(connectionString);
+        return props;
+    }
+
+    private void updateProgress() {
+        NodeDiff diff = comparison != null ? comparison.started : null;
+        if (diff != null) {
+            progress.setString(diff.getComparedCount() + " nodes compared");
+        }
+    }
+
+    private static DefaultMutableTreeNode toTreeNode(NodeDiff.Entry entry) {
+        DefaultMutableTreeNode node = new DefaultMutableTreeNode(entry);
+        for (NodeDiff.Entry child : entry.getChildren()) {
+            node.add(toTreeNode(child));
+        }
+        return node;
+    }
+
+    private static NodeDiff.Entry entry(Object value) {
+        Object entry = value instanceof DefaultMutableTreeNode ? ((DefaultMutableTreeNode) value).getUserObject() : null;
+        return entry instanceof NodeDiff.Entry ? (NodeDiff.Entry) entry : null;
+    }
+
+    private static void addRow(JPanel panel, int row, String label, JComponent component) {
+        GridBagConstraints c = new GridBagConstraints();
+        c.gridx = 0;
+        c.gridy = row;
+        c.anchor = GridBagConstraints.WEST;
+        c.insets = new Insets(2, 2, 2, 5);
+        panel.add(new JLabel(label), c);
+        c = new GridBagConstraints();
+        c.gridx = 1;
+        c.gridy = row;
+        c.weightx = 1;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.insets = new Insets(2, 2, 2, 2);
+        panel.add(component, c);
+    }
+
+    private static class DiffCellRenderer extends DefaultTreeCellRenderer {
+
+        @Override
+        public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded,
+                boolean leaf, int row, boolean hasFocus) {
+            super.getTreeCellRendererComponent(tree, value, selected, expanded, leaf, row, hasFocus);
+            NodeDiff.Entry entry = entry(value);
+            if (entry == null) {
+                return this;
+            }
+            String name = entry.getName() != null ? entry.getName() : entry.getNodePath();
+            if (entry.getChange() == null) {
+                setText(name + "  (" + entry.getDifferenceCount() + " differences)");
+                return this;
+            }
+            switch (entry.getChange()) {
+            case ADDED:
+                setText("+ " + name);
+                setForeground(ADDED);
+                break;
+            case REMOVED:
+                setText("- " + name);
+                setForeground(REMOVED);
+                break;
+            default:
+                setText("~ " + name + "  (" + entry.getDetail() + ")");
+                setForeground(CHANGED);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * A comparison, which can be cancelled before its {@link NodeDiff} has
+     * connected. The dialog runs one at a time
+     */
+    private class Comparison extends SwingWorker<NodeDiff.Entry, Void> {
+
+        private final String left;
+        private final String right;
+        private final String connection;
+        private final boolean versions;
+        private volatile boolean stopped = false;
+        private volatile NodeDiff started;
+
+        private Comparison(String left, String right, String connection, boolean versions) {
+            this.left = left;
+            this.right = right;
+            this.connection = connection;
+            this.versions = versions;
+        }
+
+        /**
+         * Cancels the comparison, now if it has started and otherwise as soon
+         * as it has connected
+         */
+        private void stop() {
+            stopped = true;
+            NodeDiff diff = started;
+            if (diff != null) {
+                diff.cancel();
+            }
+        }
+
+        @Override
+        protected NodeDiff.Entry doInBackground() throws Exception {
+            NodeDiff created = zooInspectorManager.createDiff(connection.isEmpty() ? null : otherConnection(connection));
+            if (created == null) {
+                return null;
+            }
+            try {
+                created.setCompareVersions(versions);
+                started = created;
+                if (stopped) {
+                    // cancelled while connecting
+                    created.cancel();
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (comparison == this) {
+                        timer.start();
+                    }
+                });
+                return created.diff(left, right);
+            }
+            finally {
+                created.close();
+            }
+        }
+
+        @Override
+        protected void done() {
+            timer.stop();
+            comparison = null;
+            compareButton.setText("Compare");
+            progress.setIndeterminate(false);
+            try {
+                NodeDiff.Entry root = get();
+                if (root == null) {
+                    progress.setString("Not connected");
+                    return;
+                }
+                results.setRoot(toTreeNode(root));
+                for (int i = 0; i < resultTree.getRowCount() && i < 100; i++) {
+                    resultTree.expandRow(i);
+                }
+                String status = started.getDifferenceCount() + " differences in " + started.getComparedCount()
+                        + " nodes, data read for " + started.getDataReadCount();
+                if (started.isCancelled()) {
+                    status += " (cancelled)";
+                }
+                else if (started.isTruncated()) {
+                    status += " (stopped at " + NodeDiff.DEFAULT_MAX_DIFFERENCES + " differences)";
+                }
+                if (started.getErrorCount() > 0) {
+                    status += ", " + started.getErrorCount() + " errors";
+                }
+                progress.setString(status);
+            }
+            catch (InterruptedException | ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.error("Error occurred comparing {} with {}", left, right, cause);
+                progress.setString("Error: " + cause.getMessage());
+            }
+        }
+    }
+
+}
@@ -20,9 +20,11 @@ package org.apache.zookeeper.inspector.gui;
 import java.awt.BorderLayout;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JPanel;
 import javax.swing.JTabbedPane;
+import javax.swing.SwingWorker;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.TreeSelectionEvent;
@@ -30,12 +32,18 @@ import javax.swing.event.TreeSelectionListener;
 import javax.swing.tree.TreePath;
 
 import org.apache.zookeeper.inspector.gui.nodeviewer.ZooInspectorNodeViewer;
+import org.apache.zookeeper.inspector.manager.NodeSnapshot;
 import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
 import org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
- * This is the {@link JPanel} which contains the {@link ZooInspectorNodeViewer}s
+ * This is the {@link JPanel} which contains the {@link ZooInspectorNodeViewer}s.
+ * The {@link NodeSnapshot} of the selected node is read once per selection and
+ * shared by all the node viewers.
  */
+@Slf4j
 public class ZooInspectorNodeViewersPanel extends JPanel implements
         TreeSelectionListener, ChangeListener {
 
@@ -44,6 +52,8 @@ public class ZooInspectorNodeViewersPanel extends JPanel implements
     private final JTabbedPane tabbedPane;
     private final List<String> selectedNodes = new ArrayList<String>();
     private final ZooInspectorNodeManager zooInspectorManager;
+    private NodeSnapshot selectedSnapshot;
+    private SwingWorker<NodeSnapshot, Void> snapshotLoader;
 
     /**
      * @param zooInspectorManager
@@ -83,14 +93,59 @@ public class ZooInspectorNodeViewersPanel extends JPanel implements
     }
 
     private void reloadSelectedViewer() {
+        if (snapshotLoader != null && !snapshotLoader.isDone()) {
+            // the viewer is reloaded once the snapshot has been read
+            return;
+        }
         int index = this.tabbedPane.getSelectedIndex();
         if (index != -1 && this.needsReload.get(index)) {
             ZooInspectorNodeViewer viewer = this.nodeVeiwers.get(index);
-            viewer.nodeSelectionChanged(selectedNodes);
+            viewer.nodeSelectionChanged(selectedNodes, selectedSnapshot);
             this.needsReload.set(index, false);
         }
     }
 
+    private void loadSelectedSnapshot() {
+        if (snapshotLoader != null) {
+            snapshotLoader.cancel(false);
+        }
+        selectedSnapshot = null;
+        if (selectedNodes.isEmpty()) {
+            snapshotLoader = null;
+            reloadSelectedViewer();
+            return;
+        }
+        final String nodePath = selectedNodes.get(0);
+        snapshotLoader = new SwingWorker<NodeSnapshot, Void>() {
+
+            @Override
+            protected NodeSnapshot doInBackground() throws Exception {
+                NodeSnapshot snapshot = zooInspectorManager.getNodeSnapshot(nodePath);
+                if (snapshot != null) {
+                    // decrypting and decompressing can take long, so the
+                    // viewers get the data decoded already
+                    snapshot.getDecryptedData();
+                }
+                return snapshot;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    selectedSnapshot = get();
+                } 
+                catch (InterruptedException | ExecutionException e) {
+                    log.error("Error retrieving snapshot of node: {}", nodePath, e);
+                }
+                reloadSelectedViewer();
+            }
+        };
+        snapshotLoader.execute();
+    }
+
     @Override
     public void valueChanged(TreeSelectionEvent e) {
         TreePath[] paths = e.getPaths();
@@ -118,7 +173,7 @@ public class ZooInspectorNodeViewersPanel extends JPanel implements
         for (int i = 0; i < needsReload.size(); i++) {
             this.needsReload.set(i, true);
         }
-        reloadSelectedViewer();
+        loadSelectedSnapshot();
     }
 
     @Override
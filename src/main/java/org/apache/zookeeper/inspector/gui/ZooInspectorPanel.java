@@ -18,15 +18,22 @@
 package org.apache.zookeeper.inspector.gui;
 
 import java.awt.BorderLayout;
+import java.awt.Cursor;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ExecutionException;
 
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
+import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -34,11 +41,17 @@ import javax.swing.JSplitPane;
 import javax.swing.JToolBar;
 import javax.swing.SwingWorker;
 
+import org.apache.zookeeper.inspector.ZooInspector;
 import org.apache.zookeeper.inspector.gui.actions.AddNodeAction;
 import org.apache.zookeeper.inspector.gui.actions.DeleteNodeAction;
 import org.apache.zookeeper.inspector.gui.nodeviewer.ZooInspectorNodeViewer;
+import org.apache.zookeeper.inspector.manager.SnapshotFile;
+import org.apache.zookeeper.inspector.manager.SnapshotTree;
+import org.apache.zookeeper.inspector.manager.TxnLogIndex;
 import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
+import org.apache.zookeeper.inspector.manager.ZooInspectorSnapshotManager;
 import org.apache.zookeeper.inspector.manager.ZookeeperProperties;
+import org.apache.zookeeper.server.persistence.FileTxnLog;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -52,6 +65,7 @@ public class ZooInspectorPanel extends JPanel implements
     private final Toolbar toolbar;
     private final ZooInspectorNodeViewersPanel nodeViewersPanel;
     private final ZooInspectorTreeViewer treeViewer;
+    private ZooInspectorSearchDialog searchDialog;
     private final ZooInspectorManager zooInspectorManager;
 
     private final List<NodeViewersChangeListener> listeners = new ArrayList<NodeViewersChangeListener>();
@@ -108,6 +122,15 @@ public class ZooInspectorPanel extends JPanel implements
 			            }
 		        }
         );
+        toolbar.addActionListener(
+        		Toolbar.Button.openSnapshot, 
+        		new ActionListener() {
+			        	@Override
+			            public void actionPerformed(ActionEvent e) {
+			                openSnapshot();
+			            }
+		        }
+        );
         toolbar.addActionListener(
         		Toolbar.Button.refresh, 
         		new ActionListener() {
@@ -125,6 +148,22 @@ public class ZooInspectorPanel extends JPanel implements
         		Toolbar.Button.deleteNode,
         		new DeleteNodeAction(this, treeViewer, zooInspectorManager)
         );
+        toolbar.addActionListener(
+        		Toolbar.Button.search, 
+        		new ActionListener() {
+			        	@Override
+			            public void actionPerformed(ActionEvent e) {
+			                if (searchDialog == null) {
+			                    searchDialog = new ZooInspectorSearchDialog(
+			                            JOptionPane.getRootFrame(), zooInspectorManager,
+			                            treeViewer, iconResource);
+			                }
+			                List<String> selected = treeViewer.getSelectedNodes();
+			                searchDialog.setSubtree(selected.isEmpty() ? "/" : selected.get(0));
+			                searchDialog.setVisible(true);
+			            }
+		        }
+        );
         toolbar.addActionListener(
         		Toolbar.Button.nodeViewers, 
         		new ActionListener() {
@@ -154,6 +193,110 @@ public class ZooInspectorPanel extends JPanel implements
         splitPane.setResizeWeight(0.25);
         this.add(splitPane, BorderLayout.CENTER);
         this.add(toolbar.getJToolBar(), BorderLayout.NORTH);
+        if (zooInspectorManager.isReadOnly()) {
+            toolbar.setReadOnly();
+        }
+    }
+
+    /**
+     * Asks for a snapshot file of a ZooKeeper server and opens it read-only in
+     * a new window. A data directory or a transaction log in one opens the
+     * transaction logs in it instead.
+     */
+    public void openSnapshot() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Open Snapshot File or Transaction Logs");
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final Path file = fileChooser.getSelectedFile().toPath();
+        if (Files.isDirectory(file)) {
+            openTxnLogs(file);
+            return;
+        }
+        if (file.getFileName().toString().startsWith(FileTxnLog.LOG_FILE_PREFIX + ".")) {
+            openTxnLogs(file.getParent());
+            return;
+        }
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        SwingWorker<SnapshotFile, Void> worker = new SwingWorker<SnapshotFile, Void>() {
+
+            @Override
+            protected SnapshotFile doInBackground() throws Exception {
+                return SnapshotFile.open(file);
+            }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    showSnapshot(get());
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.error("Error occurred opening snapshot: {}", file, cause);
+                    JOptionPane.showMessageDialog(
+                            ZooInspectorPanel.this,
+                            "Unable to open snapshot: " + cause.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+
+        };
+        worker.execute();
+    }
+
+    /**
+     * Opens the transaction logs in a data directory of a ZooKeeper server
+     *
+     * @param directory
+     *            - the directory with the logs
+     */
+    public void openTxnLogs(Path directory) {
+        TxnLogIndex logs;
+        try {
+            logs = new TxnLogIndex(directory);
+        }
+        catch (IOException e) {
+            log.error("Error occurred opening transaction logs in: {}", directory, e);
+            JOptionPane.showMessageDialog(
+                    this,
+                    "Unable to open transaction logs: " + e.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        new ZooInspectorTxnLogDialog(JOptionPane.getRootFrame(), logs, this, iconResource).setVisible(true);
+    }
+
+    /**
+     * Shows the nodes of a snapshot read-only in a new window
+     *
+     * @param snapshot
+     *            - the nodes to show, which are closed with the window
+     */
+    public void showSnapshot(SnapshotTree snapshot) {
+        ZooInspectorSnapshotManager snapshotManager = new ZooInspectorSnapshotManager(snapshot, zooInspectorManager);
+        final ZooInspectorPanel snapshotPanel = new ZooInspectorPanel(snapshotManager, iconResource);
+        JFrame frame = new JFrame(ZooInspector.APP_NAME + " - " + snapshot.getDescription());
+        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                snapshotPanel.disconnect();
+            }
+        });
+        frame.setIconImages(JOptionPane.getRootFrame().getIconImages());
+        frame.setLocationByPlatform(true);
+        frame.setContentPane(snapshotPanel);
+        frame.setSize(800, 600);
+        frame.setVisible(true);
+        // the data of the snapshot is decrypted as for the current connection
+        ZookeeperProperties connectionProps = zooInspectorManager.getLastConnectionProps();
+        snapshotPanel.connect(connectionProps != null
+                ? connectionProps : zooInspectorManager.getDefaultConnectionProperties());
     }
 
     /**
@@ -174,6 +317,7 @@ public class ZooInspectorPanel extends JPanel implements
             protected void done() {
                 try {
                     if (get()) {
+                        treeViewer.clearView();
                         treeViewer.refreshView();
                         toolbar.toggleButtons(true);
                     } 
@@ -221,6 +365,9 @@ public class ZooInspectorPanel extends JPanel implements
                     if (get()) {
                         treeViewer.clearView();
                         toolbar.toggleButtons(false);
+                        if (searchDialog != null) {
+                            searchDialog.setVisible(false);
+                        }
                     }
                 } 
                 catch (InterruptedException | ExecutionException e) {
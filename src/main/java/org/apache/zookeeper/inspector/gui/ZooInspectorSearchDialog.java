@@ -0,0 +1,587 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Frame;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.swing.BorderFactory;
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
+
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.inspector.manager.NodeDataSearch;
+import org.apache.zookeeper.inspector.manager.NodeMetaQuery;
+import org.apache.zookeeper.inspector.manager.NodeMetaSearch;
+import org.apache.zookeeper.inspector.manager.NodeNameIndex;
+import org.apache.zookeeper.inspector.manager.Pair;
+import org.apache.zookeeper.inspector.manager.StatField;
+import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A {@link JDialog} for searching the nodes. Selecting a result selects the
+ * node in the {@link ZooInspectorTreeViewer}.
+ * <p>
+ * Names are searched in the {@link NodeNameIndex} of the connection as they
+ * are typed, so no requests are sent to zookeeper. Data is searched with a
+ * {@link NodeDataSearch} over a subtree, with its progress shown as it runs,
+ * and metadata with a {@link NodeMetaSearch} whose results are shown in a
+ * sortable table.
+ */
+@Slf4j
+public class ZooInspectorSearchDialog extends JDialog {
+
+    public static final int MAX_RESULTS = 10_000;
+
+    private final ZooInspectorManager zooInspectorManager;
+    private final ZooInspectorTreeViewer treeViewer;
+
+    private final JTextField nameQuery = new JTextField();
+    private final JComboBox<NodeNameIndex.Mode> nameMode = new JComboBox<NodeNameIndex.Mode>(NodeNameIndex.Mode.values());
+    private final DefaultListModel<String> nameResults = new DefaultListModel<String>();
+    private final JLabel nameStatus = new JLabel(" ");
+    private SwingWorker<Long, String> nameSearch;
+
+    private final JTextField dataRoot = new JTextField("/");
+    private final JTextField dataQuery = new JTextField();
+    private final JCheckBox dataIgnoreCase = new JCheckBox("Ignore case");
+    private final JButton dataButton = new JButton("Search");
+    private final DefaultListModel<NodeDataSearch.Hit> dataResults = new DefaultListModel<NodeDataSearch.Hit>();
+    private final JProgressBar dataProgress = new JProgressBar();
+    private final Timer dataTimer = new Timer(200, (e) -> updateDataProgress());
+    private NodeDataSearch dataSearch;
+    private Integer dataTotal;
+
+    private final JTextField metaRoot = new JTextField("/");
+    private final JTextField metaQuery = new JTextField();
+    private final JButton metaButton = new JButton("Search");
+    private final MetaTableModel metaResults = new MetaTableModel();
+    private final JProgressBar metaProgress = new JProgressBar();
+    private final Timer metaTimer = new Timer(200, (e) -> updateMetaProgress());
+    private NodeMetaSearch metaSearch;
+
+    /**
+     * @param frame
+     *            - the Frame from which the dialog is displayed
+     * @param zooInspectorManager
+     *            - the {@link ZooInspectorManager} for the application
+     * @param treeViewer
+     *            - the {@link ZooInspectorTreeViewer} in which the selected
+     *            results are shown
+     * @param iconResource
+     *            - the icons of the application
+     */
+    public ZooInspectorSearchDialog(Frame frame,
+            ZooInspectorManager zooInspectorManager,
+            ZooInspectorTreeViewer treeViewer,
+            IconResource iconResource) {
+        super(frame);
+        this.zooInspectorManager = zooInspectorManager;
+        this.treeViewer = treeViewer;
+        this.setTitle("Search Nodes");
+        this.setIconImage(iconResource.get(IconResource.ICON_SEARCH, "").getImage());
+        this.setModal(false);
+        this.setResizable(true);
+        this.setLayout(new BorderLayout());
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Names", createNamePanel());
+        tabs.addTab("Data", createDataPanel());
+        tabs.addTab("Metadata", createMetaPanel());
+        this.add(tabs, BorderLayout.CENTER);
+        this.setSize(600, 500);
+        this.setLocationRelativeTo(frame);
+    }
+
+    private JPanel createNamePanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        JPanel queryPanel = new JPanel(new BorderLayout(5, 5));
+        queryPanel.add(nameQuery, BorderLayout.CENTER);
+        JPanel options = new JPanel(new BorderLayout(5, 5));
+        options.add(nameMode, BorderLayout.CENTER);
+        JButton searchButton = new JButton("Search");
+        options.add(searchButton, BorderLayout.EAST);
+        queryPanel.add(options, BorderLayout.EAST);
+        panel.add(queryPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(createResultList(nameResults, Function.identity())), BorderLayout.CENTER);
+        panel.add(nameStatus, BorderLayout.SOUTH);
+
+        nameMode.setSelectedItem(NodeNameIndex.Mode.SUBSTRING);
+        nameMode.addActionListener((e) -> searchNames());
+        searchButton.addActionListener((e) -> searchNames());
+        nameQuery.addActionListener((e) -> searchNames());
+        nameQuery.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchNames();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchNames();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchNames();
+            }
+        });
+        return panel;
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the root of the subtree which is searched by
+     *            content
+     */
+    public void setSubtree(String nodePath) {
+        if (dataSearch == null) {
+            dataRoot.setText(nodePath);
+        }
+        if (metaSearch == null) {
+            metaRoot.setText(nodePath);
+        }
+    }
+
+    private JPanel createDataPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        JPanel queryPanel = new JPanel(new GridBagLayout());
+        addRow(queryPanel, 0, "Subtree", dataRoot);
+        addRow(queryPanel, 1, "Text", dataQuery);
+        JPanel options = new JPanel(new BorderLayout(5, 5));
+        options.add(dataIgnoreCase, BorderLayout.CENTER);
+        options.add(dataButton, BorderLayout.EAST);
+        addRow(queryPanel, 2, "", options);
+        panel.add(queryPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(createResultList(dataResults, NodeDataSearch.Hit::getNodePath)), BorderLayout.CENTER);
+        dataProgress.setStringPainted(true);
+        dataProgress.setString(" ");
+        panel.add(dataProgress, BorderLayout.SOUTH);
+
+        dataButton.addActionListener((e) -> {
+            if (dataSearch != null) {
+                dataSearch.cancel();
+            }
+            else {
+                searchData();
+            }
+        });
+        dataQuery.addActionListener((e) -> {
+            if (dataSearch == null) {
+                searchData();
+            }
+        });
+        return panel;
+    }
+
+    private JPanel createMetaPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        JPanel queryPanel = new JPanel(new GridBagLayout());
+        addRow(queryPanel, 0, "Subtree", metaRoot);
+        addRow(queryPanel, 1, "Query", metaQuery);
+        JPanel options = new JPanel(new BorderLayout(5, 5));
+        options.add(metaButton, BorderLayout.EAST);
+        addRow(queryPanel, 2, "", options);
+        metaQuery.setToolTipText("<html>e.g. dataLength &gt; 512KB and mtime older than 30 days<br>"
+                + "Fields: " + Arrays.stream(StatField.values()).map(StatField::getProperty).collect(Collectors.joining(", "))
+                + "<br>Operators: = != &lt; &lt;= &gt; &gt;= older than, newer than</html>");
+        panel.add(queryPanel, BorderLayout.NORTH);
+        final JTable table = new JTable(metaResults);
+        table.setAutoCreateRowSorter(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        table.getColumnModel().getColumn(0).setPreferredWidth(250);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && table.getSelectedRow() != -1) {
+                    treeViewer.selectNode(metaResults.getNodePath(table.convertRowIndexToModel(table.getSelectedRow())));
+                }
+            }
+        });
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        metaProgress.setStringPainted(true);
+        metaProgress.setString(" ");
+        panel.add(metaProgress, BorderLayout.SOUTH);
+
+        metaButton.addActionListener((e) -> {
+            if (metaSearch != null) {
+                metaSearch.cancel();
+            }
+            else {
+                searchMeta();
+            }
+        });
+        metaQuery.addActionListener((e) -> {
+            if (metaSearch == null) {
+                searchMeta();
+            }
+        });
+        return panel;
+    }
+
+    private static void addRow(JPanel panel, int row, String label, JComponent component) {
+        GridBagConstraints c = new GridBagConstraints();
+        c.gridx = 0;
+        c.gridy = row;
+        c.anchor = GridBagConstraints.WEST;
+        c.insets = new Insets(2, 2, 2, 5);
+        panel.add(new JLabel(label), c);
+        c = new GridBagConstraints();
+        c.gridx = 1;
+        c.gridy = row;
+        c.weightx = 1;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.insets = new Insets(2, 2, 2, 2);
+        panel.add(component, c);
+    }
+
+    /**
+     * @return a list of node paths which selects a node in the tree when it is
+     *         double clicked or when enter is pressed
+     */
+    private <T> JList<T> createResultList(DefaultListModel<T> results, final Function<T, String> nodePath) {
+        final JList<T> list = new JList<T>(results);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && list.getSelectedValue() != null) {
+                    treeViewer.selectNode(nodePath.apply(list.getSelectedValue()));
+                }
+            }
+        });
+        list.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ENTER && list.getSelectedValue() != null) {
+                    treeViewer.selectNode(nodePath.apply(list.getSelectedValue()));
+                }
+            }
+        });
+        return list;
+    }
+
+    private void searchData() {
+        dataResults.clear();
+        String text = dataQuery.getText();
+        final String rootPath = dataRoot.getText().isEmpty() ? "/" : dataRoot.getText();
+        if (text.isEmpty()) {
+            return;
+        }
+        final NodeDataSearch search = zooInspectorManager.createDataSearch(text, dataIgnoreCase.isSelected());
+        if (search == null) {
+            dataProgress.setString("Not connected");
+            return;
+        }
+        dataSearch = search;
+        dataTotal = null;
+        zooInspectorManager.getAllChildrenNumberAsync(rootPath).thenAccept((count) -> SwingUtilities.invokeLater(() -> {
+            if (dataSearch == search && count != null) {
+                dataTotal = count + 1;
+            }
+        }));
+        dataButton.setText("Cancel");
+        dataProgress.setIndeterminate(true);
+        dataTimer.start();
+        new SwingWorker<Long, NodeDataSearch.Hit>() {
+
+            @Override
+            protected Long doInBackground() throws Exception {
+                return search.search(rootPath, this::publish);
+            }
+
+            @Override
+            protected void process(List<NodeDataSearch.Hit> chunks) {
+                dataResults.addAll(chunks);
+            }
+
+            @Override
+            protected void done() {
+                dataSearch = null;
+                dataTimer.stop();
+                dataButton.setText("Search");
+                dataProgress.setIndeterminate(false);
+                dataProgress.setValue(0);
+                try {
+                    String status = get() + " nodes found in " + search.getSearchedCount() + " nodes";
+                    if (search.isCancelled()) {
+                        status += ", cancelled";
+                    }
+                    if (search.getErrorCount() > 0) {
+                        status += ", " + search.getErrorCount() + " nodes could not be read";
+                    }
+                    dataProgress.setString(status);
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    log.error("Error occurred searching the data of the nodes below: {}", rootPath, e);
+                    dataProgress.setString("Search failed: " + e.getMessage());
+                }
+            }
+
+        }.execute();
+    }
+
+    private void updateDataProgress() {
+        NodeDataSearch search = dataSearch;
+        if (search == null) {
+            return;
+        }
+        long searched = search.getSearchedCount();
+        if (dataTotal != null) {
+            dataProgress.setIndeterminate(false);
+            dataProgress.setMaximum(dataTotal);
+            dataProgress.setValue((int) Math.min(searched, dataTotal));
+            dataProgress.setString(searched + " of " + dataTotal + " nodes searched, " + dataResults.size() + " found");
+        }
+        else {
+            dataProgress.setString(searched + " nodes searched, " + dataResults.size() + " found");
+        }
+    }
+
+    private void searchMeta() {
+        metaResults.clear();
+        final String rootPath = metaRoot.getText().isEmpty() ? "/" : metaRoot.getText();
+        if (metaQuery.getText().trim().isEmpty()) {
+            return;
+        }
+        NodeMetaQuery query;
+        try {
+            query = NodeMetaQuery.parse(metaQuery.getText());
+        }
+        catch (IllegalArgumentException e) {
+            metaProgress.setString("Invalid query: " + e.getMessage());
+            return;
+        }
+        final NodeMetaSearch search = zooInspectorManager.createMetaSearch(query);
+        if (search == null) {
+            metaProgress.setString("Not connected");
+            return;
+        }
+        metaSearch = search;
+        metaButton.setText("Cancel");
+        metaProgress.setIndeterminate(true);
+        metaTimer.start();
+        new SwingWorker<Long, Pair<String, Stat>>() {
+
+            @Override
+            protected Long doInBackground() throws Exception {
+                // keep only the path and the stat, not the children of each match
+                return search.search(rootPath, (node) -> publish(new Pair<String, Stat>(node.getNodePath(), node.getStat())));
+            }
+
+            @Override
+            protected void process(List<Pair<String, Stat>> chunks) {
+                metaResults.addAll(chunks);
+            }
+
+            @Override
+            protected void done() {
+                metaSearch = null;
+                metaTimer.stop();
+                metaButton.setText("Search");
+                metaProgress.setIndeterminate(false);
+                try {
+                    String status = get() + " nodes found in " + search.getSearchedCount() + " nodes";
+                    if (search.getPrunedCount() > 0) {
+                        status += ", " + search.getPrunedCount() + " subtrees skipped";
+                    }
+                    if (search.isCancelled()) {
+                        status += ", cancelled";
+                    }
+                    if (search.getErrorCount() > 0) {
+                        status += ", " + search.getErrorCount() + " nodes could not be read";
+                    }
+                    metaProgress.setString(status);
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    log.error("Error occurred searching the metadata of the nodes below: {}", rootPath, e);
+                    metaProgress.setString("Search failed: " + e.getMessage());
+                }
+            }
+
+        }.execute();
+    }
+
+    private void updateMetaProgress() {
+        NodeMetaSearch search = metaSearch;
+        if (search != null) {
+            metaProgress.setString(search.getSearchedCount() + " nodes searched, "
+                    + search.getPrunedCount() + " subtrees skipped, " + metaResults.getRowCount() + " found");
+        }
+    }
+
+    private void searchNames() {
+        if (nameSearch != null) {
+            nameSearch.cancel(false);
+            nameSearch = null;
+        }
+        nameResults.clear();
+        final String query = nameQuery.getText();
+        final NodeNameIndex.Mode mode = (NodeNameIndex.Mode) nameMode.getSelectedItem();
+        if (query.isEmpty()) {
+            nameStatus.setText(" ");
+            return;
+        }
+        final NodeNameIndex index = zooInspectorManager.getNameIndex();
+        if (index == null) {
+            nameStatus.setText("Not connected");
+            return;
+        }
+        nameStatus.setText("Searching…");
+        nameSearch = new SwingWorker<Long, String>() {
+
+            @Override
+            protected Long doInBackground() throws Exception {
+                return index.search(query, mode, MAX_RESULTS, this::publish, this::isCancelled);
+            }
+
+            @Override
+            protected void process(List<String> chunks) {
+                if (nameSearch == this) {
+                    nameResults.addAll(chunks);
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (nameSearch != this) {
+                    return;
+                }
+                try {
+                    long count = get();
+                    String status = count >= MAX_RESULTS ? "First " + count + " nodes found" : count + " nodes found";
+                    if (!index.isReady()) {
+                        status += ", still indexing (" + index.size() + " nodes so far)";
+                    }
+                    if (!index.isWatched()) {
+                        status += ", as crawled at " + DateFormat.getTimeInstance().format(new Date(index.getCrawledTime()))
+                                + " (not kept current)";
+                    }
+                    nameStatus.setText(status);
+                }
+                catch (CancellationException | InterruptedException e) {
+                    // superseded by a newer search
+                }
+                catch (ExecutionException e) {
+                    log.debug("Invalid search query: {}", query, e.getCause());
+                    nameStatus.setText("Invalid query: " + e.getCause().getMessage());
+                }
+            }
+
+        };
+        nameSearch.execute();
+    }
+
+    /**
+     * The nodes found by a metadata search, with a column for the path and for
+     * every {@link StatField}
+     */
+    private static class MetaTableModel extends AbstractTableModel {
+        private final List<Pair<String, Stat>> rows = new ArrayList<Pair<String, Stat>>();
+
+        private void addAll(List<Pair<String, Stat>> nodes) {
+            int from = rows.size();
+            rows.addAll(nodes);
+            fireTableRowsInserted(from, rows.size() - 1);
+        }
+
+        private void clear() {
+            rows.clear();
+            fireTableDataChanged();
+        }
+
+        private String getNodePath(int row) {
+            return rows.get(row).getKey();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return StatField.values().length + 1;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return column == 0 ? "Path" : StatField.values()[column - 1].getLabel();
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            if (column == 0) {
+                return String.class;
+            }
+            return StatField.values()[column - 1].isTime() ? Date.class : Long.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            Pair<String, Stat> node = rows.get(row);
+            if (column == 0) {
+                return node.getKey();
+            }
+            StatField field = StatField.values()[column - 1];
+            long value = field.get(node.getValue());
+            return field.isTime() ? new Date(value) : (Object) value;
+        }
+    }
+
+}
@@ -0,0 +1,798 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
+import javax.swing.tree.TreePath;
+
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.inspector.manager.NodeLevel;
+import org.apache.zookeeper.inspector.manager.PathTrie;
+import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The tree model of the zookeeper nodes. It never waits for zookeeper: the
+ * children of a node are read in the background the first time the tree asks
+ * for them, and until they arrive the node shows a single "loading…"
+ * placeholder. The children replace the placeholder on the event dispatch
+ * thread with treeNodesRemoved and treeNodesInserted events.
+ * <p>
+ * The loaded nodes are kept in a {@link PathTrie}. The tree nodes handed to the
+ * tree are light views of a trie node id, so creating them is cheap and equal
+ * views compare in constant time. The model must only be used on the event
+ * dispatch thread.
+ * <p>
+ * Children are loaded {@link #PAGE_SIZE} at a time in the sorted order of the
+ * {@link org.apache.zookeeper.inspector.manager.NodesCache}. When a node has
+ * more children a "… N more" node follows the loaded ones, which loads the
+ * next page when clicked.
+ * <p>
+ * {@link #refresh()} brings the loaded nodes up to date without rebuilding the
+ * tree: a node whose cversion has not changed since its children were read is
+ * skipped, and the children of the others are compared with the current ones
+ * and updated with treeNodesRemoved and treeNodesInserted events.
+ */
+@Slf4j
+public class ZooInspectorTreeModel extends DefaultTreeModel {
+
+    public static final String LOADING = "loading…";
+
+    public static final String LOAD_FAILED = "unable to read children, collapse to retry";
+
+    public static final int PAGE_SIZE = 500;
+
+    private final ZooInspectorManager zooInspectorManager;
+    private final PathTrie trie = new PathTrie();
+    /**
+     * The paths of the nodes whose children are being read
+     */
+    private final Set<String> loading = new HashSet<String>();
+    /**
+     * The paths of the nodes whose children could not be read, which are not
+     * read again until the node is collapsed
+     */
+    private final Set<String> failed = new HashSet<String>();
+    /**
+     * The number of children which are not loaded yet, by the id of the node
+     */
+    private final Map<Integer, Integer> remaining = new HashMap<Integer, Integer>();
+    private final Set<String> refreshingStats = ConcurrentHashMap.newKeySet();
+    /**
+     * The reveals waiting for the children of a node, by the path of the node
+     */
+    private final Map<String, List<Runnable>> revealing = new HashMap<String, List<Runnable>>();
+
+    /**
+     * @param zooInspectorManager
+     *            - the {@link ZooInspectorManager} for the application
+     */
+    public ZooInspectorTreeModel(ZooInspectorManager zooInspectorManager) {
+        super(null);
+        this.zooInspectorManager = zooInspectorManager;
+        setRoot(new ZooInspectorTreeNode(PathTrie.ROOT));
+    }
+
+    /**
+     * @param node
+     *            - a node of the tree
+     * @return true if the node is not a zookeeper node but the placeholder
+     *         shown while the children of its parent are loading or could not
+     *         be read, or the node which loads the next page of children
+     */
+    public static boolean isPlaceholder(Object node) {
+        return node instanceof PlaceholderTreeNode || node instanceof MoreTreeNode;
+    }
+
+    /**
+     * Loads the next page of children if the node is a "… N more" node
+     *
+     * @param node
+     *            - a node of the tree
+     */
+    public void loadNextPage(Object node) {
+        if (!(node instanceof MoreTreeNode) || ((MoreTreeNode) node).getModel() != this) {
+            return;
+        }
+        loadPage(((MoreTreeNode) node).parent.id, null);
+    }
+
+    /**
+     * Loads the ancestors of a node as far as needed and hands the path to the
+     * node to the consumer once the node is in the tree. If the node is beyond
+     * the loaded pages of its parent, the pages up to the node are loaded.
+     * Nothing is handed over if the node does not exist or the children of an
+     * ancestor cannot be read.
+     *
+     * @param nodePath
+     *            - the path to the node
+     * @param revealed
+     *            - called on the event dispatch thread with the path to the
+     *            node
+     */
+    public void reveal(final String nodePath, final Consumer<TreePath> revealed) {
+        int node = trie.find(nodePath);
+        if (node != -1) {
+            revealed.accept(new TreePath(getPathToRoot(new ZooInspectorTreeNode(node))));
+            return;
+        }
+        String ancestorPath = nodePath;
+        int ancestor = -1;
+        String name = null;
+        while (ancestor == -1 && ancestorPath.lastIndexOf('/') > 0) {
+            name = ancestorPath.substring(ancestorPath.lastIndexOf('/') + 1);
+            ancestorPath = ancestorPath.substring(0, ancestorPath.lastIndexOf('/'));
+            ancestor = trie.find(ancestorPath);
+        }
+        if (ancestor == -1) {
+            name = ancestorPath.substring(1);
+            ancestorPath = "/";
+            ancestor = PathTrie.ROOT;
+        }
+        if (!trie.isLoaded(ancestor)) {
+            failed.remove(ancestorPath);
+            revealing.computeIfAbsent(ancestorPath, (k) -> new ArrayList<Runnable>()).add(() -> reveal(nodePath, revealed));
+            loadChildren(ancestor);
+        }
+        else if (remaining.containsKey(ancestor) && trie.getChildCount(ancestor) > 0
+                && trie.getName(trie.getChild(ancestor, trie.getChildCount(ancestor) - 1)).compareTo(name) < 0) {
+            // beyond the loaded pages
+            revealing.computeIfAbsent(ancestorPath, (k) -> new ArrayList<Runnable>()).add(() -> reveal(nodePath, revealed));
+            loadPage(ancestor, name);
+        }
+    }
+
+    /**
+     * Loads the next page of the children of a node, and if a name is given
+     * at least the children up to that name
+     */
+    private void loadPage(int node, final String until) {
+        int count = trie.getChildCount(node);
+        if (!trie.isLoaded(node) || count == 0) {
+            return;
+        }
+        final String nodePath = trie.getPath(node);
+        if (!loading.add(nodePath)) {
+            return;
+        }
+        nodeChanged(new MoreTreeNode(new ZooInspectorTreeNode(node)));
+        final String after = trie.getName(trie.getChild(node, count - 1));
+        CompletableFuture<Integer> limit = until == null
+                ? CompletableFuture.completedFuture(PAGE_SIZE)
+                : zooInspectorManager.getChildrenAsync(nodePath).thenApply((children) -> {
+                    if (children == null) {
+                        return PAGE_SIZE;
+                    }
+                    int from = Collections.binarySearch(children, after);
+                    int to = Collections.binarySearch(children, until);
+                    from = from >= 0 ? from + 1 : -(from + 1);
+                    to = to >= 0 ? to + 1 : -(to + 1);
+                    return Math.max(PAGE_SIZE, to - from);
+                });
+        limit.thenCompose((n) -> zooInspectorManager.getNodeLevelAsync(nodePath, after, n)).whenComplete((level, e) -> {
+            if (e != null) {
+                log.error("Error occurred retrieving children of node: {}", nodePath, e);
+                SwingUtilities.invokeLater(() -> pageFailed(nodePath));
+            }
+            else {
+                SwingUtilities.invokeLater(() -> applyPage(nodePath, level));
+            }
+        });
+    }
+
+    /**
+     * Drops the loaded children of a node, so they are read again the next
+     * time the node is expanded
+     *
+     * @param node
+     *            - the collapsed node
+     */
+    public void unloadChildren(ZooInspectorTreeNode node) {
+        failed.remove(node.getNodePath());
+        if (trie.isLoaded(node.id)) {
+            trie.unload(node.id);
+            remaining.remove(node.id);
+            remaining.keySet().removeIf((id) -> !trie.contains(id));
+            nodeStructureChanged(node);
+        }
+    }
+
+    /**
+     * Brings the children of all the loaded nodes up to date
+     */
+    public void refresh() {
+        List<String> loaded = new ArrayList<String>();
+        collectLoaded(PathTrie.ROOT, loaded);
+        for (String nodePath : loaded) {
+            refresh(nodePath);
+        }
+    }
+
+    private void collectLoaded(int node, List<String> loaded) {
+        if (trie.isLoaded(node)) {
+            loaded.add(trie.getPath(node));
+            for (int i = 0; i < trie.getChildCount(node); i++) {
+                collectLoaded(trie.getChild(node, i), loaded);
+            }
+        }
+    }
+
+    /**
+     * Brings the children of a node up to date if they are loaded, otherwise
+     * only the {@link Stat} of the node
+     *
+     * @param nodePath
+     *            - the path to the node
+     */
+    public void refresh(final String nodePath) {
+        int node = trie.find(nodePath);
+        if (node == -1) {
+            return;
+        }
+        if (!trie.isLoaded(node)) {
+            refreshStat(nodePath);
+            return;
+        }
+        final int version = trie.getChildVersion(node);
+        Stat cached = zooInspectorManager.getCachedStat(nodePath);
+        CompletableFuture<Stat> stat = cached != null
+                ? CompletableFuture.completedFuture(cached)
+                : zooInspectorManager.getStatAsync(nodePath);
+        stat.thenCompose((s) -> {
+            if (s == null || s.getCversion() == version) {
+                // unchanged, or deleted and removed with its parent
+                return CompletableFuture.completedFuture((NodeLevel) null);
+            }
+            return zooInspectorManager.getNodeLevelAsync(nodePath, null, 0);
+        }).whenComplete((level, e) -> {
+            if (e != null) {
+                log.error("Error occurred refreshing children of node: {}", nodePath, e);
+            }
+            else if (level != null) {
+                SwingUtilities.invokeLater(() -> applyDiff(nodePath, level));
+            }
+        });
+    }
+
+    /**
+     * Updates the loaded children of a node to the current children. Only the
+     * children up to the last loaded one are compared if the node has more
+     * children to load.
+     */
+    private void applyDiff(String nodePath, NodeLevel level) {
+        int node = trie.find(nodePath);
+        if (node == -1 || !trie.isLoaded(node)) {
+            return;
+        }
+        ZooInspectorTreeNode treeNode = new ZooInspectorTreeNode(node);
+        List<String> current = level.getChildren();
+        int count = trie.getChildCount(node);
+        boolean paged = remaining.containsKey(node);
+        int limit = current.size();
+        if (paged && count > 0) {
+            int index = Collections.binarySearch(current, trie.getName(trie.getChild(node, count - 1)));
+            limit = index >= 0 ? index + 1 : -(index + 1);
+        }
+        List<Integer> removed = new ArrayList<Integer>();
+        List<String> added = new ArrayList<String>();
+        int i = 0;
+        int j = 0;
+        while (i < count || j < limit) {
+            int cmp = i == count ? 1 : j == limit ? -1 : trie.getName(trie.getChild(node, i)).compareTo(current.get(j));
+            if (cmp < 0) {
+                removed.add(i++);
+            }
+            else if (cmp > 0) {
+                added.add(current.get(j++));
+            }
+            else {
+                i++;
+                j++;
+            }
+        }
+        if (!removed.isEmpty()) {
+            int[] indices = new int[removed.size()];
+            Object[] children = new Object[indices.length];
+            for (int k = 0; k < indices.length; k++) {
+                indices[k] = removed.get(k);
+                children[k] = new ZooInspectorTreeNode(trie.getChild(node, indices[k]));
+            }
+            trie.removeChildren(node, indices);
+            remaining.keySet().removeIf((id) -> !trie.contains(id));
+            nodesWereRemoved(treeNode, indices, children);
+        }
+        if (!added.isEmpty()) {
+            nodesWereInserted(treeNode, trie.insertChildren(node, added, null));
+        }
+        if (paged) {
+            int more = current.size() - limit;
+            if (more > 0) {
+                remaining.put(node, more);
+                nodeChanged(new MoreTreeNode(treeNode));
+            }
+            else {
+                remaining.remove(node);
+                nodesWereRemoved(treeNode, new int[] { trie.getChildCount(node) }, new Object[] { new MoreTreeNode(treeNode) });
+            }
+        }
+        trie.setChildVersion(node, level.getStat().getCversion());
+        trie.setStat(node, level.getStat());
+        nodeChanged(treeNode);
+    }
+
+    private void loadChildren(int node) {
+        final String nodePath = trie.getPath(node);
+        if (!loading.add(nodePath)) {
+            return;
+        }
+        zooInspectorManager.getNodeLevelAsync(nodePath, null, PAGE_SIZE).whenComplete((level, e) -> {
+            if (e != null) {
+                log.error("Error occurred retrieving children of node: {}", nodePath, e);
+                SwingUtilities.invokeLater(() -> loadFailed(nodePath));
+            }
+            else {
+                // a null level means the node was deleted, shown without children
+                SwingUtilities.invokeLater(() -> applyLevel(nodePath, level));
+            }
+        });
+    }
+
+    /**
+     * Leaves the node unloaded with an error in place of its children, so they
+     * are read again once the node is collapsed and expanded. The reveals
+     * waiting for the node are dropped.
+     */
+    private void loadFailed(String nodePath) {
+        revealing.remove(nodePath);
+        int node = trie.find(nodePath);
+        if (!loading.remove(nodePath) || node == -1 || trie.isLoaded(node)) {
+            return;
+        }
+        failed.add(nodePath);
+        ZooInspectorTreeNode treeNode = new ZooInspectorTreeNode(node);
+        nodeChanged(new PlaceholderTreeNode(treeNode));
+        nodeChanged(treeNode);
+    }
+
+    /**
+     * Keeps the loaded pages of the node as they are, so the next page can be
+     * requested again. The reveals waiting for the node are dropped.
+     */
+    private void pageFailed(String nodePath) {
+        revealing.remove(nodePath);
+        int node = trie.find(nodePath);
+        if (!loading.remove(nodePath) || node == -1 || !trie.isLoaded(node) || !remaining.containsKey(node)) {
+            return;
+        }
+        nodeChanged(new MoreTreeNode(new ZooInspectorTreeNode(node)));
+    }
+
+    private void applyLevel(String nodePath, NodeLevel level) {
+        try {
+            applyLevel(nodePath, trie.find(nodePath), level);
+        }
+        finally {
+            continueReveals(nodePath);
+        }
+    }
+
+    private void applyLevel(String nodePath, int node, NodeLevel level) {
+        if (!loading.remove(nodePath) || node == -1 || trie.isLoaded(node)) {
+            // the node was removed while loading
+            return;
+        }
+        ZooInspectorTreeNode treeNode = new ZooInspectorTreeNode(node);
+        if (level != null) {
+            trie.setChildren(node, level.getPage(), getPageStats(level));
+            trie.setChildVersion(node, level.getStat().getCversion());
+            trie.setStat(node, level.getStat());
+            setRemaining(node, level);
+        }
+        else {
+            trie.setChildren(node, Collections.<String>emptyList(), null);
+        }
+        nodesWereRemoved(treeNode, new int[] { 0 }, new Object[] { new PlaceholderTreeNode(treeNode) });
+        int count = treeNode.getChildCount();
+        if (count > 0) {
+            nodesWereInserted(treeNode, range(0, count));
+            zooInspectorManager.prefetch(nodePath);
+        }
+        nodeChanged(treeNode);
+    }
+
+    private void applyPage(String nodePath, NodeLevel level) {
+        try {
+            applyPage(nodePath, trie.find(nodePath), level);
+        }
+        finally {
+            continueReveals(nodePath);
+        }
+    }
+
+    private void applyPage(String nodePath, int node, NodeLevel level) {
+        if (!loading.remove(nodePath) || node == -1 || !trie.isLoaded(node) || !remaining.containsKey(node)) {
+            // the node was collapsed or removed while loading
+            return;
+        }
+        ZooInspectorTreeNode treeNode = new ZooInspectorTreeNode(node);
+        int from = trie.getChildCount(node);
+        if (level != null) {
+            trie.addChildren(node, level.getPage(), getPageStats(level));
+            setRemaining(node, level);
+        }
+        else {
+            remaining.remove(node);
+        }
+        int to = trie.getChildCount(node);
+        if (to > from) {
+            nodesWereInserted(treeNode, range(from, to));
+        }
+        if (remaining.containsKey(node)) {
+            nodeChanged(new MoreTreeNode(treeNode));
+        }
+        else {
+            nodesWereRemoved(treeNode, new int[] { to }, new Object[] { new MoreTreeNode(treeNode) });
+        }
+    }
+
+    private void continueReveals(String nodePath) {
+        List<Runnable> waiting = revealing.remove(nodePath);
+        if (waiting != null) {
+            waiting.forEach(Runnable::run);
+        }
+    }
+
+    private static Stat[] getPageStats(NodeLevel level) {
+        Stat[] childStats = new Stat[level.getPageSize()];
+        for (int i = 0; i < childStats.length; i++) {
+            childStats[i] = level.getChildStat(level.getOffset() + i);
+        }
+        return childStats;
+    }
+
+    private void setRemaining(int node, NodeLevel level) {
+        int count = level.getChildCount() - level.getOffset() - level.getPageSize();
+        if (count > 0) {
+            remaining.put(node, count);
+        }
+        else {
+            remaining.remove(node);
+        }
+    }
+
+    private static int[] range(int from, int to) {
+        int[] indices = new int[to - from];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = from + i;
+        }
+        return indices;
+    }
+
+    /**
+     * Reads the {@link Stat} of a node in the background and repaints the node
+     * once it is known, so painting never waits for zookeeper
+     */
+    private void refreshStat(final String nodePath) {
+        if (refreshingStats.add(nodePath)) {
+            zooInspectorManager.getStatAsync(nodePath).whenComplete((s, e) -> {
+                refreshingStats.remove(nodePath);
+                if (s != null) {
+                    SwingUtilities.invokeLater(() -> {
+                        int node = trie.find(nodePath);
+                        if (node != -1) {
+                            trie.setStat(node, s);
+                            nodeChanged(new ZooInspectorTreeNode(node));
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    public class ZooInspectorTreeNode implements TreeNode {
+        private final int id;
+
+        private ZooInspectorTreeNode(int id) {
+            this.id = id;
+        }
+
+        /**
+         * @return the path to the node
+         */
+        public String getNodePath() {
+            return trie.getPath(this.id);
+        }
+
+        private ZooInspectorTreeModel getModel() {
+            return ZooInspectorTreeModel.this;
+        }
+
+        private boolean hasMore() {
+            return remaining.containsKey(this.id);
+        }
+
+        /**
+         * @return true if the children are loaded, otherwise starts loading
+         *         them and the placeholder is shown instead
+         */
+        private boolean isLoaded() {
+            if (!trie.isLoaded(this.id)) {
+                if (!failed.contains(getNodePath())) {
+                    loadChildren(this.id);
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Enumeration<TreeNode> children() {
+            if (!isLoaded()) {
+                return Collections.enumeration(Collections.<TreeNode>singletonList(new PlaceholderTreeNode(this)));
+            }
+            int count = trie.getChildCount(this.id);
+            List<TreeNode> children = new ArrayList<TreeNode>(count + 1);
+            for (int i = 0; i < count; i++) {
+                children.add(new ZooInspectorTreeNode(trie.getChild(this.id, i)));
+            }
+            if (hasMore()) {
+                children.add(new MoreTreeNode(this));
+            }
+            return Collections.enumeration(children);
+        }
+
+        @Override
+        public boolean getAllowsChildren() {
+            return !trie.isEphemeral(this.id);
+        }
+
+        @Override
+        public TreeNode getChildAt(int childIndex) {
+            if (!isLoaded()) {
+                return childIndex == 0 ? new PlaceholderTreeNode(this) : null;
+            }
+            int count = trie.getChildCount(this.id);
+            if (childIndex < count) {
+                return new ZooInspectorTreeNode(trie.getChild(this.id, childIndex));
+            }
+            return childIndex == count && hasMore() ? new MoreTreeNode(this) : null;
+        }
+
+        @Override
+        public int getChildCount() {
+            if (!trie.isLoaded(this.id) && isLeaf()) {
+                return 0;
+            }
+            if (!isLoaded()) {
+                return 1;
+            }
+            return trie.getChildCount(this.id) + (hasMore() ? 1 : 0);
+        }
+
+        @Override
+        public int getIndex(TreeNode node) {
+            if (!trie.isLoaded(this.id)) {
+                return node instanceof PlaceholderTreeNode && this.equals(node.getParent()) ? 0 : -1;
+            }
+            if (node instanceof MoreTreeNode) {
+                return hasMore() && this.equals(node.getParent()) ? trie.getChildCount(this.id) : -1;
+            }
+            if (node instanceof ZooInspectorTreeNode && ((ZooInspectorTreeNode) node).getModel() == getModel()) {
+                int child = ((ZooInspectorTreeNode) node).id;
+                if (child != PathTrie.ROOT && trie.getParent(child) == this.id) {
+                    return trie.getIndex(child);
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public TreeNode getParent() {
+            int parent = trie.getParent(this.id);
+            return parent != -1 ? new ZooInspectorTreeNode(parent) : null;
+        }
+
+        @Override
+        public boolean isLeaf() {
+            if (trie.isLoaded(this.id)) {
+                return trie.getChildCount(this.id) == 0;
+            }
+            int numChildren = trie.getNumChildren(this.id);
+            if (numChildren == -1) {
+                String nodePath = getNodePath();
+                Stat s = zooInspectorManager.getCachedStat(nodePath);
+                if (s == null) {
+                    refreshStat(nodePath);
+                    return false;
+                }
+                trie.setStat(this.id, s);
+                numChildren = s.getNumChildren();
+            }
+            return numChildren == 0;
+        }
+
+        @Override
+        public String toString() {
+            return trie.getName(this.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.id;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof ZooInspectorTreeNode))
+                return false;
+            ZooInspectorTreeNode other = (ZooInspectorTreeNode) obj;
+            return this.id == other.id && getModel() == other.getModel();
+        }
+
+    }
+
+    /**
+     * The node following the loaded children of a node with more children,
+     * which loads the next page when clicked
+     */
+    private class MoreTreeNode implements TreeNode {
+        private final ZooInspectorTreeNode parent;
+
+        public MoreTreeNode(ZooInspectorTreeNode parent) {
+            this.parent = parent;
+        }
+
+        private ZooInspectorTreeModel getModel() {
+            return ZooInspectorTreeModel.this;
+        }
+
+        @Override
+        public Enumeration<TreeNode> children() {
+            return Collections.emptyEnumeration();
+        }
+
+        @Override
+        public boolean getAllowsChildren() {
+            return false;
+        }
+
+        @Override
+        public TreeNode getChildAt(int childIndex) {
+            return null;
+        }
+
+        @Override
+        public int getChildCount() {
+            return 0;
+        }
+
+        @Override
+        public int getIndex(TreeNode node) {
+            return -1;
+        }
+
+        @Override
+        public TreeNode getParent() {
+            return this.parent;
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            if (loading.contains(this.parent.getNodePath())) {
+                return LOADING;
+            }
+            Integer count = remaining.get(this.parent.id);
+            return "… " + (count != null ? count : 0) + " more";
+        }
+
+        @Override
+        public int hashCode() {
+            return this.parent.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof MoreTreeNode && this.parent.equals(((MoreTreeNode) obj).parent);
+        }
+    }
+
+    /**
+     * The node shown in place of the children of a node while they are read,
+     * or if they could not be read
+     */
+    private class PlaceholderTreeNode implements TreeNode {
+        private final ZooInspectorTreeNode parent;
+
+        public PlaceholderTreeNode(ZooInspectorTreeNode parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public Enumeration<TreeNode> children() {
+            return Collections.emptyEnumeration();
+        }
+
+        @Override
+        public boolean getAllowsChildren() {
+            return false;
+        }
+
+        @Override
+        public TreeNode getChildAt(int childIndex) {
+            return null;
+        }
+
+        @Override
+        public int getChildCount() {
+            return 0;
+        }
+
+        @Override
+        public int getIndex(TreeNode node) {
+            return -1;
+        }
+
+        @Override
+        public TreeNode getParent() {
+            return this.parent;
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return failed.contains(this.parent.getNodePath()) ? LOAD_FAILED : LOADING;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.parent.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof PlaceholderTreeNode && this.parent.equals(((PlaceholderTreeNode) obj).parent);
+        }
+    }
+
+}
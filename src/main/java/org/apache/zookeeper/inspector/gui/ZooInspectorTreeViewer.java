@@ -26,29 +26,31 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Enumeration;
-import java.util.LinkedHashSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import javax.swing.ImageIcon;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.JOptionPane;
 import javax.swing.JPopupMenu;
 import javax.swing.JComponent;
 import javax.swing.JTree;
-import javax.swing.SwingWorker;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.DefaultTreeModel;
-import javax.swing.tree.TreeNode;
+import javax.swing.tree.DefaultTreeSelectionModel;
 import javax.swing.tree.TreePath;
 
 import org.apache.zookeeper.inspector.gui.actions.AddNodeAction;
 import org.apache.zookeeper.inspector.gui.actions.DeleteNodeAction;
+import org.apache.zookeeper.inspector.gui.actions.ExportNodeAction;
+import org.apache.zookeeper.inspector.gui.actions.ImportNodeAction;
+import org.apache.zookeeper.inspector.gui.ZooInspectorTreeModel.ZooInspectorTreeNode;
 import org.apache.zookeeper.inspector.manager.NodeListener;
 import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
 
@@ -63,6 +65,7 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
     private final JTree tree;
     private final Toaster toasterManager;
     private final ImageIcon toasterIcon;
+    private ZooInspectorDiffDialog diffDialog;
 
     /**
      * @param zooInspectorManager
@@ -75,17 +78,19 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
             final ZooInspectorManager zooInspectorManager,
             TreeSelectionListener listener, IconResource iconResource) {
 
-        this.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
-                .put(getKeyStroke(KeyEvent.VK_D, InputEvent.CTRL_MASK), "deleteNode");
+        if (!zooInspectorManager.isReadOnly()) {
+            this.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                    .put(getKeyStroke(KeyEvent.VK_D, InputEvent.CTRL_MASK), "deleteNode");
 
-        this.getActionMap().put("deleteNode",
-                new DeleteNodeAction(this, this, zooInspectorManager));
+            this.getActionMap().put("deleteNode",
+                    new DeleteNodeAction(this, this, zooInspectorManager));
 
-        this.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
-                .put(getKeyStroke(KeyEvent.VK_N, InputEvent.CTRL_MASK), "addNode");
+            this.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                    .put(getKeyStroke(KeyEvent.VK_N, InputEvent.CTRL_MASK), "addNode");
 
-        this.getActionMap().put("addNode",
-                new AddNodeAction(this, this, zooInspectorManager));
+            this.getActionMap().put("addNode",
+                    new AddNodeAction(this, this, zooInspectorManager));
+        }
 
         this.zooInspectorManager = zooInspectorManager;
         this.setLayout(new BorderLayout());
@@ -97,6 +102,28 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
         final JMenuItem deleteNode = new JMenuItem("Delete Node");
         deleteNode.addActionListener(new DeleteNodeAction(this, this, zooInspectorManager));
 
+        final JMenuItem exportNode = new JMenuItem("Export Subtree...");
+        exportNode.addActionListener(new ExportNodeAction(this, this, zooInspectorManager));
+
+        final JMenuItem importNode = new JMenuItem("Import Subtree...");
+        importNode.addActionListener(new ImportNodeAction(this, this, zooInspectorManager));
+
+        final JMenuItem compareNode = new JMenuItem("Compare Subtree...");
+        compareNode.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (diffDialog == null) {
+                    diffDialog = new ZooInspectorDiffDialog(JOptionPane.getRootFrame(), zooInspectorManager,
+                            ZooInspectorTreeViewer.this);
+                }
+                List<String> selectedNodes = getSelectedNodes();
+                if (!selectedNodes.isEmpty()) {
+                    diffDialog.setSubtree(selectedNodes.get(0));
+                }
+                diffDialog.setVisible(true);
+            }
+        });
+
         final JMenuItem addNotify = new JMenuItem("Add Change Notification");
         this.toasterManager = new Toaster();
         this.toasterManager.setBorderColor(Color.BLACK);
@@ -121,17 +148,39 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
         tree = new JTree(new DefaultMutableTreeNode());
         tree.setCellRenderer(new ZooInspectorTreeCellRenderer(iconResource));
         tree.setEditable(false);
+        tree.setSelectionModel(new ZooInspectorTreeSelectionModel());
         tree.getSelectionModel().addTreeSelectionListener(listener);
+        tree.addTreeExpansionListener(new TreeExpansionListener() {
+            @Override
+            public void treeExpanded(TreeExpansionEvent event) {
+                // the level is loaded by the tree model
+            }
+
+            @Override
+            public void treeCollapsed(TreeExpansionEvent event) {
+                Object node = event.getPath().getLastPathComponent();
+                if (node instanceof ZooInspectorTreeNode && tree.getModel() instanceof ZooInspectorTreeModel) {
+                    ((ZooInspectorTreeModel) tree.getModel()).unloadChildren((ZooInspectorTreeNode) node);
+                }
+            }
+        });
         tree.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                if (e.isPopupTrigger() || e.getButton() == MouseEvent.BUTTON3) {
+                TreePath clicked = tree.getPathForLocation(e.getX(), e.getY());
+                if (clicked != null && e.getButton() == MouseEvent.BUTTON1 && tree.getModel() instanceof ZooInspectorTreeModel) {
+                    ((ZooInspectorTreeModel) tree.getModel()).loadNextPage(clicked.getLastPathComponent());
+                }
+                if ((e.isPopupTrigger() || e.getButton() == MouseEvent.BUTTON3) && !zooInspectorManager.isReadOnly()) {
                     // TODO only show add if a selected node isn't being
                     // watched, and only show remove if a selected node is being
                     // watched
                     popupMenu.removeAll();
                     popupMenu.add(addNode);
                     popupMenu.add(deleteNode);
+                    popupMenu.add(exportNode);
+                    popupMenu.add(importNode);
+                    popupMenu.add(compareNode);
                     popupMenu.add(addNotify);
                     popupMenu.add(removeNotify);
                     popupMenu.show(ZooInspectorTreeViewer.this, e.getX(), e.getY());
@@ -142,41 +191,58 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
     }
 
     /**
-     * Refresh the tree view
+     * Refresh the tree view. Only the loaded nodes whose children have changed
+     * are updated, so the expanded and selected nodes stay as they are.
      */
     public void refreshView() {
-        final Set<TreePath> expandedNodes = new LinkedHashSet<TreePath>();
-        int rowCount = tree.getRowCount();
-        for (int i = 0; i < rowCount; i++) {
-            TreePath path = tree.getPathForRow(i);
-            if (tree.isExpanded(path)) {
-                expandedNodes.add(path);
-            }
+        if (tree.getModel() instanceof ZooInspectorTreeModel) {
+            ((ZooInspectorTreeModel) tree.getModel()).refresh();
+        }
+        else {
+            tree.setModel(new ZooInspectorTreeModel(zooInspectorManager));
         }
-        final TreePath[] selectedNodes = tree.getSelectionPaths();
-        SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
+    }
 
-            @Override
-            protected Boolean doInBackground() throws Exception {
-                tree.setModel(new DefaultTreeModel(new ZooInspectorTreeNode("/", null)));
-                return true;
+    /**
+     * Refresh the children of the nodes if they are loaded
+     *
+     * @param nodePaths
+     *            - the paths to the nodes
+     */
+    public void refreshNodes(Collection<String> nodePaths) {
+        if (tree.getModel() instanceof ZooInspectorTreeModel) {
+            for (String nodePath : nodePaths) {
+                ((ZooInspectorTreeModel) tree.getModel()).refresh(nodePath.isEmpty() ? "/" : nodePath);
             }
+        }
+    }
 
-            @Override
-            protected void done() {
-                for (TreePath path : expandedNodes) {
-                    tree.expandPath(path);
+    /**
+     * Loads the ancestors of a node as far as needed, then selects the node
+     * and scrolls it into view
+     *
+     * @param nodePath
+     *            - the path to the node
+     */
+    public void selectNode(String nodePath) {
+        if (tree.getModel() instanceof ZooInspectorTreeModel) {
+            final ZooInspectorTreeModel model = (ZooInspectorTreeModel) tree.getModel();
+            model.reveal(nodePath, (path) -> {
+                if (tree.getModel() == model) {
+                    tree.setSelectionPath(path);
+                    tree.scrollPathToVisible(path);
                 }
-                tree.getSelectionModel().setSelectionPaths(selectedNodes);
-            }
-        };
-        worker.execute();
+            });
+        }
     }
 
     /**
      * clear the tree view of all nodes
      */
     public void clearView() {
+        if (diffDialog != null) {
+            diffDialog.setVisible(false);
+        }
         tree.setModel(new DefaultTreeModel(new DefaultMutableTreeNode()));
     }
 
@@ -188,117 +254,34 @@ public class ZooInspectorTreeViewer extends JPanel implements NodeListener {
         }
     }
 
-    private class ZooInspectorTreeNode implements TreeNode {
-        private final String nodePath;
-        private final String nodeName;
-        private final ZooInspectorTreeNode parent;
-
-        public ZooInspectorTreeNode(String nodePath, ZooInspectorTreeNode parent) {
-            this.parent = parent;
-            this.nodePath = nodePath;
-            int index = nodePath.lastIndexOf("/");
-            if (index == -1) {
-                throw new IllegalArgumentException("Invalid node path" + nodePath);
-            }
-            this.nodeName = nodePath.substring(index + 1);
-        }
+    /**
+     * A selection model which never selects the placeholders shown while
+     * children are loading
+     */
+    private static class ZooInspectorTreeSelectionModel extends DefaultTreeSelectionModel {
 
-        @Override
-        public Enumeration<TreeNode> children() {
-            List<String> children = zooInspectorManager
-                    .getChildren(this.nodePath);
-            Collections.sort(children);
-            List<TreeNode> returnChildren = new ArrayList<TreeNode>();
-            for (String child : children) {
-                returnChildren.add(
-                		new ZooInspectorTreeNode((this.nodePath.equals("/") ? "" : this.nodePath) + "/" + child, this)
-                );
+        private static TreePath[] withoutPlaceholders(TreePath[] paths) {
+            if (paths == null) {
+                return null;
             }
-            return Collections.enumeration(returnChildren);
-        }
-
-        @Override
-        public boolean getAllowsChildren() {
-            return zooInspectorManager.isAllowsChildren(this.nodePath);
-        }
-
-        @Override
-        public TreeNode getChildAt(int childIndex) {
-            String child = zooInspectorManager.getNodeChild(this.nodePath,
-                    childIndex);
-            if (child != null) {
-                return new ZooInspectorTreeNode((this.nodePath.equals("/") ? ""
-                        : this.nodePath)
-                        + "/" + child, this);
+            List<TreePath> result = new ArrayList<TreePath>(paths.length);
+            for (TreePath path : paths) {
+                if (path != null && !ZooInspectorTreeModel.isPlaceholder(path.getLastPathComponent())) {
+                    result.add(path);
+                }
             }
-            return null;
-        }
-
-        @Override
-        public int getChildCount() {
-            return zooInspectorManager.getNumChildren(this.nodePath);
-        }
-
-        @Override
-        public int getIndex(TreeNode node) {
-            return zooInspectorManager.getNodeIndex(this.nodePath);
-        }
-
-        @Override
-        public TreeNode getParent() {
-            return this.parent;
-        }
-
-        @Override
-        public boolean isLeaf() {
-            return !zooInspectorManager.hasChildren(this.nodePath);
-        }
-
-        @Override
-        public String toString() {
-            return this.nodeName;
+            return result.toArray(new TreePath[result.size()]);
         }
 
         @Override
-        public int hashCode() {
-            final int prime = 31;
-            int result = 1;
-            result = prime * result + getOuterType().hashCode();
-            result = prime * result
-                    + ((nodePath == null) ? 0 : nodePath.hashCode());
-            result = prime * result
-                    + ((parent == null) ? 0 : parent.hashCode());
-            return result;
+        public void setSelectionPaths(TreePath[] paths) {
+            super.setSelectionPaths(withoutPlaceholders(paths));
         }
 
         @Override
-        public boolean equals(Object obj) {
-            if (this == obj)
-                return true;
-            if (obj == null)
-                return false;
-            if (getClass() != obj.getClass())
-                return false;
-            ZooInspectorTreeNode other = (ZooInspectorTreeNode) obj;
-            if (!getOuterType().equals(other.getOuterType()))
-                return false;
-            if (nodePath == null) {
-                if (other.nodePath != null)
-                    return false;
-            } else if (!nodePath.equals(other.nodePath))
-                return false;
-            if (parent == null) {
-                if (other.parent != null)
-                    return false;
-            } else if (!parent.equals(other.parent))
-                return false;
-            return true;
-        }
-
-        private ZooInspectorTreeViewer getOuterType() {
-            return ZooInspectorTreeViewer.this;
+        public void addSelectionPaths(TreePath[] paths) {
+            super.addSelectionPaths(withoutPlaceholders(paths));
         }
-
     }
 
     /**
@@ -0,0 +1,363 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Frame;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.Insets;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+
+import org.apache.zookeeper.inspector.manager.ReplayedSnapshot;
+import org.apache.zookeeper.inspector.manager.TxnEntry;
+import org.apache.zookeeper.inspector.manager.TxnLogIndex;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A {@link JDialog} for browsing the transaction logs in the data directory of
+ * a ZooKeeper server. The logs are indexed with a {@link TxnLogIndex} when the
+ * dialog opens, and again before every action so that transactions appended
+ * since are included. The transactions which touched a path are listed in a
+ * table, and the nodes as of a zxid are rebuilt with a
+ * {@link ReplayedSnapshot} and shown in a new window.
+ */
+@Slf4j
+public class ZooInspectorTxnLogDialog extends JDialog {
+
+    private final TxnLogIndex logs;
+    private final ZooInspectorPanel panel;
+
+    private final JLabel info = new JLabel(" ");
+    private final JTextField pathField = new JTextField("/");
+    private final JButton findButton = new JButton("Find");
+    private final JTextField zxidField = new JTextField();
+    private final JButton openButton = new JButton("Open");
+    private final TxnTableModel txns = new TxnTableModel();
+    private final JProgressBar progress = new JProgressBar();
+    private final JButton cancelButton = new JButton("Cancel");
+    private final Timer timer = new Timer(200, (e) -> updateProgress());
+    private boolean busy;
+
+    /**
+     * @param frame
+     *            - the Frame from which the dialog is displayed
+     * @param logs
+     *            - the transaction logs to browse, which are closed with the
+     *            dialog
+     * @param panel
+     *            - the {@link ZooInspectorPanel} which shows the rebuilt
+     *            nodes
+     * @param iconResource
+     *            - the icons of the application
+     */
+    public ZooInspectorTxnLogDialog(Frame frame, TxnLogIndex logs, ZooInspectorPanel panel, IconResource iconResource) {
+        super(frame);
+        this.logs = logs;
+        this.panel = panel;
+        this.setTitle("Transaction Logs - " + logs.getDirectory());
+        this.setIconImage(iconResource.get(IconResource.ICON_DOCUMENT_OPEN, "").getImage());
+        this.setModal(false);
+        this.setResizable(true);
+        this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        this.setLayout(new BorderLayout(5, 5));
+
+        JPanel queryPanel = new JPanel(new GridBagLayout());
+        queryPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 0, 5));
+        addRow(queryPanel, 0, "", info);
+        addRow(queryPanel, 1, "Path", withButton(pathField, findButton));
+        addRow(queryPanel, 2, "As of zxid", withButton(zxidField, openButton));
+        zxidField.setToolTipText("A zxid such as 0x300000a12 or 12884904466; the nodes are shown as they were after it");
+        this.add(queryPanel, BorderLayout.NORTH);
+
+        final JTable table = new JTable(txns);
+        table.setAutoCreateRowSorter(true);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        int[] widths = { 110, 170, 140, 90, 300, 250 };
+        for (int i = 0; i < widths.length; i++) {
+            table.getColumnModel().getColumn(i).setPreferredWidth(widths[i]);
+        }
+        table.getColumnModel().getColumn(0).setCellRenderer(new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(value != null ? toHex((Long) value) : "");
+            }
+        });
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2 && table.getSelectedRow() != -1) {
+                    long zxid = txns.getTxn(table.convertRowIndexToModel(table.getSelectedRow())).getZxid();
+                    zxidField.setText(toHex(zxid));
+                    open(zxid);
+                }
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(table);
+        scrollPane.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createEmptyBorder(0, 5, 0, 5), scrollPane.getBorder()));
+        this.add(scrollPane, BorderLayout.CENTER);
+
+        JPanel progressPanel = new JPanel(new BorderLayout(5, 5));
+        progressPanel.setBorder(BorderFactory.createEmptyBorder(0, 5, 5, 5));
+        progress.setStringPainted(true);
+        progress.setString(" ");
+        progressPanel.add(progress, BorderLayout.CENTER);
+        progressPanel.add(cancelButton, BorderLayout.EAST);
+        this.add(progressPanel, BorderLayout.SOUTH);
+
+        findButton.addActionListener((e) -> find());
+        pathField.addActionListener((e) -> find());
+        openButton.addActionListener((e) -> open());
+        zxidField.addActionListener((e) -> open());
+        cancelButton.addActionListener((e) -> logs.cancel());
+
+        this.setSize(900, 500);
+        this.setLocationRelativeTo(frame);
+        run(() -> null, (result) -> progress.setString(logs.getTxnCount() + " transactions indexed"));
+    }
+
+    /**
+     * Stops indexing and closes the logs
+     */
+    @Override
+    public void dispose() {
+        super.dispose();
+        timer.stop();
+        logs.cancel();
+        logs.close();
+    }
+
+    private static JPanel withButton(JComponent component, JButton button) {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.add(component, BorderLayout.CENTER);
+        panel.add(button, BorderLayout.EAST);
+        return panel;
+    }
+
+    private static void addRow(JPanel panel, int row, String label, JComponent component) {
+        GridBagConstraints c = new GridBagConstraints();
+        c.gridx = 0;
+        c.gridy = row;
+        c.anchor = GridBagConstraints.WEST;
+        c.insets = new Insets(2, 2, 2, 5);
+        panel.add(new JLabel(label), c);
+        c = new GridBagConstraints();
+        c.gridx = 1;
+        c.gridy = row;
+        c.weightx = 1;
+        c.fill = GridBagConstraints.HORIZONTAL;
+        c.insets = new Insets(2, 2, 2, 2);
+        panel.add(component, c);
+    }
+
+    private void find() {
+        final String nodePath = pathField.getText().trim();
+        if (nodePath.isEmpty()) {
+            return;
+        }
+        run(() -> logs.find(nodePath, TxnLogIndex.DEFAULT_MAX_RESULTS), (found) -> {
+            txns.setRows(found);
+            progress.setString(found.size() >= TxnLogIndex.DEFAULT_MAX_RESULTS
+                    ? "First " + found.size() + " transactions touching " + nodePath
+                    : found.size() + " transactions touching " + nodePath);
+        });
+    }
+
+    private void open() {
+        String text = zxidField.getText().trim();
+        if (text.isEmpty()) {
+            return;
+        }
+        try {
+            open(text.regionMatches(true, 0, "0x", 0, 2)
+                    ? Long.parseUnsignedLong(text.substring(2), 16)
+                    : Long.parseLong(text));
+        }
+        catch (NumberFormatException e) {
+            progress.setString("Not a zxid: " + text);
+        }
+    }
+
+    private void open(final long zxid) {
+        run(() -> ReplayedSnapshot.open(logs, zxid), (snapshot) -> {
+            progress.setString("Replayed " + snapshot.getAppliedCount() + " transactions on "
+                    + snapshot.getBase().getPath().getFileName());
+            panel.showSnapshot(snapshot);
+        });
+    }
+
+    /**
+     * Brings the index up to date and then runs a task in the background,
+     * one at a time
+     */
+    private <T> void run(final Callable<T> task, final Consumer<T> done) {
+        if (busy) {
+            return;
+        }
+        busy = true;
+        findButton.setEnabled(false);
+        openButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        progress.setString("Indexing…");
+        timer.start();
+        new SwingWorker<T, Void>() {
+
+            @Override
+            protected T doInBackground() throws Exception {
+                logs.update();
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                busy = false;
+                timer.stop();
+                findButton.setEnabled(true);
+                openButton.setEnabled(true);
+                cancelButton.setEnabled(false);
+                progress.setValue(0);
+                updateInfo();
+                if (!isDisplayable()) {
+                    return;
+                }
+                try {
+                    done.accept(get());
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.error("Error occurred reading the transaction logs in: {}", logs.getDirectory(), cause);
+                    progress.setString(cause instanceof IOException ? cause.getMessage() : "Failed: " + cause);
+                }
+            }
+
+        }.execute();
+    }
+
+    private void updateInfo() {
+        long first = logs.getFirstZxid();
+        info.setText(logs.getLogCount() + " logs, " + logs.getTxnCount() + " transactions"
+                + (first != -1 ? ", zxid " + toHex(first) + " to " + toHex(logs.getLastZxid()) : ""));
+    }
+
+    private void updateProgress() {
+        long total = logs.getTotalBytes();
+        long indexed = logs.getIndexedBytes();
+        if (indexed < total) {
+            progress.setMaximum(1000);
+            progress.setValue((int) (indexed * 1000 / total));
+            progress.setString("Indexing… " + (indexed >> 20) + " of " + (total >> 20) + " MB");
+        }
+        else {
+            progress.setValue(0);
+            progress.setString("Reading…");
+        }
+    }
+
+    private static String toHex(long zxid) {
+        return "0x" + Long.toHexString(zxid);
+    }
+
+    /**
+     * The transactions found, with columns for the zxid, time, session,
+     * operation, paths and details
+     */
+    private static class TxnTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = { "Zxid", "Time", "Session", "Operation", "Paths", "Details" };
+        private final DateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS z");
+        private List<TxnEntry> rows = new ArrayList<TxnEntry>();
+
+        private void setRows(List<TxnEntry> rows) {
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        private TxnEntry getTxn(int row) {
+            return rows.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            // zxids sort as numbers, and are shown in hexadecimal by the renderer
+            return column == 0 ? Long.class : String.class;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            TxnEntry txn = rows.get(row);
+            switch (column) {
+            case 0:
+                return txn.getZxid();
+            case 1:
+                return format.format(new Date(txn.getTime()));
+            case 2:
+                return toHex(txn.getSessionId());
+            case 3:
+                return txn.getOperation();
+            case 4:
+                return String.join(", ", txn.getPaths());
+            default:
+                return txn.getDetail();
+            }
+        }
+    }
+
+}
@@ -62,7 +62,7 @@ public class AddNodeAction extends AbstractAction {
 
                     @Override
                     protected void done() {
-                        treeViewer.refreshView();
+                        treeViewer.refreshNodes(selectedNodes);
                     }
                 };
                 worker.execute();
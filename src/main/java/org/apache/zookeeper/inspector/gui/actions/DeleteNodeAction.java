@@ -18,16 +18,24 @@
 package org.apache.zookeeper.inspector.gui.actions;
 
 import java.awt.event.ActionEvent;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.AbstractAction;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
 import org.apache.zookeeper.inspector.gui.ZooInspectorTreeViewer;
+import org.apache.zookeeper.inspector.manager.NodeDelete;
 import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
 
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 public class DeleteNodeAction extends AbstractAction {
 
     private JPanel parentPanel;
@@ -49,35 +57,84 @@ public class DeleteNodeAction extends AbstractAction {
             JOptionPane.showMessageDialog(
             		parentPanel,
                     "Please select at least 1 node to be deleted");
-        } 
-        else {
-            int answer = JOptionPane.showConfirmDialog(
-			                    parentPanel,
-			                    "Are you sure you want to delete the selected nodes?"
-			                            + "(This action cannot be reverted)",
-			                    "Confirm Delete", 
-			                    JOptionPane.YES_NO_OPTION,
-			                    JOptionPane.WARNING_MESSAGE
-			            );
-            if (answer == JOptionPane.YES_OPTION) {
-                SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
+            return;
+        }
+        // count the nodes up front, without listing them. Nodes below other
+        // selected nodes are deleted with them, so they are not counted again.
+        // A count which fails, for example because the server is older than
+        // 3.6, leaves the number out of the confirmation
+        List<CompletableFuture<Integer>> counts = new ArrayList<CompletableFuture<Integer>>();
+        for (String nodePath : NodeDelete.topmost(selectedNodes)) {
+            counts.add(zooInspectorManager.getAllChildrenNumberAsync(nodePath).exceptionally((error) -> {
+                log.warn("Unable to count the nodes below: {}", nodePath, error);
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(counts.toArray(new CompletableFuture<?>[counts.size()])).thenRun(() -> {
+            Long total = 0L;
+            for (CompletableFuture<Integer> count : counts) {
+                Integer children = count.join();
+                total = total != null && children != null ? total + children + 1 : null;
+            }
+            final Long nodeCount = total;
+            SwingUtilities.invokeLater(() -> confirmAndDelete(selectedNodes, nodeCount));
+        });
+    }
 
-                    @Override
-                    protected Boolean doInBackground() throws Exception {
-                        for (String nodePath : selectedNodes) {
-                            zooInspectorManager.deleteNode(nodePath);
-                        }
-                        return true;
-                    }
+    private void confirmAndDelete(final List<String> selectedNodes, Long nodeCount) {
+        int answer = JOptionPane.showConfirmDialog(
+		                    parentPanel,
+		                    (nodeCount != null
+		                            ? "Are you sure you want to delete the selected nodes? " + nodeCount + " nodes will be deleted."
+		                            : "Are you sure you want to delete the selected nodes?")
+		                            + " (This action cannot be reverted)",
+		                    "Confirm Delete", 
+		                    JOptionPane.YES_NO_OPTION,
+		                    JOptionPane.WARNING_MESSAGE
+		            );
+        if (answer != JOptionPane.YES_OPTION) {
+            return;
+        }
+        final NodeDelete delete = zooInspectorManager.createDelete();
+        if (delete == null) {
+            return;
+        }
+        final NodeTaskProgress progress = new NodeTaskProgress(parentPanel, "Deleting the selected nodes",
+                delete::getDeletedCount, delete::cancel);
+        progress.start(CompletableFuture.completedFuture(nodeCount));
+        SwingWorker<Long, Void> worker = new SwingWorker<Long, Void>() {
 
-                    @Override
-                    protected void done() {
-                        treeViewer.refreshView();
+            @Override
+            protected Long doInBackground() throws Exception {
+                return delete.delete(selectedNodes);
+            }
+
+            @Override
+            protected void done() {
+                progress.stop();
+                List<String> parentNodes = new ArrayList<String>();
+                for (String nodePath : selectedNodes) {
+                    int index = nodePath.lastIndexOf('/');
+                    parentNodes.add(index > 0 ? nodePath.substring(0, index) : "/");
+                }
+                treeViewer.refreshNodes(parentNodes);
+                try {
+                    long deleted = get();
+                    if (delete.getErrorCount() > 0) {
+                        JOptionPane.showMessageDialog(parentPanel,
+                                deleted + " nodes deleted. " + delete.getErrorCount()
+                                        + " nodes could not be deleted, see the log for details.",
+                                "Delete", JOptionPane.WARNING_MESSAGE);
                     }
-                };
-                
-                worker.execute();
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.error("Error occurred deleting nodes: {}", selectedNodes, cause);
+                    JOptionPane.showMessageDialog(parentPanel, "Unable to delete the selected nodes: " + cause.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
             }
-        }
+        };
+        worker.execute();
     }
 }
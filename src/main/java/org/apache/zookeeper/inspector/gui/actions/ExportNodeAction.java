@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui.actions;
+
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.AbstractAction;
+import javax.swing.JFileChooser;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.SwingWorker;
+import javax.swing.filechooser.FileFilter;
+
+import org.apache.zookeeper.inspector.gui.ZooInspectorTreeViewer;
+import org.apache.zookeeper.inspector.manager.NodeExport;
+import org.apache.zookeeper.inspector.manager.NodeExportFormat;
+import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class ExportNodeAction extends AbstractAction {
+
+    private JPanel parentPanel;
+    private ZooInspectorTreeViewer treeViewer;
+    private ZooInspectorManager zooInspectorManager;
+
+    public ExportNodeAction(JPanel parentPanel,
+                            ZooInspectorTreeViewer treeViewer,
+                            ZooInspectorManager zooInspectorManager) {
+        this.parentPanel = parentPanel;
+        this.treeViewer = treeViewer;
+        this.zooInspectorManager = zooInspectorManager;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        final List<String> selectedNodes = treeViewer.getSelectedNodes();
+        if (selectedNodes.size() != 1) {
+            JOptionPane.showMessageDialog(parentPanel, "Please select 1 node to be exported with its subtree.");
+            return;
+        }
+        final String nodePath = selectedNodes.get(0);
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export " + nodePath);
+        fileChooser.setAcceptAllFileFilterUsed(false);
+        for (NodeExportFormat format : NodeExportFormat.values()) {
+            fileChooser.addChoosableFileFilter(new ExportFileFilter(format, true));
+            fileChooser.addChoosableFileFilter(new ExportFileFilter(format, false));
+        }
+        if (fileChooser.showSaveDialog(parentPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        ExportFileFilter filter = (ExportFileFilter) fileChooser.getFileFilter();
+        File file = fileChooser.getSelectedFile();
+        NodeExportFormat format = NodeExportFormat.forFileName(file.getName());
+        boolean gzip = file.getName().toLowerCase().endsWith(NodeExportFormat.GZIP_EXTENSION);
+        if (format == null) {
+            format = filter.format;
+            gzip = filter.gzip;
+            file = new File(file.getPath() + filter.getExtension());
+        }
+        if (file.exists()) {
+            int answer = JOptionPane.showConfirmDialog(
+                    parentPanel,
+                    file + " already exists. Do you want to replace it?",
+                    "Confirm Export",
+                    JOptionPane.YES_NO_OPTION,
+                    JOptionPane.WARNING_MESSAGE
+            );
+            if (answer != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+        final NodeExport export = zooInspectorManager.createExport(file.toPath(), format, gzip);
+        if (export == null) {
+            return;
+        }
+        final File exportFile = file;
+        final NodeTaskProgress progress = new NodeTaskProgress(parentPanel, "Exporting " + nodePath,
+                export::getExportedCount, export::cancel);
+        progress.start(zooInspectorManager.getAllChildrenNumberAsync(nodePath)
+                .thenApply((count) -> count != null ? count + 1 : null));
+        SwingWorker<Long, Void> worker = new SwingWorker<Long, Void>() {
+
+            @Override
+            protected Long doInBackground() throws Exception {
+                return export.export(nodePath);
+            }
+
+            @Override
+            protected void done() {
+                progress.stop();
+                try {
+                    long count = get();
+                    if (export.isCancelled()) {
+                        return;
+                    }
+                    String message = count + " nodes exported to " + exportFile;
+                    if (export.getErrorCount() > 0) {
+                        message += "\n" + export.getErrorCount() + " nodes could not be read and are missing";
+                    }
+                    JOptionPane.showMessageDialog(parentPanel, message, "Export",
+                            export.getErrorCount() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.error("Error occurred exporting node: {}", nodePath, cause);
+                    JOptionPane.showMessageDialog(
+                            parentPanel,
+                            "Unable to export " + nodePath + ": " + cause.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private static class ExportFileFilter extends FileFilter {
+
+        private final NodeExportFormat format;
+        private final boolean gzip;
+
+        ExportFileFilter(NodeExportFormat format, boolean gzip) {
+            this.format = format;
+            this.gzip = gzip;
+        }
+
+        String getExtension() {
+            return format.getExtension() + (gzip ? NodeExportFormat.GZIP_EXTENSION : "");
+        }
+
+        @Override
+        public boolean accept(File file) {
+            return file.isDirectory() || file.getName().toLowerCase().endsWith(getExtension());
+        }
+
+        @Override
+        public String getDescription() {
+            return format.getDescription() + (gzip ? ", GZIP compressed" : "") + " (*" + getExtension() + ")";
+        }
+    }
+}
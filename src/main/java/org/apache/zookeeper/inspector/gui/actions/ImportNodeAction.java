@@ -0,0 +1,207 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui.actions;
+
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.AbstractAction;
+import javax.swing.JComboBox;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingWorker;
+import javax.swing.filechooser.FileFilter;
+
+import org.apache.zookeeper.inspector.gui.ZooInspectorTreeViewer;
+import org.apache.zookeeper.inspector.manager.NodeExportFormat;
+import org.apache.zookeeper.inspector.manager.NodeExportReader;
+import org.apache.zookeeper.inspector.manager.NodeImport;
+import org.apache.zookeeper.inspector.manager.ZooInspectorManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class ImportNodeAction extends AbstractAction {
+
+    private JPanel parentPanel;
+    private ZooInspectorTreeViewer treeViewer;
+    private ZooInspectorManager zooInspectorManager;
+
+    public ImportNodeAction(JPanel parentPanel,
+                            ZooInspectorTreeViewer treeViewer,
+                            ZooInspectorManager zooInspectorManager) {
+        this.parentPanel = parentPanel;
+        this.treeViewer = treeViewer;
+        this.zooInspectorManager = zooInspectorManager;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Import Subtree");
+        fileChooser.setFileFilter(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isDirectory() || NodeExportFormat.forFileName(file.getName()) != null;
+            }
+
+            @Override
+            public String getDescription() {
+                return "Exports (*.ndjson, *.zkx, *.gz)";
+            }
+        });
+        if (fileChooser.showOpenDialog(parentPanel) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File file = fileChooser.getSelectedFile();
+        final NodeExportReader reader;
+        try {
+            reader = NodeExportReader.open(file.toPath());
+        }
+        catch (IOException ex) {
+            log.error("Error occurred opening export: {}", file, ex);
+            JOptionPane.showMessageDialog(parentPanel, "Unable to open " + file + ": " + ex.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        final NodeImport nodeImport = zooInspectorManager.createImport();
+        final String targetPath = nodeImport != null ? showOptions(reader, nodeImport) : null;
+        if (targetPath == null) {
+            close(reader);
+            return;
+        }
+        final NodeTaskProgress progress = new NodeTaskProgress(parentPanel, "Importing " + file.getName() + " to " + targetPath,
+                () -> position(reader), nodeImport::cancel);
+        progress.setNote(() -> nodeImport.getCreatedCount() + " created, " + nodeImport.getOverwrittenCount()
+                + " overwritten, " + nodeImport.getSkippedCount() + " skipped");
+        progress.start(CompletableFuture.completedFuture(size(reader)));
+        SwingWorker<Long, Void> worker = new SwingWorker<Long, Void>() {
+
+            @Override
+            protected Long doInBackground() throws Exception {
+                try {
+                    return nodeImport.importNodes(reader, targetPath);
+                }
+                finally {
+                    reader.close();
+                }
+            }
+
+            @Override
+            protected void done() {
+                progress.stop();
+                int index = targetPath.lastIndexOf('/');
+                treeViewer.refreshNodes(Collections.singletonList(index > 0 ? targetPath.substring(0, index) : "/"));
+                String counts = nodeImport.getCreatedCount() + " nodes created, "
+                        + nodeImport.getOverwrittenCount() + " overwritten and "
+                        + nodeImport.getSkippedCount() + " skipped";
+                try {
+                    get();
+                    JOptionPane.showMessageDialog(parentPanel,
+                            (nodeImport.isCancelled() ? "Import cancelled: " : "Import finished: ") + counts,
+                            "Import", JOptionPane.INFORMATION_MESSAGE);
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    log.error("Error occurred importing {} to {}", file, targetPath, cause);
+                    JOptionPane.showMessageDialog(
+                            parentPanel,
+                            "Unable to import " + file + ": " + cause.getMessage() + "\n" + counts,
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * @return the path to import the subtree as, or <code>null</code> if the
+     *         user cancelled
+     */
+    private String showOptions(NodeExportReader reader, NodeImport nodeImport) {
+        JTextField targetPath = new JTextField(reader.getRootPath(), 30);
+        JComboBox<NodeImport.Conflict> conflict = new JComboBox<NodeImport.Conflict>(NodeImport.Conflict.values());
+        JSpinner batchSize = new JSpinner(new SpinnerNumberModel(nodeImport.getBatchSize(), 1, 10000, 100));
+        JSpinner window = new JSpinner(new SpinnerNumberModel(nodeImport.getWindow(), 1, 64, 1));
+        JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
+        panel.add(new JLabel("Exported subtree:"));
+        panel.add(new JLabel(reader.getRootPath()));
+        panel.add(new JLabel("Import as:"));
+        panel.add(targetPath);
+        panel.add(new JLabel("Existing nodes:"));
+        panel.add(conflict);
+        panel.add(new JLabel("Nodes per transaction:"));
+        panel.add(batchSize);
+        panel.add(new JLabel("Transactions in flight:"));
+        panel.add(window);
+        while (true) {
+            int answer = JOptionPane.showConfirmDialog(parentPanel, panel, "Import Subtree",
+                    JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            if (answer != JOptionPane.OK_OPTION) {
+                return null;
+            }
+            String path = targetPath.getText().trim();
+            if (path.startsWith("/") && (path.length() == 1 || !path.endsWith("/")) && !path.contains("//")) {
+                nodeImport.setConflict((NodeImport.Conflict) conflict.getSelectedItem());
+                nodeImport.setBatchSize((Integer) batchSize.getValue());
+                nodeImport.setWindow((Integer) window.getValue());
+                return path;
+            }
+            JOptionPane.showMessageDialog(parentPanel, "Please enter an absolute path to import the subtree as.");
+        }
+    }
+
+    private static long position(NodeExportReader reader) {
+        try {
+            return reader.getPosition();
+        }
+        catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long size(NodeExportReader reader) {
+        try {
+            return reader.getSize();
+        }
+        catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void close(NodeExportReader reader) {
+        try {
+            reader.close();
+        }
+        catch (IOException e) {
+            log.warn("Error occurred closing export", e);
+        }
+    }
+}
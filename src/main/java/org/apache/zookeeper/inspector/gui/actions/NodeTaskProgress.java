@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui.actions;
+
+import java.awt.Component;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Shows the progress of a task over the nodes of a subtree in a
+ * {@link ProgressMonitor}. The task is polled on the event dispatch thread,
+ * so it only has to keep a thread safe count of the nodes it has done, and is
+ * cancelled when the user presses Cancel.
+ */
+class NodeTaskProgress {
+
+    private final ProgressMonitor monitor;
+    private final LongSupplier done;
+    private final Runnable cancel;
+    private final Timer timer = new Timer(200, (e) -> update());
+    private Supplier<String> note = null;
+    private long total = -1;
+
+    /**
+     * @param parent
+     *            - the component to show the progress over
+     * @param message
+     *            - the description of the task
+     * @param done
+     *            - the number of nodes done so far
+     * @param cancel
+     *            - cancels the task
+     */
+    NodeTaskProgress(Component parent, String message, LongSupplier done, Runnable cancel) {
+        this.monitor = new ProgressMonitor(parent, message, " ", 0, Integer.MAX_VALUE);
+        this.done = done;
+        this.cancel = cancel;
+        monitor.setMillisToDecideToPopup(200);
+        monitor.setMillisToPopup(200);
+    }
+
+    /**
+     * @param note
+     *            - the text shown below the description instead of the number
+     *            of nodes done, when the progress is not counted in nodes
+     */
+    void setNote(Supplier<String> note) {
+        this.note = note;
+    }
+
+    /**
+     * Starts polling the task
+     *
+     * @param total
+     *            - the number of nodes the task will do, which may complete
+     *            later or with <code>null</code> if unknown
+     */
+    void start(CompletableFuture<? extends Number> total) {
+        total.thenAccept((count) -> SwingUtilities.invokeLater(() -> {
+            if (count != null && timer.isRunning()) {
+                this.total = count.longValue();
+                monitor.setMaximum((int) Math.min(Integer.MAX_VALUE, this.total));
+            }
+        }));
+        timer.start();
+    }
+
+    /**
+     * Stops polling the task and closes the {@link ProgressMonitor}
+     */
+    void stop() {
+        timer.stop();
+        monitor.close();
+    }
+
+    private void update() {
+        if (monitor.isCanceled()) {
+            timer.stop();
+            cancel.run();
+            return;
+        }
+        long count = done.getAsLong();
+        if (total < 0) {
+            monitor.setNote(note != null ? note.get() : count + " nodes");
+            monitor.setProgress(0);
+        }
+        else {
+            monitor.setNote(note != null ? note.get() : count + " of " + total + " nodes");
+            // the monitor closes itself when the maximum is reached
+            monitor.setProgress((int) Math.min(count, monitor.getMaximum() - 1));
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui.nodeviewer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits a value into the lines a {@link ByteViewer} shows, without copying
+ * it. Only where each line starts is computed up front; the text of a line is
+ * built when the line is painted.
+ */
+abstract class ByteLines {
+
+    protected final byte[] data;
+
+    private ByteLines(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * @param data
+     *            - the value
+     * @return lines of 16 bytes each, shown as their offset, their hex values
+     *         and their ASCII characters
+     */
+    static ByteLines hex(byte[] data) {
+        return new HexLines(data);
+    }
+
+    /**
+     * @param data
+     *            - the value
+     * @return the lines of the value decoded as UTF-8, with lines longer than
+     *         {@link TextLines#MAX_LINE_LENGTH} bytes wrapped
+     */
+    static ByteLines text(byte[] data) {
+        return new TextLines(data);
+    }
+
+    /**
+     * @return the number of lines, at least 1
+     */
+    abstract int getLineCount();
+
+    /**
+     * @return the offset of the first byte of the line
+     */
+    abstract int getLineStart(int line);
+
+    /**
+     * @return the offset after the last byte of the line
+     */
+    abstract int getLineEnd(int line);
+
+    /**
+     * @return the line the byte at the offset is shown on
+     */
+    abstract int getLine(int offset);
+
+    /**
+     * @return the text shown for the line
+     */
+    abstract String getText(int line);
+
+    /**
+     * @return the number of characters of the longest line
+     */
+    abstract int getMaxColumns();
+
+    /**
+     * @param line
+     *            - a line
+     * @param from
+     *            - the offset of the first byte, on the line
+     * @param to
+     *            - the offset after the last byte, on the line
+     * @return pairs of the first column and the column after the last one
+     *         where the bytes are shown on the line
+     */
+    abstract int[] getColumns(int line, int from, int to);
+
+    /**
+     * @return the text to copy for the lines
+     */
+    String copy(int firstLine, int lastLine) {
+        StringBuilder sb = new StringBuilder();
+        for (int line = firstLine; line <= lastLine; line++) {
+            sb.append(getText(line)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static class HexLines extends ByteLines {
+        private static final int BYTES_PER_LINE = 16;
+        private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+        // the offset, two spaces, three columns a byte, a space and the
+        // characters between bars
+        private static final int HEX_COLUMN = 10;
+        private static final int ASCII_COLUMN = HEX_COLUMN + BYTES_PER_LINE * 3 + 2;
+
+        private HexLines(byte[] data) {
+            super(data);
+        }
+
+        @Override
+        int getLineCount() {
+            return Math.max(1, (data.length + BYTES_PER_LINE - 1) / BYTES_PER_LINE);
+        }
+
+        @Override
+        int getLineStart(int line) {
+            return line * BYTES_PER_LINE;
+        }
+
+        @Override
+        int getLineEnd(int line) {
+            return Math.min(data.length, (line + 1) * BYTES_PER_LINE);
+        }
+
+        @Override
+        int getLine(int offset) {
+            return offset / BYTES_PER_LINE;
+        }
+
+        @Override
+        String getText(int line) {
+            int start = getLineStart(line);
+            int end = getLineEnd(line);
+            char[] text = new char[ASCII_COLUMN + BYTES_PER_LINE + 1];
+            Arrays.fill(text, ' ');
+            for (int i = 0; i < 8; i++) {
+                text[i] = DIGITS[(start >>> (28 - i * 4)) & 0xf];
+            }
+            text[ASCII_COLUMN - 1] = '|';
+            for (int i = start; i < end; i++) {
+                int column = HEX_COLUMN + (i - start) * 3;
+                text[column] = DIGITS[(data[i] >> 4) & 0xf];
+                text[column + 1] = DIGITS[data[i] & 0xf];
+                text[ASCII_COLUMN + i - start] = data[i] >= 0x20 && data[i] < 0x7f ? (char) data[i] : '.';
+            }
+            text[ASCII_COLUMN + end - start] = '|';
+            return new String(text, 0, ASCII_COLUMN + end - start + 1);
+        }
+
+        @Override
+        int getMaxColumns() {
+            return ASCII_COLUMN + BYTES_PER_LINE + 1;
+        }
+
+        @Override
+        int[] getColumns(int line, int from, int to) {
+            int first = from - getLineStart(line);
+            int last = to - getLineStart(line);
+            return new int[] {
+                HEX_COLUMN + first * 3, HEX_COLUMN + last * 3 - 1,
+                ASCII_COLUMN + first, ASCII_COLUMN + last
+            };
+        }
+    }
+
+    private static class TextLines extends ByteLines {
+        /**
+         * the most bytes shown on a line before it is wrapped
+         */
+        private static final int MAX_LINE_LENGTH = 1024;
+
+        private int[] starts = new int[64];
+        private int lineCount;
+        private int maxLength;
+
+        private TextLines(byte[] data) {
+            super(data);
+            int start = 0;
+            for (int i = 0; i <= data.length; i++) {
+                if (i == data.length || data[i] == '\n') {
+                    addLine(start, i);
+                    start = i + 1;
+                }
+                else if (i - start == MAX_LINE_LENGTH) {
+                    // do not wrap within a character
+                    int wrap = i;
+                    while (wrap > start + 1 && (data[wrap] & 0xc0) == 0x80) {
+                        wrap--;
+                    }
+                    addLine(start, wrap);
+                    start = wrap;
+                }
+            }
+        }
+
+        private void addLine(int start, int end) {
+            if (lineCount == starts.length) {
+                starts = Arrays.copyOf(starts, lineCount * 2);
+            }
+            starts[lineCount++] = start;
+            maxLength = Math.max(maxLength, end - start);
+        }
+
+        @Override
+        int getLineCount() {
+            return lineCount;
+        }
+
+        @Override
+        int getLineStart(int line) {
+            return starts[line];
+        }
+
+        @Override
+        int getLineEnd(int line) {
+            if (line + 1 == lineCount) {
+                return data.length;
+            }
+            int next = starts[line + 1];
+            // the newline is not shown
+            return next > 0 && data[next - 1] == '\n' ? next - 1 : next;
+        }
+
+        @Override
+        int getLine(int offset) {
+            int line = Arrays.binarySearch(starts, 0, lineCount, offset);
+            return line >= 0 ? line : -line - 2;
+        }
+
+        @Override
+        String getText(int line) {
+            return decode(getLineStart(line), getLineEnd(line));
+        }
+
+        @Override
+        int getMaxColumns() {
+            return maxLength;
+        }
+
+        @Override
+        int[] getColumns(int line, int from, int to) {
+            int start = getLineStart(line);
+            int first = decode(start, from).length();
+            return new int[] { first, first + decode(from, to).length() };
+        }
+
+        @Override
+        String copy(int firstLine, int lastLine) {
+            int end = lastLine + 1 < lineCount ? starts[lastLine + 1] : data.length;
+            return new String(data, getLineStart(firstLine), end - getLineStart(firstLine), StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return the bytes decoded as UTF-8, with control characters shown as
+         *         spaces so that every character takes one column
+         */
+        private String decode(int from, int to) {
+            char[] text = new String(data, from, to - from, StandardCharsets.UTF_8).toCharArray();
+            for (int i = 0; i < text.length; i++) {
+                if (Character.isISOControl(text[i])) {
+                    text[i] = ' ';
+                }
+            }
+            return new String(text);
+        }
+    }
+
+}
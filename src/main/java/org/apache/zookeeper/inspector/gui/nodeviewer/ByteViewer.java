@@ -0,0 +1,289 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.gui.nodeviewer;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+import javax.swing.AbstractAction;
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.KeyStroke;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.UIManager;
+
+import org.apache.zookeeper.inspector.manager.BytePattern;
+
+/**
+ * Shows a value as text or as hex and ASCII without turning it into a
+ * document: the value is split into lines by a {@link ByteLines}, and only
+ * the lines in view are built and painted, so a value of many megabytes opens
+ * as quickly as a small one. Whole lines can be selected with the mouse and
+ * copied, and the value can be searched for a sequence of bytes.
+ */
+public class ByteViewer extends JComponent implements Scrollable {
+
+    /**
+     * How a value is shown
+     */
+    public static enum Mode {
+        TEXT, HEX
+    }
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private byte[] data = EMPTY;
+    private Mode mode = Mode.TEXT;
+    private ByteLines lines = ByteLines.text(EMPTY);
+    private int matchStart = -1;
+    private int matchEnd = -1;
+    private int selectionAnchor = -1;
+    private int selectionLead = -1;
+
+    public ByteViewer() {
+        setFont(new Font(Font.MONOSPACED, Font.PLAIN, UIManager.getFont("TextArea.font") != null
+                ? UIManager.getFont("TextArea.font").getSize() : 12));
+        setBackground(UIManager.getColor("TextArea.background") != null
+                ? UIManager.getColor("TextArea.background") : Color.WHITE);
+        setForeground(UIManager.getColor("TextArea.foreground") != null
+                ? UIManager.getColor("TextArea.foreground") : Color.BLACK);
+        setOpaque(true);
+        setFocusable(true);
+        setBorder(BorderFactory.createEmptyBorder(2, 4, 2, 4));
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                selectionAnchor = lineAt(e.getY());
+                selectionLead = selectionAnchor;
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                selectionLead = lineAt(e.getY());
+                scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_C, InputEvent.CTRL_DOWN_MASK), "copy");
+        getActionMap().put("copy", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                copySelection();
+            }
+        });
+    }
+
+    /**
+     * @param data
+     *            - the value to show, which is not copied
+     */
+    public void setData(byte[] data) {
+        this.data = data != null ? data : EMPTY;
+        this.matchStart = -1;
+        this.matchEnd = -1;
+        updateLines();
+        scrollRectToVisible(new Rectangle(0, 0, 1, 1));
+    }
+
+    /**
+     * @return the value shown
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @param mode
+     *            - whether to show the value as text or as hex
+     */
+    public void setMode(Mode mode) {
+        if (this.mode != mode) {
+            this.mode = mode;
+            updateLines();
+            if (matchStart != -1) {
+                scrollToMatch();
+            }
+        }
+    }
+
+    /**
+     * @return whether the value is shown as text or as hex
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Finds the next match after the current one, starting over from the
+     * beginning at the end of the value, and scrolls to it
+     *
+     * @param pattern
+     *            - the bytes to find
+     * @param ignoreCase
+     *            - true if ASCII letters should match regardless of case
+     * @return the offset of the match, or -1 if the value does not contain
+     *         the bytes
+     */
+    public int find(byte[] pattern, boolean ignoreCase) {
+        if (pattern.length == 0) {
+            return -1;
+        }
+        BytePattern bytes = new BytePattern(pattern, ignoreCase);
+        int from = matchStart + 1;
+        int offset = bytes.indexOf(data, from, data.length);
+        if (offset == -1 && from > 0) {
+            offset = bytes.indexOf(data, 0, from + pattern.length - 1);
+        }
+        matchStart = offset;
+        matchEnd = offset != -1 ? offset + pattern.length : -1;
+        if (offset != -1) {
+            scrollToMatch();
+        }
+        repaint();
+        return offset;
+    }
+
+    private void updateLines() {
+        lines = mode == Mode.HEX ? ByteLines.hex(data) : ByteLines.text(data);
+        selectionAnchor = -1;
+        selectionLead = -1;
+        revalidate();
+        repaint();
+    }
+
+    private void scrollToMatch() {
+        int line = lines.getLine(matchStart);
+        FontMetrics fm = getFontMetrics(getFont());
+        int[] columns = lines.getColumns(line, matchStart, Math.min(matchEnd, lines.getLineEnd(line)));
+        String text = lines.getText(line);
+        Insets insets = getInsets();
+        int x = insets.left + fm.stringWidth(text.substring(0, Math.min(columns[0], text.length())));
+        scrollRectToVisible(new Rectangle(Math.max(0, x - 40), insets.top + line * fm.getHeight(), 80, fm.getHeight()));
+    }
+
+    private int lineAt(int y) {
+        int line = (y - getInsets().top) / getFontMetrics(getFont()).getHeight();
+        return Math.max(0, Math.min(lines.getLineCount() - 1, line));
+    }
+
+    private void copySelection() {
+        if (selectionAnchor == -1) {
+            return;
+        }
+        String text = lines.copy(Math.min(selectionAnchor, selectionLead), Math.max(selectionAnchor, selectionLead));
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text), null);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        FontMetrics fm = getFontMetrics(getFont());
+        Insets insets = getInsets();
+        long height = (long) lines.getLineCount() * fm.getHeight() + insets.top + insets.bottom;
+        return new Dimension(
+                lines.getMaxColumns() * fm.charWidth('m') + insets.left + insets.right,
+                (int) Math.min(Integer.MAX_VALUE, height));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        g.setFont(getFont());
+        FontMetrics fm = g.getFontMetrics();
+        Insets insets = getInsets();
+        int lineHeight = fm.getHeight();
+        int first = Math.max(0, (clip.y - insets.top) / lineHeight);
+        int last = Math.min(lines.getLineCount() - 1, (clip.y + clip.height - insets.top) / lineHeight);
+        int selectionFirst = Math.min(selectionAnchor, selectionLead);
+        int selectionLast = Math.max(selectionAnchor, selectionLead);
+        Color selection = UIManager.getColor("TextArea.selectionBackground") != null
+                ? UIManager.getColor("TextArea.selectionBackground") : new Color(184, 207, 229);
+        for (int line = first; line <= last; line++) {
+            int y = insets.top + line * lineHeight;
+            String text = lines.getText(line);
+            if (selectionAnchor != -1 && line >= selectionFirst && line <= selectionLast) {
+                g.setColor(selection);
+                g.fillRect(clip.x, y, clip.width, lineHeight);
+            }
+            int start = lines.getLineStart(line);
+            int end = lines.getLineEnd(line);
+            // a newline in the match is shown as a space at the end of the line
+            int next = line + 1 < lines.getLineCount() ? lines.getLineStart(line + 1) : data.length;
+            if (matchStart != -1 && (matchStart < end || matchStart < next) && matchEnd > start) {
+                int[] columns = lines.getColumns(line, Math.max(matchStart, start), Math.min(matchEnd, end));
+                g.setColor(Color.YELLOW);
+                for (int i = 0; i < columns.length; i += 2) {
+                    int from = Math.min(columns[i], text.length());
+                    int to = Math.min(Math.max(columns[i + 1], from + 1), text.length() + 1);
+                    int x = insets.left + fm.stringWidth(text.substring(0, from));
+                    int width = to <= text.length()
+                            ? fm.stringWidth(text.substring(from, to))
+                            : fm.stringWidth(text.substring(from)) + fm.charWidth(' ');
+                    g.fillRect(x, y, width, lineHeight);
+                }
+            }
+            g.setColor(getForeground());
+            g.drawString(text, insets.left, y + fm.getAscent());
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        FontMetrics fm = getFontMetrics(getFont());
+        return orientation == SwingConstants.VERTICAL ? fm.getHeight() : fm.charWidth('m');
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() != null && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() != null && getParent().getHeight() > getPreferredSize().height;
+    }
+
+}
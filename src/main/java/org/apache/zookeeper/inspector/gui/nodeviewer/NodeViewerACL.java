@@ -34,6 +34,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.SwingWorker;
 
+import org.apache.zookeeper.inspector.manager.NodeSnapshot;
 import org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager;
 
 import lombok.extern.slf4j.Slf4j;
@@ -103,71 +104,84 @@ public class NodeViewerACL extends ZooInspectorNodeViewer {
                         acls = new ArrayList<Map<String, String>>();
                         log.error("Error retrieving ACL Information for node: {}", NodeViewerACL.this.selectedNode, e);
                     }
-                    aclDataPanel.setLayout(new GridBagLayout());
-                    int j = 0;
-                    for (Map<String, String> data : acls) {
-                        int rowPos = 2 * j + 1;
-                        JPanel aclPanel = new JPanel();
-                        aclPanel.setBorder(BorderFactory
-                                .createLineBorder(Color.BLACK));
-                        aclPanel.setBackground(Color.WHITE);
-                        aclPanel.setLayout(new GridBagLayout());
-                        int i = 0;
-                        for (Map.Entry<String, String> entry : data.entrySet()) {
-                            int rowPosACL = 2 * i + 1;
-                            JLabel label = new JLabel(entry.getKey());
-                            JTextField text = new JTextField(entry.getValue());
-                            text.setEditable(false);
-                            GridBagConstraints c1 = new GridBagConstraints();
-                            c1.gridx = 1;
-                            c1.gridy = rowPosACL;
-                            c1.gridwidth = 1;
-                            c1.gridheight = 1;
-                            c1.weightx = 0;
-                            c1.weighty = 0;
-                            c1.anchor = GridBagConstraints.NORTHWEST;
-                            c1.fill = GridBagConstraints.BOTH;
-                            c1.insets = new Insets(5, 5, 5, 5);
-                            c1.ipadx = 0;
-                            c1.ipady = 0;
-                            aclPanel.add(label, c1);
-                            GridBagConstraints c2 = new GridBagConstraints();
-                            c2.gridx = 3;
-                            c2.gridy = rowPosACL;
-                            c2.gridwidth = 1;
-                            c2.gridheight = 1;
-                            c2.weightx = 0;
-                            c2.weighty = 0;
-                            c2.anchor = GridBagConstraints.NORTHWEST;
-                            c2.fill = GridBagConstraints.BOTH;
-                            c2.insets = new Insets(5, 5, 5, 5);
-                            c2.ipadx = 0;
-                            c2.ipady = 0;
-                            aclPanel.add(text, c2);
-                            i++;
-                        }
-                        GridBagConstraints c = new GridBagConstraints();
-                        c.gridx = 1;
-                        c.gridy = rowPos;
-                        c.gridwidth = 1;
-                        c.gridheight = 1;
-                        c.weightx = 1;
-                        c.weighty = 1;
-                        c.anchor = GridBagConstraints.NORTHWEST;
-                        c.fill = GridBagConstraints.NONE;
-                        c.insets = new Insets(5, 5, 5, 5);
-                        c.ipadx = 0;
-                        c.ipady = 0;
-                        aclDataPanel.add(aclPanel, c);
-                    }
-                    NodeViewerACL.this.aclDataPanel.revalidate();
-                    NodeViewerACL.this.aclDataPanel.repaint();
+                    showACLs(acls);
                 }
             };
             worker.execute();
         }
     }
 
+    @Override
+    public void nodeSelectionChanged(List<String> selectedNodes, NodeSnapshot snapshot) {
+        this.aclDataPanel.removeAll();
+        if (selectedNodes.size() > 0) {
+            this.selectedNode = selectedNodes.get(0);
+            showACLs(snapshot != null ? snapshot.getAcls() : new ArrayList<Map<String, String>>());
+        }
+    }
+
+    private void showACLs(List<Map<String, String>> acls) {
+        aclDataPanel.setLayout(new GridBagLayout());
+        int j = 0;
+        for (Map<String, String> data : acls) {
+            int rowPos = 2 * j + 1;
+            JPanel aclPanel = new JPanel();
+            aclPanel.setBorder(BorderFactory
+                    .createLineBorder(Color.BLACK));
+            aclPanel.setBackground(Color.WHITE);
+            aclPanel.setLayout(new GridBagLayout());
+            int i = 0;
+            for (Map.Entry<String, String> entry : data.entrySet()) {
+                int rowPosACL = 2 * i + 1;
+                JLabel label = new JLabel(entry.getKey());
+                JTextField text = new JTextField(entry.getValue());
+                text.setEditable(false);
+                GridBagConstraints c1 = new GridBagConstraints();
+                c1.gridx = 1;
+                c1.gridy = rowPosACL;
+                c1.gridwidth = 1;
+                c1.gridheight = 1;
+                c1.weightx = 0;
+                c1.weighty = 0;
+                c1.anchor = GridBagConstraints.NORTHWEST;
+                c1.fill = GridBagConstraints.BOTH;
+                c1.insets = new Insets(5, 5, 5, 5);
+                c1.ipadx = 0;
+                c1.ipady = 0;
+                aclPanel.add(label, c1);
+                GridBagConstraints c2 = new GridBagConstraints();
+                c2.gridx = 3;
+                c2.gridy = rowPosACL;
+                c2.gridwidth = 1;
+                c2.gridheight = 1;
+                c2.weightx = 0;
+                c2.weighty = 0;
+                c2.anchor = GridBagConstraints.NORTHWEST;
+                c2.fill = GridBagConstraints.BOTH;
+                c2.insets = new Insets(5, 5, 5, 5);
+                c2.ipadx = 0;
+                c2.ipady = 0;
+                aclPanel.add(text, c2);
+                i++;
+            }
+            GridBagConstraints c = new GridBagConstraints();
+            c.gridx = 1;
+            c.gridy = rowPos;
+            c.gridwidth = 1;
+            c.gridheight = 1;
+            c.weightx = 1;
+            c.weighty = 1;
+            c.anchor = GridBagConstraints.NORTHWEST;
+            c.fill = GridBagConstraints.NONE;
+            c.insets = new Insets(5, 5, 5, 5);
+            c.ipadx = 0;
+            c.ipady = 0;
+            aclDataPanel.add(aclPanel, c);
+        }
+        this.aclDataPanel.revalidate();
+        this.aclDataPanel.repaint();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -18,33 +18,82 @@
 package org.apache.zookeeper.inspector.gui.nodeviewer;
 
 import java.awt.BorderLayout;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.CardLayout;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
+import javax.swing.BorderFactory;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTextField;
 import javax.swing.JTextPane;
 import javax.swing.JToolBar;
 import javax.swing.SwingWorker;
 
 import org.apache.zookeeper.inspector.ZooInspector;
+import org.apache.zookeeper.inspector.encryption.DataFormat;
 import org.apache.zookeeper.inspector.gui.IconResource;
+import org.apache.zookeeper.inspector.manager.NodeSnapshot;
 import org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * A node viewer for displaying the data for the currently selected node
+ * A node viewer for displaying the data for the currently selected node.
+ * <p>
+ * Small text values are shown in an editor. Values larger than
+ * {@link #EDIT_LIMIT} and values whose {@link DataFormat} is binary are shown
+ * by a {@link ByteViewer}, which works on the bytes of the value and only lays
+ * out the lines in view, as text or as hex, and searches the bytes. The editor
+ * can still be chosen for any value.
  */
 @Slf4j
 public class NodeViewerData extends ZooInspectorNodeViewer {
+
+    /**
+     * the largest value shown in the editor unless it is chosen
+     */
+    public static final int EDIT_LIMIT = 64 * 1024;
+
+    private static enum View {
+        EDIT("Edit"), TEXT("Text"), HEX("Hex");
+
+        private final String label;
+
+        private View(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
     private ZooInspectorNodeManager zooInspectorManager;
     private final JTextPane dataArea;
+    private final ByteViewer byteViewer = new ByteViewer();
+    private final CardLayout cards = new CardLayout();
+    private final JPanel content = new JPanel(cards);
     private final JToolBar toolbar;
+    private final JButton saveButton;
+    private final JComboBox<View> viewBox = new JComboBox<View>(View.values());
+    private final JTextField findField = new JTextField(15);
+    private final JCheckBox findHex = new JCheckBox("Hex");
+    private final JCheckBox findIgnoreCase = new JCheckBox("Ignore case");
+    private final JButton findButton = new JButton(ZooInspector.iconResource.get(IconResource.ICON_SEARCH, ""));
+    private final JLabel status = new JLabel();
     private String selectedNode;
+    private byte[] data;
+    private boolean editorLoaded;
+    private boolean updating;
 
     public NodeViewerData() {
         this.setLayout(new BorderLayout());
@@ -53,9 +102,11 @@ public class NodeViewerData extends ZooInspectorNodeViewer {
         this.toolbar.setFloatable(false);
         JScrollPane scroller = new JScrollPane(this.dataArea);
         scroller.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-        this.add(scroller, BorderLayout.CENTER);
+        this.content.add(scroller, View.EDIT.name());
+        this.content.add(new JScrollPane(this.byteViewer), View.TEXT.name());
+        this.add(this.content, BorderLayout.CENTER);
         this.add(this.toolbar, BorderLayout.NORTH);
-        JButton saveButton = new JButton(ZooInspector.iconResource.get(IconResource.ICON_SAVE, ""));
+        saveButton = new JButton(ZooInspector.iconResource.get(IconResource.ICON_SAVE, ""));
         saveButton.addActionListener((event) -> {
                 if (selectedNode != null) {
                     if (JOptionPane.showConfirmDialog(
@@ -69,7 +120,29 @@ public class NodeViewerData extends ZooInspectorNodeViewer {
                 }
         });
         this.toolbar.add(saveButton);
-
+        this.toolbar.addSeparator();
+        viewBox.setMaximumSize(viewBox.getPreferredSize());
+        viewBox.setToolTipText("Show the data in the editor, as text or as hex");
+        viewBox.addActionListener((event) -> {
+            if (!updating) {
+                showView((View) viewBox.getSelectedItem());
+            }
+        });
+        this.toolbar.add(viewBox);
+        this.toolbar.addSeparator();
+        findField.setMaximumSize(findField.getPreferredSize());
+        findField.setToolTipText("Text to find, or hex bytes such as 'ca fe ba be' if Hex is checked");
+        findField.addActionListener((event) -> find());
+        findButton.setToolTipText("Find Next");
+        findButton.addActionListener((event) -> find());
+        this.toolbar.add(findField);
+        this.toolbar.add(findHex);
+        this.toolbar.add(findIgnoreCase);
+        this.toolbar.add(findButton);
+        this.toolbar.addSeparator();
+        status.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
+        this.toolbar.add(status);
+        showData(null);
     }
 
     @Override
@@ -81,18 +154,23 @@ public class NodeViewerData extends ZooInspectorNodeViewer {
     public void nodeSelectionChanged(List<String> selectedNodes) {
         if (selectedNodes.size() > 0) {
             this.selectedNode = selectedNodes.get(0);
-            SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            SwingWorker<NodeSnapshot, Void> worker = new SwingWorker<NodeSnapshot, Void>() {
 
                 @Override
-                protected String doInBackground() throws Exception {
-                    return NodeViewerData.this.zooInspectorManager.getData(NodeViewerData.this.selectedNode);
+                protected NodeSnapshot doInBackground() throws Exception {
+                    NodeSnapshot snapshot = NodeViewerData.this.zooInspectorManager.getNodeSnapshot(NodeViewerData.this.selectedNode);
+                    if (snapshot != null) {
+                        // decoded here rather than on the event thread
+                        snapshot.getDecryptedData();
+                    }
+                    return snapshot;
                 }
 
                 @Override
                 protected void done() {
-                    String data = "";
+                    NodeSnapshot snapshot = null;
                     try {
-                        data = get();
+                        snapshot = get();
                     } 
                     catch (InterruptedException e) {
                         log.error("Error retrieving data for node: {}", NodeViewerData.this.selectedNode, e);
@@ -100,15 +178,107 @@ public class NodeViewerData extends ZooInspectorNodeViewer {
                     catch (ExecutionException e) {
                         log.error("Error retrieving data for node: {}", NodeViewerData.this.selectedNode, e);
                     }
-                    NodeViewerData.this.dataArea.setText(data);
+                    showData(snapshot != null ? snapshot.getDecryptedData() : null);
                 }
             };
             worker.execute();
         }
     }
 
+    @Override
+    public void nodeSelectionChanged(List<String> selectedNodes, NodeSnapshot snapshot) {
+        if (selectedNodes.size() > 0) {
+            this.selectedNode = selectedNodes.get(0);
+            showData(snapshot != null ? snapshot.getDecryptedData() : null);
+        }
+    }
+
     @Override
     public void setZooInspectorManager(ZooInspectorNodeManager zooInspectorManager) {
         this.zooInspectorManager = zooInspectorManager;
+        this.dataArea.setEditable(!zooInspectorManager.isReadOnly());
+        updateSaveButton();
+    }
+
+    /**
+     * Shows the data in the editor if it is small text, otherwise in the
+     * {@link ByteViewer}, which does not copy it
+     */
+    private void showData(byte[] data) {
+        this.data = data != null ? data : new byte[0];
+        this.editorLoaded = false;
+        this.byteViewer.setData(this.data);
+        DataFormat format = DataFormat.detect(ByteBuffer.wrap(this.data));
+        View view = !format.isText() ? View.HEX : this.data.length > EDIT_LIMIT ? View.TEXT : View.EDIT;
+        updating = true;
+        viewBox.setSelectedItem(view);
+        updating = false;
+        showView(view);
+        status.setText(this.data.length + " bytes, " + format);
+    }
+
+    private void showView(View view) {
+        if (view == View.EDIT) {
+            if (!editorLoaded) {
+                dataArea.setText(new String(data, StandardCharsets.UTF_8));
+                dataArea.setCaretPosition(0);
+                editorLoaded = true;
+            }
+            cards.show(content, View.EDIT.name());
+        }
+        else {
+            byteViewer.setMode(view == View.HEX ? ByteViewer.Mode.HEX : ByteViewer.Mode.TEXT);
+            cards.show(content, View.TEXT.name());
+        }
+        findField.setEnabled(view != View.EDIT);
+        findHex.setEnabled(view != View.EDIT);
+        findIgnoreCase.setEnabled(view != View.EDIT);
+        findButton.setEnabled(view != View.EDIT);
+        updateSaveButton();
+    }
+
+    private void updateSaveButton() {
+        saveButton.setEnabled(zooInspectorManager != null && !zooInspectorManager.isReadOnly()
+                && viewBox.getSelectedItem() == View.EDIT);
+    }
+
+    private void find() {
+        byte[] pattern;
+        if (findHex.isSelected()) {
+            pattern = parseHex(findField.getText());
+            if (pattern == null) {
+                status.setText("Not hex: " + findField.getText());
+                return;
+            }
+        }
+        else {
+            pattern = findField.getText().getBytes(StandardCharsets.UTF_8);
+        }
+        if (pattern.length == 0) {
+            return;
+        }
+        int offset = byteViewer.find(pattern, findIgnoreCase.isSelected() && !findHex.isSelected());
+        status.setText(offset != -1
+                ? "Found at offset " + offset + " (0x" + Integer.toHexString(offset) + ") of " + data.length + " bytes"
+                : "Not found in " + data.length + " bytes");
+    }
+
+    /**
+     * @return the bytes written as pairs of hex digits, optionally separated
+     *         by spaces, or <code>null</code> if the text is not hex
+     */
+    private static byte[] parseHex(String text) {
+        String digits = text.replaceAll("\\s+", "");
+        if (digits.regionMatches(true, 0, "0x", 0, 2)) {
+            digits = digits.substring(2);
+        }
+        if (digits.length() % 2 != 0 || !digits.matches("[0-9a-fA-F]*")) {
+            return null;
+        }
+        byte[] bytes = new byte[digits.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(digits.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
     }
 }
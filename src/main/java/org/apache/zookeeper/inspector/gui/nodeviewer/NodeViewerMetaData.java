@@ -34,6 +34,7 @@ import javax.swing.JTextField;
 import javax.swing.SwingWorker;
 
 import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.inspector.manager.NodeSnapshot;
 import org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager;
 
 import lombok.extern.slf4j.Slf4j;
@@ -96,67 +97,80 @@ public class NodeViewerMetaData extends ZooInspectorNodeViewer {
                         data = new HashMap<String, String>();
                         log.error("Error retrieving meta data for node: {}", NodeViewerMetaData.this.selectedNode, e);
                     }
-                    NodeViewerMetaData.this.metaDataPanel
-                            .setLayout(new GridBagLayout());
-                    JPanel infoPanel = new JPanel();
-                    infoPanel.setBackground(Color.WHITE);
-                    infoPanel.setLayout(new GridBagLayout());
-                    int i = 0;
-                    int rowPos = 0;
-                    for (Map.Entry<String, String> entry : data.entrySet()) {
-                        rowPos = 2 * i + 1;
-                        JLabel label = new JLabel(entry.getKey());
-                        JTextField text = new JTextField(entry.getValue());
-                        text.setEditable(false);
-                        GridBagConstraints c1 = new GridBagConstraints();
-                        c1.gridx = 0;
-                        c1.gridy = rowPos;
-                        c1.gridwidth = 1;
-                        c1.gridheight = 1;
-                        c1.weightx = 0;
-                        c1.weighty = 0;
-                        c1.anchor = GridBagConstraints.WEST;
-                        c1.fill = GridBagConstraints.HORIZONTAL;
-                        c1.insets = new Insets(5, 5, 5, 5);
-                        c1.ipadx = 0;
-                        c1.ipady = 0;
-                        infoPanel.add(label, c1);
-                        GridBagConstraints c2 = new GridBagConstraints();
-                        c2.gridx = 2;
-                        c2.gridy = rowPos;
-                        c2.gridwidth = 1;
-                        c2.gridheight = 1;
-                        c2.weightx = 0;
-                        c2.weighty = 0;
-                        c2.anchor = GridBagConstraints.WEST;
-                        c2.fill = GridBagConstraints.HORIZONTAL;
-                        c2.insets = new Insets(5, 5, 5, 5);
-                        c2.ipadx = 0;
-                        c2.ipady = 0;
-                        infoPanel.add(text, c2);
-                        i++;
-                    }
-                    GridBagConstraints c = new GridBagConstraints();
-                    c.gridx = 1;
-                    c.gridy = rowPos;
-                    c.gridwidth = 1;
-                    c.gridheight = 1;
-                    c.weightx = 1;
-                    c.weighty = 1;
-                    c.anchor = GridBagConstraints.NORTHWEST;
-                    c.fill = GridBagConstraints.NONE;
-                    c.insets = new Insets(5, 5, 5, 5);
-                    c.ipadx = 0;
-                    c.ipady = 0;
-                    NodeViewerMetaData.this.metaDataPanel.add(infoPanel, c);
-                    NodeViewerMetaData.this.metaDataPanel.revalidate();
-                    NodeViewerMetaData.this.metaDataPanel.repaint();
+                    showMetaData(data);
                 }
             };
             worker.execute();
         }
     }
 
+    @Override
+    public void nodeSelectionChanged(List<String> selectedNodes, NodeSnapshot snapshot) {
+        this.metaDataPanel.removeAll();
+        if (selectedNodes.size() > 0) {
+            this.selectedNode = selectedNodes.get(0);
+            showMetaData(snapshot != null ? snapshot.getNodeMeta() : new HashMap<String, String>());
+        }
+    }
+
+    private void showMetaData(Map<String, String> data) {
+        this.metaDataPanel
+                .setLayout(new GridBagLayout());
+        JPanel infoPanel = new JPanel();
+        infoPanel.setBackground(Color.WHITE);
+        infoPanel.setLayout(new GridBagLayout());
+        int i = 0;
+        int rowPos = 0;
+        for (Map.Entry<String, String> entry : data.entrySet()) {
+            rowPos = 2 * i + 1;
+            JLabel label = new JLabel(entry.getKey());
+            JTextField text = new JTextField(entry.getValue());
+            text.setEditable(false);
+            GridBagConstraints c1 = new GridBagConstraints();
+            c1.gridx = 0;
+            c1.gridy = rowPos;
+            c1.gridwidth = 1;
+            c1.gridheight = 1;
+            c1.weightx = 0;
+            c1.weighty = 0;
+            c1.anchor = GridBagConstraints.WEST;
+            c1.fill = GridBagConstraints.HORIZONTAL;
+            c1.insets = new Insets(5, 5, 5, 5);
+            c1.ipadx = 0;
+            c1.ipady = 0;
+            infoPanel.add(label, c1);
+            GridBagConstraints c2 = new GridBagConstraints();
+            c2.gridx = 2;
+            c2.gridy = rowPos;
+            c2.gridwidth = 1;
+            c2.gridheight = 1;
+            c2.weightx = 0;
+            c2.weighty = 0;
+            c2.anchor = GridBagConstraints.WEST;
+            c2.fill = GridBagConstraints.HORIZONTAL;
+            c2.insets = new Insets(5, 5, 5, 5);
+            c2.ipadx = 0;
+            c2.ipady = 0;
+            infoPanel.add(text, c2);
+            i++;
+        }
+        GridBagConstraints c = new GridBagConstraints();
+        c.gridx = 1;
+        c.gridy = rowPos;
+        c.gridwidth = 1;
+        c.gridheight = 1;
+        c.weightx = 1;
+        c.weighty = 1;
+        c.anchor = GridBagConstraints.NORTHWEST;
+        c.fill = GridBagConstraints.NONE;
+        c.insets = new Insets(5, 5, 5, 5);
+        c.ipadx = 0;
+        c.ipady = 0;
+        this.metaDataPanel.add(infoPanel, c);
+        this.metaDataPanel.revalidate();
+        this.metaDataPanel.repaint();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -25,6 +25,7 @@ import java.util.List;
 
 import javax.swing.JPanel;
 
+import org.apache.zookeeper.inspector.manager.NodeSnapshot;
 import org.apache.zookeeper.inspector.manager.ZooInspectorNodeManager;
 
 /**
@@ -48,6 +49,20 @@ public abstract class ZooInspectorNodeViewer extends JPanel implements Transfera
      */
     public abstract void nodeSelectionChanged(List<String> selectedNodes);
 
+    /**
+     * Called whenever the selected nodes in the tree view changes, with the
+     * {@link NodeSnapshot} of the first selected node already read. The same
+     * snapshot is passed to every node viewer, so viewers which only need the
+     * data, metaData or ACLs of the node should use it instead of querying the
+     * manager. The default implementation ignores the snapshot.
+     * 
+     * @param selectedNodes - the nodes currently selected in the tree view
+     * @param snapshot - the snapshot of the first selected node, or <code>null</code> if it could not be read
+     */
+    public void nodeSelectionChanged(List<String> selectedNodes, NodeSnapshot snapshot) {
+        nodeSelectionChanged(selectedNodes);
+    }
+
     /**
      * @return the title of the node viewer. this will be shown on the tab for this node viewer.
      */
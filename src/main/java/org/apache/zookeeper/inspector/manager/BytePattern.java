@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.Arrays;
+
+/**
+ * A sequence of bytes to find in data with the Boyer-Moore-Horspool
+ * algorithm, optionally matching ASCII letters regardless of case
+ */
+public class BytePattern {
+
+    private final byte[] pattern;
+    private final boolean ignoreCase;
+    private final int[] shifts = new int[256];
+
+    /**
+     * @param pattern
+     *            - the bytes to find, not empty
+     * @param ignoreCase
+     *            - true if ASCII letters should match regardless of case
+     */
+    public BytePattern(byte[] pattern, boolean ignoreCase) {
+        if (pattern.length == 0) {
+            throw new IllegalArgumentException("The search pattern is empty");
+        }
+        this.ignoreCase = ignoreCase;
+        this.pattern = pattern.clone();
+        if (ignoreCase) {
+            for (int i = 0; i < this.pattern.length; i++) {
+                this.pattern[i] = toLowerCase(this.pattern[i]);
+            }
+        }
+        Arrays.fill(shifts, this.pattern.length);
+        for (int i = 0; i < this.pattern.length - 1; i++) {
+            shifts[this.pattern[i] & 0xff] = this.pattern.length - 1 - i;
+        }
+    }
+
+    /**
+     * @return the number of bytes to find
+     */
+    public int length() {
+        return pattern.length;
+    }
+
+    /**
+     * @param data
+     *            - the data to search
+     * @return the offset of the first match in the data, or -1
+     */
+    public int indexOf(byte[] data) {
+        return indexOf(data, 0, data.length);
+    }
+
+    /**
+     * @param data
+     *            - the data to search
+     * @param from
+     *            - the offset to start the search at
+     * @param to
+     *            - the offset the match must end by
+     * @return the offset of the first match in the range, or -1
+     */
+    public int indexOf(byte[] data, int from, int to) {
+        int last = pattern.length - 1;
+        int i = Math.max(from, 0);
+        to = Math.min(to, data.length);
+        while (i <= to - pattern.length) {
+            int j = last;
+            while (j >= 0 && fold(data[i + j]) == pattern[j]) {
+                j--;
+            }
+            if (j < 0) {
+                return i;
+            }
+            i += shifts[fold(data[i + last]) & 0xff];
+        }
+        return -1;
+    }
+
+    private byte fold(byte b) {
+        return ignoreCase ? toLowerCase(b) : b;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+}
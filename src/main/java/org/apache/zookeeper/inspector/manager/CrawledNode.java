@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.List;
+
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A node visited by a {@link NodeCrawler}
+ */
+@Getter
+@AllArgsConstructor
+public class CrawledNode {
+
+    /**
+     * the path to the node
+     */
+    private final String nodePath;
+
+    /**
+     * the depth of the node below the root of the crawl, which has depth 0
+     */
+    private final int depth;
+
+    /**
+     * the {@link Stat} of the node
+     */
+    private final Stat stat;
+
+    /**
+     * the sorted names of the children of the node
+     */
+    private final List<String> children;
+
+    /**
+     * the data of the node as stored in zookeeper, or <code>null</code> if
+     * the crawler does not read data
+     */
+    private final byte[] data;
+
+    /**
+     * the ACLs of the node, or <code>null</code> if the crawler does not read
+     * ACLs
+     */
+    private final List<ACL> acl;
+
+}
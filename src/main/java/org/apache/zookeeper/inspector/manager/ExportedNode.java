@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.List;
+
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A node read from an export by a {@link NodeExportReader}
+ */
+@Getter
+@AllArgsConstructor
+public class ExportedNode {
+
+    /**
+     * the path to the node when it was exported
+     */
+    private final String nodePath;
+
+    /**
+     * the {@link Stat} of the node when it was exported
+     */
+    private final Stat stat;
+
+    /**
+     * the ACLs of the node, which may be empty if they were not exported
+     */
+    private final List<ACL> acl;
+
+    /**
+     * the data of the node as stored in zookeeper, or <code>null</code>
+     */
+    private final byte[] data;
+
+}
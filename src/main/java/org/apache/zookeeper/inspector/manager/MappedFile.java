@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+
+/**
+ * A file mapped read-only into memory in chunks of 1 GB, so that files larger
+ * than a single {@link ByteBuffer} can be read. Values which cross the
+ * boundary of two chunks are copied out of both. All reads are absolute, so
+ * they may be made from any thread.
+ */
+class MappedFile implements Closeable {
+
+    private static final int CHUNK_SIZE = 1 << 30;
+
+    private final Path path;
+    private final long size;
+    private volatile ByteBuffer[] chunks;
+
+    /**
+     * @param path
+     *            - the file to map
+     * @throws IOException
+     *             - if the file cannot be mapped
+     */
+    MappedFile(Path path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.size = channel.size();
+            ByteBuffer[] mapped = new ByteBuffer[(int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+            for (int i = 0; i < mapped.length; i++) {
+                long position = (long) i * CHUNK_SIZE;
+                mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, size - position));
+            }
+            this.chunks = mapped;
+        }
+    }
+
+    /**
+     * @return the mapped file
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the size of the file when it was mapped
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * @return true if the range lies within the file
+     */
+    boolean isAvailable(long position, long length) {
+        return position >= 0 && length >= 0 && position + length <= size;
+    }
+
+    int getInt(long position) {
+        ByteBuffer chunk = chunks()[(int) (position / CHUNK_SIZE)];
+        int index = (int) (position % CHUNK_SIZE);
+        if (index + 4 <= chunk.limit()) {
+            return chunk.getInt(index);
+        }
+        byte[] bytes = new byte[4];
+        read(position, bytes, 0, 4);
+        return Ints.fromByteArray(bytes);
+    }
+
+    long getLong(long position) {
+        ByteBuffer chunk = chunks()[(int) (position / CHUNK_SIZE)];
+        int index = (int) (position % CHUNK_SIZE);
+        if (index + 8 <= chunk.limit()) {
+            return chunk.getLong(index);
+        }
+        byte[] bytes = new byte[8];
+        read(position, bytes, 0, 8);
+        return Longs.fromByteArray(bytes);
+    }
+
+    byte getByte(long position) {
+        return chunks()[(int) (position / CHUNK_SIZE)].get((int) (position % CHUNK_SIZE));
+    }
+
+    /**
+     * Copies bytes out of the file, across the boundaries of the chunks
+     */
+    void read(long position, byte[] target, int offset, int length) {
+        ByteBuffer[] current = chunks();
+        while (length > 0) {
+            ByteBuffer chunk = current[(int) (position / CHUNK_SIZE)];
+            int index = (int) (position % CHUNK_SIZE);
+            int n = Math.min(length, chunk.limit() - index);
+            chunk.get(index, target, offset, n);
+            position += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Releases the buffers; the mapping itself goes away when they are garbage
+     * collected
+     */
+    @Override
+    public void close() {
+        chunks = null;
+    }
+
+    private ByteBuffer[] chunks() {
+        ByteBuffer[] current = chunks;
+        if (current == null) {
+            throw new IllegalStateException("The file is closed: " + path);
+        }
+        return current;
+    }
+
+}
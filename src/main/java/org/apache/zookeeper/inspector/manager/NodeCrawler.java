@@ -0,0 +1,316 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.retry.ZooKeeperRetry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Walks a subtree with pipelined asynchronous getChildren (and optionally
+ * getData and getACL) requests. Up to {@link #getWindow()} nodes are kept in
+ * flight, so a walk is bound by the throughput of the ensemble rather than by
+ * the round trip time multiplied by the number of nodes.
+ * <p>
+ * {@link #crawl(String, Consumer)} blocks the calling thread and hands every
+ * visited node to the consumer on that thread. New requests are only issued as
+ * the consumer takes nodes, so a slow consumer slows the crawl down instead of
+ * letting results pile up in memory. Nodes are visited roughly depth first and
+ * children are visited in sorted order, but because requests overlap the order
+ * is not strict.
+ */
+@Slf4j
+public class NodeCrawler {
+
+    public static final int DEFAULT_WINDOW = 256;
+
+    private final ZooKeeperRetry zooKeeper;
+    private int window = DEFAULT_WINDOW;
+    private int maxDepth = Integer.MAX_VALUE;
+    private long maxNodes = Long.MAX_VALUE;
+    private boolean readData = false;
+    private boolean readAcl = false;
+    private Predicate<CrawledNode> descendFilter = null;
+    private Consumer<String> vanished = null;
+
+    private volatile boolean cancelled = false;
+    private volatile boolean truncated = false;
+    private final AtomicLong visitedCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final AtomicLong prunedCount = new AtomicLong();
+
+    /**
+     * @param zooKeeper
+     *            - the {@link ZooKeeperRetry} to read the nodes with
+     */
+    public NodeCrawler(ZooKeeperRetry zooKeeper) {
+        this.zooKeeper = zooKeeper;
+    }
+
+    /**
+     * @return the maximum number of requests in flight
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @param window
+     *            - the maximum number of requests in flight
+     */
+    public void setWindow(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1: " + window);
+        }
+        this.window = window;
+    }
+
+    /**
+     * @param maxDepth
+     *            - the depth below the root of the crawl after which children
+     *            are no longer visited. 0 only visits the root
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @param maxNodes
+     *            - the maximum number of nodes to visit
+     */
+    public void setMaxNodes(long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * @param readData
+     *            - true if the data of every node should be read as well
+     */
+    public void setReadData(boolean readData) {
+        this.readData = readData;
+    }
+
+    /**
+     * @param readAcl
+     *            - true if the ACLs of every node should be read as well
+     */
+    public void setReadAcl(boolean readAcl) {
+        this.readAcl = readAcl;
+    }
+
+    /**
+     * @param descendFilter
+     *            - called for every visited node which has children, before
+     *            they are read. If it returns false the subtree below the node
+     *            is skipped
+     */
+    public void setDescendFilter(Predicate<CrawledNode> descendFilter) {
+        this.descendFilter = descendFilter;
+    }
+
+    /**
+     * @param vanished
+     *            - called on the calling thread of
+     *            {@link #crawl(String, Consumer)} with the path of every node
+     *            which was deleted before it could be read. Such nodes are
+     *            otherwise skipped silently
+     */
+    public void setVanished(Consumer<String> vanished) {
+        this.vanished = vanished;
+    }
+
+    /**
+     * Stops the crawl. Requests in flight are completed but their results are
+     * dropped. May be called from any thread.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * @return true if the crawl was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if nodes were left out because of the depth or node budget
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return the number of nodes handed to the consumer so far. May be
+     *         called from any thread
+     */
+    public long getVisitedCount() {
+        return visitedCount.get();
+    }
+
+    /**
+     * @return the number of nodes which could not be read
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * @return the number of subtrees skipped by the descend filter
+     */
+    public long getPrunedCount() {
+        return prunedCount.get();
+    }
+
+    /**
+     * @param rootPath
+     *            - the path to the root of the subtree to walk
+     * @param consumer
+     *            - called on the calling thread for every visited node
+     * @return the number of visited nodes
+     * @throws InterruptedException
+     *             - if the calling thread is interrupted, which also cancels
+     *             the crawl
+     */
+    public long crawl(String rootPath, Consumer<CrawledNode> consumer) throws InterruptedException {
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<Response>();
+        Deque<Request> pending = new ArrayDeque<Request>();
+        pending.push(new Request(rootPath, 0));
+        long issued = 0;
+        int inFlight = 0;
+        try {
+            while (!cancelled && (inFlight > 0 || !pending.isEmpty())) {
+                while (inFlight < window && !pending.isEmpty()) {
+                    if (issued >= maxNodes) {
+                        truncated = true;
+                        pending.clear();
+                        break;
+                    }
+                    read(pending.pop(), responses);
+                    issued++;
+                    inFlight++;
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+                Response response = responses.take();
+                inFlight--;
+                if (response.error != null) {
+                    if (!(response.error instanceof KeeperException.NoNodeException)) {
+                        errorCount.incrementAndGet();
+                        log.warn("Error occurred crawling node: {}", response.request.nodePath, response.error);
+                    }
+                    else if (vanished != null) {
+                        vanished.accept(response.request.nodePath);
+                    }
+                    continue;
+                }
+                List<String> children = response.children;
+                CrawledNode node = new CrawledNode(response.request.nodePath, response.request.depth,
+                        response.stat, children, response.data, response.acl);
+                if (response.request.depth < maxDepth && !children.isEmpty()
+                        && descendFilter != null && !descendFilter.test(node)) {
+                    prunedCount.incrementAndGet();
+                }
+                else if (response.request.depth < maxDepth) {
+                    for (int i = children.size() - 1; i >= 0; i--) {
+                        pending.push(new Request(childPath(response.request.nodePath, children.get(i)),
+                                response.request.depth + 1));
+                    }
+                }
+                else if (!children.isEmpty()) {
+                    truncated = true;
+                }
+                visitedCount.incrementAndGet();
+                consumer.accept(node);
+            }
+        }
+        catch (InterruptedException e) {
+            cancelled = true;
+            throw e;
+        }
+        return visitedCount.get();
+    }
+
+    private void read(Request request, BlockingQueue<Response> responses) {
+        CompletableFuture<Pair<List<String>, Stat>> children = zooKeeper.getChildrenAsync(request.nodePath, null);
+        CompletableFuture<byte[]> data = readData
+                ? zooKeeper.getDataAsync(request.nodePath, null).thenApply((d) -> d.getKey())
+                : CompletableFuture.completedFuture(null);
+        CompletableFuture<List<ACL>> acl = readAcl
+                ? zooKeeper.getACLAsync(request.nodePath).thenApply((a) -> a.getKey())
+                : CompletableFuture.completedFuture(null);
+        children.thenCombine(data, (c, d) -> {
+            List<String> sorted = new ArrayList<String>(c.getKey());
+            Collections.sort(sorted);
+            return new Response(request, c.getValue(), sorted, d, null, null);
+        })
+        .thenCombine(acl, (r, a) -> new Response(r.request, r.stat, r.children, r.data, a, null))
+        .exceptionally((error) -> new Response(request, null, null, null, null, ZooKeeperRetry.unwrap(error)))
+        .thenAccept(responses::add);
+    }
+
+    static String childPath(String parent, String child) {
+        return (parent.equals("/") ? "" : parent) + "/" + child;
+    }
+
+    private static class Request {
+        private final String nodePath;
+        private final int depth;
+
+        Request(String nodePath, int depth) {
+            this.nodePath = nodePath;
+            this.depth = depth;
+        }
+    }
+
+    private static class Response {
+        private final Request request;
+        private final Stat stat;
+        private final List<String> children;
+        private final byte[] data;
+        private final List<ACL> acl;
+        private final Throwable error;
+
+        Response(Request request, Stat stat, List<String> children, byte[] data, List<ACL> acl, Throwable error) {
+            this.request = request;
+            this.stat = stat;
+            this.children = children;
+            this.data = data;
+            this.acl = acl;
+            this.error = error;
+        }
+    }
+
+}
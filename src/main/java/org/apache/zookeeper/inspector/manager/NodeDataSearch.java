@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.zookeeper.inspector.encryption.DataCodec;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Searches the data of the nodes in a subtree for a sequence of bytes. The
+ * subtree is walked by a {@link NodeCrawler}, which keeps a bounded number of
+ * getChildren and getData requests in flight. The data of every node is
+ * decoded by the {@link DataCodec} of the connection, which leaves data that
+ * needs no decoding as it is, and searched with a {@link BytePattern}, so
+ * only the data of matching nodes is ever turned into text.
+ */
+@Slf4j
+public class NodeDataSearch {
+
+    /**
+     * The number of bytes shown on each side of a match
+     */
+    public static final int CONTEXT = 40;
+
+    private final NodeCrawler crawler;
+    private final DataCodec codec;
+    private final BytePattern pattern;
+    private final AtomicLong errorCount = new AtomicLong();
+
+    /**
+     * @param crawler
+     *            - the {@link NodeCrawler} to walk the subtree with
+     * @param codec
+     *            - the {@link DataCodec} of the connection
+     * @param pattern
+     *            - the bytes to search for
+     * @param ignoreCase
+     *            - true if ASCII letters should match regardless of case
+     */
+    public NodeDataSearch(NodeCrawler crawler, DataCodec codec, byte[] pattern, boolean ignoreCase) {
+        this.pattern = new BytePattern(pattern, ignoreCase);
+        this.crawler = crawler;
+        this.codec = codec;
+        crawler.setReadData(true);
+    }
+
+    /**
+     * @param rootPath
+     *            - the path to the root of the subtree to search
+     * @param hits
+     *            - called on the calling thread for every node whose data
+     *            matches
+     * @return the number of matching nodes
+     * @throws InterruptedException
+     *             - if the calling thread is interrupted, which also cancels
+     *             the search
+     */
+    public long search(String rootPath, final Consumer<Hit> hits) throws InterruptedException {
+        final long[] count = new long[1];
+        crawler.crawl(rootPath, (node) -> {
+            byte[] data;
+            try {
+                data = DataCodec.toArray(codec.decode(node.getData() != null ? ByteBuffer.wrap(node.getData()) : null));
+            }
+            catch (Exception e) {
+                errorCount.incrementAndGet();
+                log.debug("Unable to decode the data of node: {}", node.getNodePath(), e);
+                return;
+            }
+            int offset = data != null ? pattern.indexOf(data) : -1;
+            if (offset != -1) {
+                count[0]++;
+                hits.accept(new Hit(node.getNodePath(), offset, snippet(data, offset)));
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Stops the search. May be called from any thread.
+     */
+    public void cancel() {
+        crawler.cancel();
+    }
+
+    /**
+     * @return true if the search was cancelled
+     */
+    public boolean isCancelled() {
+        return crawler.isCancelled();
+    }
+
+    /**
+     * @return the number of nodes searched so far. May be called from any
+     *         thread
+     */
+    public long getSearchedCount() {
+        return crawler.getVisitedCount();
+    }
+
+    /**
+     * @return the number of nodes which could not be read or decrypted
+     */
+    public long getErrorCount() {
+        return crawler.getErrorCount() + errorCount.get();
+    }
+
+    /**
+     * @return the match and the bytes around it as a single line of text
+     */
+    private String snippet(byte[] data, int offset) {
+        int from = Math.max(0, offset - CONTEXT);
+        int to = Math.min(data.length, offset + pattern.length() + CONTEXT);
+        StringBuilder sb = new StringBuilder();
+        if (from > 0) {
+            sb.append('…');
+        }
+        for (char c : new String(data, from, to - from, StandardCharsets.UTF_8).toCharArray()) {
+            sb.append(Character.isISOControl(c) ? ' ' : c);
+        }
+        if (to < data.length) {
+            sb.append('…');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A node whose data matches
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Hit {
+
+        /**
+         * the path to the node
+         */
+        private final String nodePath;
+
+        /**
+         * the offset of the first match in the decoded data
+         */
+        private final int offset;
+
+        /**
+         * the first match and the text around it
+         */
+        private final String snippet;
+
+        @Override
+        public String toString() {
+            return nodePath + "  " + snippet;
+        }
+
+    }
+
+}
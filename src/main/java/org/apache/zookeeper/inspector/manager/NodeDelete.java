@@ -0,0 +1,392 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.retry.ZooKeeperRetry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Deletes subtrees, leaves first. The subtrees are walked by a
+ * {@link NodeCrawler} and a node becomes ready to be deleted once it has been
+ * visited and all of its children have been deleted. Ready nodes are deleted
+ * in transactions of up to {@link #getBatchSize()} delete operations
+ * submitted with multi, and up to {@link #getWindow()} transactions are kept
+ * in flight, so deletes overlap with the walk and with each other.
+ * <p>
+ * A transaction fails as a whole if any of its nodes cannot be deleted. Nodes
+ * which no longer exist, when they are read or deleted, count as deleted. Any
+ * other failing node is left in place together with its ancestors, and the
+ * rest of the transaction is submitted again. The root and the /zookeeper
+ * subtree are never deleted.
+ */
+@Slf4j
+public class NodeDelete {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_WINDOW = 8;
+
+    private static final String ZOOKEEPER_PATH = "/zookeeper";
+
+    private final NodeCrawler crawler;
+    private final ZooKeeperRetry zooKeeper;
+    private final Consumer<String> deleted;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int window = DEFAULT_WINDOW;
+
+    private volatile boolean cancelled = false;
+    private final AtomicLong deletedCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+
+    // only used by the thread calling delete
+    private final BlockingQueue<Result> results = new LinkedBlockingQueue<Result>();
+    private final Map<String, Integer> remainingChildren = new HashMap<String, Integer>();
+    private final Deque<String> ready = new ArrayDeque<String>();
+    private int inFlight = 0;
+
+    /**
+     * @param crawler
+     *            - the {@link NodeCrawler} to walk the subtrees with
+     * @param zooKeeper
+     *            - the {@link ZooKeeperRetry} to delete the nodes with
+     * @param deleted
+     *            - called with the path of every deleted node, on the event
+     *            thread of the client, or on the thread calling delete for
+     *            nodes which were already gone when they were read
+     */
+    public NodeDelete(NodeCrawler crawler, ZooKeeperRetry zooKeeper, Consumer<String> deleted) {
+        this.crawler = crawler;
+        this.zooKeeper = zooKeeper;
+        this.deleted = deleted;
+        crawler.setDescendFilter((node) -> !node.getNodePath().equals(ZOOKEEPER_PATH));
+        crawler.setVanished(this::vanished);
+    }
+
+    /**
+     * @return the maximum number of operations in a transaction
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize
+     *            - the maximum number of operations in a transaction
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the maximum number of transactions in flight
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @param window
+     *            - the maximum number of transactions in flight
+     */
+    public void setWindow(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1: " + window);
+        }
+        this.window = window;
+    }
+
+    /**
+     * @param rootPaths
+     *            - the paths to the roots of the subtrees to delete. Roots
+     *            below other roots are deleted with them
+     * @return the number of deleted nodes
+     * @throws InterruptedException
+     *             - if the calling thread is interrupted, which also cancels
+     *             the delete
+     */
+    public long delete(Collection<String> rootPaths) throws InterruptedException {
+        try {
+            for (String rootPath : topmost(rootPaths)) {
+                if (cancelled) {
+                    break;
+                }
+                crawler.crawl(rootPath, (node) -> visit(node, rootPath));
+            }
+            // the walk is over, submit what is ready as soon as there is room
+            while (inFlight > 0 || (!ready.isEmpty() && !cancelled)) {
+                while (!cancelled && inFlight < window && !ready.isEmpty()) {
+                    submit();
+                }
+                if (inFlight > 0) {
+                    handle(results.take());
+                }
+            }
+            if (!cancelled) {
+                reportRemaining();
+            }
+        }
+        catch (InterruptedException e) {
+            cancel();
+            throw e;
+        }
+        finally {
+            remainingChildren.clear();
+            ready.clear();
+        }
+        return deletedCount.get();
+    }
+
+    /**
+     * Stops the delete after the transactions in flight. May be called from
+     * any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+        crawler.cancel();
+    }
+
+    /**
+     * @return true if the delete was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the number of nodes deleted so far. May be called from any
+     *         thread
+     */
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+
+    /**
+     * @return the number of nodes which could not be read or deleted, and of
+     *         their ancestors, which are left in place as well
+     */
+    public long getErrorCount() {
+        return crawler.getErrorCount() + errorCount.get();
+    }
+
+    private void visit(CrawledNode node, String rootPath) {
+        String nodePath = node.getNodePath();
+        if (node.getChildren().isEmpty() || nodePath.equals(ZOOKEEPER_PATH)) {
+            markReady(nodePath);
+        }
+        else {
+            remainingChildren.put(nodePath, node.getChildren().size());
+        }
+        try {
+            // handle the transactions which completed meanwhile, and wait for
+            // room when the window is full
+            Result result;
+            while ((result = results.poll()) != null) {
+                handle(result);
+            }
+            while (!cancelled && ready.size() >= batchSize) {
+                if (inFlight >= window) {
+                    handle(results.take());
+                }
+                else {
+                    submit();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void markReady(String nodePath) {
+        if (!isProtected(nodePath)) {
+            ready.add(nodePath);
+        }
+    }
+
+    /**
+     * A node deleted by someone else before it was read counts as deleted, so
+     * its parent can still become ready
+     */
+    private void vanished(String nodePath) {
+        deletedCount.incrementAndGet();
+        deleted.accept(nodePath);
+        childDeleted(nodePath);
+    }
+
+    /**
+     * Counts the nodes which are still waiting for some of their children
+     * once nothing is left to delete, because a child could not be read or
+     * deleted
+     */
+    private void reportRemaining() {
+        for (String nodePath : remainingChildren.keySet()) {
+            if (!isProtected(nodePath)) {
+                errorCount.incrementAndGet();
+                log.warn("Node not deleted, {} of its children are left: {}", remainingChildren.get(nodePath), nodePath);
+            }
+        }
+    }
+
+    private void submit() {
+        List<String> batch = new ArrayList<String>(Math.min(batchSize, ready.size()));
+        while (batch.size() < batchSize && !ready.isEmpty()) {
+            batch.add(ready.poll());
+        }
+        inFlight++;
+        Result result = new Result();
+        run(batch, result).whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.warn("Error occurred deleting nodes", ZooKeeperRetry.unwrap(error));
+                errorCount.addAndGet(batch.size() - result.deleted.size());
+            }
+            results.add(result);
+        });
+    }
+
+    /**
+     * Submits the transaction and, while one of its nodes fails, drops it and
+     * submits the rest again. Runs on the event thread of the client once
+     * started, so it must not block.
+     */
+    private CompletableFuture<Void> run(List<String> batch, Result result) {
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<Op> ops = new ArrayList<Op>(batch.size());
+        for (String nodePath : batch) {
+            ops.add(Op.delete(nodePath, -1));
+        }
+        return zooKeeper.multiAsync(ops).thenCompose((opResults) -> {
+            for (int i = 0; i < opResults.size(); i++) {
+                if (!(opResults.get(i) instanceof OpResult.ErrorResult)) {
+                    continue;
+                }
+                Code code = Code.get(((OpResult.ErrorResult) opResults.get(i)).getErr());
+                if (code == Code.OK || code == Code.RUNTIMEINCONSISTENCY) {
+                    continue;
+                }
+                List<String> rest = new ArrayList<String>(batch);
+                String nodePath = rest.remove(i);
+                if (code == Code.NONODE) {
+                    deleted(nodePath, result);
+                }
+                else {
+                    errorCount.incrementAndGet();
+                    log.warn("Unable to delete node: {}", nodePath, KeeperException.create(code, nodePath));
+                }
+                return run(rest, result);
+            }
+            for (String nodePath : batch) {
+                deleted(nodePath, result);
+            }
+            return CompletableFuture.<Void>completedFuture(null);
+        });
+    }
+
+    private void deleted(String nodePath, Result result) {
+        result.deleted.add(nodePath);
+        deletedCount.incrementAndGet();
+        deleted.accept(nodePath);
+    }
+
+    /**
+     * Makes the parents of the deleted nodes ready once all of their children
+     * are gone
+     */
+    private void handle(Result result) {
+        inFlight--;
+        for (String nodePath : result.deleted) {
+            childDeleted(nodePath);
+        }
+    }
+
+    private void childDeleted(String nodePath) {
+        int index = nodePath.lastIndexOf('/');
+        String parentPath = index > 0 ? nodePath.substring(0, index) : "/";
+        Integer remaining = remainingChildren.get(parentPath);
+        if (remaining == null) {
+            return;
+        }
+        if (remaining > 1) {
+            remainingChildren.put(parentPath, remaining - 1);
+        }
+        else {
+            remainingChildren.remove(parentPath);
+            markReady(parentPath);
+        }
+    }
+
+    private static boolean isProtected(String nodePath) {
+        return nodePath.equals("/") || nodePath.equals(ZOOKEEPER_PATH) || nodePath.startsWith(ZOOKEEPER_PATH + "/");
+    }
+
+    /**
+     * @param rootPaths
+     *            - the paths to the roots of subtrees
+     * @return the distinct paths which are not below another of the paths, in
+     *         their order. These are the subtrees {@link #delete(Collection)}
+     *         walks
+     */
+    public static List<String> topmost(Collection<String> rootPaths) {
+        Set<String> roots = new LinkedHashSet<String>(rootPaths);
+        List<String> topmost = new ArrayList<String>(roots.size());
+        for (String rootPath : roots) {
+            if (!isBelowOther(rootPath, roots)) {
+                topmost.add(rootPath);
+            }
+        }
+        return topmost;
+    }
+
+    private static boolean isBelowOther(String rootPath, Collection<String> rootPaths) {
+        for (String other : rootPaths) {
+            if (!other.equals(rootPath) && (other.equals("/") || rootPath.startsWith(other + "/"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Result {
+        private final List<String> deleted = new ArrayList<String>();
+    }
+
+}
@@ -0,0 +1,468 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.retry.ZooKeeperRetry;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares two subtrees, on the same connection or on two connections, and
+ * builds a tree of the nodes which were added, removed or changed. The left
+ * subtree is the base and the right one is compared to it.
+ * <p>
+ * The subtrees are walked side by side, top down, with up to
+ * {@link #getWindow()} pairs of nodes in flight. The children of both nodes of
+ * a pair are listed together with their {@link Stat}s, and only the children
+ * present on both sides are descended into, so a subtree which was added or
+ * removed costs a single entry whatever its size. The data of a pair is only
+ * read when the {@link Stat}s cannot tell it apart, that is when the data
+ * lengths are equal and not 0, and each side is reduced to a 128 bit
+ * fingerprint as soon as it arrives, so no data is kept while the other side
+ * is read. Every entry of the result counts the differences below it, which
+ * tells the branches that match from those that do not.
+ */
+@Slf4j
+public class NodeDiff implements Closeable {
+
+    public static final int DEFAULT_WINDOW = 64;
+    public static final int DEFAULT_MAX_DIFFERENCES = 100_000;
+
+    private static final HashFunction FINGERPRINT = Hashing.murmur3_128();
+
+    /**
+     * How a node differs between the two sides
+     */
+    public static enum Change {
+        /** only on the right */
+        ADDED,
+        /** only on the left */
+        REMOVED,
+        /** on both sides, with different data */
+        CHANGED
+    }
+
+    private final ZooKeeperRetry left;
+    private final ZooKeeperRetry right;
+    private final boolean ownsRight;
+    private int window = DEFAULT_WINDOW;
+    private int maxDifferences = DEFAULT_MAX_DIFFERENCES;
+    private boolean compareVersions = false;
+
+    private volatile boolean cancelled = false;
+    private volatile boolean truncated = false;
+    private final AtomicLong comparedCount = new AtomicLong();
+    private final AtomicLong dataReadCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private long differenceCount = 0;
+
+    /**
+     * @param left
+     *            - the connection to read the left subtree with
+     * @param right
+     *            - the connection to read the right subtree with, which may
+     *            be the same
+     * @param ownsRight
+     *            - true if the right connection should be closed with the diff
+     */
+    public NodeDiff(ZooKeeperRetry left, ZooKeeperRetry right, boolean ownsRight) {
+        this.left = left;
+        this.right = right;
+        this.ownsRight = ownsRight;
+    }
+
+    /**
+     * @return the maximum number of pairs of nodes in flight
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @param window
+     *            - the maximum number of pairs of nodes in flight
+     */
+    public void setWindow(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1: " + window);
+        }
+        this.window = window;
+    }
+
+    /**
+     * @param maxDifferences
+     *            - the number of differences after which the diff stops
+     */
+    public void setMaxDifferences(int maxDifferences) {
+        this.maxDifferences = maxDifferences;
+    }
+
+    /**
+     * @param compareVersions
+     *            - true if nodes whose data versions differ are changed even
+     *            if their data is the same. Versions only match between
+     *            clusters which went through the same history of updates
+     */
+    public void setCompareVersions(boolean compareVersions) {
+        this.compareVersions = compareVersions;
+    }
+
+    /**
+     * @param leftRoot
+     *            - the path to the root of the left subtree
+     * @param rightRoot
+     *            - the path to the root of the right subtree
+     * @return the root of the differences, whose relative path is empty. It
+     *         has no children if the subtrees match
+     * @throws InterruptedException
+     *             - if the calling thread is interrupted, which also cancels
+     *             the diff
+     */
+    public Entry diff(String leftRoot, String rightRoot) throws InterruptedException {
+        Entry root = new Entry(null, "", leftRoot);
+        BlockingQueue<Response> responses = new LinkedBlockingQueue<Response>();
+        Deque<String> pending = new ArrayDeque<String>();
+        pending.push("");
+        int inFlight = 0;
+        try {
+            while (!cancelled && (inFlight > 0 || !pending.isEmpty())) {
+                while (inFlight < window && !pending.isEmpty() && !truncated) {
+                    String relativePath = pending.pop();
+                    compare(relativePath, path(leftRoot, relativePath), path(rightRoot, relativePath), responses);
+                    inFlight++;
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+                Response response = responses.take();
+                inFlight--;
+                comparedCount.incrementAndGet();
+                if (response.error != null) {
+                    errorCount.incrementAndGet();
+                    log.warn("Error occurred comparing node: {}", response.relativePath, response.error);
+                }
+                else if (response.left == null && response.right != null) {
+                    add(root, response.relativePath, Change.ADDED, null);
+                }
+                else if (response.left != null && response.right == null) {
+                    add(root, response.relativePath, Change.REMOVED, null);
+                }
+                else if (response.left != null) {
+                    if (response.detail != null) {
+                        add(root, response.relativePath, Change.CHANGED, response.detail);
+                    }
+                    compareChildren(root, response, pending);
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            cancelled = true;
+            throw e;
+        }
+        return root;
+    }
+
+    /**
+     * Stops the diff. May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if the diff was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if the diff stopped after the maximum number of differences
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return the number of pairs of nodes compared so far. May be called
+     *         from any thread
+     */
+    public long getComparedCount() {
+        return comparedCount.get();
+    }
+
+    /**
+     * @return the number of pairs of nodes whose data had to be read
+     */
+    public long getDataReadCount() {
+        return dataReadCount.get();
+    }
+
+    /**
+     * @return the number of nodes which could not be read
+     */
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * @return the number of differences found
+     */
+    public long getDifferenceCount() {
+        return differenceCount;
+    }
+
+    /**
+     * Closes the right connection if it belongs to the diff
+     */
+    @Override
+    public void close() {
+        if (ownsRight) {
+            try {
+                right.close();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void compare(String relativePath, String leftPath, String rightPath, BlockingQueue<Response> responses) {
+        CompletableFuture<Pair<List<String>, Stat>> leftChildren = getChildren(left, leftPath);
+        CompletableFuture<Pair<List<String>, Stat>> rightChildren = getChildren(right, rightPath);
+        leftChildren.thenCombine(rightChildren, (l, r) -> new Response(relativePath, l, r))
+        .thenCompose((response) -> {
+            if (response.left == null || response.right == null) {
+                return CompletableFuture.completedFuture(response);
+            }
+            Stat leftStat = response.left.getValue();
+            Stat rightStat = response.right.getValue();
+            if (compareVersions && leftStat.getVersion() != rightStat.getVersion()) {
+                response.detail = "data version " + leftStat.getVersion() + " -> " + rightStat.getVersion();
+            }
+            if (leftStat.getDataLength() != rightStat.getDataLength()) {
+                response.detail = "data length " + leftStat.getDataLength() + " -> " + rightStat.getDataLength();
+                return CompletableFuture.completedFuture(response);
+            }
+            if (leftStat.getDataLength() == 0 || response.detail != null) {
+                return CompletableFuture.completedFuture(response);
+            }
+            dataReadCount.incrementAndGet();
+            return fingerprint(left, leftPath).thenCombine(fingerprint(right, rightPath), (l, r) -> {
+                if (l != null && r != null && !l.equals(r)) {
+                    response.detail = "data";
+                }
+                return response;
+            });
+        })
+        .exceptionally((error) -> {
+            Response response = new Response(relativePath, null, null);
+            response.error = ZooKeeperRetry.unwrap(error);
+            return response;
+        })
+        .thenAccept(responses::add);
+    }
+
+    private void compareChildren(Entry root, Response response, Deque<String> pending) {
+        List<String> leftChildren = sorted(response.left.getKey());
+        List<String> rightChildren = sorted(response.right.getKey());
+        List<String> common = new ArrayList<String>();
+        int i = 0;
+        int j = 0;
+        while (i < leftChildren.size() || j < rightChildren.size()) {
+            int order = i == leftChildren.size() ? 1
+                    : j == rightChildren.size() ? -1
+                    : leftChildren.get(i).compareTo(rightChildren.get(j));
+            if (order < 0) {
+                add(root, childPath(response.relativePath, leftChildren.get(i++)), Change.REMOVED, null);
+            }
+            else if (order > 0) {
+                add(root, childPath(response.relativePath, rightChildren.get(j++)), Change.ADDED, null);
+            }
+            else {
+                common.add(childPath(response.relativePath, leftChildren.get(i)));
+                i++;
+                j++;
+            }
+        }
+        for (int k = common.size() - 1; k >= 0; k--) {
+            pending.push(common.get(k));
+        }
+    }
+
+    private void add(Entry root, String relativePath, Change change, String detail) {
+        if (differenceCount >= maxDifferences) {
+            truncated = true;
+            return;
+        }
+        differenceCount++;
+        Entry entry = root;
+        entry.differenceCount++;
+        int start = 1;
+        while (start <= relativePath.length()) {
+            int end = relativePath.indexOf('/', start);
+            if (end < 0) {
+                end = relativePath.length();
+            }
+            String name = relativePath.substring(start, end);
+            Entry child = entry.children.get(name);
+            if (child == null) {
+                child = new Entry(name, relativePath.substring(0, end), path(root.nodePath, relativePath.substring(0, end)));
+                entry.children.put(name, child);
+            }
+            child.differenceCount++;
+            entry = child;
+            start = end + 1;
+        }
+        entry.change = change;
+        entry.detail = detail;
+    }
+
+    private static CompletableFuture<Pair<List<String>, Stat>> getChildren(ZooKeeperRetry zooKeeper, String path) {
+        return zooKeeper.getChildrenAsync(path, null).exceptionally((error) -> {
+            if (ZooKeeperRetry.unwrap(error) instanceof KeeperException.NoNodeException) {
+                return null;
+            }
+            throw new CompletionException(ZooKeeperRetry.unwrap(error));
+        });
+    }
+
+    /**
+     * @return a future of the fingerprint of the data of the node, or of
+     *         <code>null</code> if the node no longer exists
+     */
+    private static CompletableFuture<HashCode> fingerprint(ZooKeeperRetry zooKeeper, String path) {
+        return zooKeeper.getDataAsync(path, null)
+                .thenApply((data) -> FINGERPRINT.hashBytes(data.getKey() != null ? data.getKey() : new byte[0]))
+                .exceptionally((error) -> {
+                    if (ZooKeeperRetry.unwrap(error) instanceof KeeperException.NoNodeException) {
+                        return null;
+                    }
+                    throw new CompletionException(ZooKeeperRetry.unwrap(error));
+                });
+    }
+
+    private static List<String> sorted(List<String> names) {
+        List<String> sorted = new ArrayList<String>(names);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private static String path(String root, String relativePath) {
+        return relativePath.isEmpty() ? root : (root.equals("/") ? "" : root) + relativePath;
+    }
+
+    private static String childPath(String relativePath, String child) {
+        return relativePath + "/" + child;
+    }
+
+    private static class Response {
+        private final String relativePath;
+        private final Pair<List<String>, Stat> left;
+        private final Pair<List<String>, Stat> right;
+        private String detail;
+        private Throwable error;
+
+        Response(String relativePath, Pair<List<String>, Stat> left, Pair<List<String>, Stat> right) {
+            this.relativePath = relativePath;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /**
+     * A node which differs, or which has differences below it
+     */
+    @Getter
+    public static class Entry {
+
+        /**
+         * the name of the node, or <code>null</code> for the root
+         */
+        private final String name;
+
+        /**
+         * the path to the node below the roots of the diff, empty for the root
+         */
+        private final String relativePath;
+
+        /**
+         * the path to the node in the left subtree
+         */
+        private final String nodePath;
+
+        /**
+         * how the node itself differs, or <code>null</code> if only nodes
+         * below it differ
+         */
+        private Change change;
+
+        /**
+         * what changed, for {@link Change#CHANGED} nodes
+         */
+        private String detail;
+
+        /**
+         * the number of differences at and below the node
+         */
+        private long differenceCount;
+
+        private final Map<String, Entry> children = new TreeMap<String, Entry>();
+
+        Entry(String name, String relativePath, String nodePath) {
+            this.name = name;
+            this.relativePath = relativePath;
+            this.nodePath = nodePath;
+        }
+
+        /**
+         * @return the entries below the node, sorted by name
+         */
+        public Collection<Entry> getChildren() {
+            return Collections.unmodifiableCollection(children.values());
+        }
+
+        @Override
+        public String toString() {
+            return name != null ? name : nodePath;
+        }
+    }
+
+}
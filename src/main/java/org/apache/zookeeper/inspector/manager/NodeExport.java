@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Exports the nodes of a subtree, with their data,
+ * {@link org.apache.zookeeper.data.Stat} and ACLs, to a file in a
+ * {@link NodeExportFormat}. The subtree is walked by a {@link NodeCrawler}
+ * and every node is written as soon as it arrives through a
+ * {@link NodeExportWriter}. Since the crawler only issues new requests as the
+ * nodes are written, the memory used stays the same however large the subtree
+ * is, and a slow disk slows the crawl down rather than filling the heap.
+ * <p>
+ * The export is written to a temporary file next to the target, which only
+ * replaces the target once the whole subtree has been written.
+ */
+@Slf4j
+public class NodeExport {
+
+    private static final String PART_EXTENSION = ".part";
+
+    private final NodeCrawler crawler;
+    private final Path file;
+    private final NodeExportFormat format;
+    private final boolean gzip;
+
+    /**
+     * @param crawler
+     *            - the {@link NodeCrawler} to walk the subtree with
+     * @param file
+     *            - the file to export to
+     * @param format
+     *            - the format to write
+     * @param gzip
+     *            - true if the file should be compressed with GZIP
+     */
+    public NodeExport(NodeCrawler crawler, Path file, NodeExportFormat format, boolean gzip) {
+        this.crawler = crawler;
+        this.file = file;
+        this.format = format;
+        this.gzip = gzip;
+        crawler.setReadData(true);
+        crawler.setReadAcl(true);
+    }
+
+    /**
+     * @param rootPath
+     *            - the path to the root of the subtree to export
+     * @return the number of exported nodes. Nothing is written if the export
+     *         is cancelled
+     * @throws IOException
+     *             - if the file could not be written
+     * @throws InterruptedException
+     *             - if the calling thread is interrupted, which also cancels
+     *             the export
+     */
+    public long export(String rootPath) throws IOException, InterruptedException {
+        Path part = file.resolveSibling(file.getFileName() + PART_EXTENSION);
+        boolean done = false;
+        try {
+            long count;
+            try (NodeExportWriter writer = new NodeExportWriter(open(part), format, rootPath)) {
+                crawler.crawl(rootPath, (node) -> {
+                    try {
+                        writer.write(node.getNodePath(), node.getStat(), node.getAcl(), node.getData());
+                    }
+                    catch (IOException e) {
+                        crawler.cancel();
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (crawler.isCancelled()) {
+                    return 0;
+                }
+                writer.finish();
+                count = writer.getCount();
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            move(part);
+            done = true;
+            return count;
+        }
+        finally {
+            if (!done) {
+                try {
+                    Files.deleteIfExists(part);
+                }
+                catch (IOException e) {
+                    log.warn("Unable to delete partial export: {}", part, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the export. May be called from any thread.
+     */
+    public void cancel() {
+        crawler.cancel();
+    }
+
+    /**
+     * @return true if the export was cancelled
+     */
+    public boolean isCancelled() {
+        return crawler.isCancelled();
+    }
+
+    /**
+     * @return the number of nodes exported so far. May be called from any
+     *         thread
+     */
+    public long getExportedCount() {
+        return crawler.getVisitedCount();
+    }
+
+    /**
+     * @return the number of nodes which could not be read and are missing
+     *         from the export
+     */
+    public long getErrorCount() {
+        return crawler.getErrorCount();
+    }
+
+    private WritableByteChannel open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        if (!gzip) {
+            return channel;
+        }
+        try {
+            return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel),
+                    NodeExportWriter.BUFFER_SIZE));
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void move(Path part) throws IOException {
+        try {
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+/**
+ * The file formats a subtree can be exported to with {@link NodeExport}. Both
+ * start with a header naming the root of the export, followed by one record
+ * per node holding its path, {@link org.apache.zookeeper.data.Stat}, ACLs and
+ * data, parents before children, and end with a trailer holding the number of
+ * records. Either may be compressed with GZIP.
+ */
+public enum NodeExportFormat {
+
+    /**
+     * One JSON object per line. The header is
+     * <code>{"format":"zooinspector-export","version":1,"root":"/a"}</code>,
+     * each record is
+     * <code>{"path":"/a/b","stat":{"czxid":...},"acl":[{"perms":31,"scheme":"world","id":"anyone"}],"data":"&lt;base64&gt;"}</code>
+     * with <code>"data":null</code> for nodes without data, and the trailer is
+     * <code>{"count":2}</code>
+     */
+    NDJSON("NDJSON", ".ndjson"),
+
+    /**
+     * A big endian binary format. The header is the bytes "ZKEX", a version
+     * byte and the root as a string. Each record is an int holding the length
+     * of the rest of the record, the path as a string, the fields of the Stat
+     * as longs in {@link StatField} order, an int count of ACLs each written
+     * as an int of permissions and the scheme and id as strings, and an int
+     * length of the data followed by the data, with -1 for no data. The
+     * trailer is the int -1 followed by the number of records as a long. A
+     * string is an int length followed by UTF-8 bytes.
+     */
+    BINARY("Binary", ".zkx");
+
+    /**
+     * the name of the NDJSON format in its header
+     */
+    public static final String NDJSON_NAME = "zooinspector-export";
+
+    /**
+     * the first bytes of a binary export
+     */
+    public static final byte[] BINARY_MAGIC = { 'Z', 'K', 'E', 'X' };
+
+    /**
+     * the version of both formats
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * the extension of a compressed export, after that of its format
+     */
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private final String description;
+    private final String extension;
+
+    private NodeExportFormat(String description, String extension) {
+        this.description = description;
+        this.extension = extension;
+    }
+
+    /**
+     * @return the name of the format shown to the user
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the file extension of the format, including the dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @param fileName
+     *            - the name of an export file
+     * @return the format whose extension the name ends with, ignoring a
+     *         trailing {@link #GZIP_EXTENSION}, or <code>null</code> if there
+     *         is none
+     */
+    public static NodeExportFormat forFileName(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(GZIP_EXTENSION)) {
+            name = name.substring(0, name.length() - GZIP_EXTENSION.length());
+        }
+        for (NodeExportFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+}
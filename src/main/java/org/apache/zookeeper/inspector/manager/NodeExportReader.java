@@ -0,0 +1,552 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Id;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Reads the nodes written by a {@link NodeExportWriter}, one at a time. The
+ * format and the GZIP compression are detected from the first bytes. Like the
+ * writer, the reader goes through a single buffer of
+ * {@link NodeExportWriter#BUFFER_SIZE} bytes, so only the node being read is
+ * held in memory. Not thread safe, except for {@link #getPosition()}.
+ */
+public class NodeExportReader implements Closeable {
+
+    private static final int GZIP_MAGIC = 0x1f8b;
+
+    private final ReadableByteChannel channel;
+    private final FileChannel file;
+    private final ByteBuffer buffer = ByteBuffer.allocate(NodeExportWriter.BUFFER_SIZE);
+    private final NodeExportFormat format;
+    private final String rootPath;
+    private byte[] line = new byte[1024];
+    private long count = 0;
+    private boolean finished = false;
+
+    /**
+     * Reads the header of the export
+     *
+     * @param channel
+     *            - the channel to read an uncompressed export from, which is
+     *            closed with the reader
+     * @throws IOException
+     *             - if the channel does not hold an export
+     */
+    public NodeExportReader(ReadableByteChannel channel) throws IOException {
+        this(channel, null);
+    }
+
+    private NodeExportReader(ReadableByteChannel channel, FileChannel file) throws IOException {
+        this.channel = channel;
+        this.file = file;
+        buffer.flip();
+        if (!fill() || buffer.remaining() < 1) {
+            throw new IOException("The export is empty");
+        }
+        if (buffer.get(buffer.position()) == '{') {
+            format = NodeExportFormat.NDJSON;
+            Map<String, Object> header = readJson();
+            if (!NodeExportFormat.NDJSON_NAME.equals(header.get("format"))) {
+                throw new IOException("Not an export: " + header);
+            }
+            checkVersion(header.get("version"));
+            rootPath = (String) header.get("root");
+        }
+        else {
+            format = NodeExportFormat.BINARY;
+            need(NodeExportFormat.BINARY_MAGIC.length + 1);
+            byte[] magic = new byte[NodeExportFormat.BINARY_MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, NodeExportFormat.BINARY_MAGIC)) {
+                throw new IOException("Not an export");
+            }
+            checkVersion((long) buffer.get());
+            rootPath = readString();
+        }
+        if (rootPath == null || !rootPath.startsWith("/")) {
+            throw new IOException("The export has no root: " + rootPath);
+        }
+    }
+
+    /**
+     * @param path
+     *            - the export file, which may be compressed with GZIP
+     * @return a reader positioned after the header of the export
+     * @throws IOException
+     *             - if the file cannot be read or does not hold an export
+     */
+    public static NodeExportReader open(Path path) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer magic = ByteBuffer.allocate(2);
+            while (magic.hasRemaining() && file.read(magic) != -1) {
+                // read the first two bytes
+            }
+            file.position(0);
+            ReadableByteChannel channel = file;
+            if (magic.position() == 2 && (magic.getShort(0) & 0xffff) == GZIP_MAGIC) {
+                channel = Channels.newChannel(new GZIPInputStream(Channels.newInputStream(file),
+                        NodeExportWriter.BUFFER_SIZE));
+            }
+            return new NodeExportReader(channel, file);
+        }
+        catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the format of the export
+     */
+    public NodeExportFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return the path to the root of the exported subtree
+     */
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * @return the next node, parents before their children, or
+     *         <code>null</code> after the last one
+     * @throws IOException
+     *             - if the export cannot be read, is corrupt or is truncated
+     */
+    public ExportedNode read() throws IOException {
+        if (finished) {
+            return null;
+        }
+        ExportedNode node = format == NodeExportFormat.NDJSON ? readJsonNode() : readBinaryNode();
+        if (node == null) {
+            finished = true;
+        }
+        else {
+            count++;
+        }
+        return node;
+    }
+
+    /**
+     * @return the position in the file the reader was opened on, which is
+     *         compressed if the export is. May be called from any thread
+     * @throws IOException
+     */
+    public long getPosition() throws IOException {
+        return file != null ? file.position() : 0;
+    }
+
+    /**
+     * @return the size of the file the reader was opened on, or 0
+     * @throws IOException
+     */
+    public long getSize() throws IOException {
+        return file != null ? file.size() : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        }
+        finally {
+            if (file != null) {
+                file.close();
+            }
+        }
+    }
+
+    private ExportedNode readBinaryNode() throws IOException {
+        need(4);
+        int length = buffer.getInt();
+        if (length == -1) {
+            need(8);
+            checkCount(buffer.getLong());
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Corrupt record of length " + length);
+        }
+        String nodePath = readString();
+        Stat stat = new Stat();
+        for (StatField field : StatField.values()) {
+            need(8);
+            field.set(stat, buffer.getLong());
+        }
+        need(4);
+        int aclCount = buffer.getInt();
+        List<ACL> acl = new ArrayList<ACL>(aclCount);
+        for (int i = 0; i < aclCount; i++) {
+            need(4);
+            int perms = buffer.getInt();
+            acl.add(new ACL(perms, new Id(readString(), readString())));
+        }
+        need(4);
+        int dataLength = buffer.getInt();
+        byte[] data = dataLength >= 0 ? readBytes(dataLength) : null;
+        return new ExportedNode(nodePath, stat, acl, data);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ExportedNode readJsonNode() throws IOException {
+        Map<String, Object> record = readJson();
+        if (record == null) {
+            throw new EOFException("The export is truncated after " + count + " nodes");
+        }
+        if (!record.containsKey("path")) {
+            checkCount(record.get("count"));
+            return null;
+        }
+        try {
+            Stat stat = new Stat();
+            Map<String, Object> fields = (Map<String, Object>) record.get("stat");
+            for (StatField field : StatField.values()) {
+                Object value = fields.get(field.getProperty());
+                if (value != null) {
+                    field.set(stat, (Long) value);
+                }
+            }
+            List<ACL> acl = new ArrayList<ACL>();
+            if (record.get("acl") != null) {
+                for (Object entry : (List<Object>) record.get("acl")) {
+                    Map<String, Object> values = (Map<String, Object>) entry;
+                    acl.add(new ACL(((Long) values.get("perms")).intValue(),
+                            new Id((String) values.get("scheme"), (String) values.get("id"))));
+                }
+            }
+            String data = (String) record.get("data");
+            return new ExportedNode((String) record.get("path"), stat, acl,
+                    data != null ? Base64.getDecoder().decode(data) : null);
+        }
+        catch (ClassCastException | NullPointerException | IllegalArgumentException e) {
+            throw new IOException("Corrupt record after " + count + " nodes", e);
+        }
+    }
+
+    /**
+     * @return the next line parsed as a JSON object, or <code>null</code> at
+     *         the end of the export
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readJson() throws IOException {
+        int length = 0;
+        while (true) {
+            if (!buffer.hasRemaining() && !fill()) {
+                if (length == 0) {
+                    return null;
+                }
+                break;
+            }
+            byte b = buffer.get();
+            if (b == '\n') {
+                break;
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[length++] = b;
+        }
+        try {
+            Object value = new JsonParser(new String(line, 0, length, StandardCharsets.UTF_8)).parse();
+            if (!(value instanceof Map)) {
+                throw new IOException("Expected a JSON object after " + count + " nodes");
+            }
+            return (Map<String, Object>) value;
+        }
+        catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt record after " + count + " nodes: " + e.getMessage(), e);
+        }
+    }
+
+    private String readString() throws IOException {
+        need(4);
+        int length = buffer.getInt();
+        if (length < 0) {
+            throw new IOException("Corrupt string of length " + length);
+        }
+        return new String(readBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            if (!buffer.hasRemaining() && !fill()) {
+                throw new EOFException("The export is truncated after " + count + " nodes");
+            }
+            int chunk = Math.min(buffer.remaining(), length - offset);
+            buffer.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+        return bytes;
+    }
+
+    private void need(int bytes) throws IOException {
+        while (buffer.remaining() < bytes) {
+            if (!fill()) {
+                throw new EOFException("The export is truncated after " + count + " nodes");
+            }
+        }
+    }
+
+    /**
+     * @return false at the end of the channel
+     */
+    private boolean fill() throws IOException {
+        buffer.compact();
+        try {
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0 && buffer.hasRemaining());
+            return read > 0;
+        }
+        finally {
+            buffer.flip();
+        }
+    }
+
+    private void checkVersion(Object version) throws IOException {
+        if (!(version instanceof Long) || (Long) version < 1 || (Long) version > NodeExportFormat.VERSION) {
+            throw new IOException("Unsupported export version: " + version);
+        }
+    }
+
+    private void checkCount(Object expected) throws IOException {
+        if (!(expected instanceof Long) || (Long) expected != count) {
+            throw new IOException("The export holds " + count + " nodes but expected " + expected);
+        }
+    }
+
+    /**
+     * Parses the JSON written by {@link NodeExportWriter}: objects, arrays,
+     * strings, integers, booleans and null
+     */
+    private static class JsonParser {
+        private final String text;
+        private int pos = 0;
+
+        JsonParser(String text) {
+            this.text = text;
+        }
+
+        Object parse() {
+            Object value = parseValue();
+            skipWhitespace();
+            if (pos != text.length()) {
+                throw error("Unexpected text");
+            }
+            return value;
+        }
+
+        private Object parseValue() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("Unexpected end");
+            }
+            char c = text.charAt(pos);
+            switch (c) {
+            case '{':
+                return parseObject();
+            case '[':
+                return parseArray();
+            case '"':
+                return parseString();
+            case 'n':
+                return parseLiteral("null", null);
+            case 't':
+                return parseLiteral("true", Boolean.TRUE);
+            case 'f':
+                return parseLiteral("false", Boolean.FALSE);
+            default:
+                return parseNumber();
+            }
+        }
+
+        private Map<String, Object> parseObject() {
+            Map<String, Object> object = new LinkedHashMap<String, Object>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("Expected a name");
+                }
+                String name = parseString();
+                skipWhitespace();
+                expect(':');
+                object.put(name, parseValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                }
+                else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> parseArray() {
+            List<Object> array = new ArrayList<Object>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.add(parseValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                }
+                else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String parseString() {
+            pos++;
+            StringBuilder sb = null;
+            int start = pos;
+            while (true) {
+                if (pos >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb == null ? text.substring(start, pos - 1) : sb.toString();
+                }
+                if (c != '\\') {
+                    if (sb != null) {
+                        sb.append(c);
+                    }
+                    continue;
+                }
+                if (sb == null) {
+                    sb = new StringBuilder(text.substring(start, pos - 1));
+                }
+                if (pos >= text.length()) {
+                    throw error("Unterminated string");
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > text.length()) {
+                        throw error("Invalid escape");
+                    }
+                    sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    pos += 4;
+                    break;
+                default:
+                    sb.append(escaped);
+                }
+            }
+        }
+
+        private Object parseLiteral(String literal, Object value) {
+            if (!text.startsWith(literal, pos)) {
+                throw error("Unexpected value");
+            }
+            pos += literal.length();
+            return value;
+        }
+
+        private Long parseNumber() {
+            int start = pos;
+            if (peek() == '-') {
+                pos++;
+            }
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("Unexpected value");
+            }
+            return Long.parseLong(text.substring(start, pos));
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + pos);
+        }
+    }
+
+}
@@ -0,0 +1,275 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * Writes nodes to a {@link WritableByteChannel} in a
+ * {@link NodeExportFormat}. Records go through a single buffer of
+ * {@link #BUFFER_SIZE} bytes which is written to the channel whenever it
+ * fills up, so the memory used does not depend on the number of nodes or the
+ * size of their data. Not thread safe.
+ */
+public class NodeExportWriter implements Closeable {
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int TRAILER = -1;
+
+    private final WritableByteChannel channel;
+    private final NodeExportFormat format;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long count = 0;
+    private long writtenBytes = 0;
+
+    /**
+     * Writes the header of the export
+     *
+     * @param channel
+     *            - the channel to write to, which is closed with the writer
+     * @param format
+     *            - the format to write
+     * @param rootPath
+     *            - the path to the root of the exported subtree
+     * @throws IOException
+     */
+    public NodeExportWriter(WritableByteChannel channel, NodeExportFormat format, String rootPath) throws IOException {
+        this.channel = channel;
+        this.format = format;
+        if (format == NodeExportFormat.NDJSON) {
+            StringBuilder header = new StringBuilder("{\"format\":");
+            appendString(header, NodeExportFormat.NDJSON_NAME);
+            header.append(",\"version\":").append(NodeExportFormat.VERSION).append(",\"root\":");
+            appendString(header, rootPath);
+            put(header.append("}\n").toString().getBytes(StandardCharsets.UTF_8));
+        }
+        else {
+            put(NodeExportFormat.BINARY_MAGIC);
+            buffer.put((byte) NodeExportFormat.VERSION);
+            putString(rootPath.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @param stat
+     *            - the {@link Stat} of the node
+     * @param acl
+     *            - the ACLs of the node, or <code>null</code> if unknown
+     * @param data
+     *            - the data of the node as stored in zookeeper, or
+     *            <code>null</code>
+     * @throws IOException
+     */
+    public void write(String nodePath, Stat stat, List<ACL> acl, byte[] data) throws IOException {
+        if (acl == null) {
+            acl = Collections.emptyList();
+        }
+        if (format == NodeExportFormat.NDJSON) {
+            writeJson(nodePath, stat, acl, data);
+        }
+        else {
+            writeBinary(nodePath, stat, acl, data);
+        }
+        count++;
+    }
+
+    /**
+     * Writes the trailer of the export and everything still buffered. Nothing
+     * can be written afterwards.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (format == NodeExportFormat.NDJSON) {
+            put(("{\"count\":" + count + "}\n").getBytes(StandardCharsets.UTF_8));
+        }
+        else {
+            ensure(12);
+            buffer.putInt(TRAILER);
+            buffer.putLong(count);
+        }
+        flush();
+    }
+
+    /**
+     * @return the number of nodes written
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the number of bytes written to the channel
+     */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeJson(String nodePath, Stat stat, List<ACL> acl, byte[] data) throws IOException {
+        StringBuilder record = new StringBuilder(256);
+        record.append("{\"path\":");
+        appendString(record, nodePath);
+        record.append(",\"stat\":{");
+        for (StatField field : StatField.values()) {
+            if (field.ordinal() > 0) {
+                record.append(',');
+            }
+            record.append('"').append(field.getProperty()).append("\":").append(field.get(stat));
+        }
+        record.append("},\"acl\":[");
+        for (int i = 0; i < acl.size(); i++) {
+            if (i > 0) {
+                record.append(',');
+            }
+            record.append("{\"perms\":").append(acl.get(i).getPerms()).append(",\"scheme\":");
+            appendString(record, acl.get(i).getId().getScheme());
+            record.append(",\"id\":");
+            appendString(record, acl.get(i).getId().getId());
+            record.append('}');
+        }
+        record.append("],\"data\":");
+        if (data == null) {
+            put(record.append("null}\n").toString().getBytes(StandardCharsets.UTF_8));
+        }
+        else {
+            put(record.append('"').toString().getBytes(StandardCharsets.UTF_8));
+            put(Base64.getEncoder().encode(data));
+            put(new byte[] { '"', '}', '\n' });
+        }
+    }
+
+    private void writeBinary(String nodePath, Stat stat, List<ACL> acl, byte[] data) throws IOException {
+        byte[] path = nodePath.getBytes(StandardCharsets.UTF_8);
+        byte[][] ids = new byte[acl.size() * 2][];
+        int length = 4 + path.length + 8 * StatField.values().length + 4 + 4 + (data != null ? data.length : 0);
+        for (int i = 0; i < acl.size(); i++) {
+            ids[2 * i] = acl.get(i).getId().getScheme().getBytes(StandardCharsets.UTF_8);
+            ids[2 * i + 1] = acl.get(i).getId().getId().getBytes(StandardCharsets.UTF_8);
+            length += 4 + 4 + ids[2 * i].length + 4 + ids[2 * i + 1].length;
+        }
+        ensure(4);
+        buffer.putInt(length);
+        putString(path);
+        for (StatField field : StatField.values()) {
+            ensure(8);
+            buffer.putLong(field.get(stat));
+        }
+        ensure(4);
+        buffer.putInt(acl.size());
+        for (int i = 0; i < acl.size(); i++) {
+            ensure(4);
+            buffer.putInt(acl.get(i).getPerms());
+            putString(ids[2 * i]);
+            putString(ids[2 * i + 1]);
+        }
+        ensure(4);
+        if (data == null) {
+            buffer.putInt(-1);
+        }
+        else {
+            buffer.putInt(data.length);
+            put(data);
+        }
+    }
+
+    private void putString(byte[] bytes) throws IOException {
+        ensure(4);
+        buffer.putInt(bytes.length);
+        put(bytes);
+    }
+
+    /**
+     * Copies the bytes into the buffer, writing it out as often as it fills up
+     */
+    private void put(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            writtenBytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                sb.append("\\\"");
+                break;
+            case '\\':
+                sb.append("\\\\");
+                break;
+            case '\n':
+                sb.append("\\n");
+                break;
+            case '\r':
+                sb.append("\\r");
+                break;
+            case '\t':
+                sb.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                }
+                else {
+                    sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+}
@@ -0,0 +1,452 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.apache.zookeeper.ZooDefs.Ids;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.retry.ZooKeeperRetry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Imports the nodes read by a {@link NodeExportReader} below a target path.
+ * The nodes are created in transactions of up to {@link #getBatchSize()}
+ * operations submitted with multi, and up to {@link #getWindow()}
+ * transactions are kept in flight. Nodes arrive parents first, and a
+ * transaction is only submitted once the transactions creating the parents of
+ * its nodes have completed, so parents always exist before their children.
+ * <p>
+ * A node which already exists makes its whole transaction fail. The
+ * transaction is then checked with one exists request per node, the existing
+ * nodes are skipped, overwritten or fail the import according to the
+ * {@link Conflict} policy, and the rest is submitted again.
+ * <p>
+ * Nodes keep their data and ACLs and are created persistent, as the servers
+ * do not tell clients which nodes are containers or have a TTL. Ephemeral
+ * nodes are skipped, as they would belong to the session of the inspector,
+ * and so is the /zookeeper subtree, which is managed by the servers.
+ */
+@Slf4j
+public class NodeImport {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_WINDOW = 8;
+
+    /**
+     * The most bytes of data and paths in a transaction, even if it has fewer
+     * than {@link #getBatchSize()} operations, to stay well below the default
+     * jute.maxbuffer of 1 MB. A single larger node gets a transaction of its
+     * own
+     */
+    public static final int MAX_BATCH_BYTES = 512 * 1024;
+
+    private static final String ZOOKEEPER_PATH = "/zookeeper";
+
+    /**
+     * What to do with a node which already exists
+     */
+    public static enum Conflict {
+        /** keep the existing node as it is */
+        SKIP,
+        /** replace the data of the existing node */
+        OVERWRITE,
+        /** stop the import */
+        FAIL
+    }
+
+    private final ZooKeeperRetry zooKeeper;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int window = DEFAULT_WINDOW;
+    private Conflict conflict = Conflict.SKIP;
+
+    private volatile boolean cancelled = false;
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong overwrittenCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    /**
+     * @param zooKeeper
+     *            - the {@link ZooKeeperRetry} to create the nodes with
+     */
+    public NodeImport(ZooKeeperRetry zooKeeper) {
+        this.zooKeeper = zooKeeper;
+    }
+
+    /**
+     * @return the maximum number of operations in a transaction
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize
+     *            - the maximum number of operations in a transaction
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return the maximum number of transactions in flight
+     */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @param window
+     *            - the maximum number of transactions in flight
+     */
+    public void setWindow(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1: " + window);
+        }
+        this.window = window;
+    }
+
+    /**
+     * @param conflict
+     *            - what to do with nodes which already exist
+     */
+    public void setConflict(Conflict conflict) {
+        this.conflict = conflict;
+    }
+
+    /**
+     * @param reader
+     *            - the export to import
+     * @param targetPath
+     *            - the path the root of the export is imported as. Missing
+     *            ancestors are created
+     * @return the number of nodes created or overwritten
+     * @throws IOException
+     *             - if the export cannot be read
+     * @throws KeeperException
+     *             - if a node cannot be created, or already exists and the
+     *             policy is {@link Conflict#FAIL}. The transactions already
+     *             completed are not undone
+     * @throws InterruptedException
+     *             - if the calling thread is interrupted, which also cancels
+     *             the import
+     */
+    public long importNodes(NodeExportReader reader, String targetPath)
+            throws IOException, KeeperException, InterruptedException {
+        createAncestors(targetPath);
+        Semaphore inFlight = new Semaphore(window);
+        Map<String, Batch> creating = new ConcurrentHashMap<String, Batch>();
+        Batch batch = new Batch();
+        try {
+            ExportedNode node;
+            while (!cancelled && failure.get() == null && (node = reader.read()) != null) {
+                Item item = toItem(node, reader.getRootPath(), targetPath);
+                if (item == null) {
+                    skippedCount.incrementAndGet();
+                    continue;
+                }
+                if (!batch.items.isEmpty() && batch.bytes + Batch.bytes(item) > MAX_BATCH_BYTES) {
+                    submit(batch, inFlight, creating);
+                    batch = new Batch();
+                }
+                Batch parent = creating.get(parentPath(item.path));
+                if (parent != null && parent != batch) {
+                    batch.dependencies.add(parent);
+                }
+                batch.add(item);
+                creating.put(item.path, batch);
+                if (batch.items.size() >= batchSize) {
+                    submit(batch, inFlight, creating);
+                    batch = new Batch();
+                }
+            }
+            if (!cancelled && failure.get() == null && !batch.items.isEmpty()) {
+                submit(batch, inFlight, creating);
+            }
+        }
+        catch (InterruptedException e) {
+            cancelled = true;
+            throw e;
+        }
+        finally {
+            // wait for the transactions in flight
+            inFlight.acquireUninterruptibly(window);
+        }
+        Throwable error = failure.get();
+        if (error instanceof KeeperException) {
+            throw (KeeperException) error;
+        }
+        else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        else if (error != null) {
+            throw new IOException(error);
+        }
+        return createdCount.get() + overwrittenCount.get();
+    }
+
+    /**
+     * Stops the import after the transactions in flight. May be called from
+     * any thread.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * @return true if the import was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the number of nodes created, overwritten or skipped so far. May
+     *         be called from any thread
+     */
+    public long getImportedCount() {
+        return createdCount.get() + overwrittenCount.get() + skippedCount.get();
+    }
+
+    /**
+     * @return the number of nodes created
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * @return the number of existing nodes whose data was replaced
+     */
+    public long getOverwrittenCount() {
+        return overwrittenCount.get();
+    }
+
+    /**
+     * @return the number of nodes skipped because they already existed, were
+     *         ephemeral or belong to /zookeeper
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    private void createAncestors(String targetPath) throws KeeperException, InterruptedException {
+        for (int i = targetPath.indexOf('/', 1); i > 0; i = targetPath.indexOf('/', i + 1)) {
+            // an existing node counts as created
+            zooKeeper.create(targetPath.substring(0, i), null, Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        }
+    }
+
+    private void submit(Batch batch, Semaphore inFlight, Map<String, Batch> creating) throws InterruptedException {
+        for (Batch dependency : batch.dependencies) {
+            try {
+                dependency.done.get();
+            }
+            catch (ExecutionException e) {
+                // recorded as the failure of the import
+                return;
+            }
+        }
+        inFlight.acquire();
+        run(batch).whenComplete((ignored, error) -> {
+            if (error != null) {
+                failure.compareAndSet(null, ZooKeeperRetry.unwrap(error));
+            }
+            else {
+                for (Item item : batch.items) {
+                    creating.remove(item.path, batch);
+                    switch (item.action) {
+                    case CREATE:
+                        createdCount.incrementAndGet();
+                        break;
+                    case SET_DATA:
+                        overwrittenCount.incrementAndGet();
+                        break;
+                    default:
+                        skippedCount.incrementAndGet();
+                    }
+                }
+            }
+            inFlight.release();
+            if (error != null) {
+                batch.done.completeExceptionally(error);
+            }
+            else {
+                batch.done.complete(null);
+            }
+        });
+    }
+
+    /**
+     * Submits the transaction and, while it fails on existing nodes, resolves
+     * the conflicts and submits it again. Runs on the event thread of the
+     * client once started, so it must not block.
+     */
+    private CompletableFuture<Void> run(Batch batch) {
+        List<Op> ops = batch.ops();
+        if (ops.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return zooKeeper.multiAsync(ops).thenCompose((results) -> {
+            for (int i = 0; i < results.size(); i++) {
+                if (!(results.get(i) instanceof OpResult.ErrorResult)) {
+                    continue;
+                }
+                Code code = Code.get(((OpResult.ErrorResult) results.get(i)).getErr());
+                if (code == Code.OK || code == Code.RUNTIMEINCONSISTENCY) {
+                    continue;
+                }
+                String path = ops.get(i).getPath();
+                if (code == Code.NODEEXISTS && conflict != Conflict.FAIL) {
+                    return resolveConflicts(batch).thenCompose((ignored) -> run(batch));
+                }
+                return CompletableFuture.<Void>failedFuture(KeeperException.create(code, path));
+            }
+            return CompletableFuture.<Void>completedFuture(null);
+        });
+    }
+
+    private CompletableFuture<Void> resolveConflicts(Batch batch) {
+        List<CompletableFuture<?>> checks = new ArrayList<CompletableFuture<?>>();
+        for (Item item : batch.items) {
+            if (item.action == Action.CREATE) {
+                checks.add(zooKeeper.existsAsync(item.path, null).thenAccept((stat) -> {
+                    if (stat != null) {
+                        item.action = conflict == Conflict.OVERWRITE && item.canOverwrite() ? Action.SET_DATA : Action.SKIP;
+                    }
+                }));
+            }
+        }
+        return CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private static Item toItem(ExportedNode node, String rootPath, String targetPath) throws IOException {
+        String nodePath = node.getNodePath();
+        String relative;
+        if (rootPath.equals("/")) {
+            relative = nodePath.equals("/") ? "" : nodePath;
+        }
+        else if (nodePath.equals(rootPath) || nodePath.startsWith(rootPath + "/")) {
+            relative = nodePath.substring(rootPath.length());
+        }
+        else {
+            throw new IOException("Node outside of the exported subtree " + rootPath + ": " + nodePath);
+        }
+        String path = relative.isEmpty() ? targetPath : (targetPath.equals("/") ? "" : targetPath) + relative;
+        if (path.equals(ZOOKEEPER_PATH) || path.startsWith(ZOOKEEPER_PATH + "/")) {
+            return null;
+        }
+        if (node.getStat().getEphemeralOwner() != 0) {
+            // an ephemeral node of another session
+            return null;
+        }
+        List<ACL> acl = node.getAcl().isEmpty() ? Ids.OPEN_ACL_UNSAFE : node.getAcl();
+        Item item = new Item(path, node.getData(), acl);
+        if (path.equals("/")) {
+            // the root always exists
+            item.action = Action.SKIP;
+        }
+        return item;
+    }
+
+    private static String parentPath(String path) {
+        int index = path.lastIndexOf('/');
+        return index > 0 ? path.substring(0, index) : "/";
+    }
+
+    private static enum Action {
+        CREATE, SET_DATA, SKIP
+    }
+
+    private static class Item {
+        private final String path;
+        private final byte[] data;
+        private final List<ACL> acl;
+        private volatile Action action = Action.CREATE;
+
+        Item(String path, byte[] data, List<ACL> acl) {
+            this.path = path;
+            this.data = data;
+            this.acl = acl;
+        }
+
+        boolean canOverwrite() {
+            return !path.equals("/");
+        }
+
+        Op op() {
+            switch (action) {
+            case CREATE:
+                return Op.create(path, data, acl, CreateMode.PERSISTENT);
+            case SET_DATA:
+                return Op.setData(path, data, -1);
+            default:
+                return null;
+            }
+        }
+    }
+
+    private static class Batch {
+        private final List<Item> items = new ArrayList<Item>();
+        private final Set<Batch> dependencies = new HashSet<Batch>();
+        private final CompletableFuture<Void> done = new CompletableFuture<Void>();
+        private int bytes = 0;
+
+        void add(Item item) {
+            items.add(item);
+            bytes += bytes(item);
+        }
+
+        static int bytes(Item item) {
+            return item.path.length() + (item.data != null ? item.data.length : 0) + 64;
+        }
+
+        List<Op> ops() {
+            List<Op> ops = new ArrayList<Op>(items.size());
+            for (Item item : items) {
+                Op op = item.op();
+                if (op != null) {
+                    ops.add(op);
+                }
+            }
+            return ops;
+        }
+    }
+
+}
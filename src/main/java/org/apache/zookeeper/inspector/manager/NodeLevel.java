@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * One level of the node tree: the sorted children of a node together with the
+ * {@link Stat} of each child, so that the tree can tell whether a child is a
+ * leaf without asking zookeeper again. For wide nodes the Stats may only be
+ * read for a page of the children, starting at {@link #getOffset()}.
+ */
+public class NodeLevel {
+    private final String nodePath;
+    private final Stat stat;
+    private final List<String> children;
+    private final int offset;
+    private final Stat[] childStats;
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @param stat
+     *            - the {@link Stat} of the node
+     * @param children
+     *            - the sorted names of the children of the node
+     * @param childStats
+     *            - the {@link Stat} of each child, in the same order as the
+     *            children. An entry is <code>null</code> if the child was
+     *            deleted while the level was being read
+     */
+    public NodeLevel(String nodePath, Stat stat, List<String> children, Stat[] childStats) {
+        this(nodePath, stat, children, 0, childStats);
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @param stat
+     *            - the {@link Stat} of the node
+     * @param children
+     *            - the sorted names of all the children of the node
+     * @param offset
+     *            - the index of the first child of the page
+     * @param childStats
+     *            - the {@link Stat} of each child of the page. An entry is
+     *            <code>null</code> if the child was deleted while the level
+     *            was being read
+     */
+    public NodeLevel(String nodePath, Stat stat, List<String> children, int offset, Stat[] childStats) {
+        this.nodePath = nodePath;
+        this.stat = stat;
+        this.children = Collections.unmodifiableList(children);
+        this.offset = offset;
+        this.childStats = childStats;
+    }
+
+    /**
+     * @return the path to the node
+     */
+    public String getNodePath() {
+        return nodePath;
+    }
+
+    /**
+     * @return the {@link Stat} of the node
+     */
+    public Stat getStat() {
+        return stat;
+    }
+
+    /**
+     * @return the sorted names of the children of the node
+     */
+    public List<String> getChildren() {
+        return children;
+    }
+
+    /**
+     * @return the number of children of the node
+     */
+    public int getChildCount() {
+        return children.size();
+    }
+
+    /**
+     * @param index
+     *            - the index of the child
+     * @return the name of the child
+     */
+    public String getChild(int index) {
+        return children.get(index);
+    }
+
+    /**
+     * @return the index of the first child of the page
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the number of children in the page
+     */
+    public int getPageSize() {
+        return childStats.length;
+    }
+
+    /**
+     * @return the sorted names of the children in the page
+     */
+    public List<String> getPage() {
+        return children.subList(offset, offset + childStats.length);
+    }
+
+    /**
+     * @param index
+     *            - the index of the child
+     * @return the {@link Stat} of the child, or <code>null</code> if it is
+     *         not known or the child is not in the page
+     */
+    public Stat getChildStat(int index) {
+        int pageIndex = index - offset;
+        return pageIndex >= 0 && pageIndex < childStats.length ? childStats[pageIndex] : null;
+    }
+
+    /**
+     * @param child
+     *            - the name of the child
+     * @return the index of the child, or -1 if it is not a child of the node
+     */
+    public int indexOf(String child) {
+        int index = Collections.binarySearch(children, child);
+        return index >= 0 ? index : -1;
+    }
+
+}
@@ -0,0 +1,301 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * A query over the {@link StatField}s of the nodes: one or more conditions
+ * joined with "and", such as
+ *
+ * <pre>
+ * dataLength &gt; 512KB and mtime older than 30 days
+ * ephemeralOwner = 0x100a3b2c4d50001
+ * numChildren &gt;= 10000
+ * ctime &lt; 2024-01-31 12:00
+ * </pre>
+ *
+ * A field is named by its name in the {@link Stat} or by its label. The
+ * operators are =, !=, &lt;, &lt;=, &gt; and &gt;=, and for times also "older
+ * than" and "newer than" followed by a duration such as "12h" or "30 days".
+ * Numbers may be hexadecimal with a 0x prefix and may end in KB, MB or GB.
+ * Times may be given as dates in the local time zone or as milliseconds since
+ * the epoch.
+ * <p>
+ * A query can also tell from the {@link Stat} of a node that none of the
+ * nodes below it can match, see {@link #mayMatchBelow(Stat)}.
+ */
+public class NodeMetaQuery {
+
+    private static final Pattern CONDITION = Pattern.compile(
+            "([a-z][a-z ]*?)\\s*(older\\s+than|newer\\s+than|==|=|!=|<=|>=|<|>)\\s*(.+)",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern NUMBER = Pattern.compile(
+            "(0x[0-9a-f]+|-?[0-9]+)\\s*(b|kb|k|mb|m|gb|g)?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern DURATION = Pattern.compile(
+            "([0-9]+)\\s*(ms|s|secs?|seconds?|m|mins?|minutes?|h|hours?|d|days?|w|weeks?)", Pattern.CASE_INSENSITIVE);
+    private static final DateTimeFormatter[] DATE_TIMES = {
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"),
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME
+    };
+
+    private static enum Operator {
+        EQ, NE, LT, LE, GT, GE
+    }
+
+    private final String text;
+    private final List<Condition> conditions;
+
+    private NodeMetaQuery(String text, List<Condition> conditions) {
+        this.text = text;
+        this.conditions = Collections.unmodifiableList(conditions);
+    }
+
+    /**
+     * @param text
+     *            - the query
+     * @return the parsed query. Durations are relative to the current time
+     * @throws IllegalArgumentException
+     *             - if the query is not valid
+     */
+    public static NodeMetaQuery parse(String text) {
+        List<Condition> conditions = new ArrayList<Condition>();
+        long now = System.currentTimeMillis();
+        for (String condition : text.trim().split("(?i)\\s+and\\s+|\\s*&&\\s*")) {
+            Matcher matcher = CONDITION.matcher(condition.trim());
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Expected <field> <operator> <value>: " + condition);
+            }
+            StatField field = StatField.forName(matcher.group(1).trim());
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field: " + matcher.group(1).trim());
+            }
+            String operator = matcher.group(2).toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+            String value = matcher.group(3).trim();
+            if (operator.endsWith("than")) {
+                if (!field.isTime()) {
+                    throw new IllegalArgumentException("'" + operator + "' needs a time field: " + field.getProperty());
+                }
+                long bound = now - parseDuration(value);
+                conditions.add(new Condition(field, operator.startsWith("older") ? Operator.LT : Operator.GE, bound));
+            }
+            else {
+                conditions.add(new Condition(field, parseOperator(operator),
+                        field.isTime() ? parseTime(value) : parseNumber(value)));
+            }
+        }
+        return new NodeMetaQuery(text.trim(), conditions);
+    }
+
+    /**
+     * @param stat
+     *            - the {@link Stat} of a node
+     * @return true if the node matches all the conditions
+     */
+    public boolean matches(Stat stat) {
+        for (Condition condition : conditions) {
+            if (!condition.matches(condition.field.get(stat))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A node is always created after its parent, so the creation zxid of every
+     * node below a node is greater than the creation zxid of the node, and its
+     * modification and children zxids are greater still. The same holds for
+     * the creation and modification times, as long as the clocks of the
+     * servers do not go back. A condition which bounds one of those fields
+     * from above therefore rules out a whole subtree. Lower bounds such as
+     * "modified since" cannot prune, because the {@link Stat} of a node does
+     * not tell when the nodes further below it last changed.
+     *
+     * @param stat
+     *            - the {@link Stat} of a node
+     * @return false if none of the nodes below the node can match
+     */
+    public boolean mayMatchBelow(Stat stat) {
+        for (Condition condition : conditions) {
+            long lowest;
+            switch (condition.field) {
+            case CZXID:
+            case MZXID:
+            case PZXID:
+                // strictly greater than the czxid of the node
+                lowest = stat.getCzxid() + 1;
+                break;
+            case CTIME:
+            case MTIME:
+                lowest = stat.getCtime();
+                break;
+            default:
+                continue;
+            }
+            switch (condition.operator) {
+            case LT:
+                if (lowest >= condition.value) {
+                    return false;
+                }
+                break;
+            case LE:
+            case EQ:
+                if (lowest > condition.value) {
+                    return false;
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private static Operator parseOperator(String operator) {
+        switch (operator) {
+        case "=":
+        case "==":
+            return Operator.EQ;
+        case "!=":
+            return Operator.NE;
+        case "<":
+            return Operator.LT;
+        case "<=":
+            return Operator.LE;
+        case ">":
+            return Operator.GT;
+        default:
+            return Operator.GE;
+        }
+    }
+
+    private static long parseNumber(String value) {
+        Matcher matcher = NUMBER.matcher(value);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a number: " + value);
+        }
+        String number = matcher.group(1);
+        long result = number.regionMatches(true, 0, "0x", 0, 2)
+                ? Long.parseUnsignedLong(number.substring(2), 16)
+                : Long.parseLong(number);
+        String unit = matcher.group(2) != null ? matcher.group(2).toLowerCase(Locale.ROOT) : "b";
+        switch (unit.charAt(0)) {
+        case 'k':
+            return result * 1024;
+        case 'm':
+            return result * 1024 * 1024;
+        case 'g':
+            return result * 1024 * 1024 * 1024;
+        default:
+            return result;
+        }
+    }
+
+    private static long parseDuration(String value) {
+        Matcher matcher = DURATION.matcher(value);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a duration: " + value);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        String unit = matcher.group(2).toLowerCase(Locale.ROOT);
+        if (unit.equals("ms")) {
+            return amount;
+        }
+        switch (unit.charAt(0)) {
+        case 's':
+            return TimeUnit.SECONDS.toMillis(amount);
+        case 'm':
+            return TimeUnit.MINUTES.toMillis(amount);
+        case 'h':
+            return TimeUnit.HOURS.toMillis(amount);
+        case 'd':
+            return TimeUnit.DAYS.toMillis(amount);
+        default:
+            return TimeUnit.DAYS.toMillis(amount * 7);
+        }
+    }
+
+    private static long parseTime(String value) {
+        if (value.matches("[0-9]+")) {
+            return Long.parseLong(value);
+        }
+        for (DateTimeFormatter format : DATE_TIMES) {
+            try {
+                return LocalDateTime.parse(value, format).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        try {
+            return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Not a date (yyyy-MM-dd [HH:mm[:ss]]): " + value);
+        }
+    }
+
+    private static class Condition {
+        private final StatField field;
+        private final Operator operator;
+        private final long value;
+
+        private Condition(StatField field, Operator operator, long value) {
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        private boolean matches(long actual) {
+            switch (operator) {
+            case EQ:
+                return actual == value;
+            case NE:
+                return actual != value;
+            case LT:
+                return actual < value;
+            case LE:
+                return actual <= value;
+            case GT:
+                return actual > value;
+            default:
+                return actual >= value;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.function.Consumer;
+
+/**
+ * Finds the nodes in a subtree whose {@link org.apache.zookeeper.data.Stat}
+ * matches a {@link NodeMetaQuery}. The subtree is walked by a
+ * {@link NodeCrawler}; only getChildren requests are needed, since they return
+ * the Stat of the node as well. Subtrees the query rules out with
+ * {@link NodeMetaQuery#mayMatchBelow(org.apache.zookeeper.data.Stat)} are not
+ * read at all.
+ */
+public class NodeMetaSearch {
+
+    private final NodeCrawler crawler;
+    private final NodeMetaQuery query;
+
+    /**
+     * @param crawler
+     *            - the {@link NodeCrawler} to walk the subtree with
+     * @param query
+     *            - the query the nodes have to match
+     */
+    public NodeMetaSearch(NodeCrawler crawler, NodeMetaQuery query) {
+        this.crawler = crawler;
+        this.query = query;
+        crawler.setDescendFilter((node) -> query.mayMatchBelow(node.getStat()));
+    }
+
+    /**
+     * @param rootPath
+     *            - the path to the root of the subtree to search
+     * @param matches
+     *            - called on the calling thread for every matching node
+     * @return the number of matching nodes
+     * @throws InterruptedException
+     *             - if the calling thread is interrupted, which also cancels
+     *             the search
+     */
+    public long search(String rootPath, final Consumer<CrawledNode> matches) throws InterruptedException {
+        final long[] count = new long[1];
+        crawler.crawl(rootPath, (node) -> {
+            if (query.matches(node.getStat())) {
+                count[0]++;
+                matches.accept(node);
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Stops the search. May be called from any thread.
+     */
+    public void cancel() {
+        crawler.cancel();
+    }
+
+    /**
+     * @return true if the search was cancelled
+     */
+    public boolean isCancelled() {
+        return crawler.isCancelled();
+    }
+
+    /**
+     * @return the number of nodes searched so far. May be called from any
+     *         thread
+     */
+    public long getSearchedCount() {
+        return crawler.getVisitedCount();
+    }
+
+    /**
+     * @return the number of subtrees which were skipped because none of their
+     *         nodes could match
+     */
+    public long getPrunedCount() {
+        return crawler.getPrunedCount();
+    }
+
+    /**
+     * @return the number of nodes which could not be read
+     */
+    public long getErrorCount() {
+        return crawler.getErrorCount();
+    }
+
+}
@@ -0,0 +1,585 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.EventType;
+import org.apache.zookeeper.Watcher.Event.KeeperState;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An in memory index of the paths of all the nodes, for finding nodes by name
+ * without asking zookeeper.
+ * <p>
+ * The paths are kept in a {@link PathTrie}, and every name is also entered in
+ * a trigram index: for each three consecutive characters of the lower case
+ * name, the ids of the nodes whose names contain them. A prefix, substring or
+ * glob query only checks the nodes listed for the rarest trigram of its
+ * longest literal part. Queries with fewer than three literal characters and
+ * regular expressions check every node.
+ * <p>
+ * A query containing a '/' is matched against the full path of the nodes,
+ * otherwise against their names. Prefix, substring and glob queries ignore
+ * case. In a glob '*' and '?' do not match a '/', '**' matches anything.
+ * <p>
+ * The index is filled by a {@link NodeCrawler} on a background thread and kept
+ * current with the created and deleted events of the persistent recursive
+ * watch on the node tree. Queries can run while it is filling and see the
+ * nodes crawled so far. When the connection is lost events may have been
+ * missed, so the index marks itself stale and should be built again. If the
+ * server does not support persistent watches the index only shows the nodes
+ * as they were crawled, and becomes stale {@link #UNWATCHED_MAX_AGE} ms after
+ * the crawl. This class is thread safe.
+ */
+@Slf4j
+public class NodeNameIndex implements Watcher {
+
+    public static enum Mode {
+        PREFIX, SUBSTRING, GLOB, REGEX
+    }
+
+    /**
+     * The time in ms after its crawl from which an index which is not kept
+     * current by a watch is stale
+     */
+    public static final long UNWATCHED_MAX_AGE = 60000;
+
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+    private static final Posting EMPTY = new Posting();
+
+    private final NodeCrawler crawler;
+    private final boolean watched;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PathTrie trie = new PathTrie();
+    private final Map<Long, Posting> postings = new HashMap<Long, Posting>();
+    private final Queue<WatchedEvent> events = new ConcurrentLinkedQueue<WatchedEvent>();
+    /**
+     * The events for the children of nodes which are not crawled yet, by the
+     * path of the parent
+     */
+    private final Map<String, List<WatchedEvent>> pending = new HashMap<String, List<WatchedEvent>>();
+    /**
+     * The number of nodes removed since the trigram index was built, whose ids
+     * are still listed in it
+     */
+    private int garbage = 0;
+    private volatile boolean ready = false;
+    private volatile boolean stale = false;
+    private volatile long crawledTime = 0;
+
+    /**
+     * @param crawler
+     *            - the {@link NodeCrawler} to fill the index with
+     * @param watched
+     *            - true if changes to the whole node tree are reported to
+     *            {@link #process(WatchedEvent)} by a persistent recursive
+     *            watch
+     */
+    public NodeNameIndex(NodeCrawler crawler, boolean watched) {
+        this.crawler = crawler;
+        this.watched = watched;
+    }
+
+    /**
+     * Starts filling the index on a background thread
+     */
+    public void build() {
+        crawledTime = System.currentTimeMillis();
+        Thread thread = new Thread(() -> {
+            try {
+                long count = crawler.crawl("/", this::add);
+                lock.writeLock().lock();
+                try {
+                    applyEvents();
+                    // every node is loaded now, events still kept are of
+                    // nodes which were deleted or could not be read
+                    pending.clear();
+                    ready = !crawler.isCancelled();
+                }
+                finally {
+                    lock.writeLock().unlock();
+                }
+                log.debug("Indexed the names of {} nodes", count);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "node-name-index");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stops filling the index and marks it stale
+     */
+    public void close() {
+        stale = true;
+        crawler.cancel();
+    }
+
+    /**
+     * @return true once every node has been crawled
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return true if the index may have missed changes and should be built
+     *         again
+     */
+    public boolean isStale() {
+        return stale || (!watched && ready && System.currentTimeMillis() - crawledTime > UNWATCHED_MAX_AGE);
+    }
+
+    /**
+     * @return true if the index is kept current by a watch, false if it only
+     *         shows the nodes as they were crawled
+     */
+    public boolean isWatched() {
+        return watched;
+    }
+
+    /**
+     * @return the time in ms since the epoch at which the crawl started
+     */
+    public long getCrawledTime() {
+        return crawledTime;
+    }
+
+    /**
+     * @return the number of indexed nodes
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return trie.size();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queues created and deleted events. They are applied as soon as the index
+     * is not in use, so the zookeeper event thread is never held up by a query.
+     */
+    @Override
+    public void process(WatchedEvent event) {
+        if (event.getType() == EventType.None) {
+            if (event.getState() != KeeperState.SyncConnected) {
+                stale = true;
+            }
+            return;
+        }
+        if (event.getPath() == null
+                || (event.getType() != EventType.NodeCreated && event.getType() != EventType.NodeDeleted)) {
+            return;
+        }
+        events.add(event);
+        if (lock.writeLock().tryLock()) {
+            try {
+                applyEvents();
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Finds the indexed nodes matching a query. Matches are handed to the
+     * consumer as they are found, in no particular order.
+     *
+     * @param query
+     *            - the query
+     * @param mode
+     *            - how the query is matched
+     * @param maxResults
+     *            - the maximum number of matches to hand over
+     * @param results
+     *            - called with the path of every matching node
+     * @param cancelled
+     *            - polled during the search, which stops once it returns true
+     * @return the number of matches handed over
+     * @throws java.util.regex.PatternSyntaxException
+     *             - if the query is not a valid regular expression or glob
+     */
+    public long search(String query, Mode mode, long maxResults, Consumer<String> results, BooleanSupplier cancelled) {
+        boolean matchPath = query.indexOf('/') != -1;
+        Predicate<String> matcher = matcher(query, mode, matchPath);
+        String literal = longestName(literal(query, mode)).toLowerCase(Locale.ROOT);
+        lock.writeLock().lock();
+        applyEvents();
+        // downgrade, so other queries can run while this one does
+        lock.readLock().lock();
+        lock.writeLock().unlock();
+        try {
+            Posting candidates = literal.length() >= 3 ? rarest(literal) : null;
+            int total = candidates != null ? candidates.size : trie.getIdBound();
+            BitSet visited = new BitSet();
+            Deque<Integer> subtree = new ArrayDeque<Integer>();
+            long count = 0;
+            for (int i = 0; i < total && count < maxResults; i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    break;
+                }
+                int id = candidates != null ? candidates.ids[i] : i;
+                if (id == PathTrie.ROOT || !trie.contains(id) || visited.get(id)) {
+                    continue;
+                }
+                if (!matchPath) {
+                    visited.set(id);
+                    if (matcher.test(trie.getName(id))) {
+                        results.accept(trie.getPath(id));
+                        count++;
+                    }
+                    continue;
+                }
+                if (candidates != null && !containsIgnoreCase(trie.getName(id), literal)) {
+                    // an id of a removed node, reused for another name
+                    continue;
+                }
+                // a path matching the literal may end with any node below the
+                // one whose name contains it
+                subtree.push(id);
+                while (!subtree.isEmpty() && count < maxResults) {
+                    int node = subtree.pop();
+                    if (visited.get(node)) {
+                        continue;
+                    }
+                    visited.set(node);
+                    String nodePath = trie.getPath(node);
+                    if (matcher.test(nodePath)) {
+                        results.accept(nodePath);
+                        count++;
+                    }
+                    if (candidates != null) {
+                        for (int c = trie.getChildCount(node) - 1; c >= 0; c--) {
+                            subtree.push(trie.getChild(node, c));
+                        }
+                    }
+                }
+                subtree.clear();
+            }
+            return count;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(CrawledNode node) {
+        lock.writeLock().lock();
+        try {
+            applyEvents();
+            int id = trie.find(node.getNodePath());
+            if (id == -1 || trie.isLoaded(id)) {
+                // removed while crawling, or deleted and created again and
+                // kept current by the events since
+                return;
+            }
+            int before = trie.size();
+            trie.setChildren(id, node.getChildren(), null);
+            garbage += before + node.getChildren().size() - trie.size();
+            for (int i = 0; i < trie.getChildCount(id); i++) {
+                index(trie.getChild(id, i));
+            }
+            replay(node.getNodePath());
+            compactIfNeeded();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the queued events. Must be called with the write lock held.
+     */
+    private void applyEvents() {
+        WatchedEvent event;
+        while ((event = events.poll()) != null) {
+            apply(event);
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * Applies an event. An event for a node whose parent is not crawled yet is
+     * kept until the children of the parent are set, since the crawl may have
+     * read them before the event. Each event sets whether one name exists, so
+     * replaying all of them in order over the children read by the crawl gives
+     * the current children.
+     */
+    private void apply(WatchedEvent event) {
+        String nodePath = event.getPath();
+        int slash = nodePath.lastIndexOf('/');
+        if (slash < 0 || nodePath.length() == 1) {
+            return;
+        }
+        String parentPath = slash == 0 ? "/" : nodePath.substring(0, slash);
+        int parent = trie.find(parentPath);
+        if (parent == -1 || !trie.isLoaded(parent)) {
+            if (!ready) {
+                pending.computeIfAbsent(parentPath, (k) -> new ArrayList<WatchedEvent>()).add(event);
+            }
+            return;
+        }
+        String name = nodePath.substring(slash + 1);
+        int index = trie.indexOf(parent, name);
+        if (event.getType() == EventType.NodeCreated) {
+            if (index < 0) {
+                int[] inserted = trie.insertChildren(parent, Collections.singletonList(name), null);
+                int node = trie.getChild(parent, inserted[0]);
+                // a new node has no children, those created later have
+                // their own events
+                trie.setChildren(node, Collections.<String>emptyList(), null);
+                index(node);
+                replay(nodePath);
+            }
+        }
+        else {
+            if (index >= 0) {
+                int before = trie.size();
+                trie.removeChildren(parent, new int[] { index });
+                garbage += before - trie.size();
+            }
+            pending.remove(nodePath);
+        }
+    }
+
+    /**
+     * Applies the events kept for the children of a node, once they are set
+     */
+    private void replay(String nodePath) {
+        List<WatchedEvent> kept = pending.remove(nodePath);
+        if (kept != null) {
+            for (WatchedEvent event : kept) {
+                apply(event);
+            }
+        }
+    }
+
+    private void index(int node) {
+        for (long trigram : trigrams(trie.getName(node).toLowerCase(Locale.ROOT))) {
+            postings.computeIfAbsent(trigram, (k) -> new Posting()).add(node);
+        }
+    }
+
+    /**
+     * Builds the trigram index again once most of the ids in it are of
+     * removed nodes
+     */
+    private void compactIfNeeded() {
+        if (garbage > 1024 && garbage > trie.size()) {
+            postings.clear();
+            for (int node = 1; node < trie.getIdBound(); node++) {
+                if (trie.contains(node)) {
+                    index(node);
+                }
+            }
+            garbage = 0;
+        }
+    }
+
+    private Posting rarest(String literal) {
+        Posting rarest = null;
+        for (long trigram : trigrams(literal)) {
+            Posting posting = postings.get(trigram);
+            if (posting == null) {
+                return EMPTY;
+            }
+            if (rarest == null || posting.size < rarest.size) {
+                rarest = posting;
+            }
+        }
+        return rarest;
+    }
+
+    /**
+     * @return the distinct trigrams of a name, each packed into a long
+     */
+    private static long[] trigrams(String name) {
+        if (name.length() < 3) {
+            return new long[0];
+        }
+        long[] trigrams = new long[name.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = ((long) name.charAt(i) << 32) | ((long) name.charAt(i + 1) << 16) | name.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    /**
+     * @return the longest part of the query every match contains literally
+     */
+    private static String literal(String query, Mode mode) {
+        switch (mode) {
+        case PREFIX:
+        case SUBSTRING:
+            return query;
+        case GLOB:
+            String longest = "";
+            StringBuilder run = new StringBuilder();
+            boolean inClass = false;
+            for (int i = 0; i <= query.length(); i++) {
+                char c = i < query.length() ? query.charAt(i) : '*';
+                if (inClass) {
+                    inClass = c != ']';
+                }
+                else if (c == '*' || c == '?' || c == '[') {
+                    inClass = c == '[';
+                    if (run.length() > longest.length()) {
+                        longest = run.toString();
+                    }
+                    run.setLength(0);
+                }
+                else {
+                    run.append(c);
+                }
+            }
+            return longest;
+        default:
+            return "";
+        }
+    }
+
+    /**
+     * @return the longest part of a literal between two '/'
+     */
+    private static String longestName(String literal) {
+        String longest = "";
+        for (String name : literal.split("/")) {
+            if (name.length() > longest.length()) {
+                longest = name;
+            }
+        }
+        return longest;
+    }
+
+    private static Predicate<String> matcher(final String query, Mode mode, boolean matchPath) {
+        switch (mode) {
+        case PREFIX:
+            return (s) -> s.regionMatches(true, 0, query, 0, query.length());
+        case SUBSTRING:
+            return (s) -> containsIgnoreCase(s, query);
+        case GLOB:
+            final Pattern glob = Pattern.compile(globToRegex(query, matchPath),
+                    Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+            return (s) -> glob.matcher(s).matches();
+        default:
+            final Pattern regex = Pattern.compile(query);
+            return (s) -> regex.matcher(s).find();
+        }
+    }
+
+    private static String globToRegex(String glob, boolean matchPath) {
+        String any = matchPath ? "[^/]" : ".";
+        StringBuilder regex = new StringBuilder();
+        boolean inClass = false;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                    regex.append(c);
+                }
+                else if (c == '\\' || c == '[' || c == '&') {
+                    regex.append('\\').append(c);
+                }
+                else {
+                    regex.append(i > 0 && glob.charAt(i - 1) == '[' && c == '!' ? '^' : c);
+                }
+            }
+            else if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                regex.append(".*");
+                i++;
+            }
+            else if (c == '*') {
+                regex.append(any).append('*');
+            }
+            else if (c == '?') {
+                regex.append(any);
+            }
+            else if (c == '[') {
+                inClass = true;
+                regex.append(c);
+            }
+            else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+    private static boolean containsIgnoreCase(String s, String part) {
+        for (int i = 0; i + part.length() <= s.length(); i++) {
+            if (s.regionMatches(true, i, part, 0, part.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The ids of the nodes whose names contain a trigram. Ids of removed nodes
+     * are only dropped when the index is compacted, so every id has to be
+     * checked against the trie.
+     */
+    private static class Posting {
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+}
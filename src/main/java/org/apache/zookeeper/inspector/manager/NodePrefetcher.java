@@ -0,0 +1,175 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.retry.ZooKeeperRetry;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Speculatively reads the levels below a node which has just been shown, so
+ * that expanding one of its children is served by the {@link NodesCache} and
+ * the {@link StatCache} without waiting for zookeeper. For every child down to
+ * the prefetch depth the children are read into the {@link NodesCache} and the
+ * Stats of the grandchildren into the {@link StatCache}.
+ * <p>
+ * Prefetches run one at a time on a single low priority thread with only a few
+ * requests in flight, so they do not hold up the requests of the user. Each
+ * prefetch stops when its budget of requests or nodes is spent, or when a newer
+ * prefetch is requested.
+ */
+@Slf4j
+public class NodePrefetcher {
+
+    public static final int WINDOW = 8;
+
+    private final ZooKeeperRetry zooKeeper;
+    private final NodesCache nodesCache;
+    private final StatCache statCache;
+    private final int maxDepth;
+    private final int maxRequests;
+    private final int maxNodes;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor((runnable) -> {
+        Thread thread = new Thread(runnable, "node-prefetcher");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * @param zooKeeper
+     *            - the connected {@link ZooKeeperRetry}
+     * @param nodesCache
+     *            - the cache the children are read into
+     * @param statCache
+     *            - the cache the Stats are read into
+     * @param connectionProps
+     *            - the properties of the connection, which set the prefetch
+     *            depth and budget
+     */
+    public NodePrefetcher(ZooKeeperRetry zooKeeper, NodesCache nodesCache, StatCache statCache, ZookeeperProperties connectionProps) {
+        this.zooKeeper = zooKeeper;
+        this.nodesCache = nodesCache;
+        this.statCache = statCache;
+        this.maxDepth = connectionProps.getPrefetchDepth();
+        this.maxRequests = connectionProps.getPrefetchMaxRequests();
+        this.maxNodes = connectionProps.getPrefetchMaxNodes();
+    }
+
+    /**
+     * Prefetches the levels below the children of a node, replacing any
+     * prefetch which has not finished yet
+     *
+     * @param nodePath
+     *            - the path to the node whose children are shown
+     */
+    public void prefetch(final String nodePath) {
+        if (maxDepth < 1 || maxRequests < 1 || maxNodes < 1) {
+            return;
+        }
+        final long current = generation.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                run(nodePath, current);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    /**
+     * Stops the running prefetch and the prefetch thread
+     */
+    public void close() {
+        generation.incrementAndGet();
+        executor.shutdownNow();
+    }
+
+    private void run(String nodePath, long current) throws InterruptedException {
+        Deque<Request> pending = new ArrayDeque<Request>();
+        BlockingQueue<Request> completed = new LinkedBlockingQueue<Request>();
+        pending.add(new Request(nodePath, 0, true));
+        int inFlight = 0;
+        int requests = 0;
+        int nodes = 0;
+        while (generation.get() == current) {
+            while (inFlight < WINDOW && !pending.isEmpty() && requests < maxRequests) {
+                Request request = pending.pollFirst();
+                CompletableFuture<?> future = request.children
+                        ? nodesCache.getAsync(request.nodePath).thenAccept((children) -> request.result = children.getKey())
+                        : zooKeeper.existsAsync(request.nodePath, null);
+                if (!future.isDone()) {
+                    requests++;
+                }
+                inFlight++;
+                future.whenComplete((ignored, e) -> completed.add(request));
+            }
+            if (inFlight == 0) {
+                break;
+            }
+            Request request = completed.take();
+            inFlight--;
+            if (request.result == null) {
+                continue;
+            }
+            for (String child : request.result) {
+                if (nodes >= maxNodes) {
+                    break;
+                }
+                nodes++;
+                String childPath = NodeCrawler.childPath(request.nodePath, child);
+                Stat stat = statCache.get(childPath);
+                if (request.depth > 0 && stat == null) {
+                    pending.addLast(new Request(childPath, request.depth, false));
+                }
+                if (request.depth < maxDepth && (stat == null || (stat.getNumChildren() > 0 && stat.getEphemeralOwner() == 0))) {
+                    pending.addLast(new Request(childPath, request.depth + 1, true));
+                }
+            }
+        }
+        log.debug("Prefetched below {}: {} requests, {} nodes", nodePath, requests, nodes);
+    }
+
+    private static class Request {
+        private final String nodePath;
+        private final int depth;
+        private final boolean children;
+        private volatile List<String> result;
+
+        private Request(String nodePath, int depth, boolean children) {
+            this.nodePath = nodePath;
+            this.depth = depth;
+            this.children = children;
+        }
+    }
+
+}
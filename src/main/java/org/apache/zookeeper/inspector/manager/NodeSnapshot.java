@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.inspector.encryption.DataCodec;
+import org.apache.zookeeper.inspector.encryption.DecodedData;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The data, meta data and ACLs of a single node, read together so that every
+ * node viewer shows the same version of the node
+ */
+@Slf4j
+@Getter
+@AllArgsConstructor
+public class NodeSnapshot {
+
+    /**
+     * the path to the node
+     */
+    private final String nodePath;
+
+    /**
+     * the data of the node as stored in zookeeper
+     */
+    private final byte[] rawData;
+
+    /**
+     * the data of the node, decoded by the {@link DataCodec} of the connection
+     * when it is first asked for
+     */
+    private final DecodedData decodedData;
+
+    /**
+     * the {@link Stat} of the node
+     */
+    private final Stat stat;
+
+    /**
+     * the metaData of the node, as returned by
+     * {@link ZooInspectorReadOnlyManager#getNodeMeta(String)}
+     */
+    private final Map<String, String> nodeMeta;
+
+    /**
+     * the ACLs of the node, as returned by
+     * {@link ZooInspectorReadOnlyManager#getACLs(String)}
+     */
+    private final List<Map<String, String>> acls;
+
+    /**
+     * @return the decoded data of the node, or <code>null</code> if it has
+     *         none or it cannot be decoded
+     */
+    public byte[] getDecryptedData() {
+        try {
+            return decodedData.getBytes();
+        }
+        catch (Exception e) {
+            log.error("Error occurred decoding the data of node: {}", nodePath, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the decoded data of the node as text, or <code>null</code> if it
+     *         has none or it cannot be decoded
+     */
+    public String getData() {
+        byte[] data = getDecryptedData();
+        return data != null ? new String(data, StandardCharsets.UTF_8) : null;
+    }
+
+}
@@ -17,71 +17,258 @@
  */
 package org.apache.zookeeper.inspector.manager;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 
 import lombok.extern.slf4j.Slf4j;
 
-import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.EventType;
+import org.apache.zookeeper.Watcher.Event.KeeperState;
 import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.retry.ZooKeeperRetry;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Caches the sorted children of nodes together with the {@link Stat} of the
+ * node they were read with. Entries are kept until zookeeper reports a change
+ * to the node: either through the persistent recursive watch on the node tree
+ * (see {@link #setWatched(boolean)}) or, when the server does not support
+ * persistent watches, through a child watch set by every load. Only the
+ * changed path is dropped and read again on the next access.
+ * <p>
+ * Concurrent requests for a path which is not cached share a single load.
+ * <p>
+ * The size of the cache and the expiry of entries are set by the cache
+ * properties of the {@link ZookeeperProperties} of the connection. Entries
+ * older than the refresh time are still served while they are reloaded in the
+ * background.
+ */
 @Slf4j
-public class NodesCache {
+public class NodesCache implements Watcher {
 
-    public static final int CACHE_SIZE = 40000;
+    private final Cache<String, Entry> nodes;
 
-    public static final int EXPIRATION_TIME = 100;
+    private final ConcurrentHashMap<String, Load> loading = new ConcurrentHashMap<String, Load>();
 
-    private final LoadingCache<String, List<String>> nodes;
+    private final ZooKeeperRetry zooKeeper;
 
-    private ZooKeeper zooKeeper;
+    private final long refreshNanos;
 
-    public NodesCache(ZooKeeper zooKeeper) {
+    private volatile boolean watched = false;
+
+    /**
+     * @param zooKeeper
+     *            - the connected {@link ZooKeeperRetry}
+     * @param connectionProps
+     *            - the properties of the connection, which set the cache
+     *            policy
+     */
+    public NodesCache(ZooKeeperRetry zooKeeper, ZookeeperProperties connectionProps) {
         this.zooKeeper = zooKeeper;
-        this.nodes = CacheBuilder.newBuilder()
-                .maximumSize(CACHE_SIZE)
-                .expireAfterWrite(EXPIRATION_TIME, TimeUnit.MILLISECONDS)
-                .build(
-                        new CacheLoader<String, List<String>>() {
-                            @Override
-                            public List<String> load(String nodePath) throws Exception {
-                                return getChildren(nodePath);
-                            }
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        if (connectionProps.getCacheMaxWeight() > 0) {
+            builder.maximumWeight(connectionProps.getCacheMaxWeight())
+                    .weigher((String nodePath, Entry entry) -> entry.children.getKey().size() + 1);
+        } 
+        else if (connectionProps.getCacheMaxEntries() > 0) {
+            builder.maximumSize(connectionProps.getCacheMaxEntries());
+        }
+        if (connectionProps.getCacheTtlMs() > 0) {
+            builder.expireAfterWrite(connectionProps.getCacheTtlMs(), TimeUnit.MILLISECONDS);
+        }
+        this.nodes = builder.build();
+        this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(connectionProps.getCacheRefreshMs(), 0));
+    }
+
+    /**
+     * @param watched
+     *            - true if changes to the whole node tree are reported to
+     *            {@link #process(WatchedEvent)} by a persistent recursive
+     *            watch, false if every load should set a child watch
+     */
+    public void setWatched(boolean watched) {
+        this.watched = watched;
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a future of the sorted children of the node and the
+     *         {@link Stat} they were read with. Completes with a
+     *         {@link KeeperException.NoNodeException} if the node does not
+     *         exist
+     */
+    public CompletableFuture<Pair<List<String>, Stat>> getAsync(String nodePath) {
+        Entry entry = nodes.getIfPresent(nodePath);
+        if (entry == null) {
+            return load(nodePath);
+        }
+        if (refreshNanos > 0 && System.nanoTime() - entry.loadTime > refreshNanos) {
+            load(nodePath);
+        }
+        return CompletableFuture.completedFuture(entry.children);
+    }
+
+    private CompletableFuture<Pair<List<String>, Stat>> load(String nodePath) {
+        long loadTime = System.nanoTime();
+        Load load = new Load();
+        Load current = loading.putIfAbsent(nodePath, load);
+        if (current != null) {
+            return current.future;
+        }
+        zooKeeper.getChildrenAsync(nodePath, watched ? null : this)
+                .whenComplete((read, error) -> {
+                    if (error != null) {
+                        loading.remove(nodePath, load);
+                        load.future.completeExceptionally(error);
+                        return;
+                    }
+                    List<String> sorted = new ArrayList<String>(read.getKey());
+                    Collections.sort(sorted);
+                    Pair<List<String>, Stat> loaded = new Pair<List<String>, Stat>(
+                            Collections.unmodifiableList(sorted), read.getValue());
+                    synchronized (load) {
+                        if (!load.stale) {
+                            nodes.put(nodePath, new Entry(loaded, loadTime));
                         }
-                );
+                    }
+                    loading.remove(nodePath, load);
+                    load.future.complete(loaded);
+                });
+        return load.future;
     }
 
-    public List<String> getChildren(String nodePath) {
+    private Pair<List<String>, Stat> get(String nodePath) {
         try {
-            Stat s = zooKeeper.exists(nodePath, false);
-            if (s != null) {
-                List<String> children = this.zooKeeper.getChildren(nodePath, false);
-                Collections.sort(children);
-                return children;
-            }
+            return getAsync(nodePath).get();
         } 
-        catch (Exception e) {
-            log.error("Error occurred retrieving child of node: {}", nodePath, e);
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted retrieving children of node: {}", nodePath, e);
+        } 
+        catch (ExecutionException e) {
+            Throwable cause = ZooKeeperRetry.unwrap(e.getCause());
+            if (!(cause instanceof KeeperException.NoNodeException)) {
+                log.error("Error occurred retrieving children of node: {}", nodePath, cause);
+            }
         }
         return null;
     }
 
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return the sorted children of the node, or <code>null</code> if the
+     *         node does not exist
+     */
+    public List<String> getChildren(String nodePath) {
+        Pair<List<String>, Stat> children = get(nodePath);
+        return children != null ? children.getKey() : null;
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return the {@link Stat} the children of the node were read with, or
+     *         <code>null</code> if the node does not exist
+     */
+    public Stat getStat(String nodePath) {
+        Pair<List<String>, Stat> children = get(nodePath);
+        return children != null ? children.getValue() : null;
+    }
+
     public String getNodeChild(String nodePath, int index) {
-        List<String> childNodes = null;
-        try {
-            childNodes = nodes.get(nodePath);
+        List<String> childNodes = getChildren(nodePath);
+        if (childNodes != null && index < childNodes.size()) {
             return childNodes.get(index);
-        } 
-        catch (ExecutionException e) {
-            log.error("Error occurred retrieving child {} of node: {}", index, nodePath, e);
         }
         return null;
     }
 
+    /**
+     * Drops the cached children of the node. A load of the node which is in
+     * progress is still returned to its callers but not cached, as it may have
+     * been read before the change.
+     * 
+     * @param nodePath
+     *            - the path to the node which has changed
+     */
+    public void invalidate(String nodePath) {
+        Load load = loading.get(nodePath);
+        if (load != null) {
+            synchronized (load) {
+                load.stale = true;
+            }
+        }
+        nodes.invalidate(nodePath);
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the node which has been created or deleted
+     */
+    public void invalidateWithParent(String nodePath) {
+        invalidate(nodePath);
+        int index = nodePath.lastIndexOf('/');
+        if (index > 0) {
+            invalidate(nodePath.substring(0, index));
+        } 
+        else if (index == 0 && nodePath.length() > 1) {
+            invalidate("/");
+        }
+    }
+
+    public void invalidateAll() {
+        for (Load load : loading.values()) {
+            synchronized (load) {
+                load.stale = true;
+            }
+        }
+        nodes.invalidateAll();
+    }
+
+    @Override
+    public void process(WatchedEvent event) {
+        String nodePath = event.getPath();
+        if (event.getType() == EventType.None) {
+            if (event.getState() != KeeperState.SyncConnected) {
+                // changes are not reported while disconnected
+                invalidateAll();
+            }
+        } 
+        else if (event.getType() == EventType.NodeCreated || event.getType() == EventType.NodeDeleted) {
+            invalidateWithParent(nodePath);
+        } 
+        else if (nodePath != null) {
+            // NodeDataChanged changes the cached Stat, NodeChildrenChanged
+            // comes from the child watch of a load
+            invalidate(nodePath);
+        }
+    }
+
+    private static class Entry {
+        private final Pair<List<String>, Stat> children;
+        private final long loadTime;
+
+        private Entry(Pair<List<String>, Stat> children, long loadTime) {
+            this.children = children;
+            this.loadTime = loadTime;
+        }
+    }
+
+    private static class Load {
+        private final CompletableFuture<Pair<List<String>, Stat>> future = new CompletableFuture<Pair<List<String>, Stat>>();
+        private boolean stale = false;
+    }
+
 }
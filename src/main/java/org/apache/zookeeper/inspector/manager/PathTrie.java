@@ -0,0 +1,510 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.zookeeper.data.Stat;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * A compact mirror of the loaded part of the node tree. Nodes are identified by
+ * an int id and stored in parallel primitive arrays: the interned name, the id
+ * of the parent, the index in the parent and the range of the sorted children
+ * in a shared pool of child ids. The ids of deleted nodes are reused. For a
+ * loaded node the cversion of the node at the time its children were read is
+ * kept, so a refresh can tell whether the children have changed since.
+ * <p>
+ * A node costs a few tens of bytes, so the tree of a large cluster can be kept
+ * in memory. Names are interned weakly, so the names of deleted nodes, such as
+ * sequential lock and queue nodes, do not stay on the heap. This class is not
+ * thread safe.
+ */
+public class PathTrie {
+
+    public static final int ROOT = 0;
+
+    private static final int NOT_LOADED = -1;
+    private static final int UNKNOWN = -1;
+    private static final byte EPHEMERAL = 1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Interner<String> interner = Interners.newWeakInterner();
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] indices = new int[INITIAL_CAPACITY];
+    private int[] childStarts = new int[INITIAL_CAPACITY];
+    private int[] childCounts = new int[INITIAL_CAPACITY];
+    private int[] numChildren = new int[INITIAL_CAPACITY];
+    private int[] childVersions = new int[INITIAL_CAPACITY];
+    private byte[] flags = new byte[INITIAL_CAPACITY];
+
+    private int[] childPool = new int[INITIAL_CAPACITY];
+    private int poolSize = 0;
+    private int poolGarbage = 0;
+
+    private int capacity = 0;
+    private int size = 0;
+    private int freeHead = -1;
+
+    public PathTrie() {
+        allocate("", -1, 0);
+    }
+
+    private int allocate(String name, int parent, int index) {
+        int node;
+        if (freeHead != -1) {
+            node = freeHead;
+            freeHead = parents[node];
+        }
+        else {
+            if (capacity == names.length) {
+                int newLength = names.length * 2;
+                names = Arrays.copyOf(names, newLength);
+                parents = Arrays.copyOf(parents, newLength);
+                indices = Arrays.copyOf(indices, newLength);
+                childStarts = Arrays.copyOf(childStarts, newLength);
+                childCounts = Arrays.copyOf(childCounts, newLength);
+                numChildren = Arrays.copyOf(numChildren, newLength);
+                childVersions = Arrays.copyOf(childVersions, newLength);
+                flags = Arrays.copyOf(flags, newLength);
+            }
+            node = capacity++;
+        }
+        names[node] = interner.intern(name);
+        parents[node] = parent;
+        indices[node] = index;
+        childStarts[node] = NOT_LOADED;
+        childCounts[node] = 0;
+        numChildren[node] = UNKNOWN;
+        childVersions[node] = UNKNOWN;
+        flags[node] = 0;
+        size++;
+        return node;
+    }
+
+    private void free(int node) {
+        unload(node);
+        names[node] = null;
+        parents[node] = freeHead;
+        freeHead = node;
+        size--;
+    }
+
+    /**
+     * @return the number of nodes in the trie
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return an upper bound of the ids of the nodes in the trie, so all the
+     *         nodes can be visited by checking every id below it with
+     *         {@link #contains(int)}
+     */
+    public int getIdBound() {
+        return capacity;
+    }
+
+    /**
+     * @param node
+     *            - the id of a node
+     * @return true if the id is the id of a node in the trie
+     */
+    public boolean contains(int node) {
+        return node >= 0 && node < capacity && names[node] != null;
+    }
+
+    /**
+     * @param node
+     *            - the id of a node
+     * @return the name of the node, the empty string for the root
+     */
+    public String getName(int node) {
+        return names[node];
+    }
+
+    /**
+     * @param node
+     *            - the id of a node
+     * @return the id of the parent of the node, or -1 for the root
+     */
+    public int getParent(int node) {
+        return node == ROOT ? -1 : parents[node];
+    }
+
+    /**
+     * @param node
+     *            - the id of a node
+     * @return the index of the node among the children of its parent
+     */
+    public int getIndex(int node) {
+        return indices[node];
+    }
+
+    /**
+     * @param node
+     *            - the id of a node
+     * @return the path to the node
+     */
+    public String getPath(int node) {
+        if (node == ROOT) {
+            return "/";
+        }
+        StringBuilder sb = new StringBuilder();
+        appendPath(sb, node);
+        return sb.toString();
+    }
+
+    private void appendPath(StringBuilder sb, int node) {
+        if (node != ROOT) {
+            appendPath(sb, parents[node]);
+            sb.append('/').append(names[node]);
+        }
+    }
+
+    /**
+     * @param node
+     *            - the id of a node
+     * @return true if the children of the node have been set
+     */
+    public boolean isLoaded(int node) {
+        return childStarts[node] != NOT_LOADED;
+    }
+
+    /**
+     * @param node
+     *            - the id of a node
+     * @return the number of children set for the node
+     */
+    public int getChildCount(int node) {
+        return childCounts[node];
+    }
+
+    /**
+     * @param node
+     *            - the id of a node
+     * @param index
+     *            - the index of the child
+     * @return the id of the child
+     */
+    public int getChild(int node, int index) {
+        return childPool[childStarts[node] + index];
+    }
+
+    /**
+     * @param node
+     *            - the id of a node
+     * @param name
+     *            - the name of a child
+     * @return the index of the child with the name, or a negative value if it
+     *         has not been set
+     */
+    public int indexOf(int node, String name) {
+        int low = 0;
+        int high = childCounts[node] - 1;
+        int start = childStarts[node];
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = names[childPool[start + mid]].compareTo(name);
+            if (cmp < 0) {
+                low = mid + 1;
+            }
+            else if (cmp > 0) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to a node
+     * @return the id of the node, or -1 if it is not in the trie
+     */
+    public int find(String nodePath) {
+        int node = ROOT;
+        int from = 1;
+        while (from < nodePath.length()) {
+            int to = nodePath.indexOf('/', from);
+            if (to == -1) {
+                to = nodePath.length();
+            }
+            int index = indexOf(node, nodePath.substring(from, to));
+            if (index < 0) {
+                return -1;
+            }
+            node = getChild(node, index);
+            from = to + 1;
+        }
+        return node;
+    }
+
+    /**
+     * Sets the children of a node which has not been loaded
+     *
+     * @param node
+     *            - the id of the node
+     * @param children
+     *            - the sorted names of the children
+     * @param childStats
+     *            - the {@link Stat} of each child, or <code>null</code> where
+     *            it is not known
+     */
+    public void setChildren(int node, List<String> children, Stat[] childStats) {
+        unload(node);
+        int count = children.size();
+        int start = reserve(count);
+        for (int i = 0; i < count; i++) {
+            int child = allocate(children.get(i), node, i);
+            childPool[start + i] = child;
+            setStat(child, childStats != null ? childStats[i] : null);
+        }
+        childStarts[node] = start;
+        childCounts[node] = count;
+    }
+
+    /**
+     * Appends children to a loaded node
+     *
+     * @param node
+     *            - the id of the node
+     * @param children
+     *            - the sorted names of the children, which all sort after the
+     *            children already set
+     * @param childStats
+     *            - the {@link Stat} of each child, or <code>null</code> where
+     *            it is not known
+     */
+    public void addChildren(int node, List<String> children, Stat[] childStats) {
+        if (!isLoaded(node)) {
+            setChildren(node, children, childStats);
+            return;
+        }
+        int oldCount = childCounts[node];
+        int count = children.size();
+        int start = reserve(oldCount + count);
+        // the reserve may have compacted the pool
+        System.arraycopy(childPool, childStarts[node], childPool, start, oldCount);
+        for (int i = 0; i < count; i++) {
+            int child = allocate(children.get(i), node, oldCount + i);
+            childPool[start + oldCount + i] = child;
+            setStat(child, childStats != null ? childStats[i] : null);
+        }
+        childStarts[node] = start;
+        childCounts[node] = oldCount + count;
+        poolGarbage += oldCount;
+    }
+
+    /**
+     * Removes children of a loaded node together with their descendants
+     *
+     * @param node
+     *            - the id of the node
+     * @param removed
+     *            - the ascending indices of the children to remove
+     */
+    public void removeChildren(int node, int[] removed) {
+        if (removed.length == 0) {
+            return;
+        }
+        int oldStart = childStarts[node];
+        int oldCount = childCounts[node];
+        int count = oldCount - removed.length;
+        int start = reserve(count);
+        oldStart = childStarts[node];
+        int next = 0;
+        int r = 0;
+        for (int i = 0; i < oldCount; i++) {
+            int child = childPool[oldStart + i];
+            if (r < removed.length && removed[r] == i) {
+                r++;
+                free(child);
+            }
+            else {
+                indices[child] = next;
+                childPool[start + next++] = child;
+            }
+        }
+        childStarts[node] = start;
+        childCounts[node] = count;
+        poolGarbage += oldCount;
+    }
+
+    /**
+     * Inserts children into a loaded node in sorted order
+     *
+     * @param node
+     *            - the id of the node
+     * @param children
+     *            - the sorted names of the new children, none of which is a
+     *            child of the node yet
+     * @param childStats
+     *            - the {@link Stat} of each child, or <code>null</code> where
+     *            it is not known
+     * @return the indices of the new children
+     */
+    public int[] insertChildren(int node, List<String> children, Stat[] childStats) {
+        int[] inserted = new int[children.size()];
+        if (inserted.length == 0) {
+            return inserted;
+        }
+        int oldCount = childCounts[node];
+        int count = oldCount + inserted.length;
+        int start = reserve(count);
+        int oldStart = childStarts[node];
+        int next = 0;
+        int o = 0;
+        for (int n = 0; n < inserted.length; n++) {
+            String name = children.get(n);
+            while (o < oldCount && names[childPool[oldStart + o]].compareTo(name) < 0) {
+                int child = childPool[oldStart + o++];
+                indices[child] = next;
+                childPool[start + next++] = child;
+            }
+            int child = allocate(name, node, next);
+            setStat(child, childStats != null ? childStats[n] : null);
+            inserted[n] = next;
+            childPool[start + next++] = child;
+        }
+        while (o < oldCount) {
+            int child = childPool[oldStart + o++];
+            indices[child] = next;
+            childPool[start + next++] = child;
+        }
+        childStarts[node] = start;
+        childCounts[node] = count;
+        poolGarbage += oldCount;
+        return inserted;
+    }
+
+    private int reserve(int count) {
+        if (poolGarbage > poolSize / 2) {
+            compact();
+        }
+        if (poolSize + count > childPool.length) {
+            childPool = Arrays.copyOf(childPool, Math.max(childPool.length * 2, poolSize + count));
+        }
+        int start = poolSize;
+        poolSize += count;
+        return start;
+    }
+
+    private void compact() {
+        int[] pool = new int[Math.max(INITIAL_CAPACITY, poolSize - poolGarbage)];
+        int next = 0;
+        for (int node = 0; node < capacity; node++) {
+            if (names[node] != null && childStarts[node] != NOT_LOADED) {
+                System.arraycopy(childPool, childStarts[node], pool, next, childCounts[node]);
+                childStarts[node] = next;
+                next += childCounts[node];
+            }
+        }
+        childPool = pool;
+        poolSize = next;
+        poolGarbage = 0;
+    }
+
+    /**
+     * Removes the descendants of a node, so the node is no longer loaded
+     *
+     * @param node
+     *            - the id of the node
+     */
+    public void unload(int node) {
+        if (childStarts[node] == NOT_LOADED) {
+            return;
+        }
+        int start = childStarts[node];
+        int count = childCounts[node];
+        childStarts[node] = NOT_LOADED;
+        childCounts[node] = 0;
+        childVersions[node] = UNKNOWN;
+        for (int i = 0; i < count; i++) {
+            free(childPool[start + i]);
+        }
+        poolGarbage += count;
+    }
+
+    /**
+     * @param node
+     *            - the id of the node
+     * @param stat
+     *            - the {@link Stat} of the node, or <code>null</code> if it
+     *            is not known
+     */
+    public void setStat(int node, Stat stat) {
+        if (stat != null) {
+            numChildren[node] = stat.getNumChildren();
+            flags[node] = stat.getEphemeralOwner() != 0 ? EPHEMERAL : 0;
+        }
+        else {
+            numChildren[node] = UNKNOWN;
+            flags[node] = 0;
+        }
+    }
+
+    /**
+     * @param node
+     *            - the id of a loaded node
+     * @param cversion
+     *            - the cversion of the node when its children were read
+     */
+    public void setChildVersion(int node, int cversion) {
+        childVersions[node] = cversion;
+    }
+
+    /**
+     * @param node
+     *            - the id of the node
+     * @return the cversion of the node when its children were read, or -1 if
+     *         it is not known
+     */
+    public int getChildVersion(int node) {
+        return childVersions[node];
+    }
+
+    /**
+     * @param node
+     *            - the id of the node
+     * @return the number of children from the last {@link Stat} of the node,
+     *         or -1 if it is not known
+     */
+    public int getNumChildren(int node) {
+        return numChildren[node];
+    }
+
+    /**
+     * @param node
+     *            - the id of the node
+     * @return true if the last {@link Stat} of the node is of an ephemeral
+     *         node
+     */
+    public boolean isEphemeral(int node) {
+        return (flags[node] & EPHEMERAL) != 0;
+    }
+
+}
@@ -0,0 +1,476 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.jute.Record;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.data.StatPersisted;
+import org.apache.zookeeper.server.EphemeralType;
+import org.apache.zookeeper.server.TxnLogEntry;
+import org.apache.zookeeper.txn.CloseSessionTxn;
+import org.apache.zookeeper.txn.CreateContainerTxn;
+import org.apache.zookeeper.txn.CreateTTLTxn;
+import org.apache.zookeeper.txn.CreateTxn;
+import org.apache.zookeeper.txn.DeleteTxn;
+import org.apache.zookeeper.txn.ErrorTxn;
+import org.apache.zookeeper.txn.MultiTxn;
+import org.apache.zookeeper.txn.SetACLTxn;
+import org.apache.zookeeper.txn.SetDataTxn;
+import org.apache.zookeeper.txn.Txn;
+import org.apache.zookeeper.txn.TxnHeader;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The nodes as they were at a given zxid, rebuilt from the nearest snapshot
+ * before it and the transactions logged since. The snapshot stays memory
+ * mapped as a {@link SnapshotFile}; the transactions are applied to an overlay
+ * which only holds the nodes they created or changed and the parents whose
+ * children changed, the way the server's DataTree applies them when it loads
+ * its database. As the snapshot is fuzzy, transactions it already includes
+ * are applied again, which leaves the nodes as they were.
+ */
+@Slf4j
+public class ReplayedSnapshot implements SnapshotTree {
+
+    private final SnapshotFile base;
+    private final Map<String, OverlayNode> nodes = new HashMap<String, OverlayNode>();
+    private final Set<String> deleted = new HashSet<String>();
+    private final Map<String, Set<String>> addedChildren = new HashMap<String, Set<String>>();
+    // the parents whose children changed, sorted to find those in a subtree
+    private final TreeSet<String> changedParents = new TreeSet<String>();
+    private long lastZxid = -1;
+    private int appliedCount;
+    private int skippedCount;
+
+    private ReplayedSnapshot(SnapshotFile base) {
+        this.base = base;
+    }
+
+    /**
+     * @param logs
+     *            - the indexed transaction logs. The snapshot is looked for in
+     *            the same directory
+     * @param zxid
+     *            - the zxid to rebuild the nodes as of
+     * @return the nodes as of the zxid, or as of the last logged transaction
+     *         if the logs end before it
+     * @throws IOException
+     *             - if there is no snapshot before the zxid, the logs do not
+     *             follow on from it or miss transactions in between, or a
+     *             file cannot be read
+     */
+    public static ReplayedSnapshot open(TxnLogIndex logs, long zxid) throws IOException {
+        Path snapshot = logs.findSnapshot(zxid);
+        if (snapshot == null) {
+            throw new IOException("No snapshot at or before zxid 0x" + Long.toHexString(zxid) + " in " + logs.getDirectory());
+        }
+        SnapshotFile base = SnapshotFile.open(snapshot);
+        try {
+            long baseZxid = base.getZxid();
+            long firstZxid = logs.getFirstZxid();
+            // a new epoch starts counting from 1 again
+            if (zxid > baseZxid && firstZxid > baseZxid + 1 && (firstZxid >> 32) == (baseZxid >> 32)) {
+                throw new IOException("The transaction logs start at zxid 0x" + Long.toHexString(firstZxid)
+                        + ", after " + snapshot.getFileName());
+            }
+            ReplayedSnapshot replayed = new ReplayedSnapshot(base);
+            long[] previous = { baseZxid };
+            try {
+                logs.forEach(baseZxid, zxid, (entry) -> {
+                    long next = entry.getHeader().getZxid();
+                    if (!follows(previous[0], next)) {
+                        throw new UncheckedIOException(new IOException("Transactions 0x" + Long.toHexString(previous[0] + 1)
+                                + " to 0x" + Long.toHexString(next - 1) + " are missing from the logs after "
+                                + snapshot.getFileName() + ", a transaction log may have been removed"));
+                    }
+                    previous[0] = next;
+                    replayed.apply(entry);
+                });
+            }
+            catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (replayed.skippedCount > 0) {
+                log.info("Skipped {} transactions replaying {} up to zxid 0x{}",
+                        replayed.skippedCount, snapshot, Long.toHexString(zxid));
+            }
+            return replayed;
+        }
+        catch (IOException | RuntimeException e) {
+            base.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Within an epoch the zxids of the transactions follow each other without
+     * gaps. A new epoch starts counting from 1 again, and the last proposals
+     * of the previous one may never have been committed
+     *
+     * @return true if the transaction with the next zxid can directly follow
+     *         the one with the previous zxid
+     */
+    private static boolean follows(long previous, long next) {
+        if ((next >> 32) != (previous >> 32)) {
+            return (next >> 32) > (previous >> 32) && (next & 0xffffffffL) <= 1;
+        }
+        return next == previous + 1;
+    }
+
+    /**
+     * @return the snapshot the transactions were applied to
+     */
+    public SnapshotFile getBase() {
+        return base;
+    }
+
+    /**
+     * @return the number of transactions applied to the snapshot
+     */
+    public int getAppliedCount() {
+        return appliedCount;
+    }
+
+    /**
+     * @return the number of transactions which could not be applied, such as
+     *         closed sessions whose ephemeral nodes were not logged
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    @Override
+    public String getDescription() {
+        return base.getPath().getFileName() + " + " + appliedCount + " txns, as of zxid 0x" + Long.toHexString(getZxid());
+    }
+
+    @Override
+    public long getZxid() {
+        return Math.max(base.getZxid(), lastZxid);
+    }
+
+    @Override
+    public List<String> getChildren(String nodePath) {
+        if (!exists(nodePath)) {
+            return null;
+        }
+        int node = baseNode(nodePath);
+        if (!changedParents.contains(nodePath)) {
+            return node != -1 ? base.getChildren(node) : new ArrayList<String>();
+        }
+        List<String> children = new ArrayList<String>();
+        if (node != -1) {
+            for (String name : base.getChildren(node)) {
+                if (exists(ZooInspectorManagerImpl.childPath(nodePath, name))) {
+                    children.add(name);
+                }
+            }
+        }
+        for (String name : addedChildren.getOrDefault(nodePath, Collections.emptySet())) {
+            if (exists(ZooInspectorManagerImpl.childPath(nodePath, name))) {
+                children.add(name);
+            }
+        }
+        Collections.sort(children);
+        return children;
+    }
+
+    @Override
+    public Stat getStat(String nodePath) {
+        OverlayNode overlay = nodes.get(nodePath);
+        if (overlay != null) {
+            byte[] data = overlay.getData(base, nodePath);
+            return SnapshotFile.toStat(overlay.stat, data != null ? data.length : 0, getChildCount(nodePath));
+        }
+        int node = baseNode(nodePath);
+        if (node == -1) {
+            return null;
+        }
+        Stat stat = base.getStat(node);
+        if (changedParents.contains(nodePath)) {
+            // only the number of children changed, which the cversion
+            // clients read is derived from
+            return SnapshotFile.toStat(base.getStatPersisted(node), stat.getDataLength(), getChildCount(nodePath));
+        }
+        return stat;
+    }
+
+    @Override
+    public byte[] getData(String nodePath) {
+        OverlayNode overlay = nodes.get(nodePath);
+        if (overlay != null) {
+            return overlay.getData(base, nodePath);
+        }
+        int node = baseNode(nodePath);
+        return node != -1 ? base.getData(node) : null;
+    }
+
+    @Override
+    public List<ACL> getACL(String nodePath) {
+        OverlayNode overlay = nodes.get(nodePath);
+        if (overlay != null) {
+            return overlay.acl;
+        }
+        int node = baseNode(nodePath);
+        return node != -1 ? base.getACL(node) : null;
+    }
+
+    /**
+     * The count in the snapshot, adjusted by the change in the number of
+     * children of every changed parent in the subtree
+     */
+    @Override
+    public int getDescendantCount(String nodePath) {
+        if (!exists(nodePath)) {
+            return -1;
+        }
+        int node = base.find(nodePath);
+        int count = node != -1 ? base.getDescendantCount(node) : 0;
+        Set<String> parents = nodePath.equals("/")
+                ? changedParents
+                : changedParents.subSet(nodePath + "/", nodePath + "0");
+        for (String parent : parents) {
+            count += childCountChange(parent);
+        }
+        if (changedParents.contains(nodePath) && !nodePath.equals("/")) {
+            count += childCountChange(nodePath);
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        base.close();
+    }
+
+    private int childCountChange(String parent) {
+        int node = base.find(parent);
+        return (exists(parent) ? getChildCount(parent) : 0) - (node != -1 ? base.getChildCount(node) : 0);
+    }
+
+    private int getChildCount(String nodePath) {
+        if (changedParents.contains(nodePath)) {
+            return getChildren(nodePath).size();
+        }
+        int node = baseNode(nodePath);
+        return node != -1 ? base.getChildCount(node) : 0;
+    }
+
+    private boolean exists(String nodePath) {
+        return nodes.containsKey(nodePath) || baseNode(nodePath) != -1;
+    }
+
+    /**
+     * @return the index of the node in the snapshot, or -1 if it is not there
+     *         or was deleted since
+     */
+    private int baseNode(String nodePath) {
+        return deleted.contains(nodePath) ? -1 : base.find(nodePath);
+    }
+
+    /**
+     * @return the node in the overlay, copied from the snapshot the first time
+     *         it changes, or <code>null</code> if there is no such node
+     */
+    private OverlayNode modify(String nodePath) {
+        OverlayNode overlay = nodes.get(nodePath);
+        if (overlay == null) {
+            int node = baseNode(nodePath);
+            if (node == -1) {
+                return null;
+            }
+            overlay = new OverlayNode(base.getStatPersisted(node), base.getACL(node));
+            nodes.put(nodePath, overlay);
+        }
+        return overlay;
+    }
+
+    private void apply(TxnLogEntry entry) {
+        TxnHeader header = entry.getHeader();
+        try {
+            if (apply(header, entry.getTxn())) {
+                appliedCount++;
+            }
+            else {
+                skippedCount++;
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lastZxid = header.getZxid();
+    }
+
+    /**
+     * @return false if the transaction could not be applied
+     */
+    private boolean apply(TxnHeader header, Record txn) throws IOException {
+        long zxid = header.getZxid();
+        long time = header.getTime();
+        if (txn instanceof CreateTxn) {
+            CreateTxn create = (CreateTxn) txn;
+            create(create.getPath(), create.getData(), create.getAcl(),
+                    create.getEphemeral() ? header.getClientId() : 0, create.getParentCVersion(), zxid, time);
+        }
+        else if (txn instanceof CreateContainerTxn) {
+            CreateContainerTxn create = (CreateContainerTxn) txn;
+            create(create.getPath(), create.getData(), create.getAcl(),
+                    EphemeralType.CONTAINER_EPHEMERAL_OWNER, create.getParentCVersion(), zxid, time);
+        }
+        else if (txn instanceof CreateTTLTxn) {
+            CreateTTLTxn create = (CreateTTLTxn) txn;
+            create(create.getPath(), create.getData(), create.getAcl(),
+                    EphemeralType.TTL.toEphemeralOwner(create.getTtl()), create.getParentCVersion(), zxid, time);
+        }
+        else if (txn instanceof DeleteTxn) {
+            delete(((DeleteTxn) txn).getPath(), zxid);
+        }
+        else if (txn instanceof SetDataTxn) {
+            SetDataTxn setData = (SetDataTxn) txn;
+            OverlayNode overlay = modify(setData.getPath());
+            if (overlay != null) {
+                overlay.setData(setData.getData());
+                overlay.stat.setVersion(setData.getVersion());
+                overlay.stat.setMzxid(zxid);
+                overlay.stat.setMtime(time);
+            }
+        }
+        else if (txn instanceof SetACLTxn) {
+            SetACLTxn setACL = (SetACLTxn) txn;
+            OverlayNode overlay = modify(setACL.getPath());
+            if (overlay != null) {
+                overlay.acl = setACL.getAcl();
+                overlay.stat.setAversion(setACL.getVersion());
+            }
+        }
+        else if (txn instanceof MultiTxn) {
+            List<Record> txns = new ArrayList<Record>();
+            for (Txn subTxn : ((MultiTxn) txn).getTxns()) {
+                Record record = TxnLogIndex.decode(subTxn);
+                if (record instanceof ErrorTxn) {
+                    // a failed multi changes nothing
+                    return true;
+                }
+                txns.add(record);
+            }
+            for (Record record : txns) {
+                apply(header, record);
+            }
+        }
+        else if (txn instanceof CloseSessionTxn) {
+            List<String> paths = ((CloseSessionTxn) txn).getPaths2Delete();
+            if (paths == null) {
+                // logged without the ephemeral nodes of the session
+                return false;
+            }
+            for (String nodePath : paths) {
+                delete(nodePath, zxid);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a node as DataTree#createNode does. If the node already exists,
+     * which happens with the transactions the snapshot already includes, only
+     * the cversion and pzxid of the parent are brought up to date.
+     */
+    private void create(String nodePath, byte[] data, List<ACL> acl, long ephemeralOwner, int parentCVersion,
+            long zxid, long time) {
+        String parentPath = parentPath(nodePath);
+        OverlayNode parent = modify(parentPath);
+        if (parent == null) {
+            return;
+        }
+        int cversion = parentCVersion == -1 ? parent.stat.getCversion() + 1 : parentCVersion;
+        if (cversion > parent.stat.getCversion()) {
+            parent.stat.setCversion(cversion);
+            parent.stat.setPzxid(zxid);
+        }
+        if (exists(nodePath)) {
+            return;
+        }
+        OverlayNode overlay = new OverlayNode(new StatPersisted(zxid, zxid, time, time, 0, 0, 0, ephemeralOwner, zxid), acl);
+        overlay.setData(data);
+        nodes.put(nodePath, overlay);
+        if (base.find(nodePath) == -1) {
+            addedChildren.computeIfAbsent(parentPath, (key) -> new HashSet<String>())
+                    .add(nodePath.substring(nodePath.lastIndexOf('/') + 1));
+        }
+        changedParents.add(parentPath);
+    }
+
+    private void delete(String nodePath, long zxid) {
+        if (!exists(nodePath)) {
+            return;
+        }
+        nodes.remove(nodePath);
+        deleted.add(nodePath);
+        String parentPath = parentPath(nodePath);
+        OverlayNode parent = modify(parentPath);
+        if (parent != null) {
+            parent.stat.setPzxid(zxid);
+        }
+        changedParents.add(parentPath);
+    }
+
+    private static String parentPath(String nodePath) {
+        int slash = nodePath.lastIndexOf('/');
+        return slash > 0 ? nodePath.substring(0, slash) : "/";
+    }
+
+    /**
+     * A node the transactions created or changed
+     */
+    private static class OverlayNode {
+        private final StatPersisted stat;
+        private List<ACL> acl;
+        private byte[] data;
+        // the data has not changed since the snapshot
+        private boolean baseData = true;
+
+        private OverlayNode(StatPersisted stat, List<ACL> acl) {
+            this.stat = stat;
+            this.acl = acl;
+        }
+
+        private void setData(byte[] data) {
+            this.data = data;
+            this.baseData = false;
+        }
+
+        private byte[] getData(SnapshotFile base, String nodePath) {
+            return baseData ? base.getData(base.find(nodePath)) : data;
+        }
+    }
+
+}
@@ -0,0 +1,603 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.jute.BinaryInputArchive;
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.data.StatPersisted;
+import org.apache.zookeeper.server.EphemeralType;
+import org.apache.zookeeper.server.ReferenceCountedACLCache;
+import org.apache.zookeeper.server.persistence.FileHeader;
+import org.apache.zookeeper.server.persistence.FileSnap;
+import org.apache.zookeeper.server.persistence.SnapStream;
+import org.apache.zookeeper.server.persistence.Util;
+
+import com.google.common.io.CountingInputStream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A snapshot file of a ZooKeeper server (snapshot.&lt;zxid&gt; in its data
+ * directory), read through memory mapped buffers. The file starts with a
+ * {@link FileHeader}, the sessions and the ACLs, which are read with the
+ * classes of the server; the nodes follow in depth first order, each as its
+ * path and a DataNode record.
+ * <p>
+ * Opening the file makes a single pass over the nodes which only records
+ * where each of them starts and which node is its parent, about 20 bytes of
+ * heap per node however large the data is. The path, data, ACL and
+ * {@link Stat} of a node are decoded from the mapped file when they are asked
+ * for, and the children of a node are only sorted the first time they are
+ * listed. Snapshots compressed with gzip or snappy cannot be mapped, so they
+ * are decompressed into a temporary file first.
+ * <p>
+ * Besides the {@link SnapshotTree} methods, which take the path to a node,
+ * there are methods which take the index of a node, as returned by
+ * {@link #find(String)}; the root is node 0. They may be called from any
+ * thread.
+ */
+@Slf4j
+public class SnapshotFile implements SnapshotTree {
+
+    /**
+     * the index of the root node
+     */
+    public static final int ROOT = 0;
+
+    // czxid, mzxid, ctime and mtime; version, cversion and aversion;
+    // ephemeralOwner and pzxid
+    private static final int STAT_SIZE = 4 * 8 + 3 * 4 + 2 * 8;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Path path;
+    private final Path tempFile;
+    private final long zxid;
+    private final MappedFile file;
+    private final ReferenceCountedACLCache aclCache = new ReferenceCountedACLCache();
+    private long dbId;
+    private int sessionCount;
+    private int nodeCount;
+    private long[] offsets;
+    private int[] childStart;
+    private int[] children;
+    private final BitSet sorted = new BitSet();
+
+    private SnapshotFile(Path path, Path mappedFile, Path tempFile) throws IOException {
+        this.path = path;
+        this.tempFile = tempFile;
+        this.zxid = Util.getZxidFromName(path.getFileName().toString(), FileSnap.SNAPSHOT_FILE_PREFIX);
+        this.file = new MappedFile(mappedFile);
+        try {
+            index(readHeader(mappedFile));
+        }
+        catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param file
+     *            - the snapshot file
+     * @return the opened snapshot
+     * @throws IOException
+     *             - if the file cannot be read or is not a valid snapshot
+     */
+    public static SnapshotFile open(Path file) throws IOException {
+        if (SnapStream.getStreamMode(file.getFileName().toString()) == SnapStream.StreamMode.CHECKED) {
+            return new SnapshotFile(file, file, null);
+        }
+        Path temp = Files.createTempFile("zooinspector-snapshot", ".tmp");
+        try {
+            try (InputStream in = SnapStream.getInputStream(file.toFile())) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return new SnapshotFile(file, temp, temp);
+        }
+        catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the header, the sessions and the ACLs
+     *
+     * @return the position of the first node
+     */
+    private long readHeader(Path file) throws IOException {
+        try (CountingInputStream in = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            BinaryInputArchive ia = BinaryInputArchive.getArchive(in);
+            FileHeader header = new FileHeader();
+            header.deserialize(ia, "fileheader");
+            if (header.getMagic() != FileSnap.SNAP_MAGIC) {
+                throw new IOException("Not a ZooKeeper snapshot: " + path);
+            }
+            this.dbId = header.getDbid();
+            this.sessionCount = ia.readInt("count");
+            for (int i = 0; i < sessionCount; i++) {
+                ia.readLong("id");
+                ia.readInt("timeout");
+            }
+            aclCache.deserialize(ia);
+            return in.getCount();
+        }
+        catch (EOFException e) {
+            throw new IOException("The snapshot is truncated: " + path, e);
+        }
+    }
+
+    /**
+     * Walks the nodes once, recording the offset of each node and the
+     * children of each node. The nodes are written depth first, so the parent
+     * of a node is always on the stack of the ancestors of the node before it.
+     */
+    private void index(long position) throws IOException {
+        long[] nodeOffsets = new long[INITIAL_CAPACITY];
+        int[] parents = new int[INITIAL_CAPACITY];
+        int[] stack = new int[64];
+        int[] stackLengths = new int[64];
+        int depth = 0;
+        byte[] pathBytes = new byte[256];
+        int count = 0;
+        while (true) {
+            checkAvailable(position, 4);
+            int length = file.getInt(position);
+            if (length < 0) {
+                throw corrupt(position);
+            }
+            checkAvailable(position + 4, length);
+            if (pathBytes.length < length) {
+                pathBytes = new byte[Math.max(length, pathBytes.length * 2)];
+            }
+            file.read(position + 4, pathBytes, 0, length);
+            if (length == 1 && pathBytes[0] == '/') {
+                // the end of the nodes
+                break;
+            }
+            int parent = -1;
+            if (count == 0) {
+                if (length != 0) {
+                    throw corrupt(position);
+                }
+            }
+            else {
+                int parentLength = lastSlash(pathBytes, length);
+                while (depth > 0 && stackLengths[depth - 1] > parentLength) {
+                    depth--;
+                }
+                if (parentLength < 0 || depth == 0 || stackLengths[depth - 1] != parentLength) {
+                    throw corrupt(position);
+                }
+                parent = stack[depth - 1];
+            }
+            if (count == nodeOffsets.length) {
+                nodeOffsets = Arrays.copyOf(nodeOffsets, count * 2);
+                parents = Arrays.copyOf(parents, count * 2);
+            }
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+                stackLengths = Arrays.copyOf(stackLengths, depth * 2);
+            }
+            nodeOffsets[count] = position;
+            parents[count] = parent;
+            stack[depth] = count;
+            stackLengths[depth] = length;
+            depth++;
+            count++;
+
+            long data = position + 4 + length;
+            checkAvailable(data, 4);
+            int dataLength = file.getInt(data);
+            position = data + 4 + Math.max(dataLength, 0) + 8 + STAT_SIZE;
+            checkAvailable(position, 0);
+        }
+        if (count == 0) {
+            throw new IOException("The snapshot has no nodes: " + path);
+        }
+        // the children of node i are children[childStart[i]] to
+        // children[childStart[i + 1] - 1]
+        int[] start = new int[count + 1];
+        for (int i = 1; i < count; i++) {
+            start[parents[i] + 1]++;
+        }
+        for (int i = 0; i < count; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] next = Arrays.copyOf(start, count);
+        int[] kids = new int[count - 1];
+        for (int i = 1; i < count; i++) {
+            kids[next[parents[i]]++] = i;
+        }
+        this.nodeCount = count;
+        this.offsets = Arrays.copyOf(nodeOffsets, count);
+        this.childStart = start;
+        this.children = kids;
+    }
+
+    /**
+     * @return the path to the snapshot file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the zxid of the last transaction in the snapshot, taken from the
+     *         name of the file, or -1 if the name does not tell. The snapshot is
+     *         fuzzy: it may already include some later transactions
+     */
+    @Override
+    public long getZxid() {
+        return zxid;
+    }
+
+    @Override
+    public String getDescription() {
+        return path.getFileName() + " (" + nodeCount + " nodes)";
+    }
+
+    /**
+     * @return the database id in the header of the snapshot
+     */
+    public long getDbId() {
+        return dbId;
+    }
+
+    /**
+     * @return the number of sessions which were open when the snapshot was
+     *         taken
+     */
+    public int getSessionCount() {
+        return sessionCount;
+    }
+
+    /**
+     * @return the number of nodes in the snapshot, including the root
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the size of the snapshot in bytes, after decompression
+     */
+    public long getSize() {
+        return file.size();
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to a node
+     * @return the index of the node, or -1 if there is no such node
+     */
+    public int find(String nodePath) {
+        int node = ROOT;
+        for (String name : nodePath.split("/")) {
+            if (!name.isEmpty()) {
+                node = findChild(node, name);
+                if (node == -1) {
+                    return -1;
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @return the index of the child with the name, or -1
+     */
+    private int findChild(int node, String name) {
+        sortChildren(node);
+        int low = childStart[node];
+        int high = childStart[node + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = getName(children[middle]).compareTo(name);
+            if (compared < 0) {
+                low = middle + 1;
+            }
+            else if (compared > 0) {
+                high = middle - 1;
+            }
+            else {
+                return children[middle];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Sorts the children of a node by name, the first time they are needed
+     */
+    private synchronized void sortChildren(int node) {
+        if (sorted.get(node)) {
+            return;
+        }
+        int from = childStart[node];
+        int count = childStart[node + 1] - from;
+        final String[] names = new String[count];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = getName(children[from + i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+        int[] ids = Arrays.copyOfRange(children, from, from + count);
+        for (int i = 0; i < count; i++) {
+            children[from + i] = ids[order[i]];
+        }
+        sorted.set(node);
+    }
+
+    /**
+     * @param node
+     *            - the index of a node
+     * @return the number of children of the node
+     */
+    public int getChildCount(int node) {
+        return childStart[node + 1] - childStart[node];
+    }
+
+    /**
+     * @param node
+     *            - the index of a node
+     * @param childIndex
+     *            - the index of the child in the sorted children
+     * @return the index of the child node
+     */
+    public int getChild(int node, int childIndex) {
+        sortChildren(node);
+        if (childIndex < 0 || childIndex >= getChildCount(node)) {
+            throw new IndexOutOfBoundsException("Child " + childIndex + " of " + getPath(node));
+        }
+        return children[childStart[node] + childIndex];
+    }
+
+    /**
+     * @param node
+     *            - the index of a node
+     * @return the sorted names of the children of the node
+     */
+    public List<String> getChildren(int node) {
+        sortChildren(node);
+        List<String> names = new ArrayList<String>(getChildCount(node));
+        for (int i = childStart[node]; i < childStart[node + 1]; i++) {
+            names.add(getName(children[i]));
+        }
+        return names;
+    }
+
+    /**
+     * @param node
+     *            - the index of a node
+     * @return the number of nodes below the node
+     */
+    public int getDescendantCount(int node) {
+        int count = 0;
+        int[] stack = new int[64];
+        int depth = 0;
+        stack[depth++] = node;
+        while (depth > 0) {
+            int current = stack[--depth];
+            for (int i = childStart[current]; i < childStart[current + 1]; i++) {
+                count++;
+                if (getChildCount(children[i]) > 0) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = children[i];
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param node
+     *            - the index of a node
+     * @return the path to the node
+     */
+    public String getPath(int node) {
+        String nodePath = readPath(node);
+        return nodePath.isEmpty() ? "/" : nodePath;
+    }
+
+    /**
+     * @param node
+     *            - the index of a node
+     * @return the name of the node, which is empty for the root
+     */
+    public String getName(int node) {
+        String nodePath = readPath(node);
+        return nodePath.substring(nodePath.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @param node
+     *            - the index of a node
+     * @return the data of the node, or <code>null</code> if it has none
+     */
+    public byte[] getData(int node) {
+        long data = dataOffset(node);
+        int length = file.getInt(data);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        file.read(data + 4, bytes, 0, length);
+        return bytes;
+    }
+
+    /**
+     * @param node
+     *            - the index of a node
+     * @return the ACL of the node
+     */
+    public List<ACL> getACL(int node) {
+        long data = dataOffset(node);
+        return aclCache.convertLong(file.getLong(data + 4 + Math.max(file.getInt(data), 0)));
+    }
+
+    /**
+     * @param node
+     *            - the index of a node
+     * @return the {@link Stat} of the node, as a client would have read it
+     *         when the snapshot was taken
+     */
+    public Stat getStat(int node) {
+        return toStat(getStatPersisted(node), Math.max(file.getInt(dataOffset(node)), 0), getChildCount(node));
+    }
+
+    /**
+     * @return the {@link Stat} of the node as the server keeps it
+     */
+    StatPersisted getStatPersisted(int node) {
+        long data = dataOffset(node);
+        long position = data + 4 + Math.max(file.getInt(data), 0) + 8;
+        return new StatPersisted(
+                file.getLong(position),
+                file.getLong(position + 8),
+                file.getLong(position + 16),
+                file.getLong(position + 24),
+                file.getInt(position + 32),
+                file.getInt(position + 36),
+                file.getInt(position + 40),
+                file.getLong(position + 44),
+                file.getLong(position + 52));
+    }
+
+    /**
+     * Converts the {@link Stat} the server keeps into the one clients read,
+     * as DataNode#copyStat does
+     */
+    static Stat toStat(StatPersisted persisted, int dataLength, int numChildren) {
+        Stat stat = new Stat();
+        stat.setCzxid(persisted.getCzxid());
+        stat.setMzxid(persisted.getMzxid());
+        stat.setCtime(persisted.getCtime());
+        stat.setMtime(persisted.getMtime());
+        stat.setVersion(persisted.getVersion());
+        // the server only counts the creates of children
+        stat.setCversion(persisted.getCversion() * 2 - numChildren);
+        stat.setAversion(persisted.getAversion());
+        long ephemeralOwner = persisted.getEphemeralOwner();
+        // containers and TTL nodes are persistent nodes to the clients
+        stat.setEphemeralOwner(EphemeralType.get(ephemeralOwner) == EphemeralType.NORMAL ? ephemeralOwner : 0);
+        stat.setPzxid(persisted.getPzxid());
+        stat.setDataLength(dataLength);
+        stat.setNumChildren(numChildren);
+        return stat;
+    }
+
+    @Override
+    public List<String> getChildren(String nodePath) {
+        int node = find(nodePath);
+        return node != -1 ? getChildren(node) : null;
+    }
+
+    @Override
+    public Stat getStat(String nodePath) {
+        int node = find(nodePath);
+        return node != -1 ? getStat(node) : null;
+    }
+
+    @Override
+    public byte[] getData(String nodePath) {
+        int node = find(nodePath);
+        return node != -1 ? getData(node) : null;
+    }
+
+    @Override
+    public List<ACL> getACL(String nodePath) {
+        int node = find(nodePath);
+        return node != -1 ? getACL(node) : null;
+    }
+
+    @Override
+    public int getDescendantCount(String nodePath) {
+        int node = find(nodePath);
+        return node != -1 ? getDescendantCount(node) : -1;
+    }
+
+    /**
+     * Releases the mapped file. A decompressed copy of the snapshot is
+     * deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+        if (tempFile != null) {
+            try {
+                Files.deleteIfExists(tempFile);
+            }
+            catch (IOException e) {
+                // still mapped on some platforms
+                log.debug("Unable to delete {}, deleting it on exit", tempFile, e);
+                tempFile.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private String readPath(int node) {
+        long position = offsets[node];
+        byte[] bytes = new byte[file.getInt(position)];
+        file.read(position + 4, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long dataOffset(int node) {
+        long position = offsets[node];
+        return position + 4 + file.getInt(position);
+    }
+
+    private static int lastSlash(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '/') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void checkAvailable(long position, int length) throws IOException {
+        if (!file.isAvailable(position, length)) {
+            throw new IOException("The snapshot is truncated: " + path);
+        }
+    }
+
+    private IOException corrupt(long position) {
+        return new IOException("The snapshot is corrupt at offset " + position + ": " + path);
+    }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.Closeable;
+import java.util.List;
+
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * The nodes of a ZooKeeper server as they were at a single zxid, read from
+ * files rather than from a live ensemble. The methods may be called from any
+ * thread.
+ */
+public interface SnapshotTree extends Closeable {
+
+    /**
+     * @return a short description of where the nodes come from, such as the
+     *         name of the snapshot file
+     */
+    public String getDescription();
+
+    /**
+     * @return the zxid the nodes are as of, or -1 if it is not known
+     */
+    public long getZxid();
+
+    /**
+     * @param nodePath
+     *            - the path to a node
+     * @return the sorted names of the children of the node, or
+     *         <code>null</code> if there is no such node
+     */
+    public List<String> getChildren(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to a node
+     * @return the {@link Stat} of the node as a client would have read it, or
+     *         <code>null</code> if there is no such node
+     */
+    public Stat getStat(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to a node
+     * @return the data of the node, or <code>null</code> if it has none or
+     *         there is no such node
+     */
+    public byte[] getData(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to a node
+     * @return the ACL of the node, or <code>null</code> if there is no such
+     *         node
+     */
+    public List<ACL> getACL(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to a node
+     * @return the number of nodes below the node, or -1 if there is no such
+     *         node
+     */
+    public int getDescendantCount(String nodePath);
+
+}
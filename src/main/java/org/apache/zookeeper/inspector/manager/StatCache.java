@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.EventType;
+import org.apache.zookeeper.Watcher.Event.KeeperState;
+import org.apache.zookeeper.data.Stat;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A bounded cache of the last {@link Stat} read for each node path. It is
+ * filled by {@link org.apache.zookeeper.retry.ZooKeeperRetry} with every Stat
+ * returned by the server and kept coherent by a persistent recursive watch on
+ * the root node (see {@link #setWatched(boolean)}): a change to a node drops the entry of the node and, when
+ * nodes are created or deleted, the entry of the parent.
+ * <p>
+ * If the server does not support persistent watches, entries expire after
+ * {@link #UNWATCHED_EXPIRATION_TIME} ms instead.
+ */
+public class StatCache implements Watcher {
+
+    public static final int CACHE_SIZE = 100000;
+
+    public static final int UNWATCHED_EXPIRATION_TIME = 1000;
+
+    private volatile Cache<String, Stat> stats = createCache(false);
+
+    private static Cache<String, Stat> createCache(boolean watched) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(CACHE_SIZE);
+        if (!watched) {
+            builder.expireAfterWrite(UNWATCHED_EXPIRATION_TIME, TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param watched
+     *            - true if changes to the whole node tree are reported to
+     *            {@link #process(WatchedEvent)} by a persistent recursive
+     *            watch, false if entries should expire instead
+     */
+    public void setWatched(boolean watched) {
+        stats = createCache(watched);
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return the last known {@link Stat} of the node, or <code>null</code>
+     *         if it is not known
+     */
+    public Stat get(String nodePath) {
+        return stats.getIfPresent(nodePath);
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @param stat
+     *            - the {@link Stat} read for the node, or <code>null</code>
+     *            if the node does not exist
+     */
+    public void put(String nodePath, Stat stat) {
+        if (stat != null) {
+            stats.put(nodePath, stat);
+        } 
+        else {
+            stats.invalidate(nodePath);
+        }
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the node which has changed
+     */
+    public void invalidate(String nodePath) {
+        stats.invalidate(nodePath);
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to the node which has been created or deleted
+     */
+    public void invalidateWithParent(String nodePath) {
+        stats.invalidate(nodePath);
+        int index = nodePath.lastIndexOf('/');
+        if (index > 0) {
+            stats.invalidate(nodePath.substring(0, index));
+        } 
+        else if (index == 0 && nodePath.length() > 1) {
+            stats.invalidate("/");
+        }
+    }
+
+    public void invalidateAll() {
+        stats.invalidateAll();
+    }
+
+    @Override
+    public void process(WatchedEvent event) {
+        if (event.getType() == EventType.None) {
+            if (event.getState() != KeeperState.SyncConnected) {
+                // changes are not reported while disconnected
+                invalidateAll();
+            }
+        } 
+        else if (event.getType() == EventType.NodeCreated || event.getType() == EventType.NodeDeleted) {
+            invalidateWithParent(event.getPath());
+        } 
+        else if (event.getPath() != null) {
+            invalidate(event.getPath());
+        }
+    }
+
+}
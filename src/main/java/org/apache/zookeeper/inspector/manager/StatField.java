@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToLongFunction;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * The fields of a {@link Stat}, in the order the node metadata shows them
+ */
+public enum StatField {
+
+    ACL_VERSION("ACL Version", "aversion", Stat::getAversion,
+            (s, v) -> s.setAversion((int) v), false),
+    CTIME("Creation Time", "ctime", Stat::getCtime,
+            Stat::setCtime, true),
+    CHILDREN_VERSION("Children Version", "cversion", Stat::getCversion,
+            (s, v) -> s.setCversion((int) v), false),
+    CZXID("Creation ID", "czxid", Stat::getCzxid,
+            Stat::setCzxid, false),
+    DATA_LENGTH("Data Length", "dataLength", Stat::getDataLength,
+            (s, v) -> s.setDataLength((int) v), false),
+    EPHEMERAL_OWNER("Ephemeral Owner", "ephemeralOwner", Stat::getEphemeralOwner,
+            Stat::setEphemeralOwner, false),
+    MTIME("Last Modified Time", "mtime", Stat::getMtime,
+            Stat::setMtime, true),
+    MZXID("Modified ID", "mzxid", Stat::getMzxid,
+            Stat::setMzxid, false),
+    NUM_CHILDREN("Number of Children", "numChildren", Stat::getNumChildren,
+            (s, v) -> s.setNumChildren((int) v), false),
+    PZXID("Node ID", "pzxid", Stat::getPzxid,
+            Stat::setPzxid, false),
+    VERSION("Data Version", "version", Stat::getVersion,
+            (s, v) -> s.setVersion((int) v), false);
+
+    private final String label;
+    private final String property;
+    private final ToLongFunction<Stat> getter;
+    private final ObjLongConsumer<Stat> setter;
+    private final boolean time;
+
+    private StatField(String label, String property, ToLongFunction<Stat> getter, ObjLongConsumer<Stat> setter,
+            boolean time) {
+        this.label = label;
+        this.property = property;
+        this.getter = getter;
+        this.setter = setter;
+        this.time = time;
+    }
+
+    /**
+     * @return the name shown next to the value in the node metadata
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return the name of the field in the {@link Stat}
+     */
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * @return true if the value is a time in milliseconds since the epoch
+     */
+    public boolean isTime() {
+        return time;
+    }
+
+    /**
+     * @param stat
+     *            - a {@link Stat}
+     * @return the value of the field in the stat
+     */
+    public long get(Stat stat) {
+        return getter.applyAsLong(stat);
+    }
+
+    /**
+     * @param stat
+     *            - a {@link Stat}
+     * @param value
+     *            - the new value of the field in the stat
+     */
+    public void set(Stat stat, long value) {
+        setter.accept(stat, value);
+    }
+
+    /**
+     * @param name
+     *            - the name of a field in the {@link Stat}, or its label,
+     *            ignoring case
+     * @return the field, or <code>null</code> if there is no such field
+     */
+    public static StatField forName(String name) {
+        for (StatField field : values()) {
+            if (field.property.equalsIgnoreCase(name) || field.label.equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A transaction read from a transaction log, as found by
+ * {@link TxnLogIndex#find(String, int)}
+ */
+@Getter
+@AllArgsConstructor
+public class TxnEntry {
+
+    /**
+     * the zxid of the transaction
+     */
+    private final long zxid;
+
+    /**
+     * the time the leader received the request, in milliseconds since the
+     * epoch
+     */
+    private final long time;
+
+    /**
+     * the id of the session which sent the request
+     */
+    private final long sessionId;
+
+    /**
+     * the name of the operation, such as create or setData
+     */
+    private final String operation;
+
+    /**
+     * the paths to the nodes the transaction touched
+     */
+    private final List<String> paths;
+
+    /**
+     * a short description of what the transaction did
+     */
+    private final String detail;
+
+}
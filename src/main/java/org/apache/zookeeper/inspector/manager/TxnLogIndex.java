@@ -0,0 +1,648 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Adler32;
+
+import org.apache.jute.Record;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooDefs.OpCode;
+import org.apache.zookeeper.server.ByteBufferInputStream;
+import org.apache.zookeeper.server.Request;
+import org.apache.zookeeper.server.TxnLogEntry;
+import org.apache.zookeeper.server.persistence.FileSnap;
+import org.apache.zookeeper.server.persistence.FileTxnLog;
+import org.apache.zookeeper.server.persistence.Util;
+import org.apache.zookeeper.server.util.SerializeUtils;
+import org.apache.zookeeper.txn.CheckVersionTxn;
+import org.apache.zookeeper.txn.CloseSessionTxn;
+import org.apache.zookeeper.txn.CreateContainerTxn;
+import org.apache.zookeeper.txn.CreateSessionTxn;
+import org.apache.zookeeper.txn.CreateTTLTxn;
+import org.apache.zookeeper.txn.CreateTxn;
+import org.apache.zookeeper.txn.DeleteTxn;
+import org.apache.zookeeper.txn.ErrorTxn;
+import org.apache.zookeeper.txn.MultiTxn;
+import org.apache.zookeeper.txn.SetACLTxn;
+import org.apache.zookeeper.txn.SetDataTxn;
+import org.apache.zookeeper.txn.Txn;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * An index of the transaction logs (log.&lt;zxid&gt;) in the data directory of a
+ * ZooKeeper server. The logs are memory mapped and streamed once into an index
+ * file per log, kept in {@link #DEFAULT_INDEX_DIRECTORY}, with a row of 24
+ * bytes for each path a transaction touched: its zxid, the offset of the
+ * transaction in the log and a hash of the path. The rows of a log are in zxid
+ * order, so a zxid is found with a binary search, and the transactions which
+ * touched a path with a sequential scan of the mapped index which only decodes
+ * the transactions whose hash matches.
+ * <p>
+ * Indexing is incremental: an index file remembers how far into its log it
+ * got, so {@link #update()} only reads what was appended to the logs since,
+ * and resumes after being cancelled. The heap holds a single transaction at a
+ * time, however large the logs are.
+ */
+@Slf4j
+public class TxnLogIndex implements Closeable {
+
+    /**
+     * the directory the index files are kept in
+     */
+    public static final Path DEFAULT_INDEX_DIRECTORY =
+            Paths.get(System.getProperty("user.home"), ".zooinspector", "txnlog-index");
+
+    /**
+     * the default number of transactions {@link #find(String, int)} returns
+     */
+    public static final int DEFAULT_MAX_RESULTS = 10_000;
+
+    private static final int INDEX_MAGIC = 0x5a4b5449; // ZKTI
+    private static final int INDEX_VERSION = 1;
+    // magic, version, dbid, the offset in the log indexed up to, the number of
+    // rows and the number of transactions
+    private static final int INDEX_HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8;
+    // zxid, the offset of the transaction in the log and the hash of a path
+    private static final int ROW_SIZE = 8 + 8 + 8;
+    // magic, version and dbid
+    private static final int LOG_HEADER_SIZE = 4 + 4 + 8;
+    // crc and length
+    private static final int ENTRY_HEADER_SIZE = 8 + 4;
+    private static final byte END_OF_ENTRY = 0x42;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final HashFunction PATH_HASH = Hashing.murmur3_128();
+
+    private final Path directory;
+    private final Path indexDirectory;
+    private final List<Log> logs;
+    private final AtomicLong indexedBytes = new AtomicLong();
+    private volatile boolean cancelled;
+
+    /**
+     * @param directory
+     *            - the directory with the log files
+     * @throws IOException
+     *             - if the directory cannot be read or has no log files
+     */
+    public TxnLogIndex(Path directory) throws IOException {
+        this(directory, DEFAULT_INDEX_DIRECTORY);
+    }
+
+    /**
+     * @param directory
+     *            - the directory with the log files
+     * @param indexDirectory
+     *            - the directory to keep the index files in
+     * @throws IOException
+     *             - if the directory cannot be read or has no log files
+     */
+    public TxnLogIndex(Path directory, Path indexDirectory) throws IOException {
+        this.directory = directory;
+        this.indexDirectory = indexDirectory;
+        try (Stream<Path> files = Files.list(directory)) {
+            this.logs = files
+                    .filter((file) -> Util.isLogFileName(file.getFileName().toString()) && Files.isRegularFile(file))
+                    .map((file) -> new Log(file))
+                    .sorted(Comparator.comparingLong((Log log) -> log.startZxid))
+                    .collect(Collectors.toList());
+        }
+        if (logs.isEmpty()) {
+            throw new IOException("No transaction logs in " + directory);
+        }
+    }
+
+    /**
+     * @return the directory with the log files
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the number of log files
+     */
+    public int getLogCount() {
+        return logs.size();
+    }
+
+    /**
+     * Indexes what was appended to the logs since the last update. May be
+     * cancelled from another thread with {@link #cancel()}, and picks up
+     * where it stopped when called again.
+     *
+     * @throws IOException
+     *             - if a log or an index file cannot be read or written
+     */
+    public synchronized void update() throws IOException {
+        cancelled = false;
+        indexedBytes.set(0);
+        Files.createDirectories(indexDirectory);
+        for (Log log : logs) {
+            if (cancelled) {
+                return;
+            }
+            log.update();
+        }
+    }
+
+    /**
+     * Stops an update. May be called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return the number of bytes of the logs the current update has gone
+     *         through, including those indexed before. May be called from any
+     *         thread
+     */
+    public long getIndexedBytes() {
+        return indexedBytes.get();
+    }
+
+    /**
+     * @return the total size of the logs
+     */
+    public long getTotalBytes() {
+        long total = 0;
+        for (Log log : logs) {
+            total += log.file.toFile().length();
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of indexed transactions
+     */
+    public synchronized long getTxnCount() {
+        long count = 0;
+        for (Log log : logs) {
+            count += log.txnCount;
+        }
+        return count;
+    }
+
+    /**
+     * @return the zxid of the first indexed transaction, or -1
+     */
+    public synchronized long getFirstZxid() {
+        for (Log log : logs) {
+            if (log.rowCount > 0) {
+                return log.zxid(0);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the zxid of the last indexed transaction, or -1
+     */
+    public synchronized long getLastZxid() {
+        for (int i = logs.size() - 1; i >= 0; i--) {
+            Log log = logs.get(i);
+            if (log.rowCount > 0) {
+                return log.zxid(log.rowCount - 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param zxid
+     *            - a zxid
+     * @return the snapshot file in the directory of the logs with the highest
+     *         zxid not above the zxid, or <code>null</code> if there is none
+     * @throws IOException
+     *             - if the directory cannot be read
+     */
+    public Path findSnapshot(long zxid) throws IOException {
+        Path found = null;
+        long foundZxid = -1;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(FileSnap.SNAPSHOT_FILE_PREFIX + ".")) {
+                    continue;
+                }
+                long snapshotZxid = Util.getZxidFromName(name, FileSnap.SNAPSHOT_FILE_PREFIX);
+                if (snapshotZxid >= 0 && snapshotZxid <= zxid && snapshotZxid > foundZxid) {
+                    found = file;
+                    foundZxid = snapshotZxid;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param nodePath
+     *            - the path to a node
+     * @param limit
+     *            - the most transactions to return
+     * @return the transactions which touched the node, in zxid order
+     * @throws IOException
+     *             - if a log cannot be read
+     */
+    public synchronized List<TxnEntry> find(String nodePath, int limit) throws IOException {
+        long hash = hash(nodePath);
+        List<TxnEntry> found = new ArrayList<TxnEntry>();
+        for (Log log : logs) {
+            long lastOffset = -1;
+            for (long row = 0; row < log.rowCount && found.size() < limit; row++) {
+                if (log.pathHash(row) != hash || log.offset(row) == lastOffset) {
+                    continue;
+                }
+                lastOffset = log.offset(row);
+                TxnLogEntry entry = log.read(lastOffset);
+                List<String> paths = paths(entry.getTxn());
+                if (paths.contains(nodePath)) {
+                    found.add(describe(entry, paths));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reads the transactions in a range of zxids, in zxid order
+     *
+     * @param afterZxid
+     *            - the zxid after which to start
+     * @param toZxid
+     *            - the zxid of the last transaction to read
+     * @param action
+     *            - called for every transaction
+     * @throws IOException
+     *             - if a log cannot be read
+     */
+    public synchronized void forEach(long afterZxid, long toZxid, Consumer<TxnLogEntry> action) throws IOException {
+        long lastZxid = afterZxid;
+        for (Log log : logs) {
+            if (log.rowCount == 0 || log.zxid(log.rowCount - 1) <= lastZxid) {
+                continue;
+            }
+            for (long row = log.firstRowAfter(lastZxid); row < log.rowCount; row++) {
+                long zxid = log.zxid(row);
+                if (zxid > toZxid) {
+                    return;
+                }
+                if (zxid > lastZxid) {
+                    lastZxid = zxid;
+                    action.accept(log.read(log.offset(row)));
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Log log : logs) {
+            log.close();
+        }
+    }
+
+    private static long hash(String nodePath) {
+        return PATH_HASH.hashString(nodePath, StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * @param txn
+     *            - a transaction of a multi
+     * @return the decoded transaction
+     * @throws IOException
+     *             - if the type is not one a multi can hold
+     */
+    static Record decode(Txn txn) throws IOException {
+        Record record;
+        switch (txn.getType()) {
+        case OpCode.create:
+        case OpCode.create2:
+            record = new CreateTxn();
+            break;
+        case OpCode.createContainer:
+            record = new CreateContainerTxn();
+            break;
+        case OpCode.createTTL:
+            record = new CreateTTLTxn();
+            break;
+        case OpCode.delete:
+        case OpCode.deleteContainer:
+            record = new DeleteTxn();
+            break;
+        case OpCode.setData:
+            record = new SetDataTxn();
+            break;
+        case OpCode.check:
+            record = new CheckVersionTxn();
+            break;
+        case OpCode.error:
+            record = new ErrorTxn();
+            break;
+        default:
+            throw new IOException("Unexpected transaction in a multi: " + Request.op2String(txn.getType()));
+        }
+        ByteBufferInputStream.byteBuffer2Record(ByteBuffer.wrap(txn.getData()), record);
+        return record;
+    }
+
+    /**
+     * @return the paths to the nodes a transaction touched
+     */
+    static List<String> paths(Record txn) throws IOException {
+        if (txn instanceof CreateTxn) {
+            return Collections.singletonList(((CreateTxn) txn).getPath());
+        }
+        if (txn instanceof CreateContainerTxn) {
+            return Collections.singletonList(((CreateContainerTxn) txn).getPath());
+        }
+        if (txn instanceof CreateTTLTxn) {
+            return Collections.singletonList(((CreateTTLTxn) txn).getPath());
+        }
+        if (txn instanceof DeleteTxn) {
+            return Collections.singletonList(((DeleteTxn) txn).getPath());
+        }
+        if (txn instanceof SetDataTxn) {
+            return Collections.singletonList(((SetDataTxn) txn).getPath());
+        }
+        if (txn instanceof SetACLTxn) {
+            return Collections.singletonList(((SetACLTxn) txn).getPath());
+        }
+        if (txn instanceof CheckVersionTxn) {
+            return Collections.singletonList(((CheckVersionTxn) txn).getPath());
+        }
+        if (txn instanceof CloseSessionTxn && ((CloseSessionTxn) txn).getPaths2Delete() != null) {
+            return ((CloseSessionTxn) txn).getPaths2Delete();
+        }
+        if (txn instanceof MultiTxn) {
+            List<String> paths = new ArrayList<String>();
+            for (Txn subTxn : ((MultiTxn) txn).getTxns()) {
+                paths.addAll(paths(decode(subTxn)));
+            }
+            return paths;
+        }
+        return Collections.emptyList();
+    }
+
+    private static TxnEntry describe(TxnLogEntry entry, List<String> paths) throws IOException {
+        Record txn = entry.getTxn();
+        String detail = "";
+        if (txn instanceof CreateTxn) {
+            CreateTxn create = (CreateTxn) txn;
+            detail = (create.getEphemeral() ? "ephemeral, " : "") + length(create.getData()) + " bytes";
+        }
+        else if (txn instanceof CreateContainerTxn) {
+            detail = "container, " + length(((CreateContainerTxn) txn).getData()) + " bytes";
+        }
+        else if (txn instanceof CreateTTLTxn) {
+            CreateTTLTxn create = (CreateTTLTxn) txn;
+            detail = "TTL " + create.getTtl() + " ms, " + length(create.getData()) + " bytes";
+        }
+        else if (txn instanceof SetDataTxn) {
+            SetDataTxn setData = (SetDataTxn) txn;
+            detail = "version " + setData.getVersion() + ", " + length(setData.getData()) + " bytes";
+        }
+        else if (txn instanceof SetACLTxn) {
+            detail = "ACL version " + ((SetACLTxn) txn).getVersion();
+        }
+        else if (txn instanceof ErrorTxn) {
+            detail = String.valueOf(KeeperException.Code.get(((ErrorTxn) txn).getErr()));
+        }
+        else if (txn instanceof CreateSessionTxn) {
+            detail = "timeout " + ((CreateSessionTxn) txn).getTimeOut() + " ms";
+        }
+        else if (txn instanceof CloseSessionTxn) {
+            detail = paths.size() + " ephemeral nodes deleted";
+        }
+        else if (txn instanceof MultiTxn) {
+            List<Txn> txns = ((MultiTxn) txn).getTxns();
+            StringBuilder sb = new StringBuilder();
+            for (Txn subTxn : txns) {
+                sb.append(sb.length() > 0 ? ", " : "").append(Request.op2String(subTxn.getType()));
+            }
+            detail = sb.toString();
+        }
+        return new TxnEntry(
+                entry.getHeader().getZxid(),
+                entry.getHeader().getTime(),
+                entry.getHeader().getClientId(),
+                Request.op2String(entry.getHeader().getType()),
+                paths,
+                detail);
+    }
+
+    private static int length(byte[] data) {
+        return data != null ? data.length : 0;
+    }
+
+    /**
+     * A log file and its index file
+     */
+    private class Log {
+
+        private final Path file;
+        private final long startZxid;
+        private final Path indexFile;
+        private MappedFile mappedLog;
+        private MappedFile mappedIndex;
+        private long rowCount;
+        private long txnCount;
+
+        private Log(Path file) {
+            this.file = file;
+            this.startZxid = Util.getZxidFromName(file.getFileName().toString(), FileTxnLog.LOG_FILE_PREFIX);
+            // logs of different servers have the same names
+            String id = Long.toHexString(TxnLogIndex.hash(file.toAbsolutePath().toString()));
+            this.indexFile = indexDirectory.resolve(file.getFileName() + "-" + id + ".idx");
+        }
+
+        private void update() throws IOException {
+            long size = Files.size(file);
+            if (mappedLog == null || mappedLog.size() != size) {
+                close();
+                mappedLog = new MappedFile(file);
+            }
+            if (size < LOG_HEADER_SIZE) {
+                indexedBytes.addAndGet(size);
+                return;
+            }
+            if (mappedLog.getInt(0) != FileTxnLog.TXNLOG_MAGIC) {
+                throw new IOException("Not a ZooKeeper transaction log: " + file);
+            }
+            long dbId = mappedLog.getLong(8);
+            try (FileChannel index = FileChannel.open(indexFile,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+                long position = LOG_HEADER_SIZE;
+                long rows = 0;
+                long txns = 0;
+                if (index.read(header, 0) == INDEX_HEADER_SIZE) {
+                    header.flip();
+                    long indexedTo = header.getLong(16);
+                    long indexedRows = header.getLong(24);
+                    if (header.getInt(0) == INDEX_MAGIC
+                            && header.getInt(4) == INDEX_VERSION
+                            && header.getLong(8) == dbId
+                            && indexedTo <= size
+                            && index.size() >= INDEX_HEADER_SIZE + indexedRows * ROW_SIZE) {
+                        position = indexedTo;
+                        rows = indexedRows;
+                        txns = header.getLong(32);
+                    }
+                }
+                // rows past the header were written by an update which did not finish
+                index.truncate(INDEX_HEADER_SIZE + rows * ROW_SIZE);
+                index.position(INDEX_HEADER_SIZE + rows * ROW_SIZE);
+                indexedBytes.addAndGet(position);
+
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                Adler32 crc = new Adler32();
+                while (!cancelled && mappedLog.isAvailable(position, ENTRY_HEADER_SIZE)) {
+                    long checksum = mappedLog.getLong(position);
+                    int length = mappedLog.getInt(position + 8);
+                    // the rest of a log is preallocated with zeros
+                    if (length <= 0 || !mappedLog.isAvailable(position + ENTRY_HEADER_SIZE, length + 1L)) {
+                        break;
+                    }
+                    byte[] bytes = new byte[length];
+                    mappedLog.read(position + ENTRY_HEADER_SIZE, bytes, 0, length);
+                    crc.reset();
+                    crc.update(bytes, 0, length);
+                    if (crc.getValue() != checksum || mappedLog.getByte(position + ENTRY_HEADER_SIZE + length) != END_OF_ENTRY) {
+                        log.warn("Stopped indexing {} at a corrupt transaction at offset {}", file, position);
+                        break;
+                    }
+                    TxnLogEntry entry = SerializeUtils.deserializeTxn(bytes);
+                    long zxid = entry.getHeader().getZxid();
+                    List<String> paths = paths(entry.getTxn());
+                    if (paths.isEmpty()) {
+                        buffer = putRow(index, buffer, zxid, position, 0);
+                        rows++;
+                    }
+                    for (String path : paths) {
+                        buffer = putRow(index, buffer, zxid, position, TxnLogIndex.hash(path));
+                        rows++;
+                    }
+                    txns++;
+                    long next = position + ENTRY_HEADER_SIZE + length + 1;
+                    indexedBytes.addAndGet(next - position);
+                    position = next;
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    index.write(buffer);
+                }
+                header.clear();
+                header.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(dbId).putLong(position).putLong(rows).putLong(txns);
+                header.flip();
+                index.write(header, 0);
+                if (!cancelled) {
+                    indexedBytes.addAndGet(size - position);
+                }
+                this.rowCount = rows;
+                this.txnCount = txns;
+            }
+            if (mappedIndex != null) {
+                mappedIndex.close();
+            }
+            mappedIndex = new MappedFile(indexFile);
+        }
+
+        private ByteBuffer putRow(FileChannel index, ByteBuffer buffer, long zxid, long offset, long hash)
+                throws IOException {
+            if (buffer.remaining() < ROW_SIZE) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    index.write(buffer);
+                }
+                buffer.clear();
+            }
+            return buffer.putLong(zxid).putLong(offset).putLong(hash);
+        }
+
+        private long zxid(long row) {
+            return mappedIndex.getLong(INDEX_HEADER_SIZE + row * ROW_SIZE);
+        }
+
+        private long offset(long row) {
+            return mappedIndex.getLong(INDEX_HEADER_SIZE + row * ROW_SIZE + 8);
+        }
+
+        private long pathHash(long row) {
+            return mappedIndex.getLong(INDEX_HEADER_SIZE + row * ROW_SIZE + 16);
+        }
+
+        /**
+         * @return the first row whose zxid is above the zxid
+         */
+        private long firstRowAfter(long zxid) {
+            long low = 0;
+            long high = rowCount;
+            while (low < high) {
+                long middle = (low + high) >>> 1;
+                if (zxid(middle) <= zxid) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private TxnLogEntry read(long offset) throws IOException {
+            int length = mappedLog.getInt(offset + 8);
+            byte[] bytes = new byte[length];
+            mappedLog.read(offset + ENTRY_HEADER_SIZE, bytes, 0, length);
+            return SerializeUtils.deserializeTxn(bytes);
+        }
+
+        private void close() {
+            if (mappedLog != null) {
+                mappedLog.close();
+                mappedLog = null;
+            }
+            if (mappedIndex != null) {
+                mappedIndex.close();
+                mappedIndex = null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * A Manager for non-blocking interactions between the application and the
+ * nodes in a Zookeeper instance. Each method mirrors a blocking method of
+ * {@link ZooInspectorReadOnlyManager}, {@link ZooInspectorNodeManager} or
+ * {@link ZooInspectorNodeTreeManager} and completes with the same value that
+ * method would return.
+ * <p>
+ * Futures may be completed on the ZooKeeper event thread, so dependent stages
+ * must not block.
+ */
+public interface ZooInspectorAsyncManager {
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a future of the data for the node
+     */
+    public abstract CompletableFuture<String> getDataAsync(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a future of the metaData for the node
+     */
+    public abstract CompletableFuture<Map<String, String>> getNodeMetaAsync(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a future of the {@link Stat} of the node, or <code>null</code>
+     *         if the node does not exist
+     */
+    public abstract CompletableFuture<Stat> getStatAsync(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a future of the ACLs set on the node
+     */
+    public abstract CompletableFuture<List<Map<String, String>>> getACLsAsync(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a future of the data, metaData and ACLs of the node, or
+     *         <code>null</code> if the node does not exist
+     */
+    public abstract CompletableFuture<NodeSnapshot> getNodeSnapshotAsync(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a future of the sorted {@link List} of the children of the node
+     */
+    public abstract CompletableFuture<List<String>> getChildrenAsync(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a future of the sorted children of the node together with the
+     *         {@link Stat} of each child, or
+     *         <code>null</code> if the node does not exist
+     */
+    public abstract CompletableFuture<NodeLevel> getNodeLevelAsync(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @param after
+     *            - the name after which the page starts, or <code>null</code>
+     *            to start at the first child
+     * @param limit
+     *            - the maximum number of children in the page
+     * @return a future of the sorted children of the node together with the
+     *         {@link Stat} of each child in the page, or <code>null</code> if
+     *         the node does not exist
+     */
+    public abstract CompletableFuture<NodeLevel> getNodeLevelAsync(String nodePath, String after, int limit);
+
+    /**
+     * Reads the levels below the children of a node in the background, so
+     * that expanding one of the children does not wait for zookeeper
+     * 
+     * @param nodePath
+     *            - the path to the node whose children are shown
+     */
+    public abstract void prefetch(String nodePath);
+
+    /**
+     * @param parent
+     *            - the parent node path for the node to add
+     * @param nodeName
+     *            - the name of the new node
+     * @return a future of true if the node was successfully created
+     */
+    public abstract CompletableFuture<Boolean> createNodeAsync(String parent, String nodeName);
+
+    /**
+     * @param nodePath
+     *            - the path to the node to delete
+     * @return a future of true if the node was successfully deleted
+     */
+    public abstract CompletableFuture<Boolean> deleteNodeAsync(String nodePath);
+
+    /**
+     * @param nodePath
+     *            - the path to the node on which to set the data
+     * @param data
+     *            - the data to set on the this node
+     * @return a future of true if the data for the node was successfully
+     *         updated
+     */
+    public abstract CompletableFuture<Boolean> setDataAsync(String nodePath, String data);
+
+    /**
+     * @return a new {@link NodeCrawler} for walking subtrees of the connected
+     *         zookeeper instance, or <code>null</code> if not connected
+     */
+    public abstract NodeCrawler createCrawler();
+
+    /**
+     * @return the {@link NodeNameIndex} of the connected zookeeper instance,
+     *         which starts filling in the background the first time it is
+     *         asked for, or <code>null</code> if not connected
+     */
+    public abstract NodeNameIndex getNameIndex();
+
+    /**
+     * @param text
+     *            - the text to search the data of the nodes for
+     * @param ignoreCase
+     *            - true if ASCII letters should match regardless of case
+     * @return a new {@link NodeDataSearch} which decrypts the data with the
+     *         {@link org.apache.zookeeper.inspector.encryption.DataEncryptionManager}
+     *         of the connection, or <code>null</code> if not connected
+     */
+    public abstract NodeDataSearch createDataSearch(String text, boolean ignoreCase);
+
+    /**
+     * @param query
+     *            - the query the metadata of the nodes has to match
+     * @return a new {@link NodeMetaSearch}, or <code>null</code> if not
+     *         connected
+     */
+    public abstract NodeMetaSearch createMetaSearch(NodeMetaQuery query);
+
+    /**
+     * @param file
+     *            - the file to export to
+     * @param format
+     *            - the format to write
+     * @param gzip
+     *            - true if the file should be compressed with GZIP
+     * @return a new {@link NodeExport}, or <code>null</code> if not connected
+     */
+    public abstract NodeExport createExport(Path file, NodeExportFormat format, boolean gzip);
+
+    /**
+     * @return a new {@link NodeImport}, or <code>null</code> if not connected
+     */
+    public abstract NodeImport createImport();
+
+    /**
+     * @return a new {@link NodeDelete}, or <code>null</code> if not connected
+     */
+    public abstract NodeDelete createDelete();
+
+    /**
+     * @param otherConnectionProps
+     *            - the connection to read the right side of the diff with, or
+     *            <code>null</code> to compare two subtrees of this connection
+     * @return a new {@link NodeDiff} whose left side is this connection, or
+     *         <code>null</code> if not connected. It owns the other
+     *         connection, if any, which is closed with it
+     * @throws IOException
+     *             - if the other connection cannot be established
+     */
+    public abstract NodeDiff createDiff(ZookeeperProperties otherConnectionProps) throws IOException;
+
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return a future of the number of nodes below the node, or
+     *         <code>null</code> if the node does not exist
+     */
+    public abstract CompletableFuture<Integer> getAllChildrenNumberAsync(String nodePath);
+
+}
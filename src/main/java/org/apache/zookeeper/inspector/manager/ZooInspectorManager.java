@@ -32,7 +32,7 @@ import javax.swing.JTextField;
  * instance
  */
 public interface ZooInspectorManager extends ZooInspectorNodeManager,
-        ZooInspectorNodeTreeManager {
+        ZooInspectorNodeTreeManager, ZooInspectorAsyncManager {
 
     /**
      * @param connectionProps
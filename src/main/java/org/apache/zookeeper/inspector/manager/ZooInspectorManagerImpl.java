@@ -26,18 +26,29 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
+import org.apache.zookeeper.AddWatchMode;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.WatchedEvent;
@@ -51,7 +62,11 @@ import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
 import org.apache.zookeeper.inspector.ZooInspector;
 import org.apache.zookeeper.inspector.encryption.BasicDataEncryptionManager;
+import org.apache.zookeeper.inspector.encryption.CompressionDataEncryptionManager;
+import org.apache.zookeeper.inspector.encryption.DataCodec;
 import org.apache.zookeeper.inspector.encryption.DataEncryptionManager;
+import org.apache.zookeeper.inspector.encryption.DecodedData;
+import org.apache.zookeeper.inspector.encryption.EncryptionManagerCodec;
 import org.apache.zookeeper.retry.ZooKeeperRetry;
 
 import lombok.Getter;
@@ -64,17 +79,6 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class ZooInspectorManagerImpl implements ZooInspectorManager {
-    private static final String A_VERSION = "ACL Version";
-    private static final String C_TIME = "Creation Time";
-    private static final String C_VERSION = "Children Version";
-    private static final String CZXID = "Creation ID";
-    private static final String DATA_LENGTH = "Data Length";
-    private static final String EPHEMERAL_OWNER = "Ephemeral Owner";
-    private static final String M_TIME = "Last Modified Time";
-    private static final String MZXID = "Modified ID";
-    private static final String NUM_CHILDREN = "Number of Children";
-    private static final String PZXID = "Node ID";
-    private static final String VERSION = "Data Version";
     private static final String ACL_PERMS = "Permissions";
     private static final String ACL_SCHEME = "Scheme";
     private static final String ACL_ID = "Id";
@@ -86,15 +90,17 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
     private static final String DEFAULT_HOSTS = "localhost:2181";
     private static final String DEFAULT_AUTH_SCHEME = "";
     private static final String DEFAULT_AUTH_VALUE = "";
+    private static final int SNAPSHOT_ATTEMPTS = 3;
+    private static final int LEVEL_BATCH_SIZE = 1000;
 
     private static final String homeDir = System.getProperty("user.home");
     private static final File defaultNodeViewersFile = new File(homeDir + "/.zooinspector/defaultNodeViewers.cfg");
     private static final File defaultConnectionFile = new File(homeDir + "/.zooinspector/defaultConnectionSettings.cfg");
 
-    private DataEncryptionManager encryptionManager;
+    private DataCodec codec;
     private String connectString;
     private int sessionTimeout;
-    private ZooKeeper zooKeeper;
+    private ZooKeeperRetry zooKeeper;
     private final Map<String, NodeWatcher> watchers = new HashMap<String, NodeWatcher>();
     protected boolean connected = true;
     private ZookeeperProperties lastConnectionProps;
@@ -105,6 +111,19 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
 //    private String defaultAuthScheme;
 //    private String defaultAuthValue;
     private NodesCache nodesCache;
+    private NodePrefetcher prefetcher;
+    private volatile NodeNameIndex nameIndex;
+    private volatile boolean treeWatched = false;
+    private final StatCache statCache = new StatCache();
+    /**
+     * Runs the deletes of {@link #deleteNodeAsync(String)}, which wait for
+     * their transactions for as long as the subtree takes
+     */
+    private final ExecutorService deleteExecutor = Executors.newCachedThreadPool((runnable) -> {
+        Thread thread = new Thread(runnable, "node-delete");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * @throws IOException
@@ -123,19 +142,7 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
                     throw new IllegalArgumentException(
                             "Both connect string and session timeout are required.");
                 }
-                if (connectionProps.getEncryptionManager() == null) {
-                    this.encryptionManager = new BasicDataEncryptionManager();
-                } 
-                else {
-                    Class<?> clazz = Class.forName(connectionProps.getEncryptionManager());
-
-                    if (Arrays.asList(clazz.getInterfaces()).contains(DataEncryptionManager.class)) {
-                        this.encryptionManager = (DataEncryptionManager) clazz.newInstance();
-                    } 
-                    else {
-                        throw new IllegalArgumentException("Data encryption manager must implement DataEncryptionManager interface");
-                    }
-                }
+                this.codec = createCodec(connectionProps);
                 this.connectString = connectionProps.getConnectionString();
                 this.sessionTimeout = connectionProps.getSessionTimeoutMs();
                 this.zooKeeper = new ZooKeeperRetry(
@@ -146,10 +153,17 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
 			                        if (event.getState() == KeeperState.Expired) {
 			                            connected = false;
 			                        }
+			                        if (event.getType() == EventType.None && event.getState() != KeeperState.SyncConnected) {
+			                            statCache.invalidateAll();
+			                            if (nodesCache != null) {
+			                                nodesCache.invalidateAll();
+			                            }
+			                        }
 			                    }
 		                }
                 );
-                connected = ((ZooKeeperRetry) this.zooKeeper).testConnection();
+                this.zooKeeper.setStatCache(statCache);
+                connected = this.zooKeeper.testConnection();
             }
         } 
         catch (Exception e) {
@@ -160,17 +174,103 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
         	disconnect();
         } 
         else {
-            this.nodesCache = new NodesCache(zooKeeper);
+            this.nodesCache = new NodesCache(zooKeeper, connectionProps);
+            watchNodeTree();
+            this.prefetcher = new NodePrefetcher(zooKeeper, nodesCache, statCache, connectionProps);
         }
         return connected;
     }
 
+    /**
+     * @param connectionProps
+     *            - the properties of a connection
+     * @return a {@link DataCodec} which decodes with new instances of the data
+     *         encryption managers the properties name, separated by commas, in
+     *         that order. For example a decrypting manager followed by
+     *         {@link CompressionDataEncryptionManager} decrypts and then
+     *         decompresses the data, and compresses before encrypting it. A
+     *         {@link BasicDataEncryptionManager} if they name none
+     */
+    static DataCodec createCodec(ZookeeperProperties connectionProps) throws Exception {
+        DataCodec codec = null;
+        DataCodec last = null;
+        String names = connectionProps.getEncryptionManager();
+        for (String name : names != null ? names.split(",") : new String[0]) {
+            if (name.trim().isEmpty()) {
+                continue;
+            }
+            if (last instanceof EncryptionManagerCodec) {
+                // it decodes to text, which the next one cannot take as bytes
+                throw new IllegalArgumentException("Data encryption manager "
+                        + ((EncryptionManagerCodec) last).getEncryptionManager().getClass().getName()
+                        + " does not implement DataCodec, so it must be the last one");
+            }
+            last = EncryptionManagerCodec.of(createEncryptionManager(name.trim()));
+            codec = codec == null ? last : codec.then(last);
+        }
+        return codec != null ? codec : new BasicDataEncryptionManager();
+    }
+
+    private static DataEncryptionManager createEncryptionManager(String className) throws Exception {
+        Class<?> clazz = Class.forName(className);
+        if (DataEncryptionManager.class.isAssignableFrom(clazz)) {
+            return (DataEncryptionManager) clazz.newInstance();
+        }
+        throw new IllegalArgumentException("Data encryption manager must implement DataEncryptionManager interface");
+    }
+
+    /**
+     * Adds a persistent recursive watch on the root node which keeps the
+     * {@link StatCache}, the {@link NodesCache} and the {@link NodeNameIndex}
+     * coherent. If the server does not support persistent watches the caches
+     * fall back to expiring stats and to child watches, and the name index to
+     * crawling again once it is old.
+     */
+    private void watchNodeTree() {
+        boolean watched = false;
+        try {
+            this.zooKeeper.addWatch("/", (event) -> {
+                statCache.process(event);
+                nodesCache.process(event);
+                NodeNameIndex index = nameIndex;
+                if (index != null) {
+                    index.process(event);
+                }
+            }, AddWatchMode.PERSISTENT_RECURSIVE);
+            watched = true;
+        } 
+        catch (KeeperException e) {
+            log.warn("Unable to watch the node tree, cached node stats expire after {} ms", StatCache.UNWATCHED_EXPIRATION_TIME, e);
+        } 
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while adding the node tree watch", e);
+        }
+        this.statCache.setWatched(watched);
+        this.nodesCache.setWatched(watched);
+        this.treeWatched = watched;
+    }
+
     @Override
     public boolean disconnect() {
         try {
             if (this.zooKeeper != null) {
+                if (this.prefetcher != null) {
+                    this.prefetcher.close();
+                    this.prefetcher = null;
+                }
+                synchronized (this) {
+                    if (this.nameIndex != null) {
+                        this.nameIndex.close();
+                        this.nameIndex = null;
+                    }
+                }
                 this.zooKeeper.close();
                 this.zooKeeper = null;
+                this.statCache.invalidateAll();
+                if (this.nodesCache != null) {
+                    this.nodesCache.invalidateAll();
+                }
                 connected = false;
                 removeWatchers(this.watchers.keySet());
                 return true;
@@ -192,24 +292,102 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
     }
 
     @Override
-    public String getData(String nodePath) {
-        if (connected) {
-            try {
-                if (nodePath.length() == 0) {
-                    nodePath = "/";
-                }
-                Stat s = zooKeeper.exists(nodePath, false);
-                if (s != null) {
-                    return this.encryptionManager.decryptData(
-                    				zooKeeper.getData(nodePath, false, s)
-                    		);
-                }
-            } 
-            catch (Exception e) {
-                log.error("Error occurred getting data for node: " + nodePath, e);
+    public CompletableFuture<List<String>> getChildrenAsync(String nodePath) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return nodesCache.getAsync(normalizePath(nodePath))
+                .thenApply((children) -> children.getKey())
+                .exceptionally(whenNoNode(null));
+    }
+
+    @Override
+    public NodeLevel getNodeLevel(String nodePath) {
+        return await(getNodeLevelAsync(nodePath), null, "Error occurred retrieving children of node: {}", nodePath);
+    }
+
+    @Override
+    public CompletableFuture<NodeLevel> getNodeLevelAsync(String nodePath) {
+        return getNodeLevelAsync(nodePath, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public CompletableFuture<NodeLevel> getNodeLevelAsync(String nodePath, String after, int limit) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(null);
+        }
+        final String path = normalizePath(nodePath);
+        return nodesCache.getAsync(path)
+                .thenCompose((children) -> {
+                    List<String> sorted = children.getKey();
+                    int offset = pageOffset(sorted, after);
+                    Stat[] childStats = new Stat[Math.min(limit, sorted.size() - offset)];
+                    return getChildStatsAsync(path, sorted.subList(offset, offset + childStats.length), childStats, 0)
+                            .thenApply((ignored) -> new NodeLevel(path, children.getValue(), sorted, offset, childStats));
+                })
+                .exceptionally(whenNoNode(null));
+    }
+
+    @Override
+    public void prefetch(String nodePath) {
+        NodePrefetcher current = this.prefetcher;
+        if (connected && current != null) {
+            current.prefetch(normalizePath(nodePath));
+        }
+    }
+
+    /**
+     * @return the index of the first of the sorted children after the name
+     */
+    static int pageOffset(List<String> sorted, String after) {
+        if (after == null) {
+            return 0;
+        }
+        int index = Collections.binarySearch(sorted, after);
+        return index >= 0 ? index + 1 : -(index + 1);
+    }
+
+    /**
+     * Reads the {@link Stat}s of the children with pipelined exists requests,
+     * {@link #LEVEL_BATCH_SIZE} at a time, so a level of N children costs
+     * N / {@link #LEVEL_BATCH_SIZE} round trips. Stats which are in the
+     * {@link StatCache} are not read again.
+     */
+    private CompletableFuture<Void> getChildStatsAsync(String parent, List<String> children, Stat[] childStats, int from) {
+        if (from >= children.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int to = Math.min(from + LEVEL_BATCH_SIZE, children.size());
+        CompletableFuture<?>[] batch = new CompletableFuture<?>[to - from];
+        for (int i = from; i < to; i++) {
+            final int index = i;
+            String childPath = childPath(parent, children.get(i));
+            Stat cached = statCache.get(childPath);
+            if (cached != null) {
+                childStats[index] = cached;
+                batch[i - from] = CompletableFuture.completedFuture(null);
+                continue;
             }
+            batch[i - from] = zooKeeper.existsAsync(childPath, null)
+                    .thenAccept((s) -> childStats[index] = s);
         }
-        return null;
+        return CompletableFuture.allOf(batch)
+                .thenCompose((ignored) -> getChildStatsAsync(parent, children, childStats, to));
+    }
+
+    @Override
+    public String getData(String nodePath) {
+        return await(getDataAsync(nodePath), null, "Error occurred getting data for node: {}", nodePath);
+    }
+
+    @Override
+    public CompletableFuture<String> getDataAsync(String nodePath) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return zooKeeper.getDataAsync(normalizePath(nodePath), null)
+                .thenApply((data) -> decrypt(data.getKey()))
+                .exceptionally(whenNoNode(null));
     }
 
     @Override
@@ -242,96 +420,152 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
 
     @Override
     public List<Map<String, String>> getACLs(String nodePath) {
+        return await(getACLsAsync(nodePath), new ArrayList<Map<String, String>>(),
+                "Error occurred retrieving ACLs of node: {}", nodePath);
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, String>>> getACLsAsync(String nodePath) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(new ArrayList<Map<String, String>>());
+        }
+        return zooKeeper.getACLAsync(normalizePath(nodePath))
+                .thenApply((acls) -> formatACLs(acls.getKey()))
+                .exceptionally(whenNoNode(new ArrayList<Map<String, String>>()));
+    }
+
+    static List<Map<String, String>> formatACLs(List<ACL> acls) {
         List<Map<String, String>> returnACLs = new ArrayList<Map<String, String>>();
-        if (connected) {
-            try {
-                if (nodePath.length() == 0) {
-                    nodePath = "/";
-                }
-                Stat s = zooKeeper.exists(nodePath, false);
-                if (s != null) {
-                    List<ACL> acls = zooKeeper.getACL(nodePath, s);
-                    for (ACL acl : acls) {
-                        Map<String, String> aclMap = new LinkedHashMap<String, String>();
-                        aclMap.put(ACL_SCHEME, acl.getId().getScheme());
-                        aclMap.put(ACL_ID, acl.getId().getId());
-                        StringBuilder sb = new StringBuilder();
-                        int perms = acl.getPerms();
-                        boolean addedPerm = false;
-                        if ((perms & Perms.READ) == Perms.READ) {
-                            sb.append("Read");
-                            addedPerm = true;
-                        }
-                        if (addedPerm) {
-                            sb.append(", ");
-                        }
-                        if ((perms & Perms.WRITE) == Perms.WRITE) {
-                            sb.append("Write");
-                            addedPerm = true;
-                        }
-                        if (addedPerm) {
-                            sb.append(", ");
-                        }
-                        if ((perms & Perms.CREATE) == Perms.CREATE) {
-                            sb.append("Create");
-                            addedPerm = true;
-                        }
-                        if (addedPerm) {
-                            sb.append(", ");
-                        }
-                        if ((perms & Perms.DELETE) == Perms.DELETE) {
-                            sb.append("Delete");
-                            addedPerm = true;
-                        }
-                        if (addedPerm) {
-                            sb.append(", ");
-                        }
-                        if ((perms & Perms.ADMIN) == Perms.ADMIN) {
-                            sb.append("Admin");
-                            addedPerm = true;
-                        }
-                        aclMap.put(ACL_PERMS, sb.toString());
-                        returnACLs.add(aclMap);
-                    }
-                }
-            } 
-            catch (InterruptedException e) {
-                log.error("Error occurred retrieving ACLs of node: {}", e);
-            } 
-            catch (KeeperException e) {
-                log.error("Error occurred retrieving ACLs of node: {}", nodePath, e);
+        for (ACL acl : acls) {
+            Map<String, String> aclMap = new LinkedHashMap<String, String>();
+            aclMap.put(ACL_SCHEME, acl.getId().getScheme());
+            aclMap.put(ACL_ID, acl.getId().getId());
+            StringBuilder sb = new StringBuilder();
+            int perms = acl.getPerms();
+            boolean addedPerm = false;
+            if ((perms & Perms.READ) == Perms.READ) {
+                sb.append("Read");
+                addedPerm = true;
+            }
+            if (addedPerm) {
+                sb.append(", ");
+            }
+            if ((perms & Perms.WRITE) == Perms.WRITE) {
+                sb.append("Write");
+                addedPerm = true;
             }
+            if (addedPerm) {
+                sb.append(", ");
+            }
+            if ((perms & Perms.CREATE) == Perms.CREATE) {
+                sb.append("Create");
+                addedPerm = true;
+            }
+            if (addedPerm) {
+                sb.append(", ");
+            }
+            if ((perms & Perms.DELETE) == Perms.DELETE) {
+                sb.append("Delete");
+                addedPerm = true;
+            }
+            if (addedPerm) {
+                sb.append(", ");
+            }
+            if ((perms & Perms.ADMIN) == Perms.ADMIN) {
+                sb.append("Admin");
+                addedPerm = true;
+            }
+            aclMap.put(ACL_PERMS, sb.toString());
+            returnACLs.add(aclMap);
         }
         return returnACLs;
     }
 
     @Override
     public Map<String, String> getNodeMeta(String nodePath) {
+        return await(getNodeMetaAsync(nodePath), new LinkedHashMap<String, String>(),
+                "Error occurred retrieving meta data for node: {}", nodePath);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> getNodeMetaAsync(String nodePath) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(new LinkedHashMap<String, String>());
+        }
+        return zooKeeper.existsAsync(normalizePath(nodePath), null)
+                .thenApply((s) -> formatMeta(s));
+    }
+
+    @Override
+    public Stat getCachedStat(String nodePath) {
+        return statCache.get(normalizePath(nodePath));
+    }
+
+    @Override
+    public CompletableFuture<Stat> getStatAsync(String nodePath) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return zooKeeper.existsAsync(normalizePath(nodePath), null);
+    }
+
+    @Override
+    public NodeSnapshot getNodeSnapshot(String nodePath) {
+        return await(getNodeSnapshotAsync(nodePath), null,
+                "Error occurred retrieving snapshot of node: {}", nodePath);
+    }
+
+    @Override
+    public CompletableFuture<NodeSnapshot> getNodeSnapshotAsync(String nodePath) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return getNodeSnapshotAsync(normalizePath(nodePath), SNAPSHOT_ATTEMPTS)
+                .exceptionally(whenNoNode(null));
+    }
+
+    /**
+     * The read multi of ZooKeeper cannot return ACLs, so the data and the ACLs
+     * are read with two pipelined requests. The {@link Stat}s returned with
+     * each of them are compared, and the snapshot is read again if the node
+     * changed in between.
+     */
+    private CompletableFuture<NodeSnapshot> getNodeSnapshotAsync(String nodePath, int attempts) {
+        CompletableFuture<Pair<byte[], Stat>> data = zooKeeper.getDataAsync(nodePath, null);
+        CompletableFuture<Pair<List<ACL>, Stat>> acls = zooKeeper.getACLAsync(nodePath);
+        return data.thenCombine(acls, (d, a) -> new Pair<Pair<byte[], Stat>, Pair<List<ACL>, Stat>>(d, a))
+                .thenCompose((read) -> {
+                    Stat dataStat = read.getKey().getValue();
+                    Stat aclStat = read.getValue().getValue();
+                    if (!isSameVersion(dataStat, aclStat) && attempts > 1) {
+                        return getNodeSnapshotAsync(nodePath, attempts - 1);
+                    }
+                    byte[] rawData = read.getKey().getKey();
+                    return CompletableFuture.completedFuture(new NodeSnapshot(
+                            nodePath,
+                            rawData,
+                            new DecodedData(rawData, codec),
+                            dataStat,
+                            formatMeta(dataStat),
+                            formatACLs(read.getValue().getKey())));
+                });
+    }
+
+    private static boolean isSameVersion(Stat s1, Stat s2) {
+        return s1.getMzxid() == s2.getMzxid()
+                && s1.getPzxid() == s2.getPzxid()
+                && s1.getAversion() == s2.getAversion();
+    }
+
+    static Map<String, String> formatMeta(Stat s) {
         Map<String, String> nodeMeta = new LinkedHashMap<String, String>();
-        if (connected) {
-            try {
-                if (nodePath.length() == 0) {
-                    nodePath = "/";
-                }
-                Stat s = zooKeeper.exists(nodePath, false);
-                if (s != null) {
-                    DateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS z");
-
-                    nodeMeta.put(A_VERSION, String.valueOf(s.getAversion()));
-                    nodeMeta.put(C_TIME, format.format(new Date(s.getCtime())));
-                    nodeMeta.put(C_VERSION, String.valueOf(s.getCversion()));
-                    nodeMeta.put(CZXID, String.valueOf(s.getCzxid()));
-                    nodeMeta.put(DATA_LENGTH, String.valueOf(s.getDataLength()));
-                    nodeMeta.put(EPHEMERAL_OWNER, String.valueOf(s.getEphemeralOwner()));
-                    nodeMeta.put(M_TIME, format.format(new Date(s.getMtime())));
-                    nodeMeta.put(MZXID, String.valueOf(s.getMzxid()));
-                    nodeMeta.put(NUM_CHILDREN, String.valueOf(s.getNumChildren()));
-                    nodeMeta.put(PZXID, String.valueOf(s.getPzxid()));
-                    nodeMeta.put(VERSION, String.valueOf(s.getVersion()));
-                }
-            } 
-            catch (Exception e) {
-                log.error("Error occurred retrieving meta data for node: {}", nodePath, e);
+        if (s != null) {
+            DateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS z");
+
+            for (StatField field : StatField.values()) {
+                nodeMeta.put(field.getLabel(), field.isTime()
+                        ? format.format(new Date(field.get(s)))
+                        : String.valueOf(field.get(s)));
             }
         }
         return nodeMeta;
@@ -340,14 +574,12 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
     @Override
     public int getNumChildren(String nodePath) {
         if (connected) {
-            try {
-                Stat s = zooKeeper.exists(nodePath, false);
-                if (s != null) {
-                    return s.getNumChildren();
-                }
-            } 
-            catch (Exception e) {
-                log.error("Error occurred getting the number of children of node: {}", nodePath, e);
+            Stat s = statCache.get(nodePath);
+            if (s == null) {
+                s = nodesCache.getStat(nodePath);
+            }
+            if (s != null) {
+                return s.getNumChildren();
             }
         }
         return -1;
@@ -361,14 +593,12 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
     @Override
     public boolean isAllowsChildren(String nodePath) {
         if (connected) {
-            try {
-                Stat s = zooKeeper.exists(nodePath, false);
-                if (s != null) {
-                    return s.getEphemeralOwner() == 0;
-                }
-            } 
-            catch (Exception e) {
-                log.error("Error occurred determining whether node is allowed children: {}", nodePath, e);
+            Stat s = statCache.get(nodePath);
+            if (s == null) {
+                s = nodesCache.getStat(nodePath);
+            }
+            if (s != null) {
+                return s.getEphemeralOwner() == 0;
             }
         }
         return false;
@@ -401,63 +631,234 @@ public class ZooInspectorManagerImpl implements ZooInspectorManager {
 
     @Override
     public boolean createNode(String parent, String nodeName) {
-        if (connected) {
-            try {
-                String[] nodeElements = nodeName.split("/");
-                for (String nodeElement : nodeElements) {
-                    String node = parent + "/" + nodeElement;
-                    Stat s = zooKeeper.exists(node, false);
-                    if (s == null) {
-                        zooKeeper.create(node, this.encryptionManager
-                                .encryptData(null), Ids.OPEN_ACL_UNSAFE,
-                                CreateMode.PERSISTENT);
-                        parent = node;
-                    }
-                }
-                return true;
-            } 
-            catch (Exception e) {
-                log.error("Error occurred creating node: {}/{}", parent, nodeName, e);
+        return await(createNodeAsync(parent, nodeName), false,
+                "Error occurred creating node: {}", parent + "/" + nodeName);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createNodeAsync(String parent, String nodeName) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(false);
+        }
+        final byte[] data;
+        try {
+            data = encode(null);
+        }
+        catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        // existing path elements are reported as created by ZooKeeperRetry,
+        // so each element costs a single create
+        CompletableFuture<String> created = CompletableFuture.completedFuture(parent);
+        for (String nodeElement : nodeName.split("/")) {
+            if (nodeElement.length() > 0) {
+                created = created.thenCompose((node) -> {
+                    String path = childPath(node, nodeElement);
+                    return zooKeeper.createAsync(path, data, Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT)
+                            .whenComplete((result, e) -> nodesCache.invalidateWithParent(path));
+                });
             }
         }
-        return false;
+        return created.thenApply((node) -> true);
     }
 
     @Override
     public boolean deleteNode(String nodePath) {
-        if (connected) {
-            try {
-                Stat s = zooKeeper.exists(nodePath, false);
-                if (s != null) {
-                    List<String> children = zooKeeper.getChildren(nodePath,
-                            false);
-                    for (String child : children) {
-                        String node = nodePath + "/" + child;
-                        deleteNode(node);
-                    }
-                    zooKeeper.delete(nodePath, -1);
-                }
-                return true;
-            } 
-            catch (Exception e) {
-                log.error("Error occurred deleting node: {}", nodePath, e);
-            }
+        NodeDelete delete = createDelete();
+        if (delete == null) {
+            return false;
         }
-        return false;
+        try {
+            delete.delete(Collections.singletonList(normalizePath(nodePath)));
+            return delete.getErrorCount() == 0;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Error occurred deleting node: {}", nodePath, e);
+            return false;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteNodeAsync(String nodePath) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(false);
+        }
+        // the delete waits for its transactions, so it runs off the event
+        // thread and off the common pool
+        return CompletableFuture.supplyAsync(() -> deleteNode(nodePath), deleteExecutor);
     }
 
     @Override
     public boolean setData(String nodePath, String data) {
-        if (connected) {
+        return await(setDataAsync(nodePath, data), false, "Error occurred setting data for node: {}", nodePath);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setDataAsync(String nodePath, String data) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(false);
+        }
+        try {
+            return zooKeeper.setDataAsync(nodePath, encode(data), -1)
+                    .thenApply((s) -> true);
+        }
+        catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public NodeCrawler createCrawler() {
+        if (!connected) {
+            return null;
+        }
+        return new NodeCrawler(zooKeeper);
+    }
+
+    @Override
+    public synchronized NodeNameIndex getNameIndex() {
+        if (!connected) {
+            return null;
+        }
+        if (nameIndex == null || nameIndex.isStale()) {
+            if (nameIndex != null) {
+                nameIndex.close();
+            }
+            nameIndex = new NodeNameIndex(new NodeCrawler(zooKeeper), treeWatched);
+            nameIndex.build();
+        }
+        return nameIndex;
+    }
+
+    @Override
+    public NodeDataSearch createDataSearch(String text, boolean ignoreCase) {
+        if (!connected) {
+            return null;
+        }
+        return new NodeDataSearch(new NodeCrawler(zooKeeper), codec, text.getBytes(StandardCharsets.UTF_8), ignoreCase);
+    }
+
+    @Override
+    public NodeMetaSearch createMetaSearch(NodeMetaQuery query) {
+        if (!connected) {
+            return null;
+        }
+        return new NodeMetaSearch(new NodeCrawler(zooKeeper), query);
+    }
+
+    @Override
+    public NodeExport createExport(Path file, NodeExportFormat format, boolean gzip) {
+        if (!connected) {
+            return null;
+        }
+        return new NodeExport(new NodeCrawler(zooKeeper), file, format, gzip);
+    }
+
+    @Override
+    public NodeImport createImport() {
+        if (!connected) {
+            return null;
+        }
+        return new NodeImport(zooKeeper);
+    }
+
+    @Override
+    public NodeDelete createDelete() {
+        if (!connected) {
+            return null;
+        }
+        return new NodeDelete(new NodeCrawler(zooKeeper), zooKeeper, nodesCache::invalidateWithParent);
+    }
+
+    @Override
+    public NodeDiff createDiff(ZookeeperProperties otherConnectionProps) throws IOException {
+        if (!connected) {
+            return null;
+        }
+        if (otherConnectionProps == null) {
+            return new NodeDiff(zooKeeper, zooKeeper, false);
+        }
+        ZooKeeperRetry other = new ZooKeeperRetry(otherConnectionProps, (event) -> {});
+        if (!other.testConnection()) {
             try {
-                zooKeeper.setData(nodePath, this.encryptionManager.encryptData(data), -1);
-                return true;
-            } 
-            catch (Exception e) {
-                log.error("Error occurred setting data for node: {}", nodePath, e);
+                other.close();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+            throw new IOException("Unable to connect to " + otherConnectionProps.getConnectionString());
         }
-        return false;
+        return new NodeDiff(zooKeeper, other, true);
+    }
+
+    @Override
+    public CompletableFuture<Integer> getAllChildrenNumberAsync(String nodePath) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return zooKeeper.getAllChildrenNumberAsync(normalizePath(nodePath))
+                .exceptionally(whenNoNode(null));
+    }
+
+    private String decrypt(byte[] data) {
+        try {
+            return new DecodedData(data, codec).getText();
+        }
+        catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * @return the text encoded by the {@link DataCodec} of the connection, an
+     *         empty array for no text
+     */
+    private byte[] encode(String data) throws Exception {
+        ByteBuffer encoded = codec.encode(ByteBuffer.wrap(data != null ? data.getBytes(StandardCharsets.UTF_8) : new byte[0]));
+        return encoded != null ? DataCodec.toArray(encoded) : new byte[0];
+    }
+
+    static String normalizePath(String nodePath) {
+        return nodePath.length() == 0 ? "/" : nodePath;
+    }
+
+    static String childPath(String parent, String child) {
+        return (parent.equals("/") ? "" : parent) + "/" + child;
+    }
+
+    /**
+     * @param value
+     *            - the value to use if the node does not exist
+     * @return a function which maps a {@link KeeperException.NoNodeException}
+     *         to the value and rethrows any other error
+     */
+    private static <T> Function<Throwable, T> whenNoNode(T value) {
+        return (error) -> {
+            Throwable cause = ZooKeeperRetry.unwrap(error);
+            if (cause instanceof KeeperException.NoNodeException) {
+                return value;
+            }
+            throw new CompletionException(cause);
+        };
+    }
+
+    /**
+     * Waits for the result of a call made through one of the asynchronous
+     * methods, logging any error the same way the blocking API always has.
+     */
+    private static <T> T await(CompletableFuture<T> future, T defaultValue, String message, String nodePath) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error(message, nodePath, e);
+        }
+        catch (ExecutionException e) {
+            log.error(message, nodePath, ZooKeeperRetry.unwrap(e.getCause()));
+        }
+        return defaultValue;
     }
 
     @Override
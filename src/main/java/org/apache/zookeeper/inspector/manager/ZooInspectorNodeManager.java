@@ -30,4 +30,12 @@ public interface ZooInspectorNodeManager extends ZooInspectorReadOnlyManager {
      * @return true if the data for the node was successfully updated
      */
     public boolean setData(String nodePath, String data);
+
+    /**
+     * @return true if the nodes cannot be changed through this manager, such
+     *         as when browsing a snapshot file
+     */
+    public default boolean isReadOnly() {
+        return false;
+    }
 }
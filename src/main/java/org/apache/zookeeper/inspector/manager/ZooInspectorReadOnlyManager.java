@@ -20,6 +20,8 @@ package org.apache.zookeeper.inspector.manager;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.zookeeper.data.Stat;
+
 /**
  * A Manager for all read only interactions between the application and a node
  * in a Zookeeper instance
@@ -47,6 +49,24 @@ public interface ZooInspectorReadOnlyManager {
      */
     public abstract List<Map<String, String>> getACLs(String nodePath);
 
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return the data, metaData and ACLs of the node, or <code>null</code>
+     *         if the node does not exist
+     */
+    public abstract NodeSnapshot getNodeSnapshot(String nodePath);
+
+    /**
+     * Never queries zookeeper, so it is safe to call while painting
+     * 
+     * @param nodePath
+     *            - the path to the node
+     * @return the last known {@link Stat} of the node, or <code>null</code>
+     *         if it is not known or may have changed since it was read
+     */
+    public abstract Stat getCachedStat(String nodePath);
+
 //    /**
 //     * @return the metaData for the current session
 //     */
@@ -96,4 +116,12 @@ public interface ZooInspectorReadOnlyManager {
      */
     public abstract List<String> getChildren(String nodePath);
 
+    /**
+     * @param nodePath
+     *            - the path to the node
+     * @return the sorted children of the node together with the {@link Stat}
+     *         of each child, or <code>null</code> if the node does not exist
+     */
+    public abstract NodeLevel getNodeLevel(String nodePath);
+
 }
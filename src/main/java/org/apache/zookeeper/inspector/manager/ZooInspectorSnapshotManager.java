@@ -0,0 +1,440 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.zookeeper.inspector.manager;
+
+import static org.apache.zookeeper.inspector.manager.ZooInspectorManagerImpl.childPath;
+import static org.apache.zookeeper.inspector.manager.ZooInspectorManagerImpl.formatACLs;
+import static org.apache.zookeeper.inspector.manager.ZooInspectorManagerImpl.formatMeta;
+import static org.apache.zookeeper.inspector.manager.ZooInspectorManagerImpl.normalizePath;
+import static org.apache.zookeeper.inspector.manager.ZooInspectorManagerImpl.pageOffset;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.apache.zookeeper.data.ACL;
+import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.inspector.encryption.DataCodec;
+import org.apache.zookeeper.inspector.encryption.DecodedData;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A read-only {@link ZooInspectorManager} which browses a {@link SnapshotTree},
+ * such as a {@link SnapshotFile}, instead of a live ensemble, so that the tree
+ * and the node viewers can show the nodes of a server which is no longer
+ * running. Connecting only sets up the data encryption manager of the
+ * connection properties; disconnecting closes the snapshot.
+ * <p>
+ * The nodes are read from the snapshot when they are asked for, on a single
+ * background thread for the asynchronous methods. Nothing can be changed, and
+ * the features which need a live connection, such as the searches, the export
+ * and the diff, are not available: their factory methods return
+ * <code>null</code> as they do when not connected. The node viewer and
+ * connection settings are those of the manager the snapshot was opened from.
+ */
+@Slf4j
+public class ZooInspectorSnapshotManager implements ZooInspectorManager {
+
+    private final SnapshotTree snapshot;
+    private final ZooInspectorManager settings;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor((runnable) -> {
+        Thread thread = new Thread(runnable, "snapshot-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean connected;
+    private volatile boolean closed;
+    private DataCodec codec;
+    private ZookeeperProperties lastConnectionProps;
+
+    /**
+     * @param snapshot
+     *            - the nodes to browse, which are closed on disconnect
+     * @param settings
+     *            - the manager whose node viewer and connection settings are
+     *            used
+     */
+    public ZooInspectorSnapshotManager(SnapshotTree snapshot, ZooInspectorManager settings) {
+        this.snapshot = snapshot;
+        this.settings = settings;
+    }
+
+    /**
+     * @return the nodes being browsed
+     */
+    public SnapshotTree getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean connect(ZookeeperProperties connectionProps) {
+        if (closed) {
+            return false;
+        }
+        try {
+            this.codec = ZooInspectorManagerImpl.createCodec(connectionProps);
+            connected = true;
+        }
+        catch (Exception e) {
+            log.error("Error occurred creating the data encryption manager", e);
+            connected = false;
+        }
+        return connected;
+    }
+
+    @Override
+    public boolean disconnect() {
+        if (closed) {
+            return false;
+        }
+        connected = false;
+        closed = true;
+        executor.shutdownNow();
+        try {
+            snapshot.close();
+        }
+        catch (IOException e) {
+            log.error("Error occurred closing snapshot: {}", snapshot.getDescription(), e);
+        }
+        return true;
+    }
+
+    /**
+     * @return the normalized path, or <code>null</code> if the snapshot is
+     *         closed
+     */
+    private String path(String nodePath) {
+        return connected ? normalizePath(nodePath) : null;
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> read) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.supplyAsync(read, executor);
+    }
+
+    @Override
+    public List<String> getChildren(String nodePath) {
+        String path = path(nodePath);
+        return path != null ? snapshot.getChildren(path) : null;
+    }
+
+    @Override
+    public CompletableFuture<List<String>> getChildrenAsync(String nodePath) {
+        return async(() -> getChildren(nodePath));
+    }
+
+    @Override
+    public NodeLevel getNodeLevel(String nodePath) {
+        return readNodeLevel(nodePath, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public CompletableFuture<NodeLevel> getNodeLevelAsync(String nodePath) {
+        return getNodeLevelAsync(nodePath, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public CompletableFuture<NodeLevel> getNodeLevelAsync(String nodePath, String after, int limit) {
+        return async(() -> readNodeLevel(nodePath, after, limit));
+    }
+
+    private NodeLevel readNodeLevel(String nodePath, String after, int limit) {
+        String path = path(nodePath);
+        Stat stat = path != null ? snapshot.getStat(path) : null;
+        if (stat == null) {
+            return null;
+        }
+        List<String> sorted = snapshot.getChildren(path);
+        int offset = pageOffset(sorted, after);
+        Stat[] childStats = new Stat[Math.min(limit, sorted.size() - offset)];
+        for (int i = 0; i < childStats.length; i++) {
+            childStats[i] = snapshot.getStat(childPath(path, sorted.get(offset + i)));
+        }
+        return new NodeLevel(path, stat, sorted, offset, childStats);
+    }
+
+    @Override
+    public void prefetch(String nodePath) {
+        // the snapshot is mapped, there is nothing to read ahead
+    }
+
+    @Override
+    public String getData(String nodePath) {
+        String path = path(nodePath);
+        return path != null && snapshot.getStat(path) != null ? decrypt(path, snapshot.getData(path)) : null;
+    }
+
+    @Override
+    public CompletableFuture<String> getDataAsync(String nodePath) {
+        return async(() -> getData(nodePath));
+    }
+
+    private String decrypt(String nodePath, byte[] data) {
+        try {
+            return new DecodedData(data, codec).getText();
+        }
+        catch (Exception e) {
+            log.error("Error occurred getting data for node: {}", nodePath, e);
+            return null;
+        }
+    }
+
+    @Override
+    public String getNodeChild(String nodePath, int childIndex) {
+        List<String> children = getChildren(nodePath);
+        if (children == null || childIndex < 0 || childIndex >= children.size()) {
+            return null;
+        }
+        return children.get(childIndex);
+    }
+
+    @Override
+    public int getNodeIndex(String nodePath) {
+        int index = nodePath.lastIndexOf("/");
+        if (index == -1 || (!nodePath.equals("/") && nodePath.charAt(nodePath.length() - 1) == '/')) {
+            throw new IllegalArgumentException("Invalid node path: " + nodePath);
+        }
+        String parentPath = nodePath.substring(0, index);
+        if (parentPath.length() > 0) {
+            List<String> children = getChildren(parentPath);
+            if (children != null) {
+                return Math.max(Collections.binarySearch(children, nodePath.substring(index + 1)), -1);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public List<Map<String, String>> getACLs(String nodePath) {
+        String path = path(nodePath);
+        List<ACL> acl = path != null ? snapshot.getACL(path) : null;
+        return acl != null ? formatACLs(acl) : new ArrayList<Map<String, String>>();
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, String>>> getACLsAsync(String nodePath) {
+        return async(() -> getACLs(nodePath));
+    }
+
+    @Override
+    public Map<String, String> getNodeMeta(String nodePath) {
+        Stat stat = getCachedStat(nodePath);
+        return stat != null ? formatMeta(stat) : new LinkedHashMap<String, String>();
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> getNodeMetaAsync(String nodePath) {
+        return async(() -> getNodeMeta(nodePath));
+    }
+
+    @Override
+    public Stat getCachedStat(String nodePath) {
+        String path = path(nodePath);
+        return path != null ? snapshot.getStat(path) : null;
+    }
+
+    @Override
+    public CompletableFuture<Stat> getStatAsync(String nodePath) {
+        return async(() -> getCachedStat(nodePath));
+    }
+
+    @Override
+    public NodeSnapshot getNodeSnapshot(String nodePath) {
+        String path = path(nodePath);
+        Stat stat = path != null ? snapshot.getStat(path) : null;
+        if (stat == null) {
+            return null;
+        }
+        byte[] rawData = snapshot.getData(path);
+        return new NodeSnapshot(path, rawData, new DecodedData(rawData, codec), stat,
+                formatMeta(stat), formatACLs(snapshot.getACL(path)));
+    }
+
+    @Override
+    public CompletableFuture<NodeSnapshot> getNodeSnapshotAsync(String nodePath) {
+        return async(() -> getNodeSnapshot(nodePath));
+    }
+
+    @Override
+    public int getNumChildren(String nodePath) {
+        Stat stat = getCachedStat(nodePath);
+        return stat != null ? stat.getNumChildren() : -1;
+    }
+
+    @Override
+    public boolean hasChildren(String nodePath) {
+        return getNumChildren(nodePath) > 0;
+    }
+
+    @Override
+    public boolean isAllowsChildren(String nodePath) {
+        Stat stat = getCachedStat(nodePath);
+        return stat != null && stat.getEphemeralOwner() == 0;
+    }
+
+    @Override
+    public CompletableFuture<Integer> getAllChildrenNumberAsync(String nodePath) {
+        return async(() -> {
+            String path = path(nodePath);
+            int count = path != null ? snapshot.getDescendantCount(path) : -1;
+            return count != -1 ? count : null;
+        });
+    }
+
+    @Override
+    public boolean createNode(String parent, String nodeName) {
+        log.warn("A snapshot is read-only, not creating node: {}", childPath(normalizePath(parent), nodeName));
+        return false;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> createNodeAsync(String parent, String nodeName) {
+        return CompletableFuture.completedFuture(createNode(parent, nodeName));
+    }
+
+    @Override
+    public boolean deleteNode(String nodePath) {
+        log.warn("A snapshot is read-only, not deleting node: {}", nodePath);
+        return false;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deleteNodeAsync(String nodePath) {
+        return CompletableFuture.completedFuture(deleteNode(nodePath));
+    }
+
+    @Override
+    public boolean setData(String nodePath, String data) {
+        log.warn("A snapshot is read-only, not setting data for node: {}", nodePath);
+        return false;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setDataAsync(String nodePath, String data) {
+        return CompletableFuture.completedFuture(setData(nodePath, data));
+    }
+
+    @Override
+    public NodeCrawler createCrawler() {
+        return null;
+    }
+
+    @Override
+    public NodeNameIndex getNameIndex() {
+        return null;
+    }
+
+    @Override
+    public NodeDataSearch createDataSearch(String text, boolean ignoreCase) {
+        return null;
+    }
+
+    @Override
+    public NodeMetaSearch createMetaSearch(NodeMetaQuery query) {
+        return null;
+    }
+
+    @Override
+    public NodeExport createExport(Path file, NodeExportFormat format, boolean gzip) {
+        return null;
+    }
+
+    @Override
+    public NodeImport createImport() {
+        return null;
+    }
+
+    @Override
+    public NodeDelete createDelete() {
+        return null;
+    }
+
+    @Override
+    public NodeDiff createDiff(ZookeeperProperties otherConnectionProps) {
+        return null;
+    }
+
+    @Override
+    public void addWatchers(Collection<String> selectedNodes, NodeListener nodeListener) {
+        // a snapshot never changes
+    }
+
+    @Override
+    public void removeWatchers(Collection<String> selectedNodes) {
+        // a snapshot never changes
+    }
+
+    @Override
+    public ZookeeperProperties getDefaultConnectionProperties() {
+        return settings.getDefaultConnectionProperties();
+    }
+
+    @Override
+    public void saveDefaultConnectionFile(ZookeeperProperties props) throws IOException {
+        settings.saveDefaultConnectionFile(props);
+    }
+
+    @Override
+    public List<String> loadNodeViewersFile(File selectedFile) throws IOException {
+        return settings.loadNodeViewersFile(selectedFile);
+    }
+
+    @Override
+    public void saveNodeViewersFile(File selectedFile, List<String> nodeViewersClassNames) throws IOException {
+        settings.saveNodeViewersFile(selectedFile, nodeViewersClassNames);
+    }
+
+    @Override
+    public void setDefaultNodeViewerConfiguration(List<String> nodeViewersClassNames) throws IOException {
+        settings.setDefaultNodeViewerConfiguration(nodeViewersClassNames);
+    }
+
+    @Override
+    public List<String> getDefaultNodeViewerConfiguration() throws IOException {
+        return settings.getDefaultNodeViewerConfiguration();
+    }
+
+    @Override
+    public ZookeeperProperties getLastConnectionProps() {
+        return lastConnectionProps;
+    }
+
+    @Override
+    public void setLastConnectionProps(ZookeeperProperties connectionProps) {
+        this.lastConnectionProps = connectionProps;
+    }
+
+}
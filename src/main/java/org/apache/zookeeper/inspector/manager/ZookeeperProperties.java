@@ -21,6 +21,13 @@ public class ZookeeperProperties {
 	private static final String PROP_KEYSTORE_PASSWORD = "keystorePassword";
 	private static final String PROP_TRUSTSTORE_LOCATION = "truststoreLocation";
 	private static final String PROP_TRUSTSTORE_PASSWORD = "truststorePassword";
+	private static final String PROP_CACHE_MAX_ENTRIES = "cacheMaxEntries";
+	private static final String PROP_CACHE_MAX_WEIGHT = "cacheMaxWeight";
+	private static final String PROP_CACHE_TTL = "cacheTtl";
+	private static final String PROP_CACHE_REFRESH = "cacheRefresh";
+	private static final String PROP_PREFETCH_DEPTH = "prefetchDepth";
+	private static final String PROP_PREFETCH_MAX_REQUESTS = "prefetchMaxRequests";
+	private static final String PROP_PREFETCH_MAX_NODES = "prefetchMaxNodes";
 	
     private String connectionString = "localhost:2181";
     private int sessionTimeoutMs = 10_000;
@@ -38,6 +45,20 @@ public class ZookeeperProperties {
     private String truststoreLocation;
     @ToString.Exclude
     private String truststorePassword;
+    /** maximum number of nodes whose children are cached */
+    private long cacheMaxEntries = 40_000;
+    /** maximum number of child names cached, replaces cacheMaxEntries if greater than 0 */
+    private long cacheMaxWeight = 0;
+    /** time after which cached children expire, 0 to keep them until they change */
+    private long cacheTtlMs = 0;
+    /** time after which cached children are reloaded in the background, 0 to never reload */
+    private long cacheRefreshMs = 0;
+    /** number of levels read ahead below a shown level, 0 to disable prefetching */
+    private int prefetchDepth = 1;
+    /** maximum number of requests of one prefetch */
+    private int prefetchMaxRequests = 200;
+    /** maximum number of nodes listed by one prefetch */
+    private int prefetchMaxNodes = 2_000;
     
 	public void load(Reader reader) throws IOException {
     	Properties props = new Properties();
@@ -78,6 +99,27 @@ public class ZookeeperProperties {
     			case PROP_TRUSTSTORE_PASSWORD:
     				truststorePassword = valueStr;
     				break;
+    			case PROP_CACHE_MAX_ENTRIES:
+    				cacheMaxEntries = Long.valueOf(valueStr);
+    				break;
+    			case PROP_CACHE_MAX_WEIGHT:
+    				cacheMaxWeight = Long.valueOf(valueStr);
+    				break;
+    			case PROP_CACHE_TTL:
+    				cacheTtlMs = Long.valueOf(valueStr);
+    				break;
+    			case PROP_CACHE_REFRESH:
+    				cacheRefreshMs = Long.valueOf(valueStr);
+    				break;
+    			case PROP_PREFETCH_DEPTH:
+    				prefetchDepth = Integer.valueOf(valueStr);
+    				break;
+    			case PROP_PREFETCH_MAX_REQUESTS:
+    				prefetchMaxRequests = Integer.valueOf(valueStr);
+    				break;
+    			case PROP_PREFETCH_MAX_NODES:
+    				prefetchMaxNodes = Integer.valueOf(valueStr);
+    				break;
     		}
     	});
 	}
@@ -88,6 +130,13 @@ public class ZookeeperProperties {
     	props.setProperty(PROP_SESSION_TIMEOUT, String.valueOf(sessionTimeoutMs));
     	props.setProperty(PROP_ENCRYPTION_MANAGER, encryptionManager);
     	props.setProperty(PROP_CLIENT_SECURE, String.valueOf(clientSecure));
+    	props.setProperty(PROP_CACHE_MAX_ENTRIES, String.valueOf(cacheMaxEntries));
+    	props.setProperty(PROP_CACHE_MAX_WEIGHT, String.valueOf(cacheMaxWeight));
+    	props.setProperty(PROP_CACHE_TTL, String.valueOf(cacheTtlMs));
+    	props.setProperty(PROP_CACHE_REFRESH, String.valueOf(cacheRefreshMs));
+    	props.setProperty(PROP_PREFETCH_DEPTH, String.valueOf(prefetchDepth));
+    	props.setProperty(PROP_PREFETCH_MAX_REQUESTS, String.valueOf(prefetchMaxRequests));
+    	props.setProperty(PROP_PREFETCH_MAX_NODES, String.valueOf(prefetchMaxNodes));
     	if (authScheme != null && !"".equals(authScheme)) {
     		props.setProperty(PROP_AUTH_SCHEME, authScheme);
     	}
@@ -20,29 +20,44 @@ package org.apache.zookeeper.retry;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 import org.apache.zookeeper.ClientCnxnSocketNetty;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooKeeper;
 import org.apache.zookeeper.client.ZKClientConfig;
 import org.apache.zookeeper.data.ACL;
 import org.apache.zookeeper.data.Stat;
+import org.apache.zookeeper.inspector.manager.Pair;
+import org.apache.zookeeper.inspector.manager.StatCache;
 import org.apache.zookeeper.inspector.manager.ZookeeperProperties;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * A Class which extends {@link ZooKeeper} and will automatically retry calls to
- * zookeeper if a {@link KeeperException.ConnectionLossException} occurs
+ * zookeeper if a {@link KeeperException.ConnectionLossException} occurs.
+ * <p>
+ * The <code>*Async</code> methods issue the same calls through the native
+ * ZooKeeper callbacks and apply the same retry rules, so many requests can be
+ * in flight at once without blocking a thread per request. The returned
+ * futures are completed on the ZooKeeper event thread; dependent stages must
+ * not block.
  */
 @Slf4j
 public class ZooKeeperRetry extends ZooKeeper {
 
-    private boolean closed = false;
+    private volatile boolean closed = false;
     private final Watcher watcher;
     private int limit = -1;
+    private volatile StatCache statCache;
 
     /**
      * @param connectString
@@ -90,7 +105,9 @@ public class ZooKeeperRetry extends ZooKeeper {
         int count = 0;
         do {
             try {
-                return super.create(path, data, acl, createMode);
+                String created = super.create(path, data, acl, createMode);
+                invalidateWithParent(path);
+                return created;
             } 
             catch (KeeperException.ConnectionLossException e) {
                 log.warn("ZooKeeper connection lost. Trying to reconnect.");
@@ -112,6 +129,8 @@ public class ZooKeeperRetry extends ZooKeeper {
         do {
             try {
                 super.delete(path, version);
+                invalidateWithParent(path);
+                return;
             } 
             catch (KeeperException.ConnectionLossException e) {
                 log.warn("ZooKeeper connection lost. Trying to reconnect.");
@@ -131,7 +150,7 @@ public class ZooKeeperRetry extends ZooKeeper {
         int count = 0;
         do {
             try {
-                return super.exists(path, watch ? watcher : null);
+                return record(path, super.exists(path, watch ? watcher : null));
             } 
             catch (KeeperException.ConnectionLossException e) {
                 log.warn("ZooKeeper connection lost. Trying to reconnect.");
@@ -146,7 +165,7 @@ public class ZooKeeperRetry extends ZooKeeper {
         int count = 0;
         do {
             try {
-                return super.exists(path, watcher);
+                return record(path, super.exists(path, watcher));
             } 
             catch (KeeperException.ConnectionLossException e) {
                 log.warn("ZooKeeper connection lost. Trying to reconnect.");
@@ -161,7 +180,11 @@ public class ZooKeeperRetry extends ZooKeeper {
         int count = 0;
         do {
             try {
-                return super.getACL(path, stat);
+                List<ACL> acl = super.getACL(path, stat);
+                if (stat != null) {
+                    record(path, stat);
+                }
+                return acl;
             } 
             catch (KeeperException.ConnectionLossException e) {
                 log.warn("ZooKeeper connection lost. Trying to reconnect.");
@@ -203,13 +226,57 @@ public class ZooKeeperRetry extends ZooKeeper {
         return new ArrayList<String>();
     }
 
+    @Override
+    public List<String> getChildren(String path, boolean watch, Stat stat)
+            throws KeeperException, InterruptedException {
+        int count = 0;
+        do {
+            try {
+                List<String> children = super.getChildren(path, watch ? watcher : null, stat);
+                if (stat != null) {
+                    record(path, stat);
+                }
+                return children;
+            } 
+            catch (KeeperException.ConnectionLossException e) {
+                log.warn("ZooKeeper connection lost. Trying to reconnect.");
+            }
+        } 
+        while (!closed && (limit == -1 || count++ < limit));
+        return new ArrayList<String>();
+    }
+
+    @Override
+    public List<String> getChildren(String path, Watcher watcher, Stat stat)
+            throws KeeperException, InterruptedException {
+        int count = 0;
+        do {
+            try {
+                List<String> children = super.getChildren(path, watcher, stat);
+                if (stat != null) {
+                    record(path, stat);
+                }
+                return children;
+            } 
+            catch (KeeperException.ConnectionLossException e) {
+                log.warn("ZooKeeper connection lost. Trying to reconnect.");
+            }
+        } 
+        while (!closed && (limit == -1 || count++ < limit));
+        return new ArrayList<String>();
+    }
+
     @Override
     public byte[] getData(String path, boolean watch, Stat stat)
             throws KeeperException, InterruptedException {
         int count = 0;
         do {
             try {
-                return super.getData(path, watch ? watcher : null, stat);
+                byte[] data = super.getData(path, watch ? watcher : null, stat);
+                if (stat != null) {
+                    record(path, stat);
+                }
+                return data;
             } 
             catch (KeeperException.ConnectionLossException e) {
                 log.warn("ZooKeeper connection lost. Trying to reconnect.");
@@ -225,7 +292,11 @@ public class ZooKeeperRetry extends ZooKeeper {
         int count = 0;
         do {
             try {
-                return super.getData(path, watcher, stat);
+                byte[] data = super.getData(path, watcher, stat);
+                if (stat != null) {
+                    record(path, stat);
+                }
+                return data;
             } 
             catch (KeeperException.ConnectionLossException e) {
                 log.warn("ZooKeeper connection lost. Trying to reconnect.");
@@ -241,7 +312,7 @@ public class ZooKeeperRetry extends ZooKeeper {
         int count = 0;
         do {
             try {
-                return super.setACL(path, acl, aclVersion);
+                return record(path, super.setACL(path, acl, aclVersion));
             } 
             catch (KeeperException.ConnectionLossException e) {
                 log.warn("ZooKeeper connection lost. Trying to reconnect.");
@@ -266,7 +337,7 @@ public class ZooKeeperRetry extends ZooKeeper {
         int count = 0;
         do {
             try {
-                return super.setData(path, data, version);
+                return record(path, super.setData(path, data, version));
             } 
             catch (KeeperException.ConnectionLossException e) {
                 log.warn("ZooKeeper connection lost. Trying to reconnect.");
@@ -285,6 +356,268 @@ public class ZooKeeperRetry extends ZooKeeper {
         return null;
     }
 
+    /**
+     * @param path
+     * @param watcher
+     * @return a future of the {@link Stat} of the node, or <code>null</code>
+     *         if the node does not exist
+     */
+    public CompletableFuture<Stat> existsAsync(String path, Watcher watcher) {
+        return retryAsync(() -> {
+            CompletableFuture<Stat> result = new CompletableFuture<Stat>();
+            super.exists(path, watcher, (rc, p, ctx, stat) -> {
+                if (rc == Code.NONODE.intValue()) {
+                    result.complete(null);
+                }
+                else {
+                    complete(result, rc, p, stat);
+                }
+            }, null);
+            return result;
+        }).thenApply((stat) -> record(path, stat));
+    }
+
+    /**
+     * @param path
+     * @param watcher
+     * @return a future of the data of the node and its {@link Stat}
+     */
+    public CompletableFuture<Pair<byte[], Stat>> getDataAsync(String path, Watcher watcher) {
+        return retryAsync(() -> {
+            CompletableFuture<Pair<byte[], Stat>> result = new CompletableFuture<Pair<byte[], Stat>>();
+            super.getData(path, watcher, (rc, p, ctx, data, stat) -> {
+                complete(result, rc, p, new Pair<byte[], Stat>(data, stat));
+            }, null);
+            return result;
+        }).whenComplete((data, error) -> recordRead(path, data != null ? data.getValue() : null, error));
+    }
+
+    /**
+     * @param path
+     * @param watcher
+     * @return a future of the (unsorted) children of the node and its
+     *         {@link Stat}
+     */
+    public CompletableFuture<Pair<List<String>, Stat>> getChildrenAsync(String path, Watcher watcher) {
+        return retryAsync(() -> {
+            CompletableFuture<Pair<List<String>, Stat>> result = new CompletableFuture<Pair<List<String>, Stat>>();
+            super.getChildren(path, watcher, (rc, p, ctx, children, stat) -> {
+                complete(result, rc, p, new Pair<List<String>, Stat>(children, stat));
+            }, null);
+            return result;
+        }).whenComplete((children, error) -> recordRead(path, children != null ? children.getValue() : null, error));
+    }
+
+    /**
+     * @param path
+     * @return a future of the ACLs of the node and its {@link Stat}
+     */
+    public CompletableFuture<Pair<List<ACL>, Stat>> getACLAsync(String path) {
+        return retryAsync(() -> {
+            CompletableFuture<Pair<List<ACL>, Stat>> result = new CompletableFuture<Pair<List<ACL>, Stat>>();
+            super.getACL(path, new Stat(), (rc, p, ctx, acl, stat) -> {
+                complete(result, rc, p, new Pair<List<ACL>, Stat>(acl, stat));
+            }, null);
+            return result;
+        }).whenComplete((acl, error) -> recordRead(path, acl != null ? acl.getValue() : null, error));
+    }
+
+    /**
+     * @param path
+     * @return a future of the number of nodes below the node, counted by the
+     *         server without listing them
+     */
+    public CompletableFuture<Integer> getAllChildrenNumberAsync(String path) {
+        return retryAsync(() -> {
+            CompletableFuture<Integer> result = new CompletableFuture<Integer>();
+            super.getAllChildrenNumber(path, (rc, p, ctx, number) -> {
+                complete(result, rc, p, number);
+            }, null);
+            return result;
+        });
+    }
+
+    /**
+     * An existing node is treated as successfully created, as in
+     * {@link #create(String, byte[], List, CreateMode)}
+     * 
+     * @param path
+     * @param data
+     * @param acl
+     * @param createMode
+     * @return a future of the path of the created node
+     */
+    public CompletableFuture<String> createAsync(String path, byte[] data, List<ACL> acl, CreateMode createMode) {
+        return retryAsync(() -> {
+            CompletableFuture<String> result = new CompletableFuture<String>();
+            super.create(path, data, acl, createMode, (rc, p, ctx, name) -> {
+                if (rc == Code.NODEEXISTS.intValue()) {
+                    result.complete(p);
+                }
+                else {
+                    complete(result, rc, p, name);
+                }
+            }, null);
+            return result.exceptionallyCompose((error) -> {
+                if (unwrap(error) instanceof KeeperException.ConnectionLossException) {
+                    return existsAsync(path, null).thenCompose((stat) -> stat != null
+                            ? CompletableFuture.completedFuture(path)
+                            : CompletableFuture.<String>failedFuture(unwrap(error)));
+                }
+                return CompletableFuture.failedFuture(unwrap(error));
+            });
+        }).whenComplete((created, error) -> invalidateWithParent(path));
+    }
+
+    /**
+     * A missing node is treated as successfully deleted, as in
+     * {@link #delete(String, int)}
+     * 
+     * @param path
+     * @param version
+     * @return a future completed once the node has been deleted
+     */
+    public CompletableFuture<Void> deleteAsync(String path, int version) {
+        return retryAsync(() -> {
+            CompletableFuture<Void> result = new CompletableFuture<Void>();
+            super.delete(path, version, (rc, p, ctx) -> {
+                if (rc == Code.NONODE.intValue()) {
+                    result.complete(null);
+                }
+                else {
+                    complete(result, rc, p, null);
+                }
+            }, null);
+            return result;
+        }).whenComplete((ignored, error) -> invalidateWithParent(path));
+    }
+
+    /**
+     * @param path
+     * @param data
+     * @param version
+     * @return a future of the new {@link Stat} of the node
+     */
+    public CompletableFuture<Stat> setDataAsync(String path, byte[] data, int version) {
+        return retryAsync(() -> {
+            CompletableFuture<Stat> result = new CompletableFuture<Stat>();
+            super.setData(path, data, version, (rc, p, ctx, stat) -> {
+                complete(result, rc, p, stat);
+            }, null);
+            return result;
+        }).whenComplete((stat, error) -> recordRead(path, stat, error));
+    }
+
+    /**
+     * Submits the operations as one transaction. Read operations
+     * ({@link Op#getData(String)}, {@link Op#getChildren(String)}) and write
+     * operations cannot be mixed in the same transaction. A transaction
+     * rejected by the server still completes normally; the failed operations
+     * are reported as {@link OpResult.ErrorResult}s.
+     * 
+     * @param ops
+     * @return a future of the results of the operations
+     */
+    public CompletableFuture<List<OpResult>> multiAsync(Iterable<Op> ops) {
+        return retryAsync(() -> {
+            CompletableFuture<List<OpResult>> result = new CompletableFuture<List<OpResult>>();
+            super.multi(ops, (rc, p, ctx, opResults) -> {
+                if (opResults != null) {
+                    result.complete(opResults);
+                }
+                else {
+                    complete(result, rc, p, null);
+                }
+            }, null);
+            return result;
+        });
+    }
+
+    /**
+     * @param statCache
+     *            - the {@link StatCache} to fill with every {@link Stat}
+     *            returned by the server
+     */
+    public void setStatCache(StatCache statCache) {
+        this.statCache = statCache;
+    }
+
+    /**
+     * @param path
+     * @param stat
+     *            - the {@link Stat} returned for the node, or
+     *            <code>null</code> if the node does not exist
+     * @return the stat
+     */
+    private Stat record(String path, Stat stat) {
+        StatCache cache = statCache;
+        if (cache != null) {
+            cache.put(path, stat);
+        }
+        return stat;
+    }
+
+    private void recordRead(String path, Stat stat, Throwable error) {
+        if (error == null) {
+            if (stat != null) {
+                record(path, stat);
+            }
+        }
+        else if (unwrap(error) instanceof KeeperException.NoNodeException) {
+            record(path, null);
+        }
+    }
+
+    private void invalidateWithParent(String path) {
+        StatCache cache = statCache;
+        if (cache != null) {
+            cache.invalidateWithParent(path);
+        }
+    }
+
+    /**
+     * @param error
+     * @return the cause of the error if it is wrapped by a
+     *         {@link CompletionException}
+     */
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, int rc, String path, T value) {
+        if (rc == Code.OK.intValue()) {
+            result.complete(value);
+        }
+        else {
+            result.completeExceptionally(KeeperException.create(Code.get(rc), path));
+        }
+    }
+
+    private <T> CompletableFuture<T> retryAsync(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        retryAsync(call, result, 0);
+        return result;
+    }
+
+    private <T> void retryAsync(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result, int count) {
+        call.get().whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            }
+            else if (unwrap(error) instanceof KeeperException.ConnectionLossException
+                    && !closed && (limit == -1 || count < limit)) {
+                log.warn("ZooKeeper connection lost. Trying to reconnect.");
+                retryAsync(call, result, count + 1);
+            }
+            else {
+                result.completeExceptionally(unwrap(error));
+            }
+        });
+    }
+
     /**
      * @param limit
      */